@@ -0,0 +1,387 @@
+package ch.cyberduck.core.azure;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.DefaultIOExceptionMappingService;
+import ch.cyberduck.core.DirectoryDelimiterPathContainerService;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.LocaleFactory;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathContainerService;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ChecksumException;
+import ch.cyberduck.core.exception.NotfoundException;
+import ch.cyberduck.core.features.Upload;
+import ch.cyberduck.core.features.Write;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.ByteArrayPool;
+import ch.cyberduck.core.io.Checksum;
+import ch.cyberduck.core.io.ChecksumInputStream;
+import ch.cyberduck.core.io.HashAlgorithm;
+import ch.cyberduck.core.io.StreamCopier;
+import ch.cyberduck.core.io.StreamListener;
+import ch.cyberduck.core.io.ThrottledInputStream;
+import ch.cyberduck.core.preferences.Preferences;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.shared.DefaultUploadFeature;
+import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.transfer.multipart.PartUploadEngine;
+import ch.cyberduck.core.transfer.multipart.PartUploadService;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.log4j.Logger;
+import org.bouncycastle.util.encoders.Base64;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.microsoft.azure.storage.AccessCondition;
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.StorageException;
+import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.BlockEntry;
+import com.microsoft.azure.storage.blob.BlockListingFilter;
+import com.microsoft.azure.storage.blob.BlockSearchMode;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+
+/**
+ * Upload block blob with blocks put concurrently and committed with block list when all blocks are uploaded. Block
+ * identifiers are derived from the block number to resume an interrupted upload from uncommitted blocks.
+ */
+public class AzureBlockUploadService implements Upload<Void> {
+    private static final Logger log = Logger.getLogger(AzureBlockUploadService.class);
+
+    /**
+     * The maximum allowed blocks in a block blob.
+     */
+    public static final int MAXIMUM_UPLOAD_PARTS = 50000;
+
+    /**
+     * Block identifier before encoding. Must be of same length for all blocks of a blob.
+     */
+    private static final Pattern BLOCK_ID = Pattern.compile("part-(\\d{6})");
+
+    private final Preferences preferences
+        = PreferencesFactory.get();
+
+    private final PathContainerService containerService
+        = new DirectoryDelimiterPathContainerService();
+
+    private final AzureSession session;
+    private final OperationContext context;
+
+    private final Long partsize;
+    private final Integer concurrency;
+
+    public AzureBlockUploadService(final AzureSession session, final OperationContext context) {
+        this(session, context, PreferencesFactory.get().getLong("azure.upload.blockblob.size"),
+            PreferencesFactory.get().getInteger("azure.upload.blockblob.concurrency"));
+    }
+
+    public AzureBlockUploadService(final AzureSession session, final OperationContext context,
+                                   final Long partsize, final Integer concurrency) {
+        this.session = session;
+        this.context = context;
+        this.partsize = partsize;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public Write.Append append(final Path file, final TransferStatus status) throws BackgroundException {
+        final Map<Integer, BlockEntry> blocks = this.uncommitted(file, this.blob(file), status.getLength() + status.getOffset());
+        if(blocks.isEmpty()) {
+            return Write.override;
+        }
+        long size = 0L;
+        for(BlockEntry block : blocks.values()) {
+            size += block.getSize();
+        }
+        return new Write.Append(true).withStatus(status).withSize(size);
+    }
+
+    @Override
+    public Void upload(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
+                       final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
+        // Buffers to read block once for both checksum and upload
+        final ByteArrayPool buffers = new ByteArrayPool(concurrency);
+        return new PartUploadEngine(session.getHost(), concurrency).upload(new PartUploadService<CloudBlockBlob, BlockEntry, Void>() {
+            @Override
+            public CloudBlockBlob start(final Path file, final TransferStatus status) throws BackgroundException {
+                final CloudBlockBlob blob = blob(file);
+                if(status.isExists()) {
+                    if(preferences.getBoolean("azure.upload.snapshot")) {
+                        try {
+                            blob.createSnapshot(AccessCondition.generateEmptyCondition(), new BlobRequestOptions(), context);
+                        }
+                        catch(StorageException e) {
+                            throw new AzureExceptionMappingService().map("Upload {0} failed", e, file);
+                        }
+                    }
+                }
+                return blob;
+            }
+
+            @Override
+            public Map<Integer, BlockEntry> list(final Path file, final CloudBlockBlob blob, final TransferStatus status) throws BackgroundException {
+                return uncommitted(file, blob, status.getLength() + status.getOffset());
+            }
+
+            @Override
+            public BlockEntry upload(final Path file, final Local local, final CloudBlockBlob blob, final BandwidthThrottle throttle,
+                                     final StreamListener counter, final TransferStatus status, final TransferStatus overall,
+                                     final ConnectionCallback callback) throws BackgroundException {
+                final String id = toBlockId(status.getPart());
+                final int length = (int) status.getLength();
+                final byte[] buffer = buffers.borrow(length);
+                try {
+                    // Compute MD5 of block while reading block from file
+                    final Checksum checksum = read(local, status.getOffset(), buffer, length);
+                    final OperationContext operation = operation();
+                    final InputStream in = new ThrottledInputStream(new ByteArrayInputStream(buffer, 0, length), throttle);
+                    final BlobRequestOptions options = new BlobRequestOptions();
+                    options.setConcurrentRequestCount(1);
+                    options.setUseTransactionalContentMD5(false);
+                    blob.uploadBlock(id, in, length, AccessCondition.generateEmptyCondition(), options, operation);
+                    verify(file, status.getPart(), checksum, operation.getLastResult().getContentMD5());
+                    // Count block once when acknowledged as the client may read the stream again when retrying
+                    counter.sent(length);
+                    final BlockEntry block = new BlockEntry(id, BlockSearchMode.UNCOMMITTED);
+                    block.setSize(length);
+                    return block;
+                }
+                catch(StorageException e) {
+                    throw new AzureExceptionMappingService().map("Upload {0} failed", e, file);
+                }
+                catch(IOException e) {
+                    throw new DefaultIOExceptionMappingService().map("Upload {0} failed", e, file);
+                }
+                finally {
+                    buffers.release(buffer);
+                }
+            }
+
+            @Override
+            public Void complete(final Path file, final CloudBlockBlob blob, final SortedMap<Integer, BlockEntry> blocks,
+                                 final TransferStatus status) throws BackgroundException {
+                if(StringUtils.isNotBlank(status.getMime())) {
+                    blob.getProperties().setContentType(status.getMime());
+                }
+                // Add previous metadata when overwriting file
+                final HashMap<String, String> headers = new HashMap<>(status.getMetadata());
+                blob.setMetadata(headers);
+                // Remove additional headers not allowed in metadata and move to properties
+                if(headers.containsKey(HttpHeaders.CACHE_CONTROL)) {
+                    blob.getProperties().setCacheControl(headers.get(HttpHeaders.CACHE_CONTROL));
+                    headers.remove(HttpHeaders.CACHE_CONTROL);
+                }
+                if(headers.containsKey(HttpHeaders.CONTENT_TYPE)) {
+                    blob.getProperties().setContentType(headers.get(HttpHeaders.CONTENT_TYPE));
+                    headers.remove(HttpHeaders.CONTENT_TYPE);
+                }
+                final Checksum checksum = status.getChecksum();
+                if(Checksum.NONE != checksum) {
+                    switch(checksum.algorithm) {
+                        case md5:
+                            try {
+                                blob.getProperties().setContentMD5(Base64.toBase64String(Hex.decodeHex(status.getChecksum().hash.toCharArray())));
+                                headers.remove(HttpHeaders.CONTENT_MD5);
+                            }
+                            catch(DecoderException e) {
+                                // Ignore
+                            }
+                            break;
+                    }
+                }
+                try {
+                    // Blocks ordered by block number
+                    blob.commitBlockList(new ArrayList<>(blocks.values()), AccessCondition.generateEmptyCondition(), new BlobRequestOptions(), context);
+                    if(log.isInfoEnabled()) {
+                        log.info(String.format("Committed block list for %s with %d blocks", file, blocks.size()));
+                    }
+                    return null;
+                }
+                catch(StorageException e) {
+                    throw new AzureExceptionMappingService().map("Upload {0} failed", e, file);
+                }
+            }
+
+            @Override
+            public long getLength(final BlockEntry block) {
+                return block.getSize();
+            }
+
+            @Override
+            public long getPartSize(final long size) {
+                return AzureBlockUploadService.this.getPartSize(size);
+            }
+        }, file, local, throttle, listener, status, callback);
+    }
+
+    private long getPartSize(final long size) {
+        return Math.max((size / (MAXIMUM_UPLOAD_PARTS - 1)), partsize);
+    }
+
+    private CloudBlockBlob blob(final Path file) throws BackgroundException {
+        try {
+            return session.getClient().getContainerReference(containerService.getContainer(file).getName())
+                .getBlockBlobReference(containerService.getKey(file));
+        }
+        catch(StorageException e) {
+            throw new AzureExceptionMappingService().map("Upload {0} failed", e, file);
+        }
+        catch(URISyntaxException e) {
+            throw new NotfoundException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param size Full size of file
+     * @return Uncommitted blocks by block number with identifier and length matching the block of this upload
+     */
+    private Map<Integer, BlockEntry> uncommitted(final Path file, final CloudBlockBlob blob, final long size) throws BackgroundException {
+        final Map<Integer, BlockEntry> blocks = new HashMap<>();
+        final List<BlockEntry> list;
+        try {
+            list = blob.downloadBlockList(BlockListingFilter.UNCOMMITTED, AccessCondition.generateEmptyCondition(), new BlobRequestOptions(), context);
+        }
+        catch(StorageException e) {
+            if(404 == e.getHttpStatusCode()) {
+                // No blob with uncommitted blocks
+                return blocks;
+            }
+            throw new AzureExceptionMappingService().map("Upload {0} failed", e, file);
+        }
+        final long partsize = this.getPartSize(size);
+        for(BlockEntry block : list) {
+            final Integer number = fromBlockId(block.getId());
+            if(null == number) {
+                continue;
+            }
+            // Skip blocks of upload with different part size
+            final long expected = Math.min(partsize, size - (number - 1) * partsize);
+            if(expected != block.getSize()) {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Skip block %d with size %d not matching %d", number, block.getSize(), expected));
+                }
+                continue;
+            }
+            blocks.put(number, block);
+        }
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Found %d uncommitted blocks for %s", blocks.size(), file));
+        }
+        return blocks;
+    }
+
+    /**
+     * Context for single request sharing configuration of session
+     */
+    private OperationContext operation() {
+        final OperationContext operation = new OperationContext();
+        operation.setLoggingEnabled(context.isLoggingEnabled());
+        operation.setLogger(context.getLogger());
+        operation.setUserHeaders(context.getUserHeaders());
+        operation.setProxy(context.getProxy());
+        operation.setSendingRequestEventHandler(context.getSendingRequestEventHandler());
+        return operation;
+    }
+
+    /**
+     * Read block from file into buffer
+     *
+     * @return MD5 of block
+     */
+    private static Checksum read(final Local local, final long offset, final byte[] buffer, final int length) throws BackgroundException {
+        final InputStream in = local.getInputStream();
+        try {
+            final ChecksumInputStream checksum = new ChecksumInputStream(offset > 0 ? StreamCopier.skip(in, offset) : in, HashAlgorithm.md5);
+            IOUtils.readFully(checksum, buffer, 0, length);
+            return checksum.getChecksum();
+        }
+        catch(IOException e) {
+            throw new DefaultIOExceptionMappingService().map(e);
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * @param checksum MD5 computed while reading block
+     * @param reply    Base64 encoded MD5 of block computed by server
+     */
+    private static void verify(final Path file, final int number, final Checksum checksum, final String reply) throws ChecksumException {
+        if(StringUtils.isBlank(reply)) {
+            log.warn(String.format("Missing MD5 in response for block %d of %s", number, file));
+            return;
+        }
+        final String hash = Hex.encodeHexString(Base64.decode(reply));
+        if(!StringUtils.equalsIgnoreCase(checksum.hash, hash)) {
+            throw new ChecksumException(MessageFormat.format(LocaleFactory.localizedString("Upload {0} failed", "Error"), file.getName()),
+                MessageFormat.format("Mismatch between MD5 hash {0} of uploaded data and MD5 hash {1} returned by the server",
+                    checksum.hash, hash));
+        }
+    }
+
+    /**
+     * @param number Block number
+     * @return Base64 encoded block identifier
+     */
+    protected static String toBlockId(final int number) {
+        return Base64.toBase64String(String.format("part-%06d", number).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param id Base64 encoded block identifier
+     * @return Block number or null if identifier was not created for block upload
+     */
+    protected static Integer fromBlockId(final String id) {
+        final String decoded;
+        try {
+            decoded = new String(Base64.decode(id), StandardCharsets.UTF_8);
+        }
+        catch(RuntimeException e) {
+            return null;
+        }
+        final Matcher matcher = BLOCK_ID.matcher(decoded);
+        if(matcher.matches()) {
+            return Integer.valueOf(matcher.group(1));
+        }
+        return null;
+    }
+
+    @Override
+    public Upload<Void> withWriter(final Write<Void> writer) {
+        // Blocks are put with the blob client and cannot be written with a different writer
+        return new DefaultUploadFeature<>(writer);
+    }
+}
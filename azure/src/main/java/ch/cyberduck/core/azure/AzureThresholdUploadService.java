@@ -0,0 +1,123 @@
+package ch.cyberduck.core.azure;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathAttributes;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.features.Upload;
+import ch.cyberduck.core.features.Write;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.StreamListener;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.shared.DefaultUploadFeature;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.log4j.Logger;
+
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.blob.BlobType;
+
+/**
+ * Upload block blobs larger than threshold with concurrent blocks. Append blobs and smaller files are written with a
+ * single stream.
+ */
+public class AzureThresholdUploadService implements Upload<Void> {
+    private static final Logger log = Logger.getLogger(AzureThresholdUploadService.class);
+
+    private final AzureSession session;
+    private final OperationContext context;
+    private final BlobType blobType;
+    private final Long threshold;
+
+    private Write<Void> writer;
+
+    public AzureThresholdUploadService(final AzureSession session, final OperationContext context) {
+        this(session, context, BlobType.valueOf(PreferencesFactory.get().getProperty("azure.upload.blobtype")),
+            PreferencesFactory.get().getLong("azure.upload.blockblob.threshold"));
+    }
+
+    public AzureThresholdUploadService(final AzureSession session, final OperationContext context, final BlobType blobType, final Long threshold) {
+        this.session = session;
+        this.context = context;
+        this.blobType = blobType;
+        this.threshold = threshold;
+        this.writer = new AzureWriteFeature(session, blobType, context);
+    }
+
+    @Override
+    public Write.Append append(final Path file, final TransferStatus status) throws BackgroundException {
+        final Write.Append append = writer.append(file, status);
+        if(append.append) {
+            // Existing append blob
+            return append;
+        }
+        if(status.getLength() + status.getOffset() >= threshold) {
+            if(this.isBlockUpload(file)) {
+                // Resume from uncommitted blocks
+                return new AzureBlockUploadService(session, context).append(file, status);
+            }
+        }
+        return append;
+    }
+
+    @Override
+    public Void upload(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
+                       final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
+        if(status.getLength() + status.getOffset() >= threshold) {
+            if(this.isBlockUpload(file) && this.isBlockBlob(file, status)) {
+                return new AzureBlockUploadService(session, context).upload(file, local, throttle, listener, status, callback);
+            }
+            if(log.isInfoEnabled()) {
+                log.info(String.format("Upload %s with single stream using %s", file, writer));
+            }
+        }
+        return new DefaultUploadFeature<>(writer).upload(file, local, throttle, listener, status, callback);
+    }
+
+    /**
+     * @return False if content must be written with a writer other than the default such as for files in vault
+     */
+    private boolean isBlockUpload(final Path file) {
+        if(file.getType().contains(Path.Type.encrypted)) {
+            return false;
+        }
+        return writer instanceof AzureWriteFeature;
+    }
+
+    /**
+     * @return True if existing blob or new blob with default type is block blob
+     */
+    private boolean isBlockBlob(final Path file, final TransferStatus status) throws BackgroundException {
+        if(status.isExists()) {
+            final PathAttributes attr = new AzureAttributesFinderFeature(session, context).find(file);
+            return BlobType.BLOCK_BLOB == BlobType.valueOf(attr.getCustom().get(AzureAttributesFinderFeature.KEY_BLOB_TYPE));
+        }
+        if(status.isAppend()) {
+            // Uncommitted blocks only
+            return true;
+        }
+        return BlobType.BLOCK_BLOB == blobType;
+    }
+
+    @Override
+    public Upload<Void> withWriter(final Write<Void> writer) {
+        this.writer = writer;
+        return this;
+    }
+}
@@ -0,0 +1,122 @@
+package ch.cyberduck.core.azure;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.BytecountStreamListener;
+import ch.cyberduck.core.DisabledConnectionCallback;
+import ch.cyberduck.core.DisabledLoginCallback;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.features.Delete;
+import ch.cyberduck.core.features.Write;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.MD5ChecksumCompute;
+import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.test.IntegrationTest;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import com.microsoft.azure.storage.AccessCondition;
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.CloudBlockBlob;
+
+import static org.junit.Assert.*;
+
+@Category(IntegrationTest.class)
+public class AzureBlockUploadServiceTest extends AbstractAzureTest {
+
+    @Test
+    public void testBlockId() {
+        assertEquals(Integer.valueOf(1), AzureBlockUploadService.fromBlockId(AzureBlockUploadService.toBlockId(1)));
+        assertEquals(Integer.valueOf(50000), AzureBlockUploadService.fromBlockId(AzureBlockUploadService.toBlockId(50000)));
+        assertEquals(AzureBlockUploadService.toBlockId(1).length(), AzureBlockUploadService.toBlockId(50000).length());
+        assertNull(AzureBlockUploadService.fromBlockId("QmxvY2tfMDAwMDE="));
+    }
+
+    @Test
+    public void testUploadMultipleBlocks() throws Exception {
+        final OperationContext context = new OperationContext();
+        final AzureBlockUploadService service = new AzureBlockUploadService(session, context, 1024L * 1024L, 4);
+        final Path container = new Path("cyberduck", EnumSet.of(Path.Type.directory, Path.Type.volume));
+        final Path test = new Path(container, UUID.randomUUID().toString(), EnumSet.of(Path.Type.file));
+        final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final byte[] content = RandomUtils.nextBytes(5 * 1024 * 1024 + 1);
+        final OutputStream out = local.getOutputStream(false);
+        IOUtils.write(content, out);
+        out.close();
+        final TransferStatus status = new TransferStatus();
+        status.setLength(content.length);
+        status.setMime("text/plain");
+        status.setChecksum(new MD5ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus().withLength(content.length)));
+        final BytecountStreamListener count = new BytecountStreamListener();
+        service.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED), count, status, new DisabledConnectionCallback());
+        assertEquals(content.length, count.getSent());
+        assertTrue(status.isComplete());
+        assertEquals(content.length, new AzureAttributesFinderFeature(session, context).find(test).getSize());
+        assertEquals("text/plain", new AzureMetadataFeature(session, context).getMetadata(test).get("Content-Type"));
+        final byte[] buffer = new byte[content.length];
+        final InputStream in = new AzureReadFeature(session, context).read(test, new TransferStatus(), new DisabledConnectionCallback());
+        IOUtils.readFully(in, buffer);
+        in.close();
+        assertArrayEquals(content, buffer);
+        new AzureDeleteFeature(session, context).delete(Collections.singletonList(test), new DisabledLoginCallback(), new Delete.DisabledCallback());
+        local.delete();
+    }
+
+    @Test
+    public void testResumeUncommittedBlocks() throws Exception {
+        final OperationContext context = new OperationContext();
+        final AzureBlockUploadService service = new AzureBlockUploadService(session, context, 1024L * 1024L, 2);
+        final Path container = new Path("cyberduck", EnumSet.of(Path.Type.directory, Path.Type.volume));
+        final Path test = new Path(container, UUID.randomUUID().toString(), EnumSet.of(Path.Type.file));
+        final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final byte[] content = RandomUtils.nextBytes(3 * 1024 * 1024);
+        final OutputStream out = local.getOutputStream(false);
+        IOUtils.write(content, out);
+        out.close();
+        // Interrupted upload with first block uploaded
+        final CloudBlockBlob blob = session.getClient().getContainerReference(container.getName()).getBlockBlobReference(test.getName());
+        blob.uploadBlock(AzureBlockUploadService.toBlockId(1), new ByteArrayInputStream(content, 0, 1024 * 1024), 1024 * 1024,
+            AccessCondition.generateEmptyCondition(), new BlobRequestOptions(), context);
+        final Write.Append append = service.append(test, new TransferStatus().withLength(content.length));
+        assertTrue(append.append);
+        assertEquals(1024L * 1024L, append.size, 0L);
+        final TransferStatus status = new TransferStatus().withLength(content.length - append.size).withOffset(append.size).append(true);
+        final BytecountStreamListener count = new BytecountStreamListener();
+        service.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED), count, status, new DisabledConnectionCallback());
+        assertEquals(2 * 1024 * 1024, count.getSent());
+        assertTrue(status.isComplete());
+        final byte[] buffer = new byte[content.length];
+        final InputStream in = new AzureReadFeature(session, context).read(test, new TransferStatus(), new DisabledConnectionCallback());
+        IOUtils.readFully(in, buffer);
+        in.close();
+        assertArrayEquals(content, buffer);
+        assertFalse(service.append(test, new TransferStatus().withLength(content.length)).append);
+        new AzureDeleteFeature(session, context).delete(Collections.singletonList(test), new DisabledLoginCallback(), new Delete.DisabledCallback());
+        local.delete();
+    }
+}
@@ -0,0 +1,111 @@
+package ch.cyberduck.core.azure;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.DisabledConnectionCallback;
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.features.Write;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.DisabledStreamListener;
+import ch.cyberduck.core.io.StatusOutputStream;
+import ch.cyberduck.core.io.VoidStatusOutputStream;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import com.microsoft.azure.storage.OperationContext;
+import com.microsoft.azure.storage.blob.BlobType;
+
+import static org.junit.Assert.*;
+
+public class AzureThresholdUploadServiceTest {
+
+    private static Local write(final byte[] content) throws Exception {
+        final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final OutputStream out = local.getOutputStream(false);
+        IOUtils.write(content, out);
+        out.close();
+        return local;
+    }
+
+    @Test
+    public void testUploadWithWriter() throws Exception {
+        final AzureSession session = new AzureSession(new Host(new AzureProtocol()));
+        final OperationContext context = new OperationContext();
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        // Writer set by vault
+        final Write<Void> writer = new Write<Void>() {
+            @Override
+            public StatusOutputStream<Void> write(final Path file, final TransferStatus status, final ConnectionCallback callback) {
+                return new VoidStatusOutputStream(written);
+            }
+
+            @Override
+            public Append append(final Path file, final TransferStatus status) {
+                return Write.override;
+            }
+        };
+        final AzureThresholdUploadService service = new AzureThresholdUploadService(session, context, BlobType.BLOCK_BLOB, 0L);
+        service.withWriter(writer);
+        final byte[] content = RandomUtils.nextBytes(1024);
+        final Local local = write(content);
+        final Path test = new Path("/c/" + UUID.randomUUID().toString(), EnumSet.of(Path.Type.file));
+        final TransferStatus status = new TransferStatus().withLength(content.length);
+        assertFalse(service.append(test, status).append);
+        service.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED), new DisabledStreamListener(),
+            status, new DisabledConnectionCallback());
+        assertArrayEquals(content, written.toByteArray());
+        local.delete();
+    }
+
+    @Test
+    public void testUploadEncrypted() throws Exception {
+        final AzureSession session = new AzureSession(new Host(new AzureProtocol()));
+        final OperationContext context = new OperationContext();
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final AzureThresholdUploadService service = new AzureThresholdUploadService(session, context, BlobType.BLOCK_BLOB, 0L);
+        service.withWriter(new AzureWriteFeature(session, BlobType.BLOCK_BLOB, context) {
+            @Override
+            public StatusOutputStream<Void> write(final Path file, final TransferStatus status, final ConnectionCallback callback) {
+                return new VoidStatusOutputStream(written);
+            }
+
+            @Override
+            public Append append(final Path file, final TransferStatus status) {
+                return Write.override;
+            }
+        });
+        final byte[] content = RandomUtils.nextBytes(1024);
+        final Local local = write(content);
+        final Path test = new Path("/c/" + UUID.randomUUID().toString(), EnumSet.of(Path.Type.file, Path.Type.encrypted));
+        final TransferStatus status = new TransferStatus().withLength(content.length);
+        assertFalse(service.append(test, status).append);
+        service.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED), new DisabledStreamListener(),
+            status, new DisabledConnectionCallback());
+        assertArrayEquals(content, written.toByteArray());
+        local.delete();
+    }
+}
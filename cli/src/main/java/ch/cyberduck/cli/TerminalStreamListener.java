@@ -58,12 +58,12 @@ public class TerminalStreamListener implements StreamListener {
     }
 
     private void increment() {
-        final TransferProgress progress = meter.getStatus();
         if(System.currentTimeMillis() - timestamp.get() < 100L) {
-            if(!progress.isComplete()) {
+            if(!meter.isComplete()) {
                 return;
             }
         }
+        final TransferProgress progress = meter.getStatus();
         try {
             lock.acquire();
             final BigDecimal fraction;
@@ -23,36 +23,125 @@ import ch.cyberduck.core.cache.LRUCache;
 import org.apache.log4j.Logger;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 
 public abstract class AbstractCache<T extends Referenceable> implements Cache<T> {
     private static final Logger log = Logger.getLogger(AbstractCache.class);
 
     private final LRUCache<T, AttributedList<T>> impl;
 
+    /**
+     * Index of parent directory for children in cached directory listings by reference. Resolved against the current
+     * contents of the cached listing on lookup as listings may be modified in place.
+     */
+    private final Map<CacheReference<?>, T> reverse = new ConcurrentHashMap<>();
+    /**
+     * Revision of cached directory listing when indexed
+     */
+    private final Map<T, Long> revisions = new ConcurrentHashMap<>();
+
     public AbstractCache(int size) {
+        final RemovalListener<T, AttributedList<T>> listener = new RemovalListener<T, AttributedList<T>>() {
+            @Override
+            public void onRemoval(final RemovalNotification<T, AttributedList<T>> notification) {
+                if(notification.getCause() == RemovalCause.REPLACED) {
+                    // Index already updated when putting replacement
+                    return;
+                }
+                unindex(notification.getKey(), notification.getValue());
+            }
+        };
         if(size == Integer.MAX_VALUE) {
             // Unlimited
-            impl = LRUCache.build();
+            impl = LRUCache.build(listener);
         }
         else {
             // Will inflate to the given size
-            impl = LRUCache.build(size);
+            impl = LRUCache.build(listener, size);
         }
     }
 
     @Override
     public T lookup(final CacheReference<T> reference) {
-        for(AttributedList<T> entry : impl.asMap().values()) {
-            final T f = entry.find(reference);
-            if(null == f) {
-                continue;
+        T f = this.find(reference);
+        if(null == f) {
+            // Index listings with items added without replacing the listing
+            if(this.reindex()) {
+                f = this.find(reference);
+            }
+        }
+        if(null == f) {
+            log.warn(String.format("Lookup failed for %s in cache", reference));
+        }
+        return f;
+    }
+
+    /**
+     * @return Item in cached directory listing of indexed parent or null
+     */
+    private T find(final CacheReference<T> reference) {
+        final T parent = reverse.get(reference);
+        if(null == parent) {
+            return null;
+        }
+        final AttributedList<T> children = impl.asMap().get(parent);
+        if(null != children) {
+            final T f = children.find(reference);
+            if(null != f) {
+                return f;
             }
-            return f;
         }
-        log.warn(String.format("Lookup failed for %s in cache", reference));
+        // Removed from cached directory listing
+        reverse.remove(reference, parent);
         return null;
     }
 
+    /**
+     * Index cached directory listings modified in place since indexed
+     *
+     * @return True if any listing was indexed
+     */
+    private boolean reindex() {
+        boolean modified = false;
+        for(Map.Entry<T, AttributedList<T>> entry : impl.asMap().entrySet()) {
+            final Long revision = revisions.get(entry.getKey());
+            if(null == revision || revision != entry.getValue().revision()) {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Index modified listing of %s", entry.getKey()));
+                }
+                this.index(entry.getKey(), entry.getValue());
+                modified = true;
+            }
+        }
+        return modified;
+    }
+
+    private void index(final T parent, final AttributedList<T> children) {
+        if(null == children) {
+            return;
+        }
+        // Save revision before reading children to index again on concurrent modification
+        revisions.put(parent, children.revision());
+        for(T f : children.toList()) {
+            reverse.put(this.reference(f), parent);
+        }
+    }
+
+    private void unindex(final T parent, final AttributedList<T> children) {
+        if(null == children) {
+            return;
+        }
+        revisions.remove(parent);
+        for(T f : children.toList()) {
+            // Only remove if not indexed with other parent in the meantime
+            reverse.remove(this.reference(f), parent);
+        }
+    }
+
     @Override
     public long size() {
         return impl.size();
@@ -122,6 +211,8 @@ public abstract class AbstractCache<T extends Referenceable> implements Cache<T>
             log.debug(String.format("Caching %s", reference));
         }
         final AttributedList<T> replaced = impl.get(reference);
+        this.unindex(reference, replaced);
+        this.index(reference, children);
         impl.put(reference, children);
         if(null == replaced) {
             // Not previously in cache
@@ -169,6 +260,8 @@ public abstract class AbstractCache<T extends Referenceable> implements Cache<T>
             log.info(String.format("Clear cache %s", this));
         }
         impl.clear();
+        reverse.clear();
+        revisions.clear();
     }
 
     @Override
@@ -20,20 +20,32 @@ package ch.cyberduck.core;
 
 import org.apache.log4j.Logger;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 
 /**
- * A sortable list with a map to lookup values by key.
+ * A sortable list with a map to lookup values by key. Appending is amortized constant time. Iterators and lists
+ * returned operate on a snapshot not affected by later modifications. The backing array is only copied when it
+ * is modified other than by appending after a snapshot has been handed out.
  */
 public class AttributedList<E extends Referenceable> implements Iterable<E> {
     private static final Logger log = Logger.getLogger(AttributedList.class);
 
+    /**
+     * Minimum number of elements to build hash index for lookups
+     */
+    private static final int INDEX_THRESHOLD = 32;
+
+    private static final int DEFAULT_CAPACITY = 10;
+
     public static final AttributedList EMPTY = new AttributedList() {
         @Override
         public boolean add(final Referenceable o) {
@@ -51,8 +63,29 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
         }
     };
 
-    private final List<E> impl
-        = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+
+    /**
+     * Content in range from 0 to size
+     */
+    private Object[] elements = new Object[0];
+    private int size;
+    /**
+     * Backing array is referenced by a snapshot and must be copied before modifications other than appending
+     */
+    private boolean shared;
+    /**
+     * Lookup of first occurrence by equality. Built on demand and dropped on modifications other than appending.
+     */
+    private Map<E, E> index;
+    /**
+     * Lookup of first occurrence by path predicate. Built on demand and dropped on modifications other than appending.
+     */
+    private Map<SimplePathPredicate, E> predicates;
+    /**
+     * Incremented on every modification
+     */
+    private long revision;
 
     /**
      * Metadata of file listing
@@ -71,6 +104,9 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
      * @param collection Default content
      */
     public AttributedList(final Iterable<E> collection) {
+        if(collection instanceof Collection) {
+            elements = new Object[((Collection<E>) collection).size()];
+        }
         for(E e : collection) {
             this.add(e);
         }
@@ -91,11 +127,40 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
     }
 
     public boolean add(final E e) {
-        return impl.add(e);
+        synchronized(lock) {
+            // Appending does not modify range visible to snapshots
+            this.grow(size + 1);
+            elements[size++] = e;
+            revision++;
+            if(index != null) {
+                index.putIfAbsent(e, e);
+            }
+            if(predicates != null) {
+                if(e instanceof Path) {
+                    predicates.putIfAbsent(new SimplePathPredicate((Path) e), e);
+                }
+                else {
+                    predicates = null;
+                }
+            }
+            return true;
+        }
     }
 
     public void add(final int index, final E e) {
-        impl.add(index, e);
+        synchronized(lock) {
+            if(index == size) {
+                this.add(e);
+                return;
+            }
+            if(index < 0 || index > size) {
+                throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d", index, size));
+            }
+            this.modify(size + 1);
+            System.arraycopy(elements, index, elements, index + 1, size - index);
+            elements[index] = e;
+            size++;
+        }
     }
 
     public boolean addAll(final Iterable<? extends E> c) {
@@ -105,44 +170,89 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
         return true;
     }
 
+    @SuppressWarnings("unchecked")
     public E get(final int index) {
-        return impl.get(index);
+        synchronized(lock) {
+            this.check(index);
+            return (E) elements[index];
+        }
     }
 
     public E get(final E reference) {
-        final int index = impl.indexOf(reference);
-        if(-1 == index) {
-            return null;
+        synchronized(lock) {
+            if(size >= INDEX_THRESHOLD) {
+                if(null == index) {
+                    index = this.index();
+                }
+                final E found = index.get(reference);
+                if(found != null) {
+                    return found;
+                }
+                // Element may have been modified after being indexed
+            }
+            final int i = this.indexOf(reference);
+            if(-1 == i) {
+                return null;
+            }
+            return this.get(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<E, E> index() {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Build index for %d elements", size));
+        }
+        final Map<E, E> index = new HashMap<>(size * 2);
+        for(int i = 0; i < size; i++) {
+            index.putIfAbsent((E) elements[i], (E) elements[i]);
         }
-        return impl.get(index);
+        return index;
     }
 
     public void set(final int i, final E e) {
-        impl.set(i, e);
+        synchronized(lock) {
+            this.check(i);
+            this.modify(size);
+            elements[i] = e;
+        }
     }
 
     @Override
     public Iterator<E> iterator() {
-        return impl.iterator();
+        return this.toList().iterator();
     }
 
     /**
-     * The CopyOnWriteArrayList iterator does not support remove but the sort implementation
-     * makes use of it. Provide our own implementation here to circumvent.
-     *
-     * @param copy       The list copy to sort
-     * @param comparator The comparator to use
-     * @see java.util.Collections#sort(java.util.List, java.util.Comparator)
-     * @see java.util.concurrent.CopyOnWriteArrayList#iterator()
+     * Ensure capacity of backing array for appending
      */
-    private void doSort(final List<E> copy, final Comparator<E> comparator) {
-        if(null == comparator) {
-            return;
+    private void grow(final int capacity) {
+        if(elements.length < capacity) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, Math.max(DEFAULT_CAPACITY, elements.length + (elements.length >> 1))));
+            shared = false;
         }
-        if(log.isDebugEnabled()) {
-            log.debug(String.format("Sort list %s with comparator %s", this, comparator));
+    }
+
+    /**
+     * Copy backing array if referenced by snapshot before modifying existing elements and drop lookup indexes
+     */
+    private void modify(final int capacity) {
+        if(shared) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length));
+            shared = false;
+        }
+        else {
+            this.grow(capacity);
+        }
+        index = null;
+        predicates = null;
+        revision++;
+    }
+
+    private void check(final int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d out of bounds for length %d", index, size));
         }
-        copy.sort(comparator);
     }
 
     /**
@@ -162,16 +272,34 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
      * @param filter     Filter
      * @return Filtered list sorted with comparator
      */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public AttributedList<E> filter(final Comparator<E> comparator, final Filter<E> filter) {
-        final AttributedList<E> filtered = new AttributedList<>(impl);
-        if(null != comparator) {
-            this.doSort(filtered.impl, comparator);
+        final List<E> snapshot = this.toList();
+        final AttributedList<E> filtered = new AttributedList<>();
+        if(null == filter) {
+            filtered.elements = snapshot.toArray();
+            filtered.size = filtered.elements.length;
         }
-        if(null != filter) {
+        else {
             if(log.isDebugEnabled()) {
                 log.debug(String.format("Filter list %s with filter %s", this, filter));
             }
-            filtered.impl.removeIf(e -> !filter.accept(e));
+            // Only copy accepted elements
+            final Object[] accepted = new Object[snapshot.size()];
+            int n = 0;
+            for(E e : snapshot) {
+                if(filter.accept(e)) {
+                    accepted[n++] = e;
+                }
+            }
+            filtered.elements = accepted;
+            filtered.size = n;
+        }
+        if(null != comparator) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Sort list %s with comparator %s", this, comparator));
+            }
+            Arrays.sort(filtered.elements, 0, filtered.size, (Comparator) comparator);
         }
         return filtered;
     }
@@ -180,49 +308,152 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
      * Clear the list and all references.
      */
     public void clear() {
-        impl.clear();
+        synchronized(lock) {
+            elements = new Object[0];
+            size = 0;
+            shared = false;
+            index = null;
+            predicates = null;
+            revision++;
+        }
+    }
+
+    /**
+     * @return Number of modifications of this list to detect changes made in place
+     */
+    public long revision() {
+        synchronized(lock) {
+            return revision;
+        }
     }
 
     public boolean isEmpty() {
-        return impl.isEmpty();
+        synchronized(lock) {
+            return 0 == size;
+        }
     }
 
     public int size() {
-        return impl.size();
+        synchronized(lock) {
+            return size;
+        }
     }
 
     public boolean contains(final E e) {
-        return impl.contains(e);
+        return null != this.get(e);
     }
 
+    /**
+     * Lookup is backed by an index for predicates of type {@link SimplePathPredicate}
+     *
+     * @param predicate Condition to match
+     * @return First element matching predicate or null
+     */
+    @SuppressWarnings("unchecked")
     public E find(final Predicate<E> predicate) {
-        final Optional<E> optional = impl.stream().filter(predicate).findFirst();
-        return optional.orElse(null);
+        synchronized(lock) {
+            if(size >= INDEX_THRESHOLD && predicate.getClass() == SimplePathPredicate.class) {
+                if(null == predicates) {
+                    predicates = this.predicates();
+                }
+                if(predicates != null) {
+                    final E found = predicates.get(predicate);
+                    if(found != null) {
+                        return found;
+                    }
+                    // Element may have been modified after being indexed
+                }
+            }
+            for(int i = 0; i < size; i++) {
+                if(predicate.test((E) elements[i])) {
+                    return (E) elements[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return Null if list contains elements other than paths
+     */
+    @SuppressWarnings("unchecked")
+    private Map<SimplePathPredicate, E> predicates() {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Build predicate index for %d elements", size));
+        }
+        final Map<SimplePathPredicate, E> predicates = new HashMap<>(size * 2);
+        for(int i = 0; i < size; i++) {
+            if(!(elements[i] instanceof Path)) {
+                return null;
+            }
+            predicates.putIfAbsent(new SimplePathPredicate((Path) elements[i]), (E) elements[i]);
+        }
+        return predicates;
     }
 
     @SuppressWarnings("unchecked")
     public E[] toArray() {
-        return (E[]) impl.toArray(new Referenceable[impl.size()]);
+        synchronized(lock) {
+            return (E[]) Arrays.copyOf(elements, size, Referenceable[].class);
+        }
     }
 
+    /**
+     * @return Unmodifiable snapshot of list
+     */
+    @SuppressWarnings("unchecked")
     public List<E> toList() {
-        return impl;
+        synchronized(lock) {
+            shared = true;
+            return Collections.unmodifiableList((List<E>) (List<?>) Arrays.asList(elements).subList(0, size));
+        }
     }
 
     public int indexOf(final E e) {
-        return impl.indexOf(e);
+        synchronized(lock) {
+            for(int i = 0; i < size; i++) {
+                if(Objects.equals(e, elements[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
     }
 
     public void remove(final int index) {
-        impl.remove(index);
+        synchronized(lock) {
+            this.check(index);
+            this.modify(size);
+            System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+            elements[--size] = null;
+        }
     }
 
     public boolean remove(final E e) {
-        return impl.remove(e);
+        synchronized(lock) {
+            final int i = this.indexOf(e);
+            if(-1 == i) {
+                return false;
+            }
+            this.remove(i);
+            return true;
+        }
     }
 
     public boolean removeAll(final java.util.Collection<E> e) {
-        return impl.removeAll(e);
+        synchronized(lock) {
+            this.modify(size);
+            int n = 0;
+            for(int i = 0; i < size; i++) {
+                if(!e.contains(elements[i])) {
+                    elements[n++] = elements[i];
+                }
+            }
+            Arrays.fill(elements, n, size, null);
+            final boolean modified = n != size;
+            size = n;
+            return modified;
+        }
     }
 
     @Override
@@ -234,11 +465,11 @@ public class AttributedList<E extends Referenceable> implements Iterable<E> {
             return false;
         }
         final AttributedList<?> that = (AttributedList<?>) o;
-        return Objects.equals(impl, that.impl);
+        return Objects.equals(this.toList(), that.toList());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(impl);
+        return Objects.hash(this.toList());
     }
 }
@@ -19,9 +19,14 @@ import ch.cyberduck.core.io.DelegateStreamListener;
 import ch.cyberduck.core.io.DisabledStreamListener;
 import ch.cyberduck.core.io.StreamListener;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count bytes sent and received. Safe to share between streams of concurrent segments.
+ */
 public class BytecountStreamListener extends DelegateStreamListener {
-    private long sent = 0L;
-    private long recv = 0L;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder recv = new LongAdder();
 
     public BytecountStreamListener() {
         super(new DisabledStreamListener());
@@ -33,21 +38,21 @@ public class BytecountStreamListener extends DelegateStreamListener {
 
     @Override
     public void sent(final long bytes) {
-        sent += bytes;
+        sent.add(bytes);
         super.sent(bytes);
     }
 
     @Override
     public void recv(final long bytes) {
-        recv += bytes;
+        recv.add(bytes);
         super.recv(bytes);
     }
 
     public long getRecv() {
-        return recv;
+        return recv.sum();
     }
 
     public long getSent() {
-        return sent;
+        return sent.sum();
     }
 }
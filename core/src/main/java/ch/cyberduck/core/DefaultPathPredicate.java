@@ -18,37 +18,52 @@ package ch.cyberduck.core;
  * feedback@cyberduck.ch
  */
 
-import ch.cyberduck.core.unicode.NFCNormalizer;
-import ch.cyberduck.core.unicode.UnicodeNormalizer;
-
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Objects;
+
 /**
  * Path predicate that takes the region and version id of the path into account for comparisons.
  */
 public class DefaultPathPredicate implements CacheReference<Path> {
 
-    private static final UnicodeNormalizer normalizer = new NFCNormalizer();
-
+    private final Path.Type type;
+    private final String region;
+    private final String fileId;
+    private final String versionId;
     private final String reference;
 
     public DefaultPathPredicate(final Path file) {
-        final Path.Type type = file.isSymbolicLink() ? Path.Type.symboliclink : file.isFile() ? Path.Type.file : Path.Type.directory;
+        type = file.isSymbolicLink() ? Path.Type.symboliclink : file.isFile() ? Path.Type.file : Path.Type.directory;
+        region = file.attributes().getRegion();
+        fileId = file.attributes().getFileId();
+        versionId = file.attributes().getVersionId();
         String qualifier = StringUtils.EMPTY;
-        if(StringUtils.isNotBlank(file.attributes().getRegion())) {
+        if(StringUtils.isNotBlank(region)) {
             if(new DefaultPathContainerService().isContainer(file)) {
-                qualifier += file.attributes().getRegion();
+                qualifier += region;
             }
         }
         if(file.isFile()) {
-            if(StringUtils.isNotBlank(file.attributes().getFileId())) {
-                qualifier += file.attributes().getFileId();
+            if(StringUtils.isNotBlank(fileId)) {
+                qualifier += fileId;
             }
-            if(StringUtils.isNotBlank(file.attributes().getVersionId())) {
-                qualifier += file.attributes().getVersionId();
+            if(StringUtils.isNotBlank(versionId)) {
+                qualifier += versionId;
             }
         }
-        reference = "[" + type + "]" + "-" + qualifier + normalizer.normalize(file.getAbsolute());
+        reference = "[" + type + "]" + "-" + qualifier + file.getNormalized();
+    }
+
+    /**
+     * @param file File this predicate was created for
+     * @return False if type or attributes of file have changed since
+     */
+    boolean isCurrent(final Path file) {
+        return type == (file.isSymbolicLink() ? Path.Type.symboliclink : file.isFile() ? Path.Type.file : Path.Type.directory)
+            && Objects.equals(region, file.attributes().getRegion())
+            && Objects.equals(fileId, file.attributes().getFileId())
+            && Objects.equals(versionId, file.attributes().getVersionId());
     }
 
     /**
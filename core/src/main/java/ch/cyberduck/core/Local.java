@@ -464,6 +464,24 @@ public class Local extends AbstractPath implements Referenceable, Serializable {
         }
     }
 
+    /**
+     * @param position Offset in file to start writing at without truncating existing content
+     */
+    public OutputStream getOutputStream(final long position) throws AccessDeniedException {
+        return this.getOutputStream(path, position);
+    }
+
+    protected OutputStream getOutputStream(final String path, final long position) throws LocalAccessDeniedException {
+        try {
+            final FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            channel.position(position);
+            return Channels.newOutputStream(channel);
+        }
+        catch(RuntimeException | IOException e) {
+            throw new LocalAccessDeniedException(e.getMessage(), e);
+        }
+    }
+
     public Object lock(final boolean interactive) throws AccessDeniedException {
         return null;
     }
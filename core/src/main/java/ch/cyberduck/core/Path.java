@@ -19,6 +19,8 @@ package ch.cyberduck.core;
  */
 
 import ch.cyberduck.core.serializer.Serializer;
+import ch.cyberduck.core.unicode.NFCNormalizer;
+import ch.cyberduck.core.unicode.UnicodeNormalizer;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -31,6 +33,9 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
      * The path delimiter for remote paths
      */
     public static final char DELIMITER = '/';
+
+    private static final UnicodeNormalizer normalizer = new NFCNormalizer();
+
     /**
      * Reference to the parent
      */
@@ -53,9 +58,19 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
      */
     private PathAttributes attributes;
 
+    /**
+     * Absolute path in Unicode normalization form C computed on first use
+     */
+    private String normalized;
+    /**
+     * Identity used for equality computed on first use and recomputed when type or attributes change
+     */
+    private DefaultPathPredicate predicate;
+
     public Path(final Path copy) {
         this.parent = copy.parent;
         this.path = copy.path;
+        this.normalized = copy.normalized;
         this.symlink = null == copy.symlink ? null : new Path(copy.symlink);
         this.type = EnumSet.copyOf(copy.type);
         this.attributes = new PathAttributes(copy.attributes);
@@ -156,6 +171,7 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
 
     public void setType(final EnumSet<Type> type) {
         this.type = type;
+        this.predicate = null;
     }
 
     public Path withType(final EnumSet<Type> type) {
@@ -201,6 +217,7 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
 
     public void setAttributes(final PathAttributes attributes) {
         this.attributes = attributes;
+        this.predicate = null;
     }
 
     public Path withAttributes(final PathAttributes attributes) {
@@ -248,7 +265,26 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
      */
     @Override
     public int hashCode() {
-        return new DefaultPathPredicate(this).hashCode();
+        return this.getPredicate().hashCode();
+    }
+
+    /**
+     * @return Absolute path in Unicode normalization form C
+     */
+    String getNormalized() {
+        if(null == normalized) {
+            normalized = normalizer.normalize(this.getAbsolute()).toString();
+        }
+        return normalized;
+    }
+
+    private DefaultPathPredicate getPredicate() {
+        final DefaultPathPredicate cached = predicate;
+        // Type set and attributes are mutable
+        if(cached != null && cached.isCurrent(this)) {
+            return cached;
+        }
+        return predicate = new DefaultPathPredicate(this);
     }
 
     /**
@@ -261,7 +297,7 @@ public class Path extends AbstractPath implements Referenceable, Serializable {
             return false;
         }
         if(other instanceof Path) {
-            return new DefaultPathPredicate(this).equals(new DefaultPathPredicate((Path) other));
+            return this.getPredicate().equals(((Path) other).getPredicate());
         }
         return false;
     }
@@ -26,14 +26,21 @@ public class SimplePathPredicate implements CacheReference<Path> {
 
     private final Path.Type type;
     private final String path;
+    private final int hash;
+
+    private String reference;
 
     public SimplePathPredicate(final Path file) {
-        this(file.isSymbolicLink() ? Path.Type.symboliclink : file.isFile() ? Path.Type.file : Path.Type.directory, file.getAbsolute());
+        this.type = file.isSymbolicLink() ? Path.Type.symboliclink : file.isFile() ? Path.Type.file : Path.Type.directory;
+        // Reuse normalized path of file
+        this.path = file.getNormalized();
+        this.hash = Objects.hash(this.type, this.path);
     }
 
     public SimplePathPredicate(final Path.Type type, final String path) {
         this.type = type;
         this.path = normalizer.normalize(path).toString();
+        this.hash = Objects.hash(this.type, this.path);
     }
 
     @Override
@@ -51,7 +58,7 @@ public class SimplePathPredicate implements CacheReference<Path> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, path);
+        return hash;
     }
 
     @Override
@@ -61,6 +68,9 @@ public class SimplePathPredicate implements CacheReference<Path> {
 
     @Override
     public String toString() {
-        return "[" + type + "]" + "-" + path;
+        if(null == reference) {
+            reference = "[" + type + "]" + "-" + path;
+        }
+        return reference;
     }
 }
@@ -0,0 +1,484 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.features.Encryption;
+import ch.cyberduck.core.io.Buffer;
+import ch.cyberduck.core.io.FileBuffer;
+import ch.cyberduck.core.serializer.Deserializer;
+import ch.cyberduck.core.serializer.PathDictionary;
+import ch.cyberduck.core.serializer.Serializer;
+import ch.cyberduck.core.serializer.TransferItemDictionary;
+import ch.cyberduck.core.serializer.impl.dd.PlistDeserializer;
+import ch.cyberduck.core.serializer.impl.dd.PlistSerializer;
+import ch.cyberduck.core.transfer.TransferItem;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dd.plist.BinaryPropertyListParser;
+import com.dd.plist.BinaryPropertyListWriter;
+import com.dd.plist.NSArray;
+import com.dd.plist.NSDictionary;
+import com.dd.plist.NSObject;
+import com.dd.plist.PropertyListFormatException;
+
+/**
+ * Transfer workload cache with directory listings swapped to a temporary file when the number of items held in memory
+ * exceeds a threshold. Swapped listings are read back on demand. Failure reading back a swapped listing is not
+ * recoverable and thrown as {@link IllegalStateException} with the listing kept swapped.
+ */
+public class SwappingTransferItemCache implements Cache<TransferItem> {
+    private static final Logger log = Logger.getLogger(SwappingTransferItemCache.class);
+
+    private static final TransferItem NULL_KEY = new TransferItem(null);
+
+    /**
+     * Directory listings held in memory in access order
+     */
+    private final LinkedHashMap<TransferItem, Entry> memory
+        = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Location of directory listings swapped to disk
+     */
+    private final Map<TransferItem, Swapped> swapped
+        = new HashMap<>();
+
+    /**
+     * Append only log with serialized directory listings compacted when more than half is no longer referenced
+     */
+    private final Buffer buffer;
+    /**
+     * Maximum number of items in directory listings held in memory
+     */
+    private final long threshold;
+    /**
+     * Number of items in directory listings held in memory
+     */
+    private long size = 0L;
+    /**
+     * Number of bytes in buffer no longer referenced by swapped directory listings
+     */
+    private long garbage = 0L;
+
+    public SwappingTransferItemCache(final long threshold) {
+        this(new FileBuffer(), threshold);
+    }
+
+    public SwappingTransferItemCache(final Buffer buffer, final long threshold) {
+        this.buffer = buffer;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public CacheReference<?> reference(final TransferItem object) {
+        return new DefaultPathPredicate(object.remote);
+    }
+
+    @Override
+    public synchronized boolean isCached(final TransferItem key) {
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        return memory.containsKey(reference) || swapped.containsKey(reference);
+    }
+
+    @Override
+    public synchronized long size() {
+        return memory.size() + swapped.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return memory.isEmpty() && swapped.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean isValid(final TransferItem key) {
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        if(memory.containsKey(reference)) {
+            return !memory.get(reference).children.attributes().isInvalid();
+        }
+        if(swapped.containsKey(reference)) {
+            return !swapped.get(reference).invalid;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized AttributedList<TransferItem> put(final TransferItem key, final AttributedList<TransferItem> children) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Caching %s", key));
+        }
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        final AttributedList<TransferItem> replaced = this.remove(reference);
+        memory.put(reference, new Entry(children));
+        size += children.size();
+        this.swap();
+        return replaced;
+    }
+
+    /**
+     * @return Cached directory listing read from disk if previously swapped
+     */
+    @Override
+    public synchronized AttributedList<TransferItem> get(final TransferItem key) {
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        final Entry entry = memory.get(reference);
+        if(null != entry) {
+            return entry.children;
+        }
+        final Swapped location = swapped.get(reference);
+        if(null == location) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("No cache for %s", reference));
+            }
+            return AttributedList.emptyList();
+        }
+        final AttributedList<TransferItem> children = this.read(location);
+        this.release(reference);
+        memory.put(reference, new Entry(children));
+        size += children.size();
+        this.swap();
+        return children;
+    }
+
+    /**
+     * @return Copy of all cached entries with swapped directory listings read from disk
+     */
+    @Override
+    public synchronized Map<TransferItem, AttributedList<TransferItem>> asMap() {
+        final Map<TransferItem, AttributedList<TransferItem>> map = new LinkedHashMap<>();
+        for(Map.Entry<TransferItem, Swapped> entry : swapped.entrySet()) {
+            map.put(entry.getKey(), this.read(entry.getValue()));
+        }
+        for(Map.Entry<TransferItem, Entry> entry : memory.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().children);
+        }
+        return map;
+    }
+
+    @Override
+    public synchronized AttributedList<TransferItem> remove(final TransferItem key) {
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        final Entry entry = memory.remove(reference);
+        if(null != entry) {
+            size -= entry.weight;
+            return entry.children;
+        }
+        final Swapped location = swapped.get(reference);
+        if(null != location) {
+            final AttributedList<TransferItem> children = this.read(location);
+            this.release(reference);
+            return children;
+        }
+        // Not previously in cache
+        return AttributedList.emptyList();
+    }
+
+    @Override
+    public synchronized void invalidate(final TransferItem key) {
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Invalidate %s", key));
+        }
+        final TransferItem reference = null == key ? NULL_KEY : key;
+        if(memory.containsKey(reference)) {
+            memory.get(reference).children.attributes().setInvalid(true);
+        }
+        else if(swapped.containsKey(reference)) {
+            swapped.get(reference).invalid = true;
+        }
+        else {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("No cache for %s", reference));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Clear cache %s", this));
+        }
+        memory.clear();
+        swapped.clear();
+        size = 0L;
+        garbage = 0L;
+        buffer.close();
+    }
+
+    @Override
+    public synchronized TransferItem lookup(final CacheReference<TransferItem> reference) {
+        for(AttributedList<TransferItem> entry : this.asMap().values()) {
+            final TransferItem f = entry.find(reference);
+            if(null == f) {
+                continue;
+            }
+            return f;
+        }
+        log.warn(String.format("Lookup failed for %s in cache", reference));
+        return null;
+    }
+
+    /**
+     * Swap least recently used directory listings to disk until threshold is met. Keeps at least the most recently
+     * used entry in memory.
+     */
+    private void swap() {
+        if(size <= threshold) {
+            return;
+        }
+        if(garbage > buffer.length() / 2) {
+            try {
+                this.compact();
+            }
+            catch(IOException e) {
+                log.warn(String.format("Failure compacting swap file %s. %s", buffer, e.getMessage()));
+            }
+        }
+        for(Iterator<Map.Entry<TransferItem, Entry>> iter = memory.entrySet().iterator(); iter.hasNext(); ) {
+            if(size <= threshold || memory.size() == 1) {
+                break;
+            }
+            final Map.Entry<TransferItem, Entry> next = iter.next();
+            final Entry entry = next.getValue();
+            try {
+                swapped.put(next.getKey(), this.write(entry.children));
+            }
+            catch(IOException e) {
+                log.warn(String.format("Failure swapping %s to disk. %s", next.getKey(), e.getMessage()));
+                // Keep in memory
+                return;
+            }
+            iter.remove();
+            size -= entry.weight;
+        }
+    }
+
+    /**
+     * Mark bytes of swapped directory listing as no longer referenced
+     */
+    private void release(final TransferItem reference) {
+        final Swapped location = swapped.remove(reference);
+        if(null != location) {
+            garbage += location.length;
+        }
+    }
+
+    /**
+     * Move swapped directory listings to the start of the buffer in order of their offset and truncate
+     */
+    private void compact() throws IOException {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Compact %d bytes unreferenced in %s", garbage, buffer));
+        }
+        final List<Swapped> locations = new ArrayList<>(swapped.values());
+        locations.sort(Comparator.comparingLong(location -> location.offset));
+        long position = 0L;
+        for(Swapped location : locations) {
+            if(location.offset != position) {
+                buffer.write(this.load(location), position);
+                location.offset = position;
+            }
+            position += location.length;
+        }
+        buffer.truncate(position);
+        garbage = 0L;
+    }
+
+    private Swapped write(final AttributedList<TransferItem> children) throws IOException {
+        final NSArray array = new NSArray(children.size());
+        int i = 0;
+        for(TransferItem item : children) {
+            array.setValue(i, this.serialize(item));
+            i++;
+        }
+        final byte[] serialized = BinaryPropertyListWriter.writeToArray(array);
+        final long offset = buffer.length();
+        buffer.write(serialized, offset);
+        return new Swapped(offset, serialized.length, children.attributes().isInvalid());
+    }
+
+    /**
+     * @throws IllegalStateException Failure reading swapped directory listing
+     */
+    private AttributedList<TransferItem> read(final Swapped location) {
+        final AttributedList<TransferItem> children = new AttributedList<>();
+        try {
+            final NSArray array = (NSArray) BinaryPropertyListParser.parse(this.load(location));
+            for(NSObject next : array.getArray()) {
+                children.add(this.deserialize((NSDictionary) next));
+            }
+        }
+        catch(IOException | PropertyListFormatException | ClassCastException e) {
+            log.error(String.format("Failure reading swapped directory listing %s. %s", location, e.getMessage()));
+            throw new IllegalStateException(String.format("Failure reading swapped directory listing %s", location), e);
+        }
+        children.attributes().setInvalid(location.invalid);
+        return children;
+    }
+
+    private byte[] load(final Swapped location) throws IOException {
+        final byte[] serialized = new byte[location.length];
+        int read = 0;
+        while(read < location.length) {
+            final int n = buffer.read(serialized, read, location.length - read, location.offset + read);
+            if(IOUtils.EOF == n) {
+                throw new IOException(String.format("Unexpected end of file reading %s", location));
+            }
+            read += n;
+        }
+        return serialized;
+    }
+
+    /**
+     * Serialize item with attributes not part of the default path serialization
+     */
+    private NSDictionary serialize(final TransferItem item) {
+        final NSDictionary dict = item.serialize(new PlistSerializer());
+        final PathAttributes attributes = item.remote.attributes();
+        final Serializer extended = new PlistSerializer();
+        if(attributes.getAccessedDate() != -1) {
+            extended.setStringForKey(String.valueOf(attributes.getAccessedDate()), "Accessed");
+        }
+        if(attributes.getCreationDate() != -1) {
+            extended.setStringForKey(String.valueOf(attributes.getCreationDate()), "Created");
+        }
+        if(StringUtils.isNotBlank(attributes.getOwner())) {
+            extended.setStringForKey(attributes.getOwner(), "Owner");
+        }
+        if(StringUtils.isNotBlank(attributes.getGroup())) {
+            extended.setStringForKey(attributes.getGroup(), "Group");
+        }
+        if(StringUtils.isNotBlank(attributes.getDisplayname())) {
+            extended.setStringForKey(attributes.getDisplayname(), "Display Name");
+        }
+        if(StringUtils.isNotBlank(attributes.getDirectoryId())) {
+            extended.setStringForKey(attributes.getDirectoryId(), "Directory Id");
+        }
+        if(!attributes.getMetadata().isEmpty()) {
+            extended.setMapForKey(attributes.getMetadata(), "Metadata");
+        }
+        if(!Encryption.Algorithm.NONE.equals(attributes.getEncryption())) {
+            extended.setStringForKey(attributes.getEncryption().algorithm, "Encryption Algorithm");
+            if(StringUtils.isNotBlank(attributes.getEncryption().key)) {
+                extended.setStringForKey(attributes.getEncryption().key, "Encryption Key");
+            }
+        }
+        if(attributes.getDecrypted() != null) {
+            extended.setObjectForKey(attributes.getDecrypted(), "Decrypted");
+        }
+        if(attributes.getEncrypted() != null) {
+            extended.setObjectForKey(attributes.getEncrypted(), "Encrypted");
+        }
+        dict.put("Extended", extended.<NSDictionary>getSerialized());
+        return dict;
+    }
+
+    private TransferItem deserialize(final NSDictionary serialized) throws IOException {
+        final TransferItem item = new TransferItemDictionary().deserialize(serialized);
+        if(null == item) {
+            throw new IOException(String.format("Failure deserializing %s", serialized));
+        }
+        final NSObject extended = serialized.objectForKey("Extended");
+        if(null == extended) {
+            return item;
+        }
+        final Deserializer dict = new PlistDeserializer((NSDictionary) extended);
+        final PathAttributes attributes = item.remote.attributes();
+        final String accessedObj = dict.stringForKey("Accessed");
+        if(accessedObj != null) {
+            attributes.setAccessedDate(Long.parseLong(accessedObj));
+        }
+        final String createdObj = dict.stringForKey("Created");
+        if(createdObj != null) {
+            attributes.setCreationDate(Long.parseLong(createdObj));
+        }
+        attributes.setOwner(dict.stringForKey("Owner"));
+        attributes.setGroup(dict.stringForKey("Group"));
+        attributes.setDisplayname(dict.stringForKey("Display Name"));
+        attributes.setDirectoryId(dict.stringForKey("Directory Id"));
+        final Map<String, String> metadataObj = dict.mapForKey("Metadata");
+        if(metadataObj != null) {
+            attributes.setMetadata(metadataObj);
+        }
+        final String encryptionObj = dict.stringForKey("Encryption Algorithm");
+        if(encryptionObj != null) {
+            attributes.setEncryption(new Encryption.Algorithm(encryptionObj, dict.stringForKey("Encryption Key")));
+        }
+        final Object decryptedObj = dict.objectForKey("Decrypted");
+        if(decryptedObj != null) {
+            attributes.setDecrypted(new PathDictionary().deserialize(decryptedObj));
+        }
+        final Object encryptedObj = dict.objectForKey("Encrypted");
+        if(encryptedObj != null) {
+            attributes.setEncrypted(new PathDictionary().deserialize(encryptedObj));
+        }
+        return item;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("SwappingTransferItemCache{");
+        sb.append("memory=").append(memory.size());
+        sb.append(", swapped=").append(swapped.size());
+        sb.append(", buffer=").append(buffer);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        private final AttributedList<TransferItem> children;
+        /**
+         * Number of items accounted for in memory
+         */
+        private final int weight;
+
+        public Entry(final AttributedList<TransferItem> children) {
+            this.children = children;
+            this.weight = children.size();
+        }
+    }
+
+    private static final class Swapped {
+        private long offset;
+        private final int length;
+        private boolean invalid;
+
+        public Swapped(final long offset, final int length, final boolean invalid) {
+            this.offset = offset;
+            this.length = length;
+            this.invalid = invalid;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Swapped{");
+            sb.append("offset=").append(offset);
+            sb.append(", length=").append(length);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -68,16 +68,26 @@ public class HttpUploadFeature<Reply, Digest> implements Upload<Reply> {
     public Reply upload(final Path file, final Local local, final BandwidthThrottle throttle,
                         final StreamListener listener, final TransferStatus status,
                         final StreamCancelation cancel, final StreamProgress progress, final ConnectionCallback callback) throws BackgroundException {
+        final InputStream in = local.getInputStream();
+        return this.upload(file, status.getOffset() > 0 ? StreamCopier.skip(in, status.getOffset()) : in,
+            throttle, listener, status, cancel, progress, callback);
+    }
+
+    /**
+     * @param in Stream positioned at offset of transfer status to read up to length of transfer status from
+     */
+    public Reply upload(final Path file, final InputStream in, final BandwidthThrottle throttle,
+                        final StreamListener listener, final TransferStatus status,
+                        final StreamCancelation cancel, final StreamProgress progress, final ConnectionCallback callback) throws BackgroundException {
         try {
             final Digest digest = this.digest();
             // Wrap with digest stream if available
-            final InputStream in = this.decorate(local.getInputStream(), digest);
+            final InputStream decorated = this.decorate(in, digest);
             final StatusOutputStream<Reply> out = writer.write(file, status, callback);
             new StreamCopier(cancel, progress)
-                .withOffset(status.getOffset())
                 .withLimit(status.getLength())
                 .withListener(listener)
-                .transfer(in, new ThrottledOutputStream(out, throttle));
+                .transfer(decorated, new ThrottledOutputStream(out, throttle));
             final Reply response = out.getStatus();
             this.post(file, digest, response);
             return response;
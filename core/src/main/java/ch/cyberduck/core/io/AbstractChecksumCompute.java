@@ -18,7 +18,9 @@ package ch.cyberduck.core.io;
  * feedback@cyberduck.io
  */
 
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LocaleFactory;
+import ch.cyberduck.core.exception.AccessDeniedException;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
@@ -27,14 +29,26 @@ import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.log4j.Logger;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
 
 public abstract class AbstractChecksumCompute implements ChecksumCompute {
+    private static final Logger log = Logger.getLogger(AbstractChecksumCompute.class);
+
+    /**
+     * Buffer size for positional reads from file
+     */
+    private static final int CHUNKSIZE = 1024 * 1024;
 
     @Override
     public Checksum compute(final String data, final TransferStatus status) throws ChecksumException {
@@ -70,6 +84,83 @@ public abstract class AbstractChecksumCompute implements ChecksumCompute {
         return md.digest();
     }
 
+    protected byte[] digest(final String algorithm, final Local file, final TransferStatus status) throws BackgroundException {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(algorithm);
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new ChecksumException(LocaleFactory.localizedString("Checksum failure", "Error"), e.getMessage(), e);
+        }
+        this.read(file, status, (channel, position, end) -> {
+            update(channel, position, end, md::update);
+            return null;
+        });
+        return md.digest();
+    }
+
+    /**
+     * Open file channel to read range of transfer status from
+     *
+     * @param file   Local file
+     * @param status Offset and length
+     * @param reader Reads range of file given
+     * @return Result of reader
+     */
+    protected <T> T read(final Local file, final TransferStatus status, final ChannelReader<T> reader) throws BackgroundException {
+        Object lock;
+        try {
+            lock = file.lock(false);
+        }
+        catch(AccessDeniedException e) {
+            log.warn(String.format("Failure obtaining lock for %s. %s", file, e));
+            lock = null;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolute()), StandardOpenOption.READ)) {
+            final long end = status.getLength() > 0 ?
+                Math.min(channel.size(), status.getOffset() + status.getLength()) : channel.size();
+            if(status.getOffset() > end) {
+                throw new IOResumeException(String.format("Offset %d exceeds size %d", status.getOffset(), end));
+            }
+            return reader.read(channel, status.getOffset(), end);
+        }
+        catch(IOException e) {
+            throw new ChecksumException(LocaleFactory.localizedString("Checksum failure", "Error"), e.getMessage(), e);
+        }
+        finally {
+            file.release(lock);
+        }
+    }
+
+    /**
+     * Positional reads from channel not changing its position
+     *
+     * @param channel  File
+     * @param position Offset to start reading from
+     * @param end      Offset to stop reading at
+     * @param consumer Receives chunks of data read
+     */
+    protected static void update(final FileChannel channel, final long position, final long end, final Consumer<ByteBuffer> consumer) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1L, Math.min(CHUNKSIZE, end - position)));
+        long offset = position;
+        while(offset < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - offset));
+            final int read = channel.read(buffer, offset);
+            if(-1 == read) {
+                throw new IOResumeException(String.format("Unexpected end of file at %d reading to %d", offset, end));
+            }
+            buffer.flip();
+            consumer.accept(buffer);
+            offset += read;
+        }
+    }
+
+    @FunctionalInterface
+    protected interface ChannelReader<T> {
+        T read(FileChannel channel, long position, long end) throws IOException;
+    }
+
     protected InputStream normalize(final InputStream in, final TransferStatus status) throws ChecksumException {
         try {
             final InputStream bounded = status.getLength() > 0 ?
@@ -30,6 +30,9 @@ import com.google.common.util.concurrent.Uninterruptibles;
  * BandwidthThrottle may be able delegate to other throttles.  This would allow, for example, a 15 KB/s Gnutella
  * messaging throttle, with no more than 10 KB/s devoted to uploads.<p>
  * <p/>
+ * A throttle attached to a {@link TokenBucket} takes bandwidth from the bucket instead of its own windows and is
+ * thereby cumulative with all other throttles sharing the same ancestor buckets.<p>
+ * <p/>
  * This implementation is based on the <a href="http://cvs.sourceforge.net/cgi-bin/viewcvs.cgi/freenet/freenet/src/freenet/support/io/Bandwidth.java">Bandwidth</a>
  * class from the Freenet project.  It has been simplified and better documented.<p>
  */
@@ -93,10 +96,20 @@ public final class BandwidthThrottle {
      */
     public static final int UNLIMITED = -1;
 
+    /**
+     * Number of bytes streams should request at once to reduce contention on throttle
+     */
+    public static final int BATCH = 64 * 1024;
+
     /**
      * Bytes per second allowed
      */
-    private float rate = UNLIMITED;
+    private volatile float rate = UNLIMITED;
+
+    /**
+     * Shared bucket to take bandwidth from instead of own windows
+     */
+    private volatile TokenBucket bucket;
 
     /**
      * Sets the throttle to the given throttle rate.  The default windows size T is used.  The bytes per windows N is
@@ -118,6 +131,10 @@ public final class BandwidthThrottle {
         if(switching) {
             this.fixBytesPerTick(true);
         }
+        final TokenBucket bucket = this.bucket;
+        if(bucket != null) {
+            bucket.setRate((long) rate);
+        }
     }
 
     /**
@@ -165,14 +182,46 @@ public final class BandwidthThrottle {
      * @return the number of bytes the sender is expected to send, which is always greater than one and less than or
      * equal to desired
      */
-    public synchronized int request(int desired) {
+    public int request(int desired) {
+        final TokenBucket bucket = this.bucket;
+        if(bucket != null) {
+            return (int) bucket.acquire(desired);
+        }
         if(UNLIMITED == rate) {
             return desired;
         }
-        waitForBandwidth();
-        int result = Math.min(desired, availableBytes);
-        availableBytes -= result;
-        return result;
+        synchronized(this) {
+            waitForBandwidth();
+            int result = Math.min(desired, availableBytes);
+            availableBytes -= result;
+            return result;
+        }
+    }
+
+    /**
+     * Return bytes previously granted but not sent
+     *
+     * @param unused the number of bytes not sent
+     */
+    public void release(int unused) {
+        final TokenBucket bucket = this.bucket;
+        if(bucket != null) {
+            bucket.release(unused);
+        }
+    }
+
+    public TokenBucket getBucket() {
+        return bucket;
+    }
+
+    /**
+     * @param bucket Shared bucket to take bandwidth from or null to use own windows
+     */
+    public void setBucket(final TokenBucket bucket) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Set bucket to %s", bucket));
+        }
+        this.bucket = bucket;
     }
 
     /**
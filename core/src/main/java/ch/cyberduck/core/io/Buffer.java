@@ -18,6 +18,7 @@ package ch.cyberduck.core.io;
 import ch.cyberduck.core.Path;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public interface Buffer {
 
@@ -28,12 +29,37 @@ public interface Buffer {
      */
     int write(byte[] chunk, Long offset) throws IOException;
 
+    /**
+     * @param chunk  Chunk to write from
+     * @param off    Offset in chunk
+     * @param len    Number of bytes to write from chunk
+     * @param offset Target offset in buffer
+     * @return Number of bytes written
+     */
+    default int write(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
+        if(0 == off && chunk.length == len) {
+            return this.write(chunk, offset);
+        }
+        return this.write(Arrays.copyOfRange(chunk, off, off + len), offset);
+    }
+
     /**
      * @param buffer Fill this buffer length
      * @param offset Position in buffer to read from
      * @return Length read. Should be equal input buffer length. -1 when there is no more data
      */
-    int read(byte[] buffer, Long offset) throws IOException;
+    default int read(final byte[] buffer, final Long offset) throws IOException {
+        return this.read(buffer, 0, buffer.length, offset);
+    }
+
+    /**
+     * @param buffer Buffer to read into
+     * @param off    Offset in buffer
+     * @param len    Maximum number of bytes to read
+     * @param offset Position in buffer to read from
+     * @return Length read. -1 when there is no more data
+     */
+    int read(byte[] buffer, int off, int len, Long offset) throws IOException;
 
     /**
      * @return Current length of buffer
@@ -58,7 +84,7 @@ public interface Buffer {
         }
 
         @Override
-        public int read(final byte[] buffer, final Long offset) throws IOException {
+        public int read(final byte[] buffer, final int off, final int len, final Long offset) throws IOException {
             throw new IOException();
         }
 
@@ -53,9 +53,7 @@ public class BufferOutputStream extends ProxyOutputStream {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Buffer %d bytes at offset %d", len, offset));
         }
-        final byte[] chunk = new byte[len];
-        System.arraycopy(bytes, off, chunk, 0, len);
-        if(buffer.write(chunk, offset) != len) {
+        if(buffer.write(bytes, off, len, offset) != len) {
             log.warn(String.format("Failure buffering chunk of size %d", len));
         }
         super.write(bytes, off, len);
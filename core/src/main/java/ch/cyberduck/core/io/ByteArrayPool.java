@@ -0,0 +1,84 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.exception.ConnectionCanceledException;
+
+import org.apache.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of reusable byte arrays. Borrowing blocks when all buffers are in use.
+ */
+public class ByteArrayPool {
+    private static final Logger log = Logger.getLogger(ByteArrayPool.class);
+
+    private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+    private final int size;
+
+    /**
+     * @param size Maximum number of buffers in use
+     */
+    public ByteArrayPool(final int size) {
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * @param length Minimum length of buffer
+     * @return Buffer with at least the requested length
+     */
+    public byte[] borrow(final int length) throws ConnectionCanceledException {
+        try {
+            permits.acquire();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        byte[] buffer;
+        while((buffer = free.poll()) != null) {
+            if(buffer.length >= length) {
+                return buffer;
+            }
+            // Discard buffer too small
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Allocate buffer with length %d", length));
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Return buffer to pool
+     */
+    public void release(final byte[] buffer) {
+        free.offer(buffer);
+        permits.release();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ByteArrayPool{");
+        sb.append("size=").append(size);
+        sb.append(", available=").append(permits.availablePermits());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -15,17 +15,52 @@ package ch.cyberduck.core.io;
  * GNU General Public License for more details.
  */
 
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LocaleFactory;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
 import ch.cyberduck.core.transfer.TransferStatus;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 public class CRC32ChecksumCompute extends AbstractChecksumCompute {
+    private static final Logger log = Logger.getLogger(CRC32ChecksumCompute.class);
+
+    /**
+     * Minimum number of bytes for each part computed concurrently
+     */
+    private static final long PARALLEL_MINIMUM = 16 * 1024 * 1024;
+
+    /**
+     * Reversed polynomial
+     */
+    private static final long POLYNOMIAL = 0xedb88320L;
+
+    private final int concurrency;
+
+    public CRC32ChecksumCompute() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrency Maximum number of threads to compute parts of large files
+     */
+    public CRC32ChecksumCompute(final int concurrency) {
+        this.concurrency = concurrency;
+    }
 
     @Override
     public Checksum compute(final InputStream in, final TransferStatus status) throws ChecksumException {
@@ -46,4 +81,115 @@ public class CRC32ChecksumCompute extends AbstractChecksumCompute {
         }
         return new Checksum(HashAlgorithm.crc32, Long.toHexString(crc32.getValue()));
     }
+
+    /**
+     * Compute checksum of parts of file concurrently and combine
+     */
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        return new Checksum(HashAlgorithm.crc32, Long.toHexString(this.read(file, status, (channel, position, end) -> {
+            final int parts = (int) Math.min(concurrency, (end - position) / PARALLEL_MINIMUM);
+            if(parts < 2) {
+                return crc32(channel, position, end);
+            }
+            final long size = (end - position + parts - 1) / parts;
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Compute checksum for %s in %d parts of %d bytes", file, parts, size));
+            }
+            final ThreadPool pool = ThreadPoolFactory.get("checksum", parts);
+            try {
+                final List<Future<Long>> futures = new ArrayList<>();
+                for(long offset = position; offset < end; offset += size) {
+                    final long from = offset;
+                    final long to = Math.min(end, offset + size);
+                    futures.add(pool.execute(() -> crc32(channel, from, to)));
+                }
+                long crc = 0L;
+                long offset = position;
+                for(Future<Long> future : futures) {
+                    final long length = Math.min(size, end - offset);
+                    crc = combine(crc, future.get(), length);
+                    offset += length;
+                }
+                return crc;
+            }
+            catch(InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            }
+            catch(ExecutionException e) {
+                if(e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            finally {
+                pool.shutdown(false);
+            }
+        })));
+    }
+
+    private static long crc32(final FileChannel channel, final long position, final long end) throws IOException {
+        final CRC32 crc32 = new CRC32();
+        update(channel, position, end, crc32::update);
+        return crc32.getValue();
+    }
+
+    /**
+     * Combine checksums of two consecutive blocks of data
+     *
+     * @param crc1   Checksum of first block
+     * @param crc2   Checksum of second block
+     * @param length Length of second block
+     * @return Checksum of concatenated blocks
+     */
+    static long combine(long crc1, final long crc2, long length) {
+        if(length <= 0) {
+            return crc1;
+        }
+        // Operator for one zero bit in odd and for two zero bits in even
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+        odd[0] = POLYNOMIAL;
+        long row = 1;
+        for(int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+        // Apply length zero bytes to first checksum
+        do {
+            square(even, odd);
+            if((length & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length >>= 1;
+            if(0 == length) {
+                break;
+            }
+            square(odd, even);
+            if((length & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length >>= 1;
+        }
+        while(length != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long times(final long[] matrix, long vector) {
+        long sum = 0L;
+        for(int i = 0; vector != 0; i++, vector >>>= 1) {
+            if((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(final long[] square, final long[] matrix) {
+        for(int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
 }
@@ -0,0 +1,387 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.LocalFactory;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.preferences.SupportDirectoryFinderFactory;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of checksums for local files. Entries are valid as long as path, size, modification date and file
+ * key (inode where available) of the file are unchanged. Entries are appended to a journal on disk which is rewritten
+ * with the least recently used entries dropped when it has grown to more than twice the number of entries kept.
+ */
+public class ChecksumCache {
+    private static final Logger log = Logger.getLogger(ChecksumCache.class);
+
+    /**
+     * Do not cache files modified less than this time ago as a later modification may not change the timestamp
+     */
+    private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2L);
+    /**
+     * Minimum number of records in journal before compaction
+     */
+    private static final int MINIMUM_JOURNAL = 1000;
+
+    /**
+     * Implementations computing plain digest of file content only
+     */
+    private static final Map<Class<? extends ChecksumCompute>, HashAlgorithm> algorithms = new HashMap<>();
+
+    static {
+        algorithms.put(MD5ChecksumCompute.class, HashAlgorithm.md5);
+        algorithms.put(MD5FastChecksumCompute.class, HashAlgorithm.md5);
+        algorithms.put(SHA1ChecksumCompute.class, HashAlgorithm.sha1);
+        algorithms.put(SHA256ChecksumCompute.class, HashAlgorithm.sha256);
+        algorithms.put(SHA512ChecksumCompute.class, HashAlgorithm.sha512);
+        algorithms.put(CRC32ChecksumCompute.class, HashAlgorithm.crc32);
+    }
+
+    private final Local journal;
+    private final int capacity;
+
+    /**
+     * Least recently used first
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    private boolean loaded;
+    private Writer writer;
+    /**
+     * Number of records in journal
+     */
+    private int records;
+
+    public ChecksumCache() {
+        this(LocalFactory.get(SupportDirectoryFinderFactory.get().find(), "Checksums"),
+            PreferencesFactory.get().getBoolean("queue.checksum.cache.enable") ?
+                PreferencesFactory.get().getInteger("queue.checksum.cache.size") : 0);
+    }
+
+    /**
+     * @param journal  File to persist entries
+     * @param capacity Maximum number of entries or zero to disable cache
+     */
+    public ChecksumCache(final Local journal, final int capacity) {
+        this.journal = journal;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return this.size() > ChecksumCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Lookup checksum of file in cache before reading the file with the checksum implementation given. Computed
+     * checksums are added to the cache.
+     *
+     * @param file    Local file
+     * @param compute Checksum implementation
+     * @param status  Range of file to compute checksum for
+     * @return Checksum of file content
+     */
+    public Checksum compute(final Local file, final ChecksumCompute compute, final TransferStatus status) throws BackgroundException {
+        final HashAlgorithm algorithm = algorithms.get(compute.getClass());
+        if(0 == capacity || null == algorithm) {
+            // Checksum not only depending on file content
+            return compute.compute(file, status);
+        }
+        final Identity before = this.identity(file);
+        if(null == before) {
+            return compute.compute(file, status);
+        }
+        if(status.getOffset() > 0 || status.getLength() > 0 && status.getLength() != before.size) {
+            // Partial content
+            return compute.compute(file, status);
+        }
+        final Checksum cached = this.get(file.getAbsolute(), algorithm, before);
+        if(cached != null) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Return cached checksum %s for %s", cached, file));
+            }
+            return cached;
+        }
+        final Checksum checksum = compute.compute(file, status);
+        if(before.equals(this.identity(file))) {
+            if(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - before.modified < RACY_NANOS) {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Skip caching checksum for recently modified file %s", file));
+                }
+            }
+            else {
+                this.put(file.getAbsolute(), checksum, before);
+            }
+        }
+        else {
+            log.warn(String.format("File %s modified while computing checksum", file));
+        }
+        return checksum;
+    }
+
+    /**
+     * @return Cached checksum or null if not found or file has changed
+     */
+    public synchronized Checksum get(final Local file, final HashAlgorithm algorithm) {
+        final Identity identity = this.identity(file);
+        if(null == identity) {
+            return null;
+        }
+        return this.get(file.getAbsolute(), algorithm, identity);
+    }
+
+    private synchronized Checksum get(final String path, final HashAlgorithm algorithm, final Identity identity) {
+        this.load();
+        final String key = key(path, algorithm);
+        final Entry entry = entries.get(key);
+        if(null == entry) {
+            return null;
+        }
+        if(!entry.identity.equals(identity)) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Remove outdated checksum %s for %s", entry.checksum, path));
+            }
+            entries.remove(key);
+            return null;
+        }
+        return entry.checksum;
+    }
+
+    private synchronized void put(final String path, final Checksum checksum, final Identity identity) {
+        if(StringUtils.containsAny(path, '\n', '\r')) {
+            return;
+        }
+        this.load();
+        final Entry entry = new Entry(path, identity, checksum);
+        entries.put(key(path, checksum.algorithm), entry);
+        try {
+            if(records >= Math.max(MINIMUM_JOURNAL, entries.size() * 2)) {
+                this.compact();
+            }
+            else {
+                final Writer writer = this.writer();
+                writer.write(entry.toRecord());
+                writer.write('\n');
+                writer.flush();
+                records++;
+            }
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure writing checksum cache %s. %s", journal, e.getMessage()));
+        }
+    }
+
+    /**
+     * Rewrite journal with current entries only
+     */
+    public synchronized void compact() throws IOException {
+        this.load();
+        this.close();
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Compact checksum cache %s with %d records to %d entries", journal, records, entries.size()));
+        }
+        final java.nio.file.Path target = Paths.get(journal.getAbsolute());
+        final java.nio.file.Path temporary = Paths.get(String.format("%s.tmp", journal.getAbsolute()));
+        try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            // Least recently used first to retain order when reading
+            for(Entry entry : entries.values()) {
+                out.write(entry.toRecord());
+                out.write('\n');
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = entries.size();
+    }
+
+    /**
+     * Close journal
+     */
+    public synchronized void close() {
+        IOUtils.closeQuietly(writer);
+        writer = null;
+    }
+
+    public synchronized int size() {
+        this.load();
+        return entries.size();
+    }
+
+    private void load() {
+        if(loaded) {
+            return;
+        }
+        loaded = true;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(journal.getAbsolute()), StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                records++;
+                final Entry entry = Entry.fromRecord(line);
+                if(null == entry) {
+                    log.warn(String.format("Skip invalid record %s in checksum cache %s", line, journal));
+                    continue;
+                }
+                entries.put(key(entry.path, entry.checksum.algorithm), entry);
+            }
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Loaded %d entries from checksum cache %s", entries.size(), journal));
+            }
+        }
+        catch(NoSuchFileException e) {
+            // First use
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure reading checksum cache %s. %s", journal, e.getMessage()));
+        }
+    }
+
+    private Writer writer() throws IOException {
+        if(null == writer) {
+            final java.nio.file.Path target = Paths.get(journal.getAbsolute());
+            if(target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            writer = new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        }
+        return writer;
+    }
+
+    /**
+     * @return Identity of regular file or null if not found
+     */
+    private Identity identity(final Local file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(Paths.get(file.getAbsolute()),
+                BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if(!attributes.isRegularFile()) {
+                return null;
+            }
+            return new Identity(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                null == attributes.fileKey() ? StringUtils.EMPTY : StringUtils.replaceChars(attributes.fileKey().toString(), "\t\n\r", "   "));
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure reading attributes of %s. %s", file, e.getMessage()));
+            return null;
+        }
+    }
+
+    private static String key(final String path, final HashAlgorithm algorithm) {
+        return String.format("%s:%s", algorithm.name(), path);
+    }
+
+    private static final class Identity {
+        private final long size;
+        private final long modified;
+        private final String key;
+
+        public Identity(final long size, final long modified, final String key) {
+            this.size = size;
+            this.modified = modified;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Identity)) {
+                return false;
+            }
+            final Identity identity = (Identity) o;
+            return size == identity.size &&
+                modified == identity.modified &&
+                Objects.equals(key, identity.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modified, key);
+        }
+    }
+
+    private static final class Entry {
+        private final String path;
+        private final Identity identity;
+        private final Checksum checksum;
+
+        public Entry(final String path, final Identity identity, final Checksum checksum) {
+            this.path = path;
+            this.identity = identity;
+            this.checksum = checksum;
+        }
+
+        /**
+         * @return Tab separated algorithm, hash, size, modification date, file key and path
+         */
+        public String toRecord() {
+            return String.join("\t", checksum.algorithm.name(), checksum.hash,
+                String.valueOf(identity.size), String.valueOf(identity.modified),
+                identity.key, path);
+        }
+
+        public static Entry fromRecord(final String line) {
+            final String[] fields = StringUtils.splitPreserveAllTokens(line, '\t');
+            if(fields.length < 6) {
+                return null;
+            }
+            try {
+                // Path may contain separator
+                final String path = StringUtils.join(fields, '\t', 5, fields.length);
+                return new Entry(path, new Identity(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]),
+                    new Checksum(HashAlgorithm.valueOf(fields[0]), fields[1]));
+            }
+            catch(IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ChecksumCache{");
+        sb.append("journal=").append(journal);
+        sb.append(", capacity=").append(capacity);
+        sb.append('}');
+        return sb.toString();
+    }
+}
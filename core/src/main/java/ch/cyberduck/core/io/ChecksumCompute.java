@@ -18,6 +18,8 @@ package ch.cyberduck.core.io;
  * dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -32,4 +34,13 @@ public interface ChecksumCompute {
     Checksum compute(InputStream in, TransferStatus status) throws ChecksumException;
 
     Checksum compute(String data, TransferStatus status) throws ChecksumException;
+
+    /**
+     * @param file   Local file
+     * @param status Offset and length of range to compute checksum for
+     * @return Calculated fingerprint
+     */
+    default Checksum compute(Local file, TransferStatus status) throws BackgroundException {
+        return this.compute(file.getInputStream(), status);
+    }
 }
@@ -0,0 +1,162 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.LocaleFactory;
+import ch.cyberduck.core.exception.ChecksumException;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Compute checksum of bytes read from the stream while they are passed through to avoid a separate pass over the data
+ */
+public class ChecksumInputStream extends ProxyInputStream {
+    private static final Logger log = Logger.getLogger(ChecksumInputStream.class);
+
+    private final HashAlgorithm algorithm;
+    private final MessageDigest digest;
+    private final CRC32 crc32;
+
+    /**
+     * Bytes have been skipped and are not part of the checksum
+     */
+    private boolean skipped;
+    private Checksum checksum;
+
+    public ChecksumInputStream(final InputStream proxy, final HashAlgorithm algorithm) throws ChecksumException {
+        super(proxy);
+        this.algorithm = algorithm;
+        try {
+            switch(algorithm) {
+                case md5:
+                    this.digest = MessageDigest.getInstance("MD5");
+                    this.crc32 = null;
+                    break;
+                case sha1:
+                    this.digest = MessageDigest.getInstance("SHA-1");
+                    this.crc32 = null;
+                    break;
+                case sha256:
+                    this.digest = MessageDigest.getInstance("SHA-256");
+                    this.crc32 = null;
+                    break;
+                case sha512:
+                    this.digest = MessageDigest.getInstance("SHA-512");
+                    this.crc32 = null;
+                    break;
+                case crc32:
+                    this.digest = null;
+                    this.crc32 = new CRC32();
+                    break;
+                default:
+                    throw new NoSuchAlgorithmException(algorithm.toString());
+            }
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new ChecksumException(LocaleFactory.localizedString("Checksum failure", "Error"), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if(b != -1) {
+            this.update(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b) throws IOException {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int read = super.read(b, off, len);
+        if(read > 0) {
+            this.update(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skip = super.skip(n);
+        if(skip > 0) {
+            log.warn(String.format("Skipped %d bytes not included in checksum", skip));
+            skipped = true;
+        }
+        return skip;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        //
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark not supported");
+    }
+
+    private void update(final byte[] b, final int off, final int len) {
+        if(null != checksum) {
+            log.warn("Read after checksum has been computed");
+            skipped = true;
+            return;
+        }
+        if(null == crc32) {
+            digest.update(b, off, len);
+        }
+        else {
+            crc32.update(b, off, len);
+        }
+    }
+
+    /**
+     * Must only be called after all data has been read from the stream
+     *
+     * @return Checksum of bytes read or Checksum.NONE if bytes have been skipped
+     */
+    public Checksum getChecksum() {
+        if(skipped) {
+            return Checksum.NONE;
+        }
+        if(null == checksum) {
+            if(null == crc32) {
+                checksum = new Checksum(algorithm, Hex.encodeHexString(digest.digest()));
+            }
+            else {
+                checksum = new Checksum(algorithm, Long.toHexString(crc32.getValue()));
+            }
+        }
+        return checksum;
+    }
+}
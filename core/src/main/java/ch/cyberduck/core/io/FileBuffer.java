@@ -23,12 +23,12 @@ import ch.cyberduck.core.local.LocalTouchFactory;
 import ch.cyberduck.core.local.TemporaryFileServiceFactory;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.NullInputStream;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class FileBuffer implements Buffer {
     private static final Logger log = Logger.getLogger(FileBuffer.class);
@@ -47,36 +47,33 @@ public class FileBuffer implements Buffer {
     }
 
     @Override
-    public synchronized int write(final byte[] chunk, final Long offset) throws IOException {
+    public int write(final byte[] chunk, final Long offset) throws IOException {
+        return this.write(chunk, 0, chunk.length, offset);
+    }
+
+    @Override
+    public synchronized int write(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
         final RandomAccessFile file = random();
         file.seek(offset);
-        file.write(chunk, 0, chunk.length);
+        file.write(chunk, off, len);
         length = Math.max(length, file.length());
-        return chunk.length;
+        return len;
     }
 
     @Override
-    public synchronized int read(final byte[] chunk, final Long offset) throws IOException {
+    public synchronized int read(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
         final RandomAccessFile file = random();
         if(offset < file.length()) {
             file.seek(offset);
-            if(chunk.length + offset > file.length()) {
-                return file.read(chunk, 0, (int) (file.length() - offset));
-            }
-            else {
-                return file.read(chunk, 0, chunk.length);
-            }
+            return file.read(chunk, off, (int) Math.min(len, file.length() - offset));
         }
-        else {
-            final NullInputStream nullStream = new NullInputStream(length);
-            if(nullStream.available() > 0) {
-                nullStream.skip(offset);
-                return nullStream.read(chunk, 0, chunk.length);
-            }
-            else {
-                return IOUtils.EOF;
-            }
+        if(offset < length) {
+            // Truncated to larger length than written
+            final int n = (int) Math.min(len, length - offset);
+            Arrays.fill(chunk, off, off + n, (byte) 0);
+            return n;
         }
+        return IOUtils.EOF;
     }
 
     @Override
@@ -18,6 +18,8 @@ package ch.cyberduck.core.io;
  * dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -32,4 +34,9 @@ public class MD5ChecksumCompute extends AbstractChecksumCompute {
         return new Checksum(HashAlgorithm.md5, Hex.encodeHexString(this.digest("MD5",
             this.normalize(in, status))));
     }
+
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        return new Checksum(HashAlgorithm.md5, Hex.encodeHexString(this.digest("MD5", file, status)));
+    }
 }
@@ -15,7 +15,9 @@ package ch.cyberduck.core.io;
  * GNU General Public License for more details.
  */
 
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LocaleFactory;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -59,4 +61,14 @@ public class MD5FastChecksumCompute extends AbstractChecksumCompute {
         return md.Final();
     }
 
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        final MD5 md = new MD5();
+        this.read(file, status, (channel, position, end) -> {
+            update(channel, position, end, buffer -> md.Update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+            return null;
+        });
+        return new Checksum(HashAlgorithm.md5, Hex.encodeHexString(md.Final()));
+    }
+
 }
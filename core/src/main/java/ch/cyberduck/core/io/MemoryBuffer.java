@@ -0,0 +1,319 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.AlphanumericRandomStringService;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.AccessDeniedException;
+import ch.cyberduck.core.exception.NotfoundException;
+import ch.cyberduck.core.local.TemporaryFileServiceFactory;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer keeping content in direct memory segments. Memory is accounted against a budget shared by all buffers.
+ * Segments that cannot be kept in memory are written to a temporary file at their offset. Segments are
+ * returned to a shared pool on close for reuse by other buffers.
+ */
+public class MemoryBuffer implements Buffer {
+    private static final Logger log = Logger.getLogger(MemoryBuffer.class);
+
+    /**
+     * Size of memory segment
+     */
+    public static final int SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * Maximum number of bytes in memory segments for all buffers
+     */
+    private static final long MAXIMUM = PreferencesFactory.get().getLong("connection.buffer.memory");
+    private static final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * Segments available for reuse
+     */
+    private static final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+    private static final int MAXIMUM_POOLED = (int) (PreferencesFactory.get().getLong("connection.buffer.memory.pool") / SEGMENT_SIZE);
+
+    private static final byte[] ZEROS = new byte[8192];
+
+    /**
+     * Segments in memory with null for segments not yet written
+     */
+    private final ByteBuffer[] segments;
+    /**
+     * Segments written to temporary file because the shared memory budget was exhausted
+     */
+    private final BitSet spilled = new BitSet();
+
+    private Local temporary;
+    private FileChannel channel;
+    private Long length = 0L;
+
+    public MemoryBuffer() {
+        this(MAXIMUM);
+    }
+
+    /**
+     * @param limit Maximum number of bytes to keep in memory for this buffer
+     */
+    public MemoryBuffer(final long limit) {
+        this.segments = new ByteBuffer[(int) Math.max(1L, (limit + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+    }
+
+    @Override
+    public int write(final byte[] chunk, final Long offset) throws IOException {
+        return this.write(chunk, 0, chunk.length, offset);
+    }
+
+    @Override
+    public synchronized int write(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
+        long position = offset;
+        int index = off;
+        int remaining = len;
+        while(remaining > 0) {
+            final int within = (int) (position % SEGMENT_SIZE);
+            final int n = Math.min(SEGMENT_SIZE - within, remaining);
+            final ByteBuffer segment = this.segment(position / SEGMENT_SIZE);
+            if(null == segment) {
+                final ByteBuffer source = ByteBuffer.wrap(chunk, index, n);
+                while(source.hasRemaining()) {
+                    this.channel().write(source, position + (source.position() - index));
+                }
+            }
+            else {
+                segment.position(within);
+                segment.put(chunk, index, n);
+            }
+            position += n;
+            index += n;
+            remaining -= n;
+        }
+        length = Math.max(length, offset + len);
+        return len;
+    }
+
+    @Override
+    public synchronized int read(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
+        if(offset >= length) {
+            return IOUtils.EOF;
+        }
+        final int read = (int) Math.min(len, length - offset);
+        long position = offset;
+        int index = off;
+        int remaining = read;
+        while(remaining > 0) {
+            final long i = position / SEGMENT_SIZE;
+            final int within = (int) (position % SEGMENT_SIZE);
+            final int n = Math.min(SEGMENT_SIZE - within, remaining);
+            final ByteBuffer segment = i < segments.length ? segments[(int) i] : null;
+            if(null == segment) {
+                final ByteBuffer target = ByteBuffer.wrap(chunk, index, n);
+                while(target.hasRemaining()) {
+                    if(null == channel || IOUtils.EOF == channel.read(target, position + (target.position() - index))) {
+                        // Never written
+                        Arrays.fill(chunk, target.position(), target.limit(), (byte) 0);
+                        break;
+                    }
+                }
+            }
+            else {
+                segment.position(within);
+                segment.get(chunk, index, n);
+            }
+            position += n;
+            index += n;
+            remaining -= n;
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized Long length() {
+        return length;
+    }
+
+    @Override
+    public synchronized void truncate(final Long length) {
+        if(length < this.length) {
+            final int within = (int) (length % SEGMENT_SIZE);
+            final long last = length / SEGMENT_SIZE;
+            if(within > 0 && last < segments.length && segments[(int) last] != null) {
+                // Clear content beyond new length in last segment
+                final ByteBuffer segment = segments[(int) last];
+                segment.position(within);
+                zero(segment);
+            }
+            // Release segments no longer in use
+            for(int i = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE); i < segments.length; i++) {
+                if(segments[i] != null) {
+                    release(segments[i]);
+                    segments[i] = null;
+                }
+            }
+            spilled.clear((int) Math.min(Integer.MAX_VALUE, (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE), Integer.MAX_VALUE);
+            if(channel != null) {
+                try {
+                    channel.truncate(length);
+                }
+                catch(IOException e) {
+                    log.warn(String.format("Failure truncating file %s to %d", temporary, length));
+                }
+            }
+        }
+        this.length = length;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.length = 0L;
+        for(int i = 0; i < segments.length; i++) {
+            if(segments[i] != null) {
+                release(segments[i]);
+                segments[i] = null;
+            }
+        }
+        spilled.clear();
+        if(channel != null) {
+            try {
+                channel.close();
+            }
+            catch(IOException e) {
+                log.error(String.format("Failure closing buffer %s", this));
+            }
+            finally {
+                try {
+                    temporary.delete();
+                }
+                catch(AccessDeniedException | NotfoundException e) {
+                    log.warn(String.format("Failure removing temporary file %s for buffer %s. Schedule for delete on exit.", temporary, this));
+                    Paths.get(temporary.getAbsolute()).toFile().deleteOnExit();
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * @param index Segment number
+     * @return Segment in memory or null when content for segment is kept in temporary file
+     */
+    private ByteBuffer segment(final long index) {
+        if(index >= segments.length) {
+            return null;
+        }
+        final int i = (int) index;
+        if(null == segments[i]) {
+            if(spilled.get(i)) {
+                return null;
+            }
+            if(!reserve()) {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Exceeded shared memory limit of %d bytes for buffer %s", MAXIMUM, this));
+                }
+                spilled.set(i);
+                return null;
+            }
+            segments[i] = borrow();
+        }
+        return segments[i];
+    }
+
+    private FileChannel channel() throws IOException {
+        if(null == channel) {
+            temporary = TemporaryFileServiceFactory.get().create(new AlphanumericRandomStringService().random());
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Write segments exceeding memory limit to temporary file %s", temporary));
+            }
+            channel = FileChannel.open(Paths.get(temporary.getAbsolute()),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Reserve memory for segment from shared budget
+     *
+     * @return False if memory limit is exceeded
+     */
+    private static boolean reserve() {
+        long current;
+        do {
+            current = allocated.get();
+            if(current + SEGMENT_SIZE > MAXIMUM) {
+                return false;
+            }
+        }
+        while(!allocated.compareAndSet(current, current + SEGMENT_SIZE));
+        return true;
+    }
+
+    /**
+     * @return Zeroed segment from pool or newly allocated
+     */
+    private static ByteBuffer borrow() {
+        final ByteBuffer segment = pool.poll();
+        if(null == segment) {
+            return ByteBuffer.allocateDirect(SEGMENT_SIZE);
+        }
+        pooled.decrementAndGet();
+        segment.clear();
+        zero(segment);
+        segment.clear();
+        return segment;
+    }
+
+    private static void zero(final ByteBuffer segment) {
+        while(segment.hasRemaining()) {
+            segment.put(ZEROS, 0, Math.min(ZEROS.length, segment.remaining()));
+        }
+    }
+
+    private static void release(final ByteBuffer segment) {
+        allocated.addAndGet(-SEGMENT_SIZE);
+        if(pooled.incrementAndGet() > MAXIMUM_POOLED) {
+            // Leave to garbage collection
+            pooled.decrementAndGet();
+            return;
+        }
+        pool.offer(segment);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("MemoryBuffer{");
+        sb.append("segments=").append(segments.length);
+        sb.append(", temporary=").append(temporary);
+        sb.append(", length=").append(length);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -18,6 +18,8 @@ package ch.cyberduck.core.io;
  * feedback@cyberduck.io
  */
 
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -32,4 +34,9 @@ public class SHA1ChecksumCompute extends AbstractChecksumCompute {
         return new Checksum(HashAlgorithm.sha1, Hex.encodeHexString(this.digest("SHA-1",
             this.normalize(in, status))));
     }
+
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        return new Checksum(HashAlgorithm.sha1, Hex.encodeHexString(this.digest("SHA-1", file, status)));
+    }
 }
@@ -18,6 +18,8 @@ package ch.cyberduck.core.io;
  * feedback@cyberduck.io
  */
 
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -32,4 +34,9 @@ public class SHA256ChecksumCompute extends AbstractChecksumCompute {
         return new Checksum(HashAlgorithm.sha256, Hex.encodeHexString(this.digest("SHA-256",
             this.normalize(in, status))));
     }
+
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        return new Checksum(HashAlgorithm.sha256, Hex.encodeHexString(this.digest("SHA-256", file, status)));
+    }
 }
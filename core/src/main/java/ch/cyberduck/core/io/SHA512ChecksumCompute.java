@@ -15,6 +15,8 @@ package ch.cyberduck.core.io;
  * GNU General Public License for more details.
  */
 
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -29,4 +31,9 @@ public class SHA512ChecksumCompute extends AbstractChecksumCompute {
         return new Checksum(HashAlgorithm.sha512, Hex.encodeHexString(this.digest("SHA-512",
             this.normalize(in, status))));
     }
+
+    @Override
+    public Checksum compute(final Local file, final TransferStatus status) throws BackgroundException {
+        return new Checksum(HashAlgorithm.sha512, Hex.encodeHexString(this.digest("SHA-512", file, status)));
+    }
 }
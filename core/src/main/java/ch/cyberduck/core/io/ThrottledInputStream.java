@@ -35,6 +35,11 @@ public class ThrottledInputStream extends ProxyInputStream {
      */
     private final BandwidthThrottle throttle;
 
+    /**
+     * Bytes granted by throttle not yet read
+     */
+    private int credit;
+
     public ThrottledInputStream(final InputStream delegate, final BandwidthThrottle throttle) {
         super(delegate);
         this.delegate = delegate;
@@ -51,6 +56,24 @@ public class ThrottledInputStream extends ProxyInputStream {
      */
     @Override
     public int read(byte[] data, int offset, int len) throws IOException {
-        return delegate.read(data, offset, throttle.request(len));
+        if(0 == credit) {
+            credit = throttle.request(Math.max(len, BandwidthThrottle.BATCH));
+        }
+        final int read = delegate.read(data, offset, Math.min(len, credit));
+        if(read > 0) {
+            credit -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }
+        finally {
+            throttle.release(credit);
+            credit = 0;
+        }
     }
 }
\ No newline at end of file
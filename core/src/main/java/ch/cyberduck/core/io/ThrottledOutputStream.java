@@ -33,6 +33,11 @@ public class ThrottledOutputStream extends ProxyOutputStream {
      */
     private final BandwidthThrottle throttle;
 
+    /**
+     * Bytes granted by throttle not yet written
+     */
+    private int credit;
+
     /**
      * Wraps the delegate stream with the given throttle.
      *
@@ -54,8 +59,11 @@ public class ThrottledOutputStream extends ProxyOutputStream {
      */
     @Override
     public void write(final int b) throws IOException {
-        throttle.request(1); //Note that _request never returns zero.
+        if(0 == credit) {
+            credit = throttle.request(BandwidthThrottle.BATCH); //Note that _request never returns zero.
+        }
         delegate.write(b);
+        credit--;
     }
 
     /**
@@ -73,10 +81,25 @@ public class ThrottledOutputStream extends ProxyOutputStream {
         //Note that we delegate directly to out.  Do NOT call super.write();
         //that calls this.write() resulting in HALF the throughput.
         while(totalLength > 0) {
-            int length = throttle.request(totalLength);
+            if(0 == credit) {
+                credit = throttle.request(Math.max(totalLength, BandwidthThrottle.BATCH));
+            }
+            int length = Math.min(credit, totalLength);
             delegate.write(data, offset, length);
+            credit -= length;
             totalLength -= length;
             offset += length;
         }
     }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }
+        finally {
+            throttle.release(credit);
+            credit = 0;
+        }
+    }
 }
@@ -0,0 +1,381 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Hierarchical token bucket. Bytes granted to a bucket are taken from all its ancestors such that the aggregate rate
+ * of a bucket never exceeds its own rate or the rate of any ancestor. When an ancestor is the bottleneck, its capacity
+ * is shared among children requesting bandwidth in proportion to their weight. All buckets of a hierarchy share a
+ * single lock which is why callers should request bytes in batches.
+ */
+public class TokenBucket {
+    private static final Logger log = Logger.getLogger(TokenBucket.class);
+
+    /**
+     * No limit
+     */
+    public static final long UNLIMITED = -1L;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    /**
+     * Capacity of bucket in time at configured rate
+     */
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    /**
+     * Minimum capacity of bucket in bytes
+     */
+    private static final long MINIMUM_BURST = 64 * 1024;
+    /**
+     * Interval without request after which a child no longer takes part in sharing of parent
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500L);
+    /**
+     * Minimum time to wait for tokens
+     */
+    private static final long MINIMUM_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final TokenBucket parent;
+    private final LongSupplier clock;
+    /**
+     * Shared by all buckets of hierarchy
+     */
+    private final Object lock;
+    private final int weight;
+    /**
+     * Guarded by lock
+     */
+    private final List<TokenBucket> children = new ArrayList<>();
+
+    /**
+     * Bytes per second
+     */
+    private volatile long rate;
+
+    /**
+     * Available bytes
+     */
+    private double tokens;
+    private long timestamp;
+    private boolean initialized;
+    /**
+     * Bytes granted divided by weight
+     */
+    private double service;
+    /**
+     * Time of last request
+     */
+    private long requested;
+    private boolean active;
+
+    /**
+     * Root bucket
+     *
+     * @param rate Bytes per second or UNLIMITED
+     */
+    public TokenBucket(final long rate) {
+        this(rate, System::nanoTime);
+    }
+
+    /**
+     * @param rate  Bytes per second or UNLIMITED
+     * @param clock Monotonic time in nanoseconds
+     */
+    public TokenBucket(final long rate, final LongSupplier clock) {
+        this.parent = null;
+        this.clock = clock;
+        this.lock = new Object();
+        this.weight = 1;
+        this.setRate(rate);
+    }
+
+    /**
+     * @param parent Bucket to take tokens from
+     * @param rate   Bytes per second or UNLIMITED
+     * @param weight Share relative to siblings when parent is bottleneck
+     */
+    public TokenBucket(final TokenBucket parent, final long rate, final int weight) {
+        this.parent = parent;
+        this.clock = parent.clock;
+        this.lock = parent.lock;
+        this.weight = Math.max(1, weight);
+        this.setRate(rate);
+        synchronized(lock) {
+            parent.children.add(this);
+        }
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate Bytes per second or negative for no limit
+     */
+    public void setRate(final long rate) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Set rate to %d bytes per second for %s", rate, this));
+        }
+        this.rate = rate < 0 ? UNLIMITED : rate;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public TokenBucket getParent() {
+        return parent;
+    }
+
+    /**
+     * @return True if this bucket or any ancestor has a rate configured
+     */
+    public boolean isLimited() {
+        for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+            if(UNLIMITED != bucket.rate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blocks until at least one byte can be transferred
+     *
+     * @param desired Number of bytes the caller would like to transfer
+     * @return Number of bytes granted which is greater than zero and less than or equal to desired
+     */
+    public long acquire(final long desired) {
+        if(!this.isLimited()) {
+            return desired;
+        }
+        while(true) {
+            final long now = clock.getAsLong();
+            final long granted = this.take(desired, now);
+            if(granted > 0) {
+                return granted;
+            }
+            final long wait = this.delay(now);
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Throttling bandwidth for %d nanoseconds", wait));
+            }
+            Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Return unused bytes previously granted
+     *
+     * @param bytes Number of bytes not transferred
+     */
+    public void release(final long bytes) {
+        if(bytes <= 0) {
+            return;
+        }
+        synchronized(lock) {
+            for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+                if(UNLIMITED != bucket.rate) {
+                    bucket.tokens = Math.min(bucket.capacity(), bucket.tokens + bytes);
+                }
+                if(bucket.parent != null) {
+                    bucket.service = Math.max(0d, bucket.service - (double) bytes / bucket.weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Take tokens without blocking
+     *
+     * @param desired Number of bytes the caller would like to transfer
+     * @param now     Current time in nanoseconds
+     * @return Number of bytes granted or zero if caller must wait
+     */
+    long take(final long desired, final long now) {
+        synchronized(lock) {
+            for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+                bucket.refill(now);
+            }
+            double available = Double.MAX_VALUE;
+            for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+                if(bucket.parent != null) {
+                    bucket.activate(now);
+                    if(!bucket.isEligible(now)) {
+                        return 0L;
+                    }
+                }
+                if(UNLIMITED != bucket.rate) {
+                    available = Math.min(available, bucket.tokens);
+                }
+            }
+            if(available < 1d) {
+                return 0L;
+            }
+            final long granted = (long) Math.min(desired, available);
+            for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+                if(UNLIMITED != bucket.rate) {
+                    bucket.tokens -= granted;
+                }
+                if(bucket.parent != null) {
+                    bucket.service += (double) granted / bucket.weight;
+                }
+            }
+            return granted;
+        }
+    }
+
+    /**
+     * @param now Current time in nanoseconds
+     * @return Nanoseconds to wait until tokens are available
+     */
+    long delay(final long now) {
+        synchronized(lock) {
+            long wait = MINIMUM_WAIT_NANOS;
+            for(TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+                if(UNLIMITED == bucket.rate || 0L == bucket.rate) {
+                    continue;
+                }
+                bucket.refill(now);
+                if(bucket.tokens < 1d) {
+                    wait = Math.max(wait, (long) ((1d - bucket.tokens) * NANOS_PER_SECOND / bucket.rate));
+                }
+            }
+            return wait;
+        }
+    }
+
+    /**
+     * Detach from parent
+     */
+    public void close() {
+        if(parent != null) {
+            synchronized(lock) {
+                parent.children.remove(this);
+            }
+        }
+    }
+
+    private double capacity() {
+        return Math.max(MINIMUM_BURST, (double) rate * BURST_NANOS / NANOS_PER_SECOND);
+    }
+
+    private void refill(final long now) {
+        if(UNLIMITED == rate) {
+            return;
+        }
+        if(!initialized) {
+            tokens = this.capacity();
+            initialized = true;
+        }
+        else {
+            tokens = Math.min(this.capacity(), tokens + (double) (now - timestamp) * rate / NANOS_PER_SECOND);
+        }
+        timestamp = now;
+    }
+
+    private boolean isActive(final long now) {
+        return active && now - requested < IDLE_NANOS;
+    }
+
+    /**
+     * Mark as requesting bandwidth from parent. A child becoming active again does not get credit for the time it was
+     * idle and a child lagging behind its siblings does not accumulate more than a limited amount of credit.
+     */
+    private void activate(final long now) {
+        if(!this.isActive(now)) {
+            service = Math.max(service, parent.minimum(now));
+        }
+        final TokenBucket limit = this.limit();
+        if(limit != null) {
+            service = Math.max(service, parent.maximum(now) - limit.quantum() * 4);
+        }
+        requested = now;
+        active = true;
+    }
+
+    /**
+     * @return False if this bucket has received more than its share compared to active siblings while an ancestor
+     * is the bottleneck
+     */
+    private boolean isEligible(final long now) {
+        for(TokenBucket ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if(UNLIMITED == ancestor.rate) {
+                continue;
+            }
+            if(ancestor.tokens < ancestor.capacity() / 2) {
+                // Bottleneck
+                return service - parent.minimum(now) <= ancestor.quantum();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Nearest ancestor with rate configured or null
+     */
+    private TokenBucket limit() {
+        for(TokenBucket ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if(UNLIMITED != ancestor.rate) {
+                return ancestor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Maximum lead in service of a child over slowest active sibling relative to weight
+     */
+    private double quantum() {
+        return this.capacity() / 4;
+    }
+
+    private double minimum(final long now) {
+        double minimum = Double.MAX_VALUE;
+        for(TokenBucket child : children) {
+            if(child.isActive(now)) {
+                minimum = Math.min(minimum, child.service);
+            }
+        }
+        return Double.MAX_VALUE == minimum ? 0d : minimum;
+    }
+
+    private double maximum(final long now) {
+        double maximum = 0d;
+        for(TokenBucket child : children) {
+            if(child.isActive(now)) {
+                maximum = Math.max(maximum, child.service);
+            }
+        }
+        return maximum;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("TokenBucket{");
+        sb.append("rate=").append(rate);
+        sb.append(", weight=").append(weight);
+        sb.append('}');
+        return sb.toString();
+    }
+}
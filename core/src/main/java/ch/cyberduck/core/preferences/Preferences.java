@@ -323,6 +323,14 @@ public abstract class Preferences implements Locales {
          */
         this.setDefault("browser.cache.size", String.valueOf(1000));
         this.setDefault("transfer.cache.size", String.valueOf(100));
+        /*
+          Swap directory listings of transfer workload to disk
+         */
+        this.setDefault("transfer.cache.swap.enable", String.valueOf(false));
+        /*
+          Maximum number of files in directory listings of transfer workload kept in memory before swapping to disk
+         */
+        this.setDefault("transfer.cache.swap.threshold", String.valueOf(100000));
         this.setDefault("icon.cache.size", String.valueOf(200));
         this.setDefault("preferences.cache.size", String.valueOf(1000));
         this.setDefault("fileid.cache.size", String.valueOf(1000));
@@ -338,6 +346,19 @@ public abstract class Preferences implements Locales {
         this.setDefault("browser.list.limit.directory", String.valueOf(5000));
         this.setDefault("browser.list.limit.container", String.valueOf(100));
 
+        /*
+          Number of concurrent directory listings for recursive search and to compile recursive list for delete and size calculation
+         */
+        this.setDefault("browser.search.concurrency", String.valueOf(5));
+        /*
+          Maximum number of levels to descend into for recursive search
+         */
+        this.setDefault("browser.search.depth", String.valueOf(Integer.MAX_VALUE));
+        /*
+          Number of files passed to delete feature at once while compiling recursive list
+         */
+        this.setDefault("browser.delete.batch.size", String.valueOf(1000));
+
         this.setDefault("info.toolbar.selected", String.valueOf(0));
         this.setDefault("preferences.toolbar.selected", String.valueOf(0));
 
@@ -445,6 +466,14 @@ public abstract class Preferences implements Locales {
         ));
         this.setDefault("queue.transfer.type", Host.TransferType.concurrent.name());
         this.setDefault("queue.transfer.operationbatcher.size", String.valueOf(100));
+        /*
+          Start transfer of files as soon as their status is determined while the remaining files are still prepared
+         */
+        this.setDefault("queue.transfer.pipeline.enable", String.valueOf(false));
+        /*
+          Maximum number of segments handed over to the transfer stage but not yet completed
+         */
+        this.setDefault("queue.transfer.pipeline.size", String.valueOf(1000));
 
         /*
           Warning when number of transfers in queue exceeds limit
@@ -512,6 +541,14 @@ public abstract class Preferences implements Locales {
 
         this.setDefault("queue.download.timestamp.change", String.valueOf(true));
         this.setDefault("queue.download.checksum.calculate", String.valueOf(false));
+        /*
+          Remember checksums of local files not modified since last computed
+         */
+        this.setDefault("queue.checksum.cache.enable", String.valueOf(true));
+        /*
+          Maximum number of checksums to remember
+         */
+        this.setDefault("queue.checksum.cache.size", String.valueOf(100000));
 
         this.setDefault("queue.download.skip.enable", String.valueOf(true));
         this.setDefault("queue.download.skip.regex.default",
@@ -533,6 +570,10 @@ public abstract class Preferences implements Locales {
         this.setDefault("queue.download.segments.threshold", String.valueOf(10L * 1024L * 1024L));
         this.setDefault("queue.download.segments.size", String.valueOf(128L * 1024L * 1024L));
         this.setDefault("queue.download.segments.count", String.valueOf(128));
+        /*
+          Write segments directly to preallocated target file instead of reassembling from separate segment files
+         */
+        this.setDefault("queue.download.segments.preallocate", String.valueOf(false));
 
         /*
           Open completed downloads
@@ -574,6 +615,11 @@ public abstract class Preferences implements Locales {
           Bandwidth throttle download stream
          */
         this.setDefault("queue.download.bandwidth.bytes", String.valueOf(-1));
+        /*
+          Bandwidth shared by all transfers in queue and by all transfers in queue for the same host
+         */
+        this.setDefault("queue.bandwidth.bytes", String.valueOf(-1));
+        this.setDefault("queue.bandwidth.host.bytes", String.valueOf(-1));
 
         /*
          * Concurrent connections for single transfer and maximum number of concurrent transfers in transfer list
@@ -581,6 +627,27 @@ public abstract class Preferences implements Locales {
         this.setDefault("queue.connections.limit", String.valueOf(TransferConnectionLimiter.AUTO));
         this.setDefault("queue.connections.limit.default", String.valueOf(5));
         this.setDefault("queue.connections.limit.ftp", String.valueOf(1));
+        /*
+          Adjust number of connections for single transfer from observed throughput starting with the configured limit
+         */
+        this.setDefault("queue.connections.adaptive", String.valueOf(false));
+        this.setDefault("queue.connections.adaptive.maximum", String.valueOf(64));
+        this.setDefault("queue.connections.adaptive.interval", String.valueOf(2000L));
+        /*
+          Threads uploading parts of multipart uploads shared by all transfers and maximum number of bytes in parts
+          submitted and not yet uploaded. Set to -1 for no limit
+         */
+        this.setDefault("queue.upload.multipart.concurrency", String.valueOf(32));
+        this.setDefault("queue.upload.multipart.inflight.bytes", String.valueOf(5L * 1024L * 1024L * 1024L));
+        /*
+          Order of transfers waiting for a slot in queue and of files waiting for a connection in a transfer. One of
+          fifo, size, priority, deadline or mixed
+         */
+        this.setDefault("queue.scheduler.policy", "fifo");
+        /*
+          Milliseconds a file twice as large is treated as added later with mixed scheduling
+         */
+        this.setDefault("queue.scheduler.aging", String.valueOf(10000L));
 
         {
             final StringBuilder options = new StringBuilder();
@@ -706,6 +773,14 @@ public abstract class Preferences implements Locales {
 
         this.setDefault("s3.listing.chunksize", String.valueOf(1000));
         this.setDefault("s3.listing.concurrency", String.valueOf(25));
+        /*
+          Split keyspace of recursive listings into partitions listed in parallel
+         */
+        this.setDefault("s3.listing.partition.enable", String.valueOf(false));
+        /*
+          Number of levels of common prefixes to split keyspace into partitions listed in parallel for recursive listings
+         */
+        this.setDefault("s3.listing.partition.depth", String.valueOf(1));
 
         this.setDefault("s3.upload.multipart", String.valueOf(true));
         this.setDefault("s3.upload.multipart.concurrency", String.valueOf(10));
@@ -788,6 +863,12 @@ public abstract class Preferences implements Locales {
         this.setDefault("azure.upload.md5", String.valueOf(false));
         this.setDefault("azure.upload.snapshot", String.valueOf(false));
         this.setDefault("azure.upload.blobtype", "APPEND_BLOB");
+        /*
+          Block blobs larger than threshold are uploaded with blocks put concurrently
+         */
+        this.setDefault("azure.upload.blockblob.threshold", String.valueOf(100L * 1024L * 1024L));
+        this.setDefault("azure.upload.blockblob.size", String.valueOf(16L * 1024L * 1024L));
+        this.setDefault("azure.upload.blockblob.concurrency", String.valueOf(10));
 
         // Legacy authentication
 //        this.setDefault("openstack.authentication.context", "/v1.0");
@@ -816,6 +897,10 @@ public abstract class Preferences implements Locales {
         this.setDefault("googledrive.list.limit", String.valueOf(1000));
         this.setDefault("googledrive.teamdrive.enable", String.valueOf(true));
         this.setDefault("googledrive.delete.trash", String.valueOf(true));
+        /*
+          Maximum number of file id lookups combined in a batch request
+         */
+        this.setDefault("googledrive.fileid.batch.size", String.valueOf(100));
         // Limit the number of requests to 10 per second which is equal the user quota
         this.setDefault("googledrive.limit.requests.second", String.valueOf(100));
 
@@ -850,6 +935,10 @@ public abstract class Preferences implements Locales {
         this.setDefault("sds.upload.s3.enable", String.valueOf(true));
         this.setDefault("sds.versioning.references.enable", String.valueOf(false));
         this.setDefault("sds.upload.s3.status.period", String.valueOf(1000)); // 1 second
+        /*
+          Upload encrypted parts from memory while encrypting next part instead of staging ciphertext in temporary file
+         */
+        this.setDefault("sds.upload.s3.encryption.pipeline", String.valueOf(false));
         this.setDefault("sds.oauth.migrate.enable", String.valueOf(true));
 
         this.setDefault("spectra.retry.delay", String.valueOf(60)); // 1 minute
@@ -1018,6 +1107,14 @@ public abstract class Preferences implements Locales {
           Transfer read buffer size
          */
         this.setDefault("connection.chunksize", String.valueOf(32768));
+        /*
+          Maximum number of bytes to keep in memory shared by all upload buffers before writing to temporary file
+         */
+        this.setDefault("connection.buffer.memory", String.valueOf(64L * 1024L * 1024L));
+        /*
+          Maximum number of bytes of released buffer memory segments kept for reuse
+         */
+        this.setDefault("connection.buffer.memory.pool", String.valueOf(64L * 1024L * 1024L));
         /*
           Buffer size for wrapped buffered streams
          */
@@ -1121,6 +1218,14 @@ public abstract class Preferences implements Locales {
         this.setDefault("cryptomator.vault.masterkey.filename", "masterkey.cryptomator");
         this.setDefault("cryptomator.vault.pepper", "");
         this.setDefault("cryptomator.cache.size", String.valueOf(1000));
+        /*
+          Number of file content chunks to encrypt or decrypt in parallel
+         */
+        this.setDefault("cryptomator.vault.content.concurrency", String.valueOf(Math.min(4, Runtime.getRuntime().availableProcessors())));
+        /*
+          Number of filenames in directory listing to decrypt in parallel
+         */
+        this.setDefault("cryptomator.vault.list.concurrency", String.valueOf(Runtime.getRuntime().availableProcessors()));
     }
 
     /**
@@ -24,6 +24,8 @@ import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.Download;
 import ch.cyberduck.core.features.Read;
 import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.Checksum;
+import ch.cyberduck.core.io.ChecksumInputStream;
 import ch.cyberduck.core.io.StreamCopier;
 import ch.cyberduck.core.io.StreamListener;
 import ch.cyberduck.core.io.ThrottledInputStream;
@@ -44,12 +46,22 @@ public class DefaultDownloadFeature implements Download {
     public void download(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
                          final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
         final InputStream in = reader.read(file, status, callback);
-        final OutputStream out = local.getOutputStream(!status.isSegment() && status.isAppend());
+        final OutputStream out = status.isPositional() ?
+            // Write segment in place to preallocated file
+            local.getOutputStream(status.getOffset()) :
+            local.getOutputStream(!status.isSegment() && status.isAppend());
+        status.setDigest(Checksum.NONE);
+        // Compute checksum of complete file while downloading for verification without reading the file again
+        final ChecksumInputStream digest = Checksum.NONE != status.getChecksum() && !status.isSegment() && 0L == status.getOffset() ?
+            new ChecksumInputStream(in, status.getChecksum().algorithm) : null;
         new StreamCopier(status, status)
                 .withOffset(0L)
                 .withLimit(status.getLength())
                 .withListener(listener)
-                .transfer(new ThrottledInputStream(in, throttle), out);
+                .transfer(new ThrottledInputStream(null == digest ? in : digest, throttle), out);
+        if(digest != null) {
+            status.setDigest(digest.getChecksum());
+        }
     }
 
     @Override
@@ -28,6 +28,7 @@ import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.AttributesFinder;
 import ch.cyberduck.core.features.Find;
 import ch.cyberduck.core.io.Checksum;
+import ch.cyberduck.core.io.ChecksumCacheFactory;
 import ch.cyberduck.core.io.ChecksumComputeFactory;
 import ch.cyberduck.core.shared.DefaultAttributesFinderFeature;
 import ch.cyberduck.core.shared.DefaultFindFeature;
@@ -91,8 +92,8 @@ public class DefaultComparePathFilter implements ComparePathFilter {
                 if(Checksum.NONE != attributes.getChecksum()) {
                     // MD5/ETag Checksum is supported
                     listener.message(MessageFormat.format(LocaleFactory.localizedString("Compute MD5 hash of {0}", "Status"), file.getName()));
-                    local.attributes().setChecksum(ChecksumComputeFactory.get(attributes.getChecksum().algorithm)
-                        .compute(local.getInputStream(), new TransferStatus()));
+                    local.attributes().setChecksum(ChecksumCacheFactory.get().compute(local,
+                        ChecksumComputeFactory.get(attributes.getChecksum().algorithm), new TransferStatus()));
                     switch(checksum.compare(attributes, local.attributes())) {
                         case equal:
                             // Decision is available
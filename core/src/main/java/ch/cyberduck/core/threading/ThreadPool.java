@@ -37,6 +37,13 @@ public interface ThreadPool {
 
     AbstractExecutorService executor();
 
+    /**
+     * Change number of concurrent threads. Running tasks are not interrupted when shrinking.
+     *
+     * @param size Maximum number of threads in pool
+     */
+    void resize(int size);
+
     enum Priority {
         low {
             @Override
@@ -39,6 +39,7 @@ public class TransferCollectionBackgroundAction extends TransferBackgroundAction
     private final SessionPool destination;
     private final Transfer transfer;
     private final ProgressListener listener;
+    private final TransferOptions options;
 
     public TransferCollectionBackgroundAction(final Controller controller,
                                               final SessionPool source,
@@ -52,6 +53,7 @@ public class TransferCollectionBackgroundAction extends TransferBackgroundAction
         this.destination = destination;
         this.transfer = transfer;
         this.listener = listener;
+        this.options = options;
     }
 
     @Override
@@ -59,7 +61,7 @@ public class TransferCollectionBackgroundAction extends TransferBackgroundAction
         // Update status to running
         super.prepare();
         // Wait for slot in queue
-        queue.add(transfer, listener);
+        queue.add(transfer, options, listener);
     }
 
     @Override
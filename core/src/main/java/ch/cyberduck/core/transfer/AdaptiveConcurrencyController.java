@@ -0,0 +1,184 @@
+package ch.cyberduck.core.transfer;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.apache.log4j.Logger;
+
+/**
+ * Adjust number of concurrent connections from aggregate throughput and failures observed in sampling intervals.
+ * Grows the number of connections as long as throughput changed in proportion to the last change in connections and
+ * shrinks it when saturated or congested. Halves the number of connections on failures.
+ */
+public class AdaptiveConcurrencyController {
+    private static final Logger log = Logger.getLogger(AdaptiveConcurrencyController.class);
+
+    /**
+     * Minimum ratio of relative throughput change to relative change in connections to grow
+     */
+    private static final double ELASTICITY_THRESHOLD = 0.5d;
+    /**
+     * Fraction of current limit to change in a single step
+     */
+    private static final double STEP = 0.125d;
+    /**
+     * Factor to apply to current limit on failure
+     */
+    private static final double BACKOFF = 0.5d;
+
+    private final int minimum;
+    private final int maximum;
+
+    private int limit;
+    /**
+     * Limit and throughput of previous sample or zero if no baseline
+     */
+    private int previousLimit;
+    private double previousThroughput;
+
+    private double throughput;
+    private long increases;
+    private long decreases;
+    private long backoffs;
+
+    private Listener listener = Listener.NONE;
+
+    /**
+     * @param minimum Lower bound for number of connections
+     * @param maximum Upper bound for number of connections
+     * @param initial Number of connections to start with
+     */
+    public AdaptiveConcurrencyController(final int minimum, final int maximum, final int initial) {
+        this.minimum = Math.max(1, minimum);
+        this.maximum = Math.max(this.minimum, maximum);
+        this.limit = this.clamp(initial);
+    }
+
+    public AdaptiveConcurrencyController withListener(final Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param bytes    Number of bytes transferred in interval
+     * @param millis   Length of interval
+     * @param failures Number of failures in interval
+     * @return Number of connections to use for next interval
+     */
+    public synchronized int sample(final long bytes, final long millis, final int failures) {
+        if(millis <= 0) {
+            return limit;
+        }
+        final int current = limit;
+        throughput = (double) bytes / millis * 1000d;
+        if(failures > 0) {
+            limit = this.clamp((int) (limit * BACKOFF));
+            backoffs++;
+            // Start over with new baseline
+            previousLimit = 0;
+        }
+        else {
+            if(0 == previousLimit || 0d == previousThroughput || previousLimit == limit) {
+                // No baseline for comparison. Probe upwards unless at maximum
+                limit = this.clamp(limit < maximum ? limit + this.step() : limit - this.step());
+            }
+            else {
+                final double elasticity = ((throughput - previousThroughput) / previousThroughput)
+                    / ((double) (limit - previousLimit) / previousLimit);
+                if(elasticity > ELASTICITY_THRESHOLD) {
+                    // Throughput follows number of connections
+                    limit = this.clamp(limit + this.step());
+                }
+                else {
+                    // Saturated or congested
+                    limit = this.clamp(limit - this.step());
+                }
+            }
+            previousLimit = current;
+            previousThroughput = throughput;
+        }
+        if(limit > current) {
+            increases++;
+        }
+        else if(limit < current) {
+            decreases++;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Change limit from %d to %d with throughput %.0f bytes/s and %d failures",
+                current, limit, throughput, failures));
+        }
+        listener.decide(current, limit, throughput, failures);
+        return limit;
+    }
+
+    private int step() {
+        return Math.max(1, (int) (limit * STEP));
+    }
+
+    private int clamp(final int value) {
+        return Math.min(maximum, Math.max(minimum, value));
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Throughput in bytes per second observed in last interval
+     */
+    public synchronized double getThroughput() {
+        return throughput;
+    }
+
+    public synchronized long getIncreases() {
+        return increases;
+    }
+
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+    public synchronized long getBackoffs() {
+        return backoffs;
+    }
+
+    public interface Listener {
+        Listener NONE = (previous, limit, throughput, failures) -> {
+            //
+        };
+
+        /**
+         * @param previous   Number of connections in interval
+         * @param limit      Number of connections for next interval
+         * @param throughput Bytes per second in interval
+         * @param failures   Number of failures in interval
+         */
+        void decide(int previous, int limit, double throughput, int failures);
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder("AdaptiveConcurrencyController{");
+        sb.append("limit=").append(limit);
+        sb.append(", minimum=").append(minimum);
+        sb.append(", maximum=").append(maximum);
+        sb.append(", throughput=").append(throughput);
+        sb.append(", increases=").append(increases);
+        sb.append(", decreases=").append(decreases);
+        sb.append(", backoffs=").append(backoffs);
+        sb.append('}');
+        return sb.toString();
+    }
+}
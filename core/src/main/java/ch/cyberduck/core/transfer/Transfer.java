@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class Transfer implements Serializable {
     private static final Logger log = Logger.getLogger(Transfer.class);
@@ -63,9 +64,15 @@ public abstract class Transfer implements Serializable {
     private AtomicLong size;
 
     /**
-     * The number bytes already transferred of the files in the <code>queue</code> or null if unknown
+     * The number bytes already transferred of the files in the <code>queue</code>. Striped to avoid contention
+     * when updated for every chunk written by concurrent connections. Readers sample the sum when refreshing
+     * progress.
      */
-    private AtomicLong transferred;
+    private final LongAdder transferred = new LongAdder();
+    /**
+     * False if number of bytes transferred is unknown
+     */
+    private volatile boolean counted;
 
     private final Map<Local, Object> locks = new HashMap<>();
 
@@ -178,8 +185,8 @@ public abstract class Transfer implements Serializable {
         if(size != null) {
             dict.setStringForKey(String.valueOf(size), "Size");
         }
-        if(transferred != null) {
-            dict.setStringForKey(String.valueOf(transferred), "Current");
+        if(counted) {
+            dict.setStringForKey(String.valueOf(transferred.sum()), "Current");
         }
         if(timestamp != null) {
             dict.setStringForKey(String.valueOf(timestamp.getTime()), "Timestamp");
@@ -303,7 +310,7 @@ public abstract class Transfer implements Serializable {
     /**
      * @param source      Connection to source server of transfer. May be null.
      * @param destination Connection to target server of transfer
-     * @param files       Files pending transfer
+     * @param files       Files pending transfer. May be called repeatedly with subsets of files when transfer is pipelined.
      * @param callback    Prompt
      */
     public void pre(final Session<?> source, final Session<?> destination, final Map<TransferItem, TransferStatus> files, final ConnectionCallback callback) throws BackgroundException {
@@ -312,10 +319,14 @@ public abstract class Transfer implements Serializable {
                 switch(this.getType()) {
                     case download:
                         final Local directory = item.local.getParent();
-                        locks.put(directory, directory.lock(true));
+                        if(!locks.containsKey(directory)) {
+                            locks.put(directory, directory.lock(true));
+                        }
                         break;
                     case upload:
-                        locks.put(item.local, item.local.lock(true));
+                        if(!locks.containsKey(item.local)) {
+                            locks.put(item.local, item.local.lock(true));
+                        }
                         break;
                 }
             }
@@ -392,7 +403,8 @@ public abstract class Transfer implements Serializable {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Reset status for %s", this));
         }
-        transferred = null;
+        transferred.reset();
+        counted = false;
         size = null;
         reset = true;
     }
@@ -407,8 +419,8 @@ public abstract class Transfer implements Serializable {
     /**
      * @return True if the bytes transferred equal the size of the queue
      */
-    public synchronized boolean isComplete() {
-        if(null == size || null == transferred) {
+    public boolean isComplete() {
+        if(null == size || !counted) {
             return false;
         }
         return Objects.equals(this.getSize(), this.getTransferred());
@@ -441,21 +453,18 @@ public abstract class Transfer implements Serializable {
      * @return The number of bytes transferred of all files.
      */
     public Long getTransferred() {
-        if(null == transferred) {
-            return 0L;
-        }
-        return transferred.get();
+        return transferred.sum();
     }
 
     public void addTransferred(final long bytes) {
-        if(null == transferred) {
+        if(!counted) {
             // Initialize
-            transferred = new AtomicLong(0L);
+            counted = true;
         }
         // Allow decrement for failed segments
-        transferred.addAndGet(bytes);
+        transferred.add(bytes);
         if(log.isTraceEnabled()) {
-            log.trace(String.format("Transferred set to %d bytes", transferred.get()));
+            log.trace(String.format("Transferred set to %d bytes", transferred.sum()));
         }
     }
 
@@ -479,18 +488,19 @@ public abstract class Transfer implements Serializable {
         size.set(bytes);
     }
 
-    public void setTransferred(final Long bytes) {
-        if(null == transferred) {
-            // Initialize
-            transferred = new AtomicLong(0L);
-        }
-        transferred.set(bytes);
+    /**
+     * Only to be called while transfer is not running
+     */
+    public synchronized void setTransferred(final Long bytes) {
+        // Apply difference in single update to not expose intermediate value to readers
+        transferred.add(bytes - transferred.sum());
+        counted = true;
     }
 
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("Transfer{");
-        sb.append("transferred=").append(transferred);
+        sb.append("transferred=").append(counted ? transferred : null);
         sb.append(", size=").append(size);
         sb.append(", roots=").append(roots);
         sb.append(", state=").append(state);
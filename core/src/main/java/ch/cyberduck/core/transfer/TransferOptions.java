@@ -18,6 +18,8 @@ package ch.cyberduck.core.transfer;
  *  dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.preferences.PreferencesFactory;
+
 public final class TransferOptions {
 
     /**
@@ -30,6 +32,26 @@ public final class TransferOptions {
      */
     public boolean reloadRequested = false;
 
+    /**
+     * Start transferring files as soon as their status is determined instead of preparing all files first
+     */
+    public boolean pipelineRequested = PreferencesFactory.get().getBoolean("queue.transfer.pipeline.enable");
+
+    /**
+     * Share of bandwidth relative to other transfers in queue when limited by bandwidth of queue or host
+     */
+    public int weight = 1;
+
+    /**
+     * Scheduling priority relative to other transfers in queue with higher values started first
+     */
+    public int priority = 0;
+
+    /**
+     * Milliseconds since epoch by which transfer should complete or Long.MAX_VALUE for no deadline
+     */
+    public long deadline = Long.MAX_VALUE;
+
     public TransferOptions reload(boolean e) {
         reloadRequested = e;
         return this;
@@ -40,11 +62,35 @@ public final class TransferOptions {
         return this;
     }
 
+    public TransferOptions pipeline(boolean e) {
+        pipelineRequested = e;
+        return this;
+    }
+
+    public TransferOptions weight(int e) {
+        weight = e;
+        return this;
+    }
+
+    public TransferOptions priority(int e) {
+        priority = e;
+        return this;
+    }
+
+    public TransferOptions deadline(long e) {
+        deadline = e;
+        return this;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("TransferOptions{");
         sb.append("resumeRequested=").append(resumeRequested);
         sb.append(", reloadRequested=").append(reloadRequested);
+        sb.append(", pipelineRequested=").append(pipelineRequested);
+        sb.append(", weight=").append(weight);
+        sb.append(", priority=").append(priority);
+        sb.append(", deadline=").append(deadline);
         sb.append('}');
         return sb.toString();
     }
@@ -21,15 +21,23 @@ package ch.cyberduck.core.transfer;
 
 import ch.cyberduck.core.LocaleFactory;
 import ch.cyberduck.core.ProgressListener;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.TokenBucket;
 import ch.cyberduck.core.local.ApplicationBadgeLabeler;
 import ch.cyberduck.core.local.ApplicationBadgeLabelerFactory;
 import ch.cyberduck.core.notification.NotificationService;
 import ch.cyberduck.core.notification.NotificationServiceFactory;
 import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.transfer.scheduler.Schedulable;
+import ch.cyberduck.core.transfer.scheduler.SchedulingPolicy;
+import ch.cyberduck.core.transfer.scheduler.SchedulingPolicyFactory;
 
 import org.apache.log4j.Logger;
 
-import java.util.concurrent.Semaphore;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 public final class TransferQueue {
     private static final Logger log = Logger.getLogger(TransferQueue.class);
@@ -37,23 +45,45 @@ public final class TransferQueue {
     private final ApplicationBadgeLabeler label = ApplicationBadgeLabelerFactory.get();
     private final NotificationService notification = NotificationServiceFactory.get();
 
-    private final ResizeableSemaphore semaphore;
+    private final SchedulingSemaphore semaphore;
 
     /**
      * Adjustable number of connections
      */
     private int permits;
 
+    /**
+     * Bandwidth shared by all transfers in queue
+     */
+    private final TokenBucket bandwidth;
+    /**
+     * Bandwidth shared by transfers in queue for the same host
+     */
+    private final Map<String, TokenBucket> hosts = new HashMap<>();
+    /**
+     * Bucket attached to bandwidth throttle of transfers in queue
+     */
+    private final Map<Transfer, TokenBucket> buckets = new HashMap<>();
+
     public TransferQueue() {
         this(PreferencesFactory.get().getInteger("queue.connections.limit"));
     }
 
     public TransferQueue(final int size) {
+        this(size, SchedulingPolicyFactory.get());
+    }
+
+    /**
+     * @param size   Maximum number of concurrent transfers
+     * @param policy Order of transfers waiting for a slot
+     */
+    public TransferQueue(final int size, final SchedulingPolicy policy) {
         this.permits = size;
-        this.semaphore = new ResizeableSemaphore(
+        this.semaphore = new SchedulingSemaphore(
             size == TransferConnectionLimiter.AUTO ?
                 PreferencesFactory.get().getInteger("queue.connections.limit.default") :
-                size, true);
+                size, policy);
+        this.bandwidth = new TokenBucket(PreferencesFactory.get().getLong("queue.bandwidth.bytes"));
     }
 
     /**
@@ -63,6 +93,17 @@ public final class TransferQueue {
      * @param t This transfer should respect the settings for maximum number of transfers
      */
     public void add(final Transfer t, final ProgressListener listener) {
+        this.add(t, new TransferOptions(), listener);
+    }
+
+    /**
+     * Idle this transfer until a free slot is available and share bandwidth with other transfers in queue. Transfers
+     * waiting are started in the order of the scheduling policy.
+     *
+     * @param t       This transfer should respect the settings for maximum number of transfers
+     * @param options Priority and deadline for scheduling and weight of transfer when sharing bandwidth
+     */
+    public void add(final Transfer t, final TransferOptions options, final ProgressListener listener) {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Add transfer %s to queue", t));
         }
@@ -73,8 +114,9 @@ public final class TransferQueue {
             }
             listener.message(LocaleFactory.localizedString("Maximum allowed connections exceeded. Waiting", "Status"));
             notification.notify(t.getName(), t.getUuid(), "Transfer queued", t.getName());
-            semaphore.acquireUninterruptibly();
+            semaphore.acquireUninterruptibly(new QueuedTransfer(t, options));
         }
+        this.attach(t, options);
         label.badge(String.valueOf(permits - semaphore.availablePermits() + semaphore.getQueueLength()));
     }
 
@@ -85,10 +127,57 @@ public final class TransferQueue {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Remove %s from queue", t));
         }
+        this.detach(t);
         semaphore.release();
         label.badge(String.valueOf(permits - semaphore.availablePermits() + semaphore.getQueueLength()));
     }
 
+    /**
+     * Take bandwidth of transfer from buckets for host and queue
+     */
+    private synchronized void attach(final Transfer t, final TransferOptions options) {
+        final BandwidthThrottle throttle = t.getBandwidth();
+        if(null == throttle) {
+            return;
+        }
+        final TokenBucket host = hosts.computeIfAbsent(t.getSource().getHostname(), hostname ->
+            new TokenBucket(bandwidth, PreferencesFactory.get().getLong("queue.bandwidth.host.bytes"), 1));
+        final TokenBucket bucket = new TokenBucket(host, (long) throttle.getRate(), options.weight);
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Attach bucket %s to transfer %s", bucket, t));
+        }
+        throttle.setBucket(bucket);
+        buckets.put(t, bucket);
+    }
+
+    private synchronized void detach(final Transfer t) {
+        final TokenBucket bucket = buckets.remove(t);
+        if(null == bucket) {
+            return;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Detach bucket %s from transfer %s", bucket, t));
+        }
+        final BandwidthThrottle throttle = t.getBandwidth();
+        if(throttle != null && bucket == throttle.getBucket()) {
+            throttle.setBucket(null);
+        }
+        bucket.close();
+        final TokenBucket host = bucket.getParent();
+        if(buckets.values().stream().noneMatch(b -> host == b.getParent())) {
+            // No more transfers for host in queue
+            hosts.values().remove(host);
+            host.close();
+        }
+    }
+
+    /**
+     * @return Bandwidth shared by all transfers in queue
+     */
+    public TokenBucket getBandwidth() {
+        return bandwidth;
+    }
+
     /**
      * Resize queue with current setting in preferences.
      *
@@ -109,18 +198,179 @@ public final class TransferQueue {
         this.permits = limit;
     }
 
-    private static final class ResizeableSemaphore extends Semaphore {
-        public ResizeableSemaphore(final int permits) {
-            super(permits);
+    /**
+     * Transfer waiting for slot
+     */
+    private static final class QueuedTransfer implements Schedulable {
+        private final Transfer transfer;
+        private final TransferOptions options;
+        private final long timestamp = System.currentTimeMillis();
+
+        public QueuedTransfer(final Transfer transfer, final TransferOptions options) {
+            this.transfer = transfer;
+            this.options = options;
+        }
+
+        /**
+         * @return Size of transfer if already prepared or otherwise estimated from size of files selected
+         */
+        @Override
+        public long getSize() {
+            if(transfer.getSize() > 0) {
+                return transfer.getSize();
+            }
+            long size = 0L;
+            for(TransferItem item : transfer.getRoots()) {
+                if(Transfer.Type.upload == transfer.getType()) {
+                    if(item.local != null && item.local.isFile()) {
+                        size += Math.max(0L, item.local.attributes().getSize());
+                    }
+                }
+                else {
+                    if(item.remote.isFile()) {
+                        size += Math.max(0L, item.remote.attributes().getSize());
+                    }
+                }
+            }
+            return size;
         }
 
-        public ResizeableSemaphore(final int permits, final boolean fair) {
-            super(permits, fair);
+        @Override
+        public int getPriority() {
+            return options.priority;
         }
 
         @Override
-        protected void reducePermits(int reduction) {
-            super.reducePermits(reduction);
+        public long getDeadline() {
+            return options.deadline;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("QueuedTransfer{");
+            sb.append("transfer=").append(transfer);
+            sb.append(", options=").append(options);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Resizeable counting semaphore granting permits to waiting transfers in the order of the scheduling policy and
+     * in order of arrival for equally ranked transfers.
+     */
+    private static final class SchedulingSemaphore {
+        private final PriorityQueue<Waiting> waiting;
+
+        private int permits;
+        private long sequence;
+
+        public SchedulingSemaphore(final int permits, final SchedulingPolicy policy) {
+            this.permits = permits;
+            this.waiting = new PriorityQueue<>(new Comparator<Waiting>() {
+                @Override
+                public int compare(final Waiting o1, final Waiting o2) {
+                    final int result = policy.compare(o1, o2);
+                    if(0 == result) {
+                        return Long.compare(o1.sequence, o2.sequence);
+                    }
+                    return result;
+                }
+            });
+        }
+
+        public synchronized boolean tryAcquire() {
+            if(permits > 0 && waiting.isEmpty()) {
+                permits--;
+                return true;
+            }
+            return false;
+        }
+
+        public synchronized void acquireUninterruptibly(final Schedulable job) {
+            final Waiting next = new Waiting(job, sequence++);
+            waiting.add(next);
+            boolean interrupted = false;
+            while(permits <= 0 || waiting.peek() != next) {
+                try {
+                    this.wait();
+                }
+                catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            waiting.remove();
+            permits--;
+            // Wake up next in line
+            this.notifyAll();
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public synchronized void release() {
+            this.release(1);
+        }
+
+        public synchronized void release(final int n) {
+            permits += n;
+            this.notifyAll();
+        }
+
+        public synchronized void reducePermits(final int reduction) {
+            permits -= reduction;
+        }
+
+        public synchronized int availablePermits() {
+            return permits;
+        }
+
+        public synchronized int getQueueLength() {
+            return waiting.size();
+        }
+
+        /**
+         * Snapshot of job ranking computed once when enqueued
+         */
+        private static final class Waiting implements Schedulable {
+            private final long size;
+            private final int priority;
+            private final long deadline;
+            private final long timestamp;
+            private final long sequence;
+
+            public Waiting(final Schedulable job, final long sequence) {
+                this.size = job.getSize();
+                this.priority = job.getPriority();
+                this.deadline = job.getDeadline();
+                this.timestamp = job.getTimestamp();
+                this.sequence = sequence;
+            }
+
+            @Override
+            public long getSize() {
+                return size;
+            }
+
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public long getDeadline() {
+                return deadline;
+            }
+
+            @Override
+            public long getTimestamp() {
+                return timestamp;
+            }
         }
     }
 }
@@ -44,6 +44,13 @@ public class TransferSpeedometer extends Speedometer {
             this.getProgress(transfer.isRunning(), size, transferred, plain, speed), speed);
     }
 
+    /**
+     * @return True if all bytes of transfer are transferred
+     */
+    public boolean isComplete() {
+        return transfer.isComplete();
+    }
+
     public void reset() {
         final long timestamp = System.currentTimeMillis();
         if(log.isDebugEnabled()) {
@@ -79,6 +79,11 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
      */
     private boolean segment = false;
 
+    /**
+     * Segment is written at its offset to the target file instead of a separate file
+     */
+    private boolean positional = false;
+
     /**
      * Not accepted
      */
@@ -113,6 +118,11 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
 
     private Checksum checksum = Checksum.NONE;
 
+    /**
+     * Checksum computed from data received while transferring
+     */
+    private Checksum digest = Checksum.NONE;
+
     /**
      * MIME type
      */
@@ -198,6 +208,7 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
         this.exists = copy.exists;
         this.append = copy.append;
         this.segment = copy.segment;
+        this.positional = copy.positional;
         this.segments = copy.segments;
         this.rejected = copy.rejected;
         this.hidden = copy.hidden;
@@ -206,6 +217,7 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
         this.canceled.set(copy.canceled.get());
         this.complete.set(copy.complete.get());
         this.checksum = copy.checksum;
+        this.digest = copy.digest;
         this.mime = copy.mime;
         this.remote = copy.remote;
         this.permission = copy.permission;
@@ -372,6 +384,19 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
         return this;
     }
 
+    public boolean isPositional() {
+        return positional;
+    }
+
+    public void setPositional(final boolean positional) {
+        this.positional = positional;
+    }
+
+    public TransferStatus positional(final boolean positional) {
+        this.positional = positional;
+        return this;
+    }
+
     public void setRejected(boolean rejected) {
         this.rejected = rejected;
     }
@@ -464,6 +489,14 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
         return this;
     }
 
+    public Checksum getDigest() {
+        return digest;
+    }
+
+    public void setDigest(final Checksum digest) {
+        this.digest = digest;
+    }
+
     public PathAttributes getRemote() {
         return remote;
     }
@@ -681,9 +714,11 @@ public class TransferStatus implements StreamCancelation, StreamProgress {
         sb.append(", exists=").append(exists);
         sb.append(", append=").append(append);
         sb.append(", segment=").append(segment);
+        sb.append(", positional=").append(positional);
         sb.append(", offset=").append(offset);
         sb.append(", length=").append(length);
         sb.append(", checksum=").append(checksum);
+        sb.append(", digest=").append(digest);
         sb.append(", mime='").append(mime).append('\'');
         sb.append(", permission=").append(permission);
         sb.append(", acl=").append(acl);
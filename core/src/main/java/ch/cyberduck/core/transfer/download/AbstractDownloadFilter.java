@@ -41,6 +41,7 @@ import ch.cyberduck.core.io.ChecksumCompute;
 import ch.cyberduck.core.io.ChecksumComputeFactory;
 import ch.cyberduck.core.local.ApplicationLauncher;
 import ch.cyberduck.core.local.ApplicationLauncherFactory;
+import ch.cyberduck.core.local.DefaultLocalDirectoryFeature;
 import ch.cyberduck.core.local.IconService;
 import ch.cyberduck.core.local.IconServiceFactory;
 import ch.cyberduck.core.local.QuarantineService;
@@ -58,6 +59,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
@@ -197,7 +199,8 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
                     log.warn(String.format("Failure to determine disk space for %s", file.getParent()));
                 }
                 long threshold = preferences.getLong("queue.download.segments.threshold");
-                if(status.getLength() * 2 > space) {
+                // Segments are written in place to the preallocated target file or reassembled from copies
+                if(status.getLength() * (options.preallocate ? 1 : 2) > space) {
                     log.warn(String.format("Insufficient free disk space %d for segmented download of %s", space, file));
                 }
                 else if(status.getLength() > threshold) {
@@ -214,10 +217,26 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
                     final List<TransferStatus> segments = new ArrayList<>();
                     final Local segmentsFolder = LocalFactory.get(local.getParent(), String.format("%s.cyberducksegment", local.getName()));
                     for(int segmentNumber = 1; remaining > 0; segmentNumber++) {
-                        final Local segmentFile = LocalFactory.get(
-                            segmentsFolder, String.format("%d.cyberducksegment", segmentNumber));
                         // Last part can be less than 5 MB. Adjust part size.
                         long length = Math.min(segmentSize, remaining);
+                        if(options.preallocate) {
+                            // Target file set in apply after rename
+                            final TransferStatus segmentStatus = new TransferStatus()
+                                .segment(true) // Skip completion filter for single segment
+                                .append(true) // Read with offset
+                                .positional(true) // Write at offset
+                                .withOffset(offset)
+                                .withLength(length);
+                            if(log.isDebugEnabled()) {
+                                log.debug(String.format("Adding status %s for segment %d", segmentStatus, segmentNumber));
+                            }
+                            segments.add(segmentStatus);
+                            remaining -= length;
+                            offset += length;
+                            continue;
+                        }
+                        final Local segmentFile = LocalFactory.get(
+                            segmentsFolder, String.format("%d.cyberducksegment", segmentNumber));
                         final TransferStatus segmentStatus = new TransferStatus()
                             .segment(true) // Skip completion filter for single segment
                             .append(true) // Read with offset
@@ -244,7 +263,38 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
     @Override
     public void apply(final Path file, final Local local, final TransferStatus status,
                       final ProgressListener listener) throws BackgroundException {
-        //
+        if(status.isSegmented()) {
+            final List<TransferStatus> segments = status.getSegments();
+            final TransferStatus last = segments.get(segments.size() - 1);
+            if(last.isPositional()) {
+                boolean resume = false;
+                for(TransferStatus segment : segments) {
+                    // Write to final target file
+                    segment.rename(local);
+                    resume |= segment.isComplete();
+                }
+                final SegmentJournal journal = new SegmentJournal(local);
+                if(!resume) {
+                    // Discard ranges from previous attempt
+                    journal.delete();
+                }
+                if(log.isInfoEnabled()) {
+                    log.info(String.format("Preallocate %d bytes for file %s", last.getOffset() + last.getLength(), local));
+                }
+                final Local folder = local.getParent();
+                if(!folder.exists()) {
+                    new DefaultLocalDirectoryFeature().mkdir(folder);
+                }
+                // Mark in progress before preallocating to not mistake file of full size for complete when interrupted
+                journal.create();
+                try (RandomAccessFile file = new RandomAccessFile(local.getAbsolute(), "rw")) {
+                    file.setLength(last.getOffset() + last.getLength());
+                }
+                catch(IOException e) {
+                    throw new LocalAccessDeniedException(e.getMessage(), e);
+                }
+            }
+        }
     }
 
     /**
@@ -258,6 +308,10 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
             log.debug(String.format("Complete %s with status %s", file.getAbsolute(), status));
         }
         if(status.isSegment()) {
+            if(status.isPositional() && status.isComplete()) {
+                // Record written range to allow resume
+                new SegmentJournal(local).add(status);
+            }
             if(log.isDebugEnabled()) {
                 log.debug(String.format("Skip completion for single segment %s", status));
             }
@@ -267,30 +321,38 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
             if(status.isSegmented()) {
                 // Obtain ordered list of segments to reassemble
                 final List<TransferStatus> segments = status.getSegments();
-                if(log.isInfoEnabled()) {
-                    log.info(String.format("Compile %d segments to file %s", segments.size(), local));
-                }
-                if(local.exists()) {
-                    local.delete();
-                }
-                for(Iterator<TransferStatus> iterator = segments.iterator(); iterator.hasNext(); ) {
-                    final TransferStatus segmentStatus = iterator.next();
-                    // Segment
-                    final Local segmentFile = segmentStatus.getRename().local;
+                if(segments.get(0).isPositional()) {
                     if(log.isInfoEnabled()) {
-                        log.info(String.format("Append segment %s to %s", segmentFile, local));
+                        log.info(String.format("All %d segments written to file %s", segments.size(), local));
                     }
-                    segmentFile.copy(local, new Local.CopyOptions().append(true));
+                    new SegmentJournal(local).delete();
+                }
+                else {
                     if(log.isInfoEnabled()) {
-                        log.info(String.format("Delete segment %s", segmentFile));
+                        log.info(String.format("Compile %d segments to file %s", segments.size(), local));
                     }
-                    segmentFile.delete();
-                    if(!iterator.hasNext()) {
-                        final Local folder = segmentFile.getParent();
+                    if(local.exists()) {
+                        local.delete();
+                    }
+                    for(Iterator<TransferStatus> iterator = segments.iterator(); iterator.hasNext(); ) {
+                        final TransferStatus segmentStatus = iterator.next();
+                        // Segment
+                        final Local segmentFile = segmentStatus.getRename().local;
+                        if(log.isInfoEnabled()) {
+                            log.info(String.format("Append segment %s to %s", segmentFile, local));
+                        }
+                        segmentFile.copy(local, new Local.CopyOptions().append(true));
                         if(log.isInfoEnabled()) {
-                            log.info(String.format("Remove segment folder %s", folder));
+                            log.info(String.format("Delete segment %s", segmentFile));
+                        }
+                        segmentFile.delete();
+                        if(!iterator.hasNext()) {
+                            final Local folder = segmentFile.getParent();
+                            if(log.isInfoEnabled()) {
+                                log.info(String.format("Remove segment folder %s", folder));
+                            }
+                            folder.delete();
                         }
-                        folder.delete();
                     }
                 }
             }
@@ -363,10 +425,17 @@ public abstract class AbstractDownloadFilter implements TransferPathFilter {
                     else {
                         final Checksum checksum = status.getChecksum();
                         if(Checksum.NONE != checksum) {
-                            final ChecksumCompute compute = ChecksumComputeFactory.get(checksum.algorithm);
-                            listener.message(MessageFormat.format(LocaleFactory.localizedString("Calculate checksum for {0}", "Status"),
-                                file.getName()));
-                            final Checksum download = compute.compute(local.getInputStream(), new TransferStatus());
+                            final Checksum download;
+                            if(checksum.algorithm == status.getDigest().algorithm) {
+                                // Computed while downloading
+                                download = status.getDigest();
+                            }
+                            else {
+                                final ChecksumCompute compute = ChecksumComputeFactory.get(checksum.algorithm);
+                                listener.message(MessageFormat.format(LocaleFactory.localizedString("Calculate checksum for {0}", "Status"),
+                                    file.getName()));
+                                download = compute.compute(local, new TransferStatus());
+                            }
                             if(!checksum.equals(download)) {
                                 throw new ChecksumException(
                                     MessageFormat.format(LocaleFactory.localizedString("Download {0} failed", "Error"), file.getName()),
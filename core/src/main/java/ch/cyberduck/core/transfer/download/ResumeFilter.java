@@ -25,6 +25,7 @@ import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.Download;
 import ch.cyberduck.core.io.Checksum;
+import ch.cyberduck.core.io.ChecksumCacheFactory;
 import ch.cyberduck.core.io.ChecksumCompute;
 import ch.cyberduck.core.io.ChecksumComputeFactory;
 import ch.cyberduck.core.transfer.TransferStatus;
@@ -58,10 +59,11 @@ public class ResumeFilter extends AbstractDownloadFilter {
             if(local.exists()) {
                 // Read remote attributes
                 final PathAttributes attributes = attribute.find(file);
-                if(local.attributes().getSize() == attributes.getSize()) {
+                // Preallocated file with incomplete segments
+                if(local.attributes().getSize() == attributes.getSize() && !new SegmentJournal(local).exists()) {
                     if(Checksum.NONE != attributes.getChecksum()) {
                         final ChecksumCompute compute = ChecksumComputeFactory.get(attributes.getChecksum().algorithm);
-                        if(compute.compute(local.getInputStream(), parent).equals(attributes.getChecksum())) {
+                        if(ChecksumCacheFactory.get().compute(local, compute, parent).equals(attributes.getChecksum())) {
                             if(log.isInfoEnabled()) {
                                 log.info(String.format("Skip file %s with checksum %s", file, local.attributes().getChecksum()));
                             }
@@ -89,6 +91,17 @@ public class ResumeFilter extends AbstractDownloadFilter {
         final TransferStatus status = super.prepare(file, local, parent, progress);
         if(status.isSegmented()) {
             for(TransferStatus segmentStatus : status.getSegments()) {
+                if(segmentStatus.isPositional()) {
+                    if(new SegmentJournal(local).contains(segmentStatus)) {
+                        if(log.isInfoEnabled()) {
+                            log.info(String.format("Skip part %s already written to %s", segmentStatus, local));
+                        }
+                        segmentStatus.setComplete();
+                        status.setLength(status.getLength() - segmentStatus.getLength());
+                        status.setOffset(status.getOffset() + segmentStatus.getLength());
+                    }
+                    continue;
+                }
                 final Local segmentFile = segmentStatus.getRename().local;
                 if(segmentFile.exists()) {
                     if(log.isInfoEnabled()) {
@@ -0,0 +1,137 @@
+package ch.cyberduck.core.transfer.download;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.LocalFactory;
+import ch.cyberduck.core.exception.AccessDeniedException;
+import ch.cyberduck.core.exception.LocalAccessDeniedException;
+import ch.cyberduck.core.exception.NotfoundException;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sidecar file next to the download target recording byte ranges of segments written in place
+ */
+final class SegmentJournal {
+    private static final Logger log = Logger.getLogger(SegmentJournal.class);
+
+    private static final Object lock = new Object();
+
+    private final Local file;
+
+    public SegmentJournal(final Local local) {
+        this.file = LocalFactory.get(local.getParent(), String.format("%s.cyberducksegments", local.getName()));
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Mark download in progress before the target file is preallocated. Kept until all segments are complete.
+     */
+    public void create() throws LocalAccessDeniedException {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Create journal %s", file));
+        }
+        synchronized(lock) {
+            try {
+                Files.write(Paths.get(file.getAbsolute()), Collections.emptySet(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            catch(IOException e) {
+                throw new LocalAccessDeniedException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Record range of completed segment
+     */
+    public void add(final TransferStatus segment) throws LocalAccessDeniedException {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Add segment %s to journal %s", segment, file));
+        }
+        synchronized(lock) {
+            try {
+                Files.write(Paths.get(file.getAbsolute()), Collections.singleton(toString(segment)), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            catch(IOException e) {
+                throw new LocalAccessDeniedException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return True if range of segment is recorded as complete
+     */
+    public boolean contains(final TransferStatus segment) {
+        return this.list().contains(toString(segment));
+    }
+
+    private Set<String> list() {
+        if(!file.exists()) {
+            return Collections.emptySet();
+        }
+        synchronized(lock) {
+            try {
+                return new HashSet<>(Files.readAllLines(Paths.get(file.getAbsolute()), StandardCharsets.UTF_8));
+            }
+            catch(IOException e) {
+                log.warn(String.format("Failure reading journal %s. %s", file, e.getMessage()));
+                return Collections.emptySet();
+            }
+        }
+    }
+
+    public void delete() {
+        if(file.exists()) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Delete journal %s", file));
+            }
+            try {
+                file.delete();
+            }
+            catch(AccessDeniedException | NotfoundException e) {
+                log.warn(String.format("Failure deleting journal %s. %s", file, e.getMessage()));
+            }
+        }
+    }
+
+    private static String toString(final TransferStatus segment) {
+        return String.format("%d-%d", segment.getOffset(), segment.getLength());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("SegmentJournal{");
+        sb.append("file=").append(file);
+        sb.append('}');
+        return sb.toString();
+    }
+}
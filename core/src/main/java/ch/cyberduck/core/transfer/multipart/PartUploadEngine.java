@@ -0,0 +1,193 @@
+package ch.cyberduck.core.transfer.multipart;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.BytecountStreamListener;
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.StreamListener;
+import ch.cyberduck.core.threading.BackgroundExceptionCallable;
+import ch.cyberduck.core.transfer.SegmentRetryCallable;
+import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.worker.DefaultExceptionMappingService;
+
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload file in parts submitted to the shared part upload executor. Skips parts already uploaded when resuming and
+ * retries failed parts. Number of parts of a single file uploading concurrently is limited additionally to the limits
+ * of the shared executor.
+ */
+public class PartUploadEngine {
+    private static final Logger log = Logger.getLogger(PartUploadEngine.class);
+
+    private final Host host;
+    private final PartUploadExecutor executor;
+    /**
+     * Maximum number of parts of file uploading concurrently
+     */
+    private final int concurrency;
+
+    public PartUploadEngine(final Host host, final int concurrency) {
+        this(host, concurrency, PartUploadExecutorFactory.get());
+    }
+
+    public PartUploadEngine(final Host host, final int concurrency, final PartUploadExecutor executor) {
+        this.host = host;
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public <Upload, Part, Reply> Reply upload(final PartUploadService<Upload, Part, Reply> service,
+                                              final Path file, final Local local, final BandwidthThrottle throttle,
+                                              final StreamListener listener, final TransferStatus status,
+                                              final ConnectionCallback callback) throws BackgroundException {
+        final Upload upload = service.start(file, status);
+        final SortedMap<Integer, Part> completed = new TreeMap<>();
+        if(status.isAppend()) {
+            // Add already completed parts
+            completed.putAll(service.list(file, upload, status));
+        }
+        // Full size of file
+        final long size = status.getLength() + status.getOffset();
+        final long partsize = service.getPartSize(size);
+        final Semaphore permits = new Semaphore(concurrency);
+        final Map<Integer, Future<Part>> parts = new HashMap<>();
+        try {
+            long remaining = status.getLength();
+            long offset = 0;
+            for(int partNumber = 1; remaining > 0; partNumber++) {
+                final Part existing = completed.get(partNumber);
+                if(existing != null) {
+                    if(log.isInfoEnabled()) {
+                        log.info(String.format("Skip completed part number %d", partNumber));
+                    }
+                    offset += service.getLength(existing);
+                    continue;
+                }
+                // Last part can be smaller
+                final long length = Math.min(partsize, remaining);
+                parts.put(partNumber, this.submit(service, permits, file, local, upload, throttle, listener, status,
+                    partNumber, offset, length, callback));
+                remaining -= length;
+                offset += length;
+            }
+            for(Map.Entry<Integer, Future<Part>> entry : parts.entrySet()) {
+                completed.put(entry.getKey(), this.await(entry.getValue(), status));
+            }
+        }
+        finally {
+            // Cancel pending parts on failure
+            for(Future<Part> future : parts.values()) {
+                future.cancel(false);
+            }
+        }
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Complete upload of %s with %d parts", file, completed.size()));
+        }
+        final Reply reply = service.complete(file, upload, completed, status);
+        // Mark parent status as complete
+        status.setComplete();
+        return reply;
+    }
+
+    private <Upload, Part> Future<Part> submit(final PartUploadService<Upload, Part, ?> service, final Semaphore permits,
+                                               final Path file, final Local local, final Upload upload,
+                                               final BandwidthThrottle throttle, final StreamListener listener,
+                                               final TransferStatus overall, final int partNumber, final long offset, final long length,
+                                               final ConnectionCallback callback) throws BackgroundException {
+        this.acquire(permits, overall);
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Submit part %d of %s to queue with offset %d and length %d", partNumber, file, offset, length));
+        }
+        final BytecountStreamListener counter = new BytecountStreamListener(listener);
+        final SegmentRetryCallable<Part> callable = new SegmentRetryCallable<>(host, new BackgroundExceptionCallable<Part>() {
+            @Override
+            public Part call() throws BackgroundException {
+                overall.validate();
+                final TransferStatus segment = new TransferStatus()
+                    .segment(true)
+                    .withLength(length)
+                    .withOffset(offset);
+                segment.setPart(partNumber);
+                segment.setHeader(overall.getHeader());
+                segment.setNonces(overall.getNonces());
+                final Part part = service.upload(file, local, upload, throttle, counter, segment, overall, callback);
+                if(log.isInfoEnabled()) {
+                    log.info(String.format("Received response %s for part number %d", part, partNumber));
+                }
+                return part;
+            }
+        }, overall, counter);
+        try {
+            return executor.submit(length, overall, () -> {
+                try {
+                    return callable.call();
+                }
+                finally {
+                    permits.release();
+                }
+            });
+        }
+        catch(BackgroundException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire(final Semaphore permits, final TransferStatus overall) throws ConnectionCanceledException {
+        try {
+            while(!permits.tryAcquire(1L, TimeUnit.SECONDS)) {
+                overall.validate();
+            }
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+    }
+
+    private <Part> Part await(final Future<Part> future, final TransferStatus status) throws BackgroundException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            log.error("Part upload failed with interrupt failure");
+            status.setCanceled();
+            throw new ConnectionCanceledException(e);
+        }
+        catch(ExecutionException e) {
+            log.warn(String.format("Part upload failed with execution failure %s", e.getMessage()));
+            if(e.getCause() instanceof BackgroundException) {
+                throw (BackgroundException) e.getCause();
+            }
+            throw new DefaultExceptionMappingService().map(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ch.cyberduck.core.transfer.multipart;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.exception.ConnectionCanceledException;
+import ch.cyberduck.core.io.StreamCancelation;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes part uploads of all multipart uploads with a bounded number of threads. Submitting a part blocks while the
+ * total length of parts submitted and not yet completed exceeds the limit of in-flight bytes.
+ */
+public class PartUploadExecutor {
+    private static final Logger log = Logger.getLogger(PartUploadExecutor.class);
+
+    /**
+     * Interval to check for cancellation while waiting
+     */
+    private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(1L);
+
+    private final ThreadPool pool;
+    /**
+     * Maximum number of bytes in parts submitted and not completed or negative for no limit
+     */
+    private final long limit;
+
+    /**
+     * Guarded by this
+     */
+    private long inflight;
+
+    public PartUploadExecutor() {
+        this(PreferencesFactory.get().getInteger("queue.upload.multipart.concurrency"),
+            PreferencesFactory.get().getLong("queue.upload.multipart.inflight.bytes"));
+    }
+
+    /**
+     * @param concurrency Number of threads
+     * @param limit       Maximum number of bytes in parts not completed or negative for no limit
+     */
+    public PartUploadExecutor(final int concurrency, final long limit) {
+        this.pool = ThreadPoolFactory.get("multipart", concurrency);
+        this.limit = limit;
+    }
+
+    /**
+     * @param length Number of bytes in part
+     * @param cancel Stop waiting for in-flight bytes to become available
+     * @param task   Part upload
+     * @return Future result of part upload. Bytes are released when completed or canceled.
+     */
+    public <T> Future<T> submit(final long length, final StreamCancelation cancel, final Callable<T> task) throws ConnectionCanceledException {
+        final long bytes = this.acquire(length, cancel);
+        final FutureTask<T> future = new FutureTask<T>(task) {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            protected void set(final T result) {
+                // Release before waiting callers are notified
+                this.release();
+                super.set(result);
+            }
+
+            @Override
+            protected void setException(final Throwable t) {
+                this.release();
+                super.setException(t);
+            }
+
+            @Override
+            protected void done() {
+                // Canceled before run
+                this.release();
+            }
+
+            private void release() {
+                if(released.compareAndSet(false, true)) {
+                    PartUploadExecutor.this.release(bytes);
+                }
+            }
+        };
+        try {
+            pool.executor().execute(future);
+        }
+        catch(RuntimeException e) {
+            this.release(bytes);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * @return Number of bytes accounted for part
+     */
+    private synchronized long acquire(final long length, final StreamCancelation cancel) throws ConnectionCanceledException {
+        if(limit < 0) {
+            return 0L;
+        }
+        // Part larger than limit waits for all others to complete
+        final long bytes = Math.min(length, limit);
+        while(inflight + bytes > limit) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Wait for %d bytes with %d bytes in flight", bytes, inflight));
+            }
+            try {
+                this.wait(WAIT_MILLIS);
+            }
+            catch(InterruptedException e) {
+                throw new ConnectionCanceledException(e);
+            }
+            cancel.validate();
+        }
+        inflight += bytes;
+        return bytes;
+    }
+
+    private synchronized void release(final long bytes) {
+        if(bytes > 0) {
+            inflight -= bytes;
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * @return Number of bytes in parts submitted and not completed
+     */
+    public synchronized long getInflight() {
+        return inflight;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("PartUploadExecutor{");
+        sb.append("pool=").append(pool);
+        sb.append(", limit=").append(limit);
+        sb.append('}');
+        return sb.toString();
+    }
+}
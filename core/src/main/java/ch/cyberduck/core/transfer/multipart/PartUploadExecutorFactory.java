@@ -0,0 +1,36 @@
+package ch.cyberduck.core.transfer.multipart;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+public final class PartUploadExecutorFactory {
+
+    private static PartUploadExecutor instance;
+
+    private static final Object lock = new Object();
+
+    public static PartUploadExecutor get() {
+        synchronized(lock) {
+            if(null == instance) {
+                instance = new PartUploadExecutor();
+            }
+            return instance;
+        }
+    }
+
+    private PartUploadExecutorFactory() {
+        //
+    }
+}
@@ -0,0 +1,84 @@
+package ch.cyberduck.core.transfer.multipart;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.StreamListener;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Protocol specific operations of a multipart upload driven by {@link PartUploadEngine}
+ *
+ * @param <Upload> Reference to multipart upload
+ * @param <Part>   Reply for uploaded part
+ * @param <Reply>  Reply for completed upload
+ */
+public interface PartUploadService<Upload, Part, Reply> {
+
+    /**
+     * @param file   Remote file
+     * @param status Transfer status. Find pending upload to resume if set to append
+     * @return New or pending multipart upload
+     */
+    Upload start(Path file, TransferStatus status) throws BackgroundException;
+
+    /**
+     * @param file   Remote file
+     * @param upload Pending multipart upload
+     * @param status Transfer status
+     * @return Parts already uploaded by part number
+     */
+    Map<Integer, Part> list(Path file, Upload upload, TransferStatus status) throws BackgroundException;
+
+    /**
+     * @param file     Remote file
+     * @param local    File to read part from
+     * @param upload   Multipart upload
+     * @param listener Byte count listener of part
+     * @param segment  Offset, length and part number
+     * @param overall  Transfer status of file
+     * @return Uploaded part
+     */
+    Part upload(Path file, Local local, Upload upload, BandwidthThrottle throttle, StreamListener listener,
+                TransferStatus segment, TransferStatus overall, ConnectionCallback callback) throws BackgroundException;
+
+    /**
+     * @param file   Remote file
+     * @param upload Multipart upload
+     * @param parts  All parts by part number
+     * @param status Transfer status of file
+     * @return Reply for completed upload
+     */
+    Reply complete(Path file, Upload upload, SortedMap<Integer, Part> parts, TransferStatus status) throws BackgroundException;
+
+    /**
+     * @return Length of uploaded part
+     */
+    long getLength(Part part);
+
+    /**
+     * @param size Full size of file
+     * @return Length of parts other than last
+     */
+    long getPartSize(long size);
+}
@@ -0,0 +1,38 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+/**
+ * Earliest deadline first and smallest size first for same deadline
+ */
+public class DeadlineSchedulingPolicy implements SchedulingPolicy {
+
+    private final SchedulingPolicy proxy = new ShortestJobFirstSchedulingPolicy();
+
+    @Override
+    public int compare(final Schedulable o1, final Schedulable o2) {
+        final int result = Long.compare(o1.getDeadline(), o2.getDeadline());
+        if(0 == result) {
+            return proxy.compare(o1, o2);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "deadline";
+    }
+}
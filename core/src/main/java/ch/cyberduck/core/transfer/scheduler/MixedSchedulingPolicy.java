@@ -0,0 +1,57 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.preferences.PreferencesFactory;
+
+/**
+ * Prefer small jobs without starving large jobs. Each doubling in size is weighed as arriving later by the aging
+ * interval. A large job is therefore only passed by smaller jobs arriving within a bounded time after it.
+ */
+public class MixedSchedulingPolicy implements SchedulingPolicy {
+
+    /**
+     * Milliseconds per doubling in size
+     */
+    private final long aging;
+
+    public MixedSchedulingPolicy() {
+        this(PreferencesFactory.get().getLong("queue.scheduler.aging"));
+    }
+
+    /**
+     * @param aging Milliseconds a job twice as large is treated as arriving later
+     */
+    public MixedSchedulingPolicy(final long aging) {
+        this.aging = aging;
+    }
+
+    @Override
+    public int compare(final Schedulable o1, final Schedulable o2) {
+        return Long.compare(this.key(o1), this.key(o2));
+    }
+
+    private long key(final Schedulable job) {
+        // Size class as number of significant bits
+        final int magnitude = Long.SIZE - Long.numberOfLeadingZeros(Math.max(0L, job.getSize()));
+        return job.getTimestamp() + aging * magnitude;
+    }
+
+    @Override
+    public String toString() {
+        return "mixed";
+    }
+}
@@ -0,0 +1,38 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+/**
+ * Highest priority first and in order of arrival for same priority
+ */
+public class PrioritySchedulingPolicy implements SchedulingPolicy {
+
+    private final SchedulingPolicy proxy = new FifoSchedulingPolicy();
+
+    @Override
+    public int compare(final Schedulable o1, final Schedulable o2) {
+        final int result = Integer.compare(o2.getPriority(), o1.getPriority());
+        if(0 == result) {
+            return proxy.compare(o1, o2);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "priority";
+    }
+}
@@ -0,0 +1,42 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+/**
+ * Transfer or task waiting for a connection
+ */
+public interface Schedulable {
+
+    /**
+     * @return Estimated number of bytes to transfer or zero if not known
+     */
+    long getSize();
+
+    /**
+     * @return Higher values are preferred
+     */
+    int getPriority();
+
+    /**
+     * @return Milliseconds since epoch by which to complete or Long.MAX_VALUE for no deadline
+     */
+    long getDeadline();
+
+    /**
+     * @return Milliseconds since epoch when added to queue
+     */
+    long getTimestamp();
+}
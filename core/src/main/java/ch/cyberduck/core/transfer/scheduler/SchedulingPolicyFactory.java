@@ -0,0 +1,58 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.preferences.PreferencesFactory;
+
+import org.apache.log4j.Logger;
+
+public final class SchedulingPolicyFactory {
+    private static final Logger log = Logger.getLogger(SchedulingPolicyFactory.class);
+
+    /**
+     * @return Policy configured in preferences
+     */
+    public static SchedulingPolicy get() {
+        return get(PreferencesFactory.get().getProperty("queue.scheduler.policy"));
+    }
+
+    /**
+     * @param name One of fifo, size, priority, deadline or mixed
+     */
+    public static SchedulingPolicy get(final String name) {
+        if(null == name) {
+            return new FifoSchedulingPolicy();
+        }
+        switch(name) {
+            case "fifo":
+                return new FifoSchedulingPolicy();
+            case "size":
+                return new ShortestJobFirstSchedulingPolicy();
+            case "priority":
+                return new PrioritySchedulingPolicy();
+            case "deadline":
+                return new DeadlineSchedulingPolicy();
+            case "mixed":
+                return new MixedSchedulingPolicy();
+        }
+        log.warn(String.format("Unknown scheduling policy %s", name));
+        return new FifoSchedulingPolicy();
+    }
+
+    private SchedulingPolicyFactory() {
+        //
+    }
+}
@@ -0,0 +1,32 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+/**
+ * Smallest size first. Large jobs may starve while small jobs keep arriving.
+ */
+public class ShortestJobFirstSchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public int compare(final Schedulable o1, final Schedulable o2) {
+        return Long.compare(o1.getSize(), o2.getSize());
+    }
+
+    @Override
+    public String toString() {
+        return "size";
+    }
+}
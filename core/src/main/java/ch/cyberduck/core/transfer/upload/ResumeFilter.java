@@ -26,6 +26,7 @@ import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.Upload;
 import ch.cyberduck.core.features.Write;
 import ch.cyberduck.core.io.Checksum;
+import ch.cyberduck.core.io.ChecksumCacheFactory;
 import ch.cyberduck.core.io.ChecksumCompute;
 import ch.cyberduck.core.io.ChecksumComputeFactory;
 import ch.cyberduck.core.transfer.TransferStatus;
@@ -63,7 +64,7 @@ public class ResumeFilter extends AbstractUploadFilter {
                         if(attributes.getSize() == local.attributes().getSize()) {
                             if(Checksum.NONE != attributes.getChecksum()) {
                                 final ChecksumCompute compute = ChecksumComputeFactory.get(attributes.getChecksum().algorithm);
-                                if(compute.compute(local.getInputStream(), parent).equals(attributes.getChecksum())) {
+                                if(ChecksumCacheFactory.get().compute(local, compute, parent).equals(attributes.getChecksum())) {
                                     if(log.isInfoEnabled()) {
                                         log.info(String.format("Skip file %s with checksum %s", file, local.attributes().getChecksum()));
                                     }
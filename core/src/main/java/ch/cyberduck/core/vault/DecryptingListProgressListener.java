@@ -20,40 +20,87 @@ import ch.cyberduck.core.IndexedListProgressListener;
 import ch.cyberduck.core.ListProgressListener;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathAttributes;
+import ch.cyberduck.core.Protocol;
 import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.features.Vault;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
+import ch.cyberduck.core.worker.DefaultExceptionMappingService;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 public class DecryptingListProgressListener extends IndexedListProgressListener {
     private static final Logger log = Logger.getLogger(DecryptingListProgressListener.class);
 
     private final Session<?> session;
     private final Vault vault;
     private final ListProgressListener delegate;
+    /**
+     * Number of filenames to decrypt in parallel
+     */
+    private final int concurrency;
+
+    /**
+     * Files in chunk submitted for decryption in order of listing
+     */
+    private final Deque<Future<Path>> pending = new ArrayDeque<>();
+    /**
+     * Number of files in list already decrypted
+     */
+    private int offset = 0;
+    /**
+     * Created with first chunk decrypted in parallel and used for all chunks of listing
+     */
+    private ThreadPool pool;
 
     public DecryptingListProgressListener(final Session<?> session, final Vault vault, final ListProgressListener delegate) {
+        this(session, vault, delegate, 1);
+    }
+
+    /**
+     * @param concurrency Number of filenames in chunk to decrypt in parallel. Only used for stateless protocols
+     *                    where the session can be shared for reading inflated filenames.
+     */
+    public DecryptingListProgressListener(final Session<?> session, final Vault vault, final ListProgressListener delegate, final int concurrency) {
         this.session = session;
         this.vault = vault;
         this.delegate = delegate;
+        this.concurrency = session.getHost().getProtocol().getStatefulness() == Protocol.Statefulness.stateless ? concurrency : 1;
     }
 
     @Override
-    public void visit(final AttributedList<Path> list, final int index, final Path f) {
+    public DecryptingListProgressListener reset() {
+        super.reset();
+        pending.clear();
+        offset = 0;
+        this.shutdown();
+        return this;
+    }
+
+    /**
+     * Release threads used to decrypt filenames when listing is complete
+     */
+    public void shutdown() {
+        if(pool != null) {
+            pool.shutdown(false);
+            pool = null;
+        }
+    }
+
+    @Override
+    public void visit(final AttributedList<Path> list, final int index, final Path f) throws ConnectionCanceledException {
         try {
-            f.getType().add(Path.Type.encrypted);
-            if(f.attributes().getVersions().isEmpty()) {
-                list.set(index, vault.decrypt(session, f));
-            }
-            else {
-                final AttributedList<Path> versions = new AttributedList<>();
-                for(Path version : f.attributes().getVersions()) {
-                    versions.add(vault.decrypt(session, version));
-                }
-                list.set(index, vault.decrypt(session, f).withAttributes(new PathAttributes(f.attributes()).withVersions(versions)));
-            }
+            list.set(index, pending.isEmpty() ? this.decrypt(f) : this.get(pending.poll()));
+        }
+        catch(ConnectionCanceledException e) {
+            throw e;
         }
         catch(BackgroundException e) {
             log.error(String.format("Failure decrypting %s. %s", f, e));
@@ -61,9 +108,61 @@ public class DecryptingListProgressListener extends IndexedListProgressListener
         }
     }
 
+    private Path decrypt(final Path f) throws BackgroundException {
+        f.getType().add(Path.Type.encrypted);
+        if(f.attributes().getVersions().isEmpty()) {
+            return vault.decrypt(session, f);
+        }
+        final AttributedList<Path> versions = new AttributedList<>();
+        for(Path version : f.attributes().getVersions()) {
+            versions.add(vault.decrypt(session, version));
+        }
+        return vault.decrypt(session, f).withAttributes(new PathAttributes(f.attributes()).withVersions(versions));
+    }
+
+    private Path get(final Future<Path> future) throws BackgroundException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof BackgroundException) {
+                throw (BackgroundException) e.getCause();
+            }
+            throw new DefaultExceptionMappingService().map(e.getCause());
+        }
+    }
+
     @Override
     public void chunk(final Path folder, final AttributedList<Path> list) throws ConnectionCanceledException {
-        super.chunk(folder, list);
+        if(concurrency > 1 && list.size() - offset > 1) {
+            if(null == pool) {
+                pool = ThreadPoolFactory.get("decrypt", concurrency);
+            }
+            try {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Decrypt %d files in %s with concurrency %d", list.size() - offset, folder, concurrency));
+                }
+                for(int i = offset; i < list.size(); i++) {
+                    final Path f = list.get(i);
+                    pending.add(pool.execute(() -> this.decrypt(f)));
+                }
+                // Publish results in order of listing
+                super.chunk(folder, list);
+            }
+            finally {
+                for(Future<Path> future : pending) {
+                    future.cancel(false);
+                }
+                pending.clear();
+            }
+        }
+        else {
+            super.chunk(folder, list);
+        }
+        offset = list.size();
         delegate.chunk(folder, list);
     }
 
@@ -31,15 +31,19 @@ import ch.cyberduck.core.ProgressListener;
 import ch.cyberduck.core.Session;
 import ch.cyberduck.core.SleepPreventer;
 import ch.cyberduck.core.SleepPreventerFactory;
+import ch.cyberduck.core.SwappingTransferItemCache;
 import ch.cyberduck.core.TransferItemCache;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.exception.TransferCanceledException;
+import ch.cyberduck.core.features.Bulk;
 import ch.cyberduck.core.io.StreamListener;
 import ch.cyberduck.core.notification.NotificationService;
 import ch.cyberduck.core.preferences.Preferences;
 import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.shared.DisabledBulkFeature;
 import ch.cyberduck.core.threading.TransferBackgroundActionState;
+import ch.cyberduck.core.transfer.AutoTransferConnectionLimiter;
 import ch.cyberduck.core.transfer.SynchronizingTransferErrorCallback;
 import ch.cyberduck.core.transfer.Transfer;
 import ch.cyberduck.core.transfer.TransferAction;
@@ -56,10 +60,14 @@ import org.apache.commons.lang3.concurrent.ConcurrentUtils;
 import org.apache.log4j.Logger;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
     private static final Logger log = Logger.getLogger(AbstractTransferWorker.class);
@@ -89,6 +97,18 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
     private final ProgressListener progress;
     private final StreamListener stream;
     private final Preferences preferences = PreferencesFactory.get();
+    /**
+     * Bound number of segments handed over to transfer but not yet completed in pipelined mode
+     */
+    private final Semaphore pending;
+    /**
+     * Bound number of files submitted for preparation in pipelined mode to the number of connections
+     */
+    private final Semaphore preparing;
+    /**
+     * Effective mode determined when run. Pipelining is only used if requested and supported by the transfer.
+     */
+    private volatile boolean pipelined;
 
     public AbstractTransferWorker(final Transfer transfer, final TransferOptions options,
                                   final TransferPrompt prompt, final TransferSpeedometer meter,
@@ -97,7 +117,10 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
                                   final StreamListener stream,
                                   final ConnectionCallback connect,
                                   final NotificationService notification) {
-        this(transfer, options, prompt, meter, error, progress, stream, connect, notification, new TransferItemCache(Integer.MAX_VALUE));
+        this(transfer, options, prompt, meter, error, progress, stream, connect, notification,
+            PreferencesFactory.get().getBoolean("transfer.cache.swap.enable") ?
+                new SwappingTransferItemCache(PreferencesFactory.get().getLong("transfer.cache.swap.threshold")) :
+                new TransferItemCache(Integer.MAX_VALUE));
     }
 
     public AbstractTransferWorker(final Transfer transfer, final TransferOptions options,
@@ -131,6 +154,8 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
         this.notification = notification;
         this.cache = cache;
         this.table = table;
+        this.pending = new Semaphore(preferences.getInteger("queue.transfer.pipeline.size"));
+        this.preparing = new Semaphore(new AutoTransferConnectionLimiter().getLimit(transfer.getSource()));
     }
 
     protected enum Connection {
@@ -213,16 +238,25 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
             progress.message(MessageFormat.format(LocaleFactory.localizedString("Prepare {0} ({1})", "Status"), transfer.getName(), action.getTitle()));
             transfer.normalize();
 
-            // Calculate information about the files in advance to give progress information
-            for(TransferItem next : transfer.getRoots()) {
-                this.prepare(next.remote, next.local, new TransferStatus().exists(true), action);
+            pipelined = options.pipelineRequested && this.isPipelined(source, destination);
+            if(pipelined) {
+                meter.reset();
+                transfer.pre(source, destination, table, connect);
+                // Transfer files as soon as their status is determined with size and progress updated incrementally
+                this.pipeline(transfer.getRoots(), new TransferStatus().exists(true), action);
             }
-            this.await();
-            meter.reset();
-            transfer.pre(source, destination, table, connect);
-            // Transfer all files sequentially
-            for(TransferItem next : transfer.getRoots()) {
-                this.transfer(next, action);
+            else {
+                // Calculate information about the files in advance to give progress information
+                for(TransferItem next : transfer.getRoots()) {
+                    this.prepare(next.remote, next.local, new TransferStatus().exists(true), action);
+                }
+                this.await();
+                meter.reset();
+                transfer.pre(source, destination, table, connect);
+                // Transfer all files sequentially
+                for(TransferItem next : transfer.getRoots()) {
+                    this.transfer(next, action);
+                }
             }
             this.await();
             transfer.post(source, destination, table, connect);
@@ -242,6 +276,41 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
         return true;
     }
 
+    /**
+     * @return False if bulk feature requires the transfer status of all files before transferring any
+     */
+    private boolean isPipelined(final Session<?> source, final Session<?> destination) {
+        switch(transfer.getType()) {
+            case upload:
+            case download:
+                break;
+            default:
+                return false;
+        }
+        for(Session<?> session : new Session<?>[]{source, destination}) {
+            if(null == session) {
+                continue;
+            }
+            if(!(session._getFeature(Bulk.class) instanceof DisabledBulkFeature)) {
+                log.warn(String.format("Disable pipelined transfer for bulk feature of %s", session));
+                return false;
+            }
+        }
+        for(TransferItem root : transfer.getRoots()) {
+            // Files in vault require header set in bulk feature
+            for(Path f = root.remote; ; f = f.getParent()) {
+                if(f.attributes().getVault() != null) {
+                    log.warn(String.format("Disable pipelined transfer for %s in vault", root));
+                    return false;
+                }
+                if(f.isRoot()) {
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * To be called before any file is actually transferred
      *
@@ -256,7 +325,7 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
             throw new TransferCanceledException();
         }
         if(prompt.isSelected(new TransferItem(file, local))) {
-            return this.submit(new RetryTransferCallable(transfer.getSource(),
+            final TransferCallable callable = new RetryTransferCallable(transfer.getSource(),
                 preferences.getInteger("transfer.connection.retry"), preferences.getInteger("transfer.connection.retry.delay")) {
 
                 @Override
@@ -301,10 +370,12 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
                                 children = transfer.list(source, file, local, new WorkerListProgressListener(AbstractTransferWorker.this, progress));
                                 // Put into cache for later reference when transferring
                                 cache.put(item, new AttributedList<>(children));
-                                // Call recursively
-                                for(TransferItem f : children) {
-                                    // Change download path relative to parent local folder
-                                    prepare(f.remote, f.local, status, action);
+                                if(!pipelined) {
+                                    // Call recursively
+                                    for(TransferItem f : children) {
+                                        // Change download path relative to parent local folder
+                                        prepare(f.remote, f.local, status, action);
+                                    }
                                 }
                             }
                             if(log.isInfoEnabled()) {
@@ -342,7 +413,38 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
                     sb.append('}');
                     return sb.toString();
                 }
-            });
+            };
+            if(!pipelined) {
+                return this.submit(callable);
+            }
+            try {
+                preparing.acquire();
+            }
+            catch(InterruptedException e) {
+                throw new ConnectionCanceledException(e);
+            }
+            try {
+                return this.submit(new TransferCallable() {
+                    @Override
+                    public TransferStatus call() throws BackgroundException {
+                        try {
+                            return callable.call();
+                        }
+                        finally {
+                            preparing.release();
+                        }
+                    }
+
+                    @Override
+                    public String toString() {
+                        return callable.toString();
+                    }
+                });
+            }
+            catch(BackgroundException e) {
+                preparing.release();
+                throw e;
+            }
         }
         else {
             log.info(String.format("Skip unchecked file %s for transfer %s", file, this));
@@ -350,6 +452,65 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
         return null;
     }
 
+    /**
+     * Prepare files and hand over each to transfer as soon as its status is determined without awaiting
+     * the preparation of the remaining files.
+     *
+     * @param files  Files with common parent to prepare and transfer
+     * @param parent Transfer status of parent directory
+     * @param action Transfer action for existing files
+     */
+    protected void pipeline(final Iterable<TransferItem> files, final TransferStatus parent, final TransferAction action) throws BackgroundException {
+        // Determine transfer status of all children in parallel
+        final Map<TransferItem, Future<TransferStatus>> prepared = new LinkedHashMap<>();
+        for(TransferItem next : files) {
+            final Future<TransferStatus> future = this.prepare(next.remote, next.local, parent, action);
+            if(null == future) {
+                continue;
+            }
+            prepared.put(next, future);
+        }
+        for(Map.Entry<TransferItem, Future<TransferStatus>> entry : prepared.entrySet()) {
+            final TransferStatus status = this.get(entry.getValue());
+            if(null == status) {
+                // Skipped by filter or ignored failure
+                continue;
+            }
+            final TransferItem item = entry.getKey();
+            final List<Future<TransferStatus>> futures = this.transfer(item, status, action, false);
+            if(item.remote.isDirectory()) {
+                // Await directory to be created before transferring children
+                for(Future<TransferStatus> future : futures) {
+                    this.get(future);
+                }
+                final TransferItem directory = new TransferItem(
+                    status.getRename().remote != null ? status.getRename().remote : item.remote,
+                    status.getRename().local != null ? status.getRename().local : item.local
+                );
+                if(!cache.isCached(directory)) {
+                    log.warn(String.format("Missing entry for %s in cache", directory));
+                }
+                this.pipeline(cache.get(directory), status, action);
+                cache.remove(directory);
+            }
+        }
+    }
+
+    private TransferStatus get(final Future<TransferStatus> future) throws BackgroundException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof BackgroundException) {
+                throw (BackgroundException) e.getCause();
+            }
+            throw new DefaultExceptionMappingService().map(e.getCause());
+        }
+    }
+
     /**
      * @param item   File to transfer
      * @param action Transfer action for existing files
@@ -360,19 +521,50 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
         }
         // Only transfer if accepted by filter and stored in table with transfer status
         if(table.containsKey(item)) {
+            final List<Future<TransferStatus>> futures = this.transfer(item, table.get(item), action, true);
             // Overall transfer status
-            final TransferStatus status = table.get(item);
-            // Handle submit of one or more segments
-            final List<TransferStatus> segments = status.getSegments();
-            for(final TransferStatus segment : segments) {
-                if(segment.isComplete()) {
-                    continue;
+            return futures.get(futures.size() - 1);
+        }
+        else {
+            log.warn(String.format("Skip file %s with unknown transfer status", item));
+        }
+        return ConcurrentUtils.constantFuture(null);
+    }
+
+    /**
+     * @param item      File to transfer
+     * @param status    Overall transfer status
+     * @param action    Transfer action for existing files
+     * @param recursive Transfer children of directory from cache when complete. Otherwise
+     *                  segments submitted are bound by the maximum size of the pipeline.
+     * @return Futures of segments submitted followed by future for overall transfer status
+     */
+    private List<Future<TransferStatus>> transfer(final TransferItem item, final TransferStatus status, final TransferAction action,
+                                                  final boolean recursive) throws BackgroundException {
+        if(this.isCanceled()) {
+            throw new TransferCanceledException();
+        }
+        final List<Future<TransferStatus>> futures = new ArrayList<>();
+        // Handle submit of one or more segments
+        final List<TransferStatus> segments = status.getSegments();
+        for(final TransferStatus segment : segments) {
+            if(segment.isComplete()) {
+                continue;
+            }
+            if(!recursive) {
+                try {
+                    pending.acquire();
                 }
-                this.submit(new RetryTransferCallable(transfer.getSource(),
-                    preferences.getInteger("transfer.connection.retry"), preferences.getInteger("transfer.connection.retry.delay")) {
+                catch(InterruptedException e) {
+                    throw new ConnectionCanceledException(e);
+                }
+            }
+            futures.add(this.submit(new RetryTransferCallable(transfer.getSource(),
+                preferences.getInteger("transfer.connection.retry"), preferences.getInteger("transfer.connection.retry.delay")) {
 
-                    @Override
-                    public TransferStatus call() throws BackgroundException {
+                @Override
+                public TransferStatus call() throws BackgroundException {
+                    try {
                         status.validate();
                         // Transfer
                         // Do transfer with retry
@@ -393,7 +585,7 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
                             release(destination, Connection.destination, null);
                         }
                         // Recursive
-                        if(item.remote.isDirectory()) {
+                        if(recursive && item.remote.isDirectory()) {
                             if(!cache.isCached(item)) {
                                 log.warn(String.format("Missing entry for %s in cache", item));
                             }
@@ -405,134 +597,149 @@ public abstract class AbstractTransferWorker extends TransferWorker<Boolean> {
                         }
                         return segment;
                     }
-
-                    private void transferSegment(final TransferStatus segment) throws BackgroundException {
-                        if(log.isDebugEnabled()) {
-                            log.debug(String.format("Transfer item %s with status %s", item, segment));
-                        }
-                        final Session<?> s = borrow(Connection.source);
-                        final Session<?> d = borrow(Connection.destination);
-                        final BytecountStreamListener counter = new BytecountStreamListener(stream);
-                        try {
-                            transfer.transfer(s, d,
-                                segment.getRename().remote != null ? segment.getRename().remote : item.remote,
-                                segment.getRename().local != null ? segment.getRename().local : item.local,
-                                options, status, segment, connect, progress, counter);
-                        }
-                        catch(BackgroundException e) {
-                            release(s, Connection.source, e);
-                            release(d, Connection.destination, e);
-                            log.warn(String.format("Failure %s transferring %s", item, e));
-                            // Determine if we should retry depending on failure type
-                            if(this.retry(e, progress, new TransferBackgroundActionState(status))) {
-                                final Session<?> source = borrow(Connection.source);
-                                final Session<?> destination = borrow(Connection.destination);
-                                try {
-                                    final TransferPathFilter filter = transfer.filter(source, destination, TransferAction.resume, progress);
-                                    if(filter.accept(item.remote, item.local, new TransferStatus().exists(true))) {
-                                        if(log.isDebugEnabled()) {
-                                            log.debug(String.format("Retry transfer of %s", item));
-                                        }
-                                        final TransferStatus retry = filter.prepare(item.remote, item.local, new TransferStatus().exists(true), progress);
-                                        // Add bytes retrieved but not yet counted
-                                        stream.recv(retry.getOffset() - counter.getRecv());
-                                        stream.sent(retry.getOffset() - counter.getSent());
-                                        transfer.addTransferred(retry.getOffset() - counter.getSent());
-                                        // Retry immediately
-                                        log.info(String.format("Retry %s with transfer status %s", item, retry));
-                                        this.transferSegment(segment
-                                            .withLength(retry.getLength())
-                                            .withOffset(retry.getOffset())
-                                            .append(retry.isAppend()));
-                                        return;
-                                    }
-                                }
-                                finally {
-                                    release(source, Connection.source, null);
-                                    release(destination, Connection.destination, null);
-                                }
-                            }
-                            if(log.isDebugEnabled()) {
-                                log.debug(String.format("Cancel retry for %s", item));
-                            }
-                            segment.setFailure();
-                            // Prompt to continue or abort for application errors
-                            if(error.prompt(item, segment, e, table.size())) {
-                                // Continue
-                                log.warn(String.format("Ignore transfer failure %s", e));
-                            }
-                            else {
-                                throw new ConnectionCanceledException(e);
-                            }
-                        }
-                        finally {
-                            release(s, Connection.source, null);
-                            release(d, Connection.destination, null);
+                    finally {
+                        if(!recursive) {
+                            pending.release();
                         }
                     }
+                }
 
-                    @Override
-                    public String toString() {
-                        final StringBuilder sb = new StringBuilder("RetryTransferCallable{");
-                        sb.append("item=").append(item);
-                        sb.append(", status=").append(segment);
-                        sb.append('}');
-                        return sb.toString();
+                private void transferSegment(final TransferStatus segment) throws BackgroundException {
+                    if(log.isDebugEnabled()) {
+                        log.debug(String.format("Transfer item %s with status %s", item, segment));
                     }
-                });
-            }
-            return this.submit(new TransferCallable() {
-                @Override
-                public TransferStatus call() throws BackgroundException {
-                    status.validate();
-                    if(status.isSegmented()) {
-                        // Await completion of all segments
-                        boolean complete = true;
-                        for(TransferStatus segment : segments) {
-                            if(!segment.await()) {
-                                log.warn(String.format("Failure to complete segment %s.", segment));
-                                complete = false;
-                            }
-                        }
-                        if(complete) {
+                    final Session<?> s = borrow(Connection.source);
+                    final Session<?> d = borrow(Connection.destination);
+                    final BytecountStreamListener counter = new BytecountStreamListener(stream);
+                    try {
+                        transfer.transfer(s, d,
+                            segment.getRename().remote != null ? segment.getRename().remote : item.remote,
+                            segment.getRename().local != null ? segment.getRename().local : item.local,
+                            options, status, segment, connect, progress, counter);
+                    }
+                    catch(BackgroundException e) {
+                        release(s, Connection.source, e);
+                        release(d, Connection.destination, e);
+                        log.warn(String.format("Failure %s transferring %s", item, e));
+                        // Determine if we should retry depending on failure type
+                        if(this.retry(e, progress, new TransferBackgroundActionState(status))) {
                             final Session<?> source = borrow(Connection.source);
                             final Session<?> destination = borrow(Connection.destination);
                             try {
-                                // Determine transfer filter implementation from selected overwrite action
-                                final TransferPathFilter filter = transfer.filter(source, destination, action, progress);
-                                // Concatenate segments with completed status set
-                                filter.complete(
-                                    status.getRename().remote != null ? status.getRename().remote : item.remote,
-                                    status.getRename().local != null ? status.getRename().local : item.local,
-                                    options, status.complete(), progress);
+                                final TransferPathFilter filter = transfer.filter(source, destination, TransferAction.resume, progress);
+                                if(filter.accept(item.remote, item.local, new TransferStatus().exists(true))) {
+                                    if(log.isDebugEnabled()) {
+                                        log.debug(String.format("Retry transfer of %s", item));
+                                    }
+                                    final TransferStatus retry = filter.prepare(item.remote, item.local, new TransferStatus().exists(true), progress);
+                                    // Add bytes retrieved but not yet counted
+                                    stream.recv(retry.getOffset() - counter.getRecv());
+                                    stream.sent(retry.getOffset() - counter.getSent());
+                                    transfer.addTransferred(retry.getOffset() - counter.getSent());
+                                    // Retry immediately
+                                    log.info(String.format("Retry %s with transfer status %s", item, retry));
+                                    this.transferSegment(segment
+                                        .withLength(retry.getLength())
+                                        .withOffset(retry.getOffset())
+                                        .append(retry.isAppend()));
+                                    return;
+                                }
                             }
                             finally {
                                 release(source, Connection.source, null);
                                 release(destination, Connection.destination, null);
                             }
                         }
+                        if(log.isDebugEnabled()) {
+                            log.debug(String.format("Cancel retry for %s", item));
+                        }
+                        segment.setFailure();
+                        // Prompt to continue or abort for application errors
+                        if(error.prompt(item, segment, e, table.size())) {
+                            // Continue
+                            log.warn(String.format("Ignore transfer failure %s", e));
+                        }
                         else {
-                            log.warn(String.format("Skip concatenating segments for failed transfer %s", status));
-                            status.setFailure();
+                            throw new ConnectionCanceledException(e);
                         }
                     }
-                    return status;
+                    finally {
+                        release(s, Connection.source, null);
+                        release(d, Connection.destination, null);
+                    }
+                }
+
+                @Override
+                public long getSize() {
+                    return segment.getLength();
                 }
 
                 @Override
                 public String toString() {
-                    final StringBuilder sb = new StringBuilder("TransferCallable{");
+                    final StringBuilder sb = new StringBuilder("RetryTransferCallable{");
                     sb.append("item=").append(item);
-                    sb.append(", status=").append(status);
+                    sb.append(", status=").append(segment);
                     sb.append('}');
                     return sb.toString();
                 }
-            });
-        }
-        else {
-            log.warn(String.format("Skip file %s with unknown transfer status", item));
+            }));
         }
-        return ConcurrentUtils.constantFuture(null);
+        futures.add(this.submit(new TransferCallable() {
+            @Override
+            public TransferStatus call() throws BackgroundException {
+                status.validate();
+                if(status.isSegmented()) {
+                    // Await completion of all segments
+                    boolean complete = true;
+                    for(TransferStatus segment : segments) {
+                        if(!segment.await()) {
+                            log.warn(String.format("Failure to complete segment %s.", segment));
+                            complete = false;
+                        }
+                    }
+                    if(complete) {
+                        final Session<?> source = borrow(Connection.source);
+                        final Session<?> destination = borrow(Connection.destination);
+                        try {
+                            // Determine transfer filter implementation from selected overwrite action
+                            final TransferPathFilter filter = transfer.filter(source, destination, action, progress);
+                            // Concatenate segments with completed status set
+                            filter.complete(
+                                status.getRename().remote != null ? status.getRename().remote : item.remote,
+                                status.getRename().local != null ? status.getRename().local : item.local,
+                                options, status.complete(), progress);
+                        }
+                        finally {
+                            release(source, Connection.source, null);
+                            release(destination, Connection.destination, null);
+                        }
+                    }
+                    else {
+                        log.warn(String.format("Skip concatenating segments for failed transfer %s", status));
+                        status.setFailure();
+                    }
+                }
+                return status;
+            }
+
+            /**
+             * Order after segments awaited
+             */
+            @Override
+            public long getSize() {
+                return status.isSegmented() ? Long.MAX_VALUE : 0L;
+            }
+
+            @Override
+            public String toString() {
+                final StringBuilder sb = new StringBuilder("TransferCallable{");
+                sb.append("item=").append(item);
+                sb.append(", status=").append(status);
+                sb.append('}');
+                return sb.toString();
+            }
+        }));
+        return futures;
     }
 
     @Override
@@ -19,6 +19,7 @@ package ch.cyberduck.core.worker;
  * dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.AttributedList;
 import ch.cyberduck.core.ListService;
 import ch.cyberduck.core.LocaleFactory;
 import ch.cyberduck.core.Path;
@@ -26,6 +27,9 @@ import ch.cyberduck.core.ProgressListener;
 import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
+import ch.cyberduck.core.pool.SessionPool;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.threading.BackgroundActionState;
 
 import java.text.MessageFormat;
 import java.util.List;
@@ -39,10 +43,22 @@ public abstract class CalculateSizeWorker extends Worker<Long> {
     private final List<Path> files;
 
     private final ProgressListener listener;
+    /**
+     * Pool to borrow sessions from for concurrent directory listings or null to list sequentially
+     */
+    private final SessionPool pool;
 
     public CalculateSizeWorker(final List<Path> files, final ProgressListener listener) {
+        this(files, listener, null);
+    }
+
+    /**
+     * @param pool Connections for concurrent directory listings
+     */
+    public CalculateSizeWorker(final List<Path> files, final ProgressListener listener, final SessionPool pool) {
         this.files = files;
         this.listener = listener;
+        this.pool = pool;
     }
 
     private Long total = 0L;
@@ -50,11 +66,56 @@ public abstract class CalculateSizeWorker extends Worker<Long> {
     @Override
     public Long run(final Session<?> session) throws BackgroundException {
         for(Path next : files) {
-            next.attributes().setSize(this.calculateSize(session, next));
+            if(null != pool && next.isDirectory()) {
+                next.attributes().setSize(this.calculateSize(next));
+            }
+            else {
+                next.attributes().setSize(this.calculateSize(session, next));
+            }
         }
         return total;
     }
 
+    /**
+     * Calculates the size of a directory with listings of subdirectories in parallel
+     *
+     * @param directory Directory
+     * @return The sum of all containing files
+     */
+    private long calculateSize(final Path directory) throws BackgroundException {
+        listener.message(MessageFormat.format(LocaleFactory.localizedString("Getting size of {0}", "Status"),
+                directory.getName()));
+        final long[] size = {0L};
+        new ConcurrentDirectoryWalker(pool, PreferencesFactory.get().getInteger("browser.search.concurrency"), new BackgroundActionState() {
+            @Override
+            public boolean isCanceled() {
+                return CalculateSizeWorker.this.isCanceled();
+            }
+
+            @Override
+            public boolean isRunning() {
+                return true;
+            }
+        }).walk(directory, Integer.MAX_VALUE, new ConcurrentDirectoryWalker.Lister() {
+            @Override
+            public AttributedList<Path> list(final Session<?> session, final Path directory) throws BackgroundException {
+                return session.getFeature(ListService.class).list(directory, new WorkerListProgressListener(CalculateSizeWorker.this, listener));
+            }
+        }, new ConcurrentDirectoryWalker.Visitor() {
+            @Override
+            public void visit(final Path directory, final AttributedList<Path> children) {
+                for(Path next : children) {
+                    if(next.isFile()) {
+                        size[0] += next.attributes().getSize();
+                        total += next.attributes().getSize();
+                    }
+                }
+                update(total);
+            }
+        });
+        return size[0];
+    }
+
     /**
      * Calculates recursively the size of this path if a directory
      * Potentially lengthy operation
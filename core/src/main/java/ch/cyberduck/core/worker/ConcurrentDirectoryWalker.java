@@ -0,0 +1,179 @@
+package ch.cyberduck.core.worker;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
+import ch.cyberduck.core.pool.SessionPool;
+import ch.cyberduck.core.threading.BackgroundActionState;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Walk directory tree with listings of sibling directories running in parallel on sessions borrowed from a pool.
+ * Completed listings are passed to the visitor on the calling thread in order of completion.
+ */
+public class ConcurrentDirectoryWalker {
+    private static final Logger log = Logger.getLogger(ConcurrentDirectoryWalker.class);
+
+    private final SessionPool pool;
+    private final int concurrency;
+    private final BackgroundActionState state;
+
+    public ConcurrentDirectoryWalker(final SessionPool pool, final int concurrency, final BackgroundActionState state) {
+        this.pool = pool;
+        this.concurrency = concurrency;
+        this.state = state;
+    }
+
+    /**
+     * @param directory Root to start listing from
+     * @param depth     Maximum number of levels to descend into below root
+     * @param lister    Obtain directory listing with borrowed session
+     * @param visitor   Callback for completed directory listing
+     */
+    public void walk(final Path directory, final int depth, final Lister lister, final Visitor visitor) throws BackgroundException {
+        final ThreadPool threads = ThreadPoolFactory.get("walker", concurrency);
+        final CompletionService<Listing> completion = new ExecutorCompletionService<>(threads.executor());
+        try {
+            completion.submit(new ListCallable(directory, 0, lister));
+            int pending = 1;
+            while(pending > 0) {
+                if(state.isCanceled()) {
+                    throw new ConnectionCanceledException();
+                }
+                final Listing listing = this.get(completion.take());
+                pending--;
+                visitor.visit(listing.directory, listing.children);
+                if(listing.depth < depth) {
+                    for(Path file : listing.children) {
+                        if(file.isDirectory() && visitor.accept(file)) {
+                            completion.submit(new ListCallable(file, listing.depth + 1, lister));
+                            pending++;
+                        }
+                    }
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        finally {
+            // Cancel pending listings
+            threads.shutdown(false);
+        }
+    }
+
+    private Listing get(final Future<Listing> future) throws BackgroundException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        catch(ExecutionException e) {
+            log.warn(String.format("Listing failed with execution failure %s", e.getMessage()));
+            if(e.getCause() instanceof BackgroundException) {
+                throw (BackgroundException) e.getCause();
+            }
+            throw new DefaultExceptionMappingService().map(e.getCause());
+        }
+    }
+
+    public interface Lister {
+        AttributedList<Path> list(Session<?> session, Path directory) throws BackgroundException;
+    }
+
+    public interface Visitor {
+        /**
+         * @param directory Directory listed
+         * @param children  Directory listing
+         */
+        void visit(Path directory, AttributedList<Path> children) throws BackgroundException;
+
+        /**
+         * @param directory Child directory
+         * @return False to skip listing directory
+         */
+        default boolean accept(final Path directory) {
+            return true;
+        }
+    }
+
+    private final class ListCallable implements Callable<Listing> {
+        private final Path directory;
+        private final int depth;
+        private final Lister lister;
+
+        public ListCallable(final Path directory, final int depth, final Lister lister) {
+            this.directory = directory;
+            this.depth = depth;
+            this.lister = lister;
+        }
+
+        @Override
+        public Listing call() throws BackgroundException {
+            if(state.isCanceled()) {
+                throw new ConnectionCanceledException();
+            }
+            final Session<?> session = pool.borrow(state);
+            try {
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("List %s with depth %d", directory, depth));
+                }
+                final Listing listing = new Listing(directory, depth, lister.list(session, directory));
+                pool.release(session, null);
+                return listing;
+            }
+            catch(BackgroundException e) {
+                pool.release(session, e);
+                throw e;
+            }
+        }
+    }
+
+    private static final class Listing {
+        private final Path directory;
+        private final int depth;
+        private final AttributedList<Path> children;
+
+        public Listing(final Path directory, final int depth, final AttributedList<Path> children) {
+            this.directory = directory;
+            this.depth = depth;
+            this.children = children;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ConcurrentDirectoryWalker{");
+        sb.append("pool=").append(pool);
+        sb.append(", concurrency=").append(concurrency);
+        sb.append('}');
+        return sb.toString();
+    }
+}
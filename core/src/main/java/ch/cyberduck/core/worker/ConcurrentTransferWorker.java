@@ -26,10 +26,15 @@ import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.io.StreamListener;
 import ch.cyberduck.core.notification.NotificationService;
+import ch.cyberduck.core.pool.DefaultSessionPool;
 import ch.cyberduck.core.pool.SessionPool;
+import ch.cyberduck.core.preferences.PreferencesFactory;
 import ch.cyberduck.core.threading.BackgroundActionState;
+import ch.cyberduck.core.threading.DefaultFailureDiagnostics;
+import ch.cyberduck.core.threading.FailureDiagnostics;
 import ch.cyberduck.core.threading.ThreadPool;
 import ch.cyberduck.core.threading.ThreadPoolFactory;
+import ch.cyberduck.core.transfer.AdaptiveConcurrencyController;
 import ch.cyberduck.core.transfer.AutoTransferConnectionLimiter;
 import ch.cyberduck.core.transfer.Transfer;
 import ch.cyberduck.core.transfer.TransferErrorCallback;
@@ -37,14 +42,24 @@ import ch.cyberduck.core.transfer.TransferOptions;
 import ch.cyberduck.core.transfer.TransferPrompt;
 import ch.cyberduck.core.transfer.TransferSpeedometer;
 import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.transfer.scheduler.FifoSchedulingPolicy;
+import ch.cyberduck.core.transfer.scheduler.Schedulable;
+import ch.cyberduck.core.transfer.scheduler.SchedulingPolicy;
+import ch.cyberduck.core.transfer.scheduler.SchedulingPolicyFactory;
 
 import org.apache.log4j.Logger;
 
+import java.util.Comparator;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ConcurrentTransferWorker extends AbstractTransferWorker {
     private static final Logger log = Logger.getLogger(ConcurrentTransferWorker.class);
@@ -57,6 +72,25 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
     private final AtomicInteger size = new AtomicInteger();
     private final ThreadPool pool;
 
+    private final Transfer transfer;
+    private final TransferOptions options;
+    /**
+     * Tasks waiting for a connection ordered by scheduling policy or null to submit in order of arrival
+     */
+    private final PriorityBlockingQueue<ScheduledTask> pending;
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Adjust number of connections during transfer or null for fixed limit
+     */
+    private final AdaptiveConcurrencyController controller;
+    private final long interval = PreferencesFactory.get().getLong("queue.connections.adaptive.interval");
+    private final FailureDiagnostics<BackgroundException> diagnostics = new DefaultFailureDiagnostics();
+    // Network failures since last sample
+    private final AtomicInteger failures = new AtomicInteger();
+    // Start of sampling interval
+    private long timestamp;
+    private long transferred;
+
     public ConcurrentTransferWorker(final SessionPool source,
                                     final SessionPool destination,
                                     final Transfer transfer,
@@ -87,9 +121,36 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
         super(transfer, options, prompt, meter, error, progressListener, streamListener, connect, notification);
         this.source = source;
         this.destination = destination;
+        this.transfer = transfer;
+        this.options = options;
+        final SchedulingPolicy policy = SchedulingPolicyFactory.get();
+        if(policy instanceof FifoSchedulingPolicy) {
+            this.pending = null;
+        }
+        else {
+            this.pending = new PriorityBlockingQueue<>(11, new Comparator<ScheduledTask>() {
+                @Override
+                public int compare(final ScheduledTask o1, final ScheduledTask o2) {
+                    final int result = policy.compare(o1, o2);
+                    if(0 == result) {
+                        return Long.compare(o1.sequence, o2.sequence);
+                    }
+                    return result;
+                }
+            });
+        }
+        final int limit = new AutoTransferConnectionLimiter().getLimit(transfer.getSource());
         this.pool = ThreadPoolFactory.get(String.format("%s-transfer", new AlphanumericRandomStringService().random()),
-            new AutoTransferConnectionLimiter().getLimit(transfer.getSource()), priority);
+            limit, priority);
         this.completion = new ExecutorCompletionService<>(pool.executor());
+        if(limit > 1 && PreferencesFactory.get().getBoolean("queue.connections.adaptive")) {
+            this.controller = new AdaptiveConcurrencyController(1,
+                PreferencesFactory.get().getInteger("queue.connections.adaptive.maximum"), limit);
+        }
+        else {
+            // Single connection only when limited by protocol or user setting
+            this.controller = null;
+        }
     }
 
     @Override
@@ -125,6 +186,9 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
 
     @Override
     protected void release(final Session session, final Connection type, final BackgroundException failure) {
+        if(failure != null && diagnostics.determine(failure) == FailureDiagnostics.Type.network) {
+            failures.incrementAndGet();
+        }
         switch(type) {
             case source:
                 source.release(session, failure);
@@ -140,9 +204,35 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
         if(log.isInfoEnabled()) {
             log.info(String.format("Submit %s to pool", callable));
         }
-        final Future<TransferStatus> f = completion.submit(callable);
+        if(null == pending) {
+            final Future<TransferStatus> f = completion.submit(callable);
+            size.incrementAndGet();
+            return f;
+        }
+        final ScheduledTask task = new ScheduledTask(callable, sequence.incrementAndGet());
+        pending.add(task);
+        // Run next task in order of policy when connection is available
+        completion.submit(new Callable<TransferStatus>() {
+            @Override
+            public TransferStatus call() throws Exception {
+                final ScheduledTask next = pending.poll();
+                if(null == next) {
+                    return null;
+                }
+                next.run();
+                try {
+                    return next.get();
+                }
+                catch(ExecutionException e) {
+                    if(e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        });
         size.incrementAndGet();
-        return f;
+        return task;
     }
 
     @Override
@@ -153,7 +243,7 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
                 if(log.isInfoEnabled()) {
                     log.info(String.format("Await completion for %d submitted tasks in queue", size.get()));
                 }
-                final TransferStatus status = completion.take().get();
+                final TransferStatus status = this.take().get();
                 if(log.isInfoEnabled()) {
                     log.info(String.format("Finished task with return value %s", status));
                 }
@@ -176,9 +266,93 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
         }
     }
 
+    /**
+     * Wait for next completed task while adjusting the number of connections in intervals
+     */
+    private Future<TransferStatus> take() throws InterruptedException {
+        if(null == controller) {
+            return completion.take();
+        }
+        while(true) {
+            final long now = System.currentTimeMillis();
+            if(0L == timestamp) {
+                timestamp = now;
+                transferred = transfer.getTransferred();
+            }
+            if(now - timestamp >= interval) {
+                this.adjust(now);
+            }
+            final Future<TransferStatus> future = completion.poll(timestamp + interval - now, TimeUnit.MILLISECONDS);
+            if(future != null) {
+                return future;
+            }
+        }
+    }
+
+    private void adjust(final long now) {
+        final long total = transfer.getTransferred();
+        final int previous = controller.getLimit();
+        final int limit = controller.sample(total - transferred, now - timestamp, failures.getAndSet(0));
+        transferred = total;
+        timestamp = now;
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Adjust concurrency with %s", controller));
+        }
+        if(limit != previous) {
+            pool.resize(limit);
+            for(SessionPool p : new SessionPool[]{source, destination}) {
+                if(p instanceof DefaultSessionPool) {
+                    // Allow to grow again after lowering maximum idle connections on failure
+                    ((DefaultSessionPool) p).withMaxTotal(limit).withMaxIdle(limit);
+                }
+            }
+        }
+    }
+
     @Override
     public void cleanup(final Boolean result) {
         pool.shutdown(result);
+        if(pending != null) {
+            ScheduledTask task;
+            while((task = pending.poll()) != null) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Task waiting for connection
+     */
+    private final class ScheduledTask extends FutureTask<TransferStatus> implements Schedulable {
+        private final TransferCallable callable;
+        private final long sequence;
+        private final long timestamp = System.currentTimeMillis();
+
+        public ScheduledTask(final TransferCallable callable, final long sequence) {
+            super(callable);
+            this.callable = callable;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getSize() {
+            return callable.getSize();
+        }
+
+        @Override
+        public int getPriority() {
+            return options.priority;
+        }
+
+        @Override
+        public long getDeadline() {
+            return options.deadline;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
     @Override
@@ -187,6 +361,7 @@ public class ConcurrentTransferWorker extends AbstractTransferWorker {
         sb.append("source=").append(source);
         sb.append(", destination=").append(destination);
         sb.append(", pool=").append(completion);
+        sb.append(", controller=").append(controller);
         sb.append('}');
         return sb.toString();
     }
@@ -18,6 +18,7 @@ package ch.cyberduck.core.worker;
  * dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.AttributedList;
 import ch.cyberduck.core.Cache;
 import ch.cyberduck.core.Filter;
 import ch.cyberduck.core.Host;
@@ -32,6 +33,9 @@ import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.features.Delete;
+import ch.cyberduck.core.pool.SessionPool;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.threading.BackgroundActionState;
 import ch.cyberduck.core.transfer.TransferStatus;
 import ch.cyberduck.ui.browser.PathReloadFinder;
 
@@ -57,22 +61,43 @@ public class DeleteWorker extends Worker<List<Path>> {
     private final Cache<Path> cache;
     private final ProgressListener listener;
     private final Filter<Path> filter;
+    /**
+     * Pool to borrow sessions from for concurrent directory listings or null to compile list sequentially
+     */
+    private final SessionPool pool;
 
     public DeleteWorker(final LoginCallback prompt, final List<Path> files, final Cache<Path> cache, final ProgressListener listener) {
         this(prompt, files, cache, new NullFilter<Path>(), listener);
     }
 
     public DeleteWorker(final LoginCallback prompt, final List<Path> files, final Cache<Path> cache, final Filter<Path> filter, final ProgressListener listener) {
+        this(prompt, files, cache, filter, listener, null);
+    }
+
+    /**
+     * @param pool Connections for concurrent directory listings
+     */
+    public DeleteWorker(final LoginCallback prompt, final List<Path> files, final Cache<Path> cache, final ProgressListener listener,
+                        final SessionPool pool) {
+        this(prompt, files, cache, new NullFilter<Path>(), listener, pool);
+    }
+
+    public DeleteWorker(final LoginCallback prompt, final List<Path> files, final Cache<Path> cache, final Filter<Path> filter, final ProgressListener listener,
+                        final SessionPool pool) {
         this.files = files;
         this.prompt = prompt;
         this.cache = cache;
         this.listener = listener;
         this.filter = filter;
+        this.pool = pool;
     }
 
     @Override
     public List<Path> run(final Session<?> session) throws BackgroundException {
         final Delete delete = session.getFeature(Delete.class);
+        if(null != pool && !delete.isRecursive()) {
+            return this.run(session.getHost(), delete);
+        }
         final ListService list = session.getFeature(ListService.class);
         final Map<Path, TransferStatus> recursive = new LinkedHashMap<>();
         for(Path file : files) {
@@ -91,6 +116,98 @@ public class DeleteWorker extends Worker<List<Path>> {
         return new ArrayList<>(recursive.keySet());
     }
 
+    /**
+     * Delete files in batches while directory listings are still in progress. Directories are deleted last.
+     */
+    private List<Path> run(final Host host, final Delete delete) throws BackgroundException {
+        final List<Path> deleted = new ArrayList<>();
+        final Map<Path, TransferStatus> batch = new LinkedHashMap<>();
+        final int size = PreferencesFactory.get().getInteger("browser.delete.batch.size");
+        // Directories in order found with parent before children
+        final List<Path> directories = new ArrayList<>();
+        final ConcurrentDirectoryWalker walker = new ConcurrentDirectoryWalker(pool, PreferencesFactory.get().getInteger("browser.search.concurrency"),
+            new BackgroundActionState() {
+                @Override
+                public boolean isCanceled() {
+                    return DeleteWorker.this.isCanceled();
+                }
+
+                @Override
+                public boolean isRunning() {
+                    return true;
+                }
+            });
+        for(Path file : files) {
+            if(this.isCanceled()) {
+                throw new ConnectionCanceledException();
+            }
+            if(file.isFile() || file.isSymbolicLink()) {
+                batch.putAll(this.compile(host, delete, null, null, file));
+            }
+            else if(file.isDirectory()) {
+                directories.add(file);
+                walker.walk(file, Integer.MAX_VALUE, new ConcurrentDirectoryWalker.Lister() {
+                    @Override
+                    public AttributedList<Path> list(final Session<?> session, final Path directory) throws BackgroundException {
+                        return session.getFeature(ListService.class).list(directory, new WorkerListProgressListener(DeleteWorker.this, listener)).filter(filter);
+                    }
+                }, new ConcurrentDirectoryWalker.Visitor() {
+                    @Override
+                    public void visit(final Path directory, final AttributedList<Path> children) throws BackgroundException {
+                        for(Path child : children) {
+                            if(this.accept(child)) {
+                                directories.add(child);
+                            }
+                            else {
+                                batch.putAll(DeleteWorker.this.compile(host, delete, null, null, child));
+                            }
+                        }
+                        if(batch.size() >= size) {
+                            deleted.addAll(DeleteWorker.this.delete(delete, batch));
+                        }
+                    }
+
+                    @Override
+                    public boolean accept(final Path file) {
+                        return file.isDirectory() && !file.isSymbolicLink();
+                    }
+                });
+            }
+        }
+        deleted.addAll(this.delete(delete, batch));
+        // Delete children before parent
+        Collections.reverse(directories);
+        for(Path directory : directories) {
+            batch.put(directory, new TransferStatus().withLockId(this.getLockId(directory)));
+        }
+        deleted.addAll(this.delete(delete, batch));
+        return deleted;
+    }
+
+    /**
+     * Delete and clear batch
+     *
+     * @return Files deleted
+     */
+    private List<Path> delete(final Delete delete, final Map<Path, TransferStatus> batch) throws BackgroundException {
+        if(batch.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if(this.isCanceled()) {
+            throw new ConnectionCanceledException();
+        }
+        delete.delete(batch, prompt, new Delete.Callback() {
+            @Override
+            public void delete(final Path file) {
+                listener.message(MessageFormat.format(LocaleFactory.localizedString("Deleting {0}", "Status"),
+                    file.getName()));
+            }
+        });
+        final List<Path> deleted = new ArrayList<>(batch.keySet());
+        batch.clear();
+        return deleted;
+    }
+
     protected Map<Path, TransferStatus> compile(final Host host, final Delete delete, final ListService list, final ListProgressListener listener, final Path file) throws BackgroundException {
         // Compile recursive list
         final Map<Path, TransferStatus> recursive = new LinkedHashMap<>();
@@ -26,11 +26,16 @@ import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.features.Search;
+import ch.cyberduck.core.pool.SessionPool;
+import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.threading.BackgroundActionState;
 
 import org.apache.log4j.Logger;
 
 import java.text.MessageFormat;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -42,12 +47,42 @@ public class SearchWorker extends Worker<AttributedList<Path>> {
     private final Filter<Path> filter;
     private final Cache<Path> cache;
     private final ListProgressListener listener;
+    /**
+     * Pool to borrow sessions from for concurrent directory listings or null to search sequentially
+     */
+    private final SessionPool pool;
+    private final int concurrency;
+    private final int depth;
 
     public SearchWorker(final Path directory, final Filter<Path> filter, final Cache<Path> cache, final ListProgressListener listener) {
+        this(directory, filter, cache, listener, null, 1);
+    }
+
+    /**
+     * @param pool Connections for concurrent directory listings
+     */
+    public SearchWorker(final Path directory, final Filter<Path> filter, final Cache<Path> cache, final ListProgressListener listener,
+                        final SessionPool pool) {
+        this(directory, filter, cache, listener, pool, PreferencesFactory.get().getInteger("browser.search.concurrency"));
+    }
+
+    public SearchWorker(final Path directory, final Filter<Path> filter, final Cache<Path> cache, final ListProgressListener listener,
+                        final SessionPool pool, final int concurrency) {
+        this(directory, filter, cache, listener, pool, concurrency, PreferencesFactory.get().getInteger("browser.search.depth"));
+    }
+
+    /**
+     * @param depth Maximum number of levels to descend into
+     */
+    public SearchWorker(final Path directory, final Filter<Path> filter, final Cache<Path> cache, final ListProgressListener listener,
+                        final SessionPool pool, final int concurrency, final int depth) {
         this.directory = directory;
         this.filter = filter;
         this.cache = cache;
         this.listener = listener;
+        this.pool = pool;
+        this.concurrency = concurrency;
+        this.depth = depth;
     }
 
     @Override
@@ -57,10 +92,76 @@ public class SearchWorker extends Worker<AttributedList<Path>> {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Run with feature %s", feature));
         }
-        return this.search(feature, directory);
+        if(null == pool || feature.isRecursive()) {
+            return this.search(feature, directory, 0);
+        }
+        return this.search(directory);
     }
 
-    private AttributedList<Path> search(final Search search, final Path workdir) throws BackgroundException {
+    /**
+     * Search with listings of directories distributed over sessions from pool
+     */
+    private AttributedList<Path> search(final Path workdir) throws BackgroundException {
+        // Listings by directory for merging the result
+        final Map<Path, AttributedList<Path>> listings = new HashMap<>();
+        new ConcurrentDirectoryWalker(pool, concurrency, new BackgroundActionState() {
+            @Override
+            public boolean isCanceled() {
+                return SearchWorker.this.isCanceled();
+            }
+
+            @Override
+            public boolean isRunning() {
+                return true;
+            }
+        }).walk(workdir, depth, new ConcurrentDirectoryWalker.Lister() {
+            @Override
+            public AttributedList<Path> list(final Session<?> session, final Path directory) throws BackgroundException {
+                if(cache.isCached(directory)) {
+                    return cache.get(directory);
+                }
+                // Matches are passed to listener as they are found
+                final AttributedList<Path> list = session.getFeature(Search.class).search(directory,
+                    new RecursiveSearchFilter(filter), new WorkerListProgressListener(SearchWorker.this, listener));
+                cache.put(directory, list);
+                return list;
+            }
+        }, new ConcurrentDirectoryWalker.Visitor() {
+            @Override
+            public void visit(final Path directory, final AttributedList<Path> children) {
+                listings.put(directory, children);
+            }
+        });
+        return this.merge(listings, workdir);
+    }
+
+    /**
+     * @return Files matching filter with all parent directories containing a match
+     */
+    private AttributedList<Path> merge(final Map<Path, AttributedList<Path>> listings, final Path workdir) {
+        final AttributedList<Path> result = new AttributedList<>();
+        final AttributedList<Path> list = listings.get(workdir);
+        if(null == list) {
+            // Not listed
+            return result;
+        }
+        for(Path file : list) {
+            if(file.isDirectory()) {
+                final AttributedList<Path> children = this.merge(listings, file);
+                if(children.isEmpty()) {
+                    continue;
+                }
+                result.add(file);
+                result.addAll(children);
+            }
+            else if(filter.accept(file)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private AttributedList<Path> search(final Search search, final Path workdir, final int level) throws BackgroundException {
         if(this.isCanceled()) {
             throw new ConnectionCanceledException();
         }
@@ -78,10 +179,14 @@ public class SearchWorker extends Worker<AttributedList<Path>> {
         final Set<Path> removal = new HashSet<>();
         for(final Path file : list) {
             if(file.isDirectory()) {
+                if(level >= depth) {
+                    removal.add(file);
+                    continue;
+                }
                 if(log.isDebugEnabled()) {
                     log.debug(String.format("Recursively search in %s", file));
                 }
-                final AttributedList<Path> children = this.search(search, file);
+                final AttributedList<Path> children = this.search(search, file, level + 1);
                 list.addAll(children);
                 if(children.isEmpty()) {
                     removal.add(file);
@@ -26,5 +26,12 @@ public abstract class TransferWorker<T> extends Worker<T> {
 
     interface TransferCallable extends Callable<TransferStatus> {
         TransferStatus call() throws BackgroundException;
+
+        /**
+         * @return Number of bytes to transfer used to order tasks waiting for a connection
+         */
+        default long getSize() {
+            return 0L;
+        }
     }
 }
@@ -3,6 +3,8 @@ package ch.cyberduck.core;
 import org.junit.Test;
 
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import static org.junit.Assert.*;
@@ -80,4 +82,99 @@ public class AttributedListTest {
         assertNotSame(list, list.filter(new NullFilter<>()));
         assertEquals(list, list.filter(new NullFilter<>()));
     }
+
+    @Test
+    public void testSnapshotIteration() {
+        final AttributedList<Path> list = new AttributedList<Path>();
+        final Path a = new Path("/a", EnumSet.of(Path.Type.file));
+        final Path b = new Path("/b", EnumSet.of(Path.Type.file));
+        final Path c = new Path("/c", EnumSet.of(Path.Type.file));
+        list.add(a);
+        list.add(b);
+        final Iterator<Path> iterator = list.iterator();
+        final List<Path> snapshot = list.toList();
+        list.add(c);
+        list.remove(a);
+        list.set(0, c);
+        assertEquals(a, iterator.next());
+        assertEquals(b, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(2, snapshot.size());
+        assertEquals(a, snapshot.get(0));
+        assertEquals(b, snapshot.get(1));
+        assertEquals(2, list.size());
+        assertEquals(c, list.get(0));
+        assertEquals(c, list.get(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotUnmodifiable() {
+        final AttributedList<Path> list = new AttributedList<Path>();
+        list.add(new Path("/a", EnumSet.of(Path.Type.file)));
+        list.toList().clear();
+    }
+
+    @Test
+    public void testIndexedLookup() {
+        final AttributedList<Path> list = new AttributedList<Path>();
+        for(int i = 0; i < 1000; i++) {
+            list.add(new Path(String.format("/f%d", i), EnumSet.of(Path.Type.file)));
+        }
+        final Path f = new Path("/f500", EnumSet.of(Path.Type.file));
+        assertSame(list.get(500), list.get(f));
+        assertSame(list.get(500), list.find(new SimplePathPredicate(f)));
+        assertTrue(list.contains(f));
+        assertFalse(list.contains(new Path("/f500", EnumSet.of(Path.Type.directory))));
+        // Appended after index is built
+        final Path g = new Path("/g", EnumSet.of(Path.Type.file));
+        list.add(g);
+        assertSame(g, list.get(new Path("/g", EnumSet.of(Path.Type.file))));
+        assertSame(g, list.find(new SimplePathPredicate(g)));
+        // Index is dropped on modification
+        list.remove(500);
+        assertNull(list.get(f));
+        assertNull(list.find(new SimplePathPredicate(f)));
+        list.set(0, f);
+        assertSame(f, list.find(new SimplePathPredicate(f)));
+        assertEquals(0, list.indexOf(f));
+        assertEquals(1000, list.size());
+    }
+
+    @Test
+    public void testFilterSort() {
+        final AttributedList<Path> list = new AttributedList<Path>();
+        list.add(new Path("/c", EnumSet.of(Path.Type.file)));
+        list.add(new Path("/a", EnumSet.of(Path.Type.file)));
+        list.add(new Path("/b", EnumSet.of(Path.Type.directory)));
+        final AttributedList<Path> filtered = list.filter((o1, o2) -> o1.getName().compareTo(o2.getName()), new NullFilter<Path>() {
+            @Override
+            public boolean accept(final Path file) {
+                return file.isFile();
+            }
+        });
+        assertEquals(2, filtered.size());
+        assertEquals("a", filtered.get(0).getName());
+        assertEquals("c", filtered.get(1).getName());
+        assertEquals(3, list.size());
+        assertEquals("c", list.get(0).getName());
+    }
+
+    @Test
+    public void testRevision() {
+        final AttributedList<Path> list = new AttributedList<>();
+        final long initial = list.revision();
+        final Path a = new Path("/a", EnumSet.of(Path.Type.file));
+        list.add(a);
+        assertTrue(list.revision() > initial);
+        long revision = list.revision();
+        list.set(0, new Path("/b", EnumSet.of(Path.Type.file)));
+        assertTrue(list.revision() > revision);
+        revision = list.revision();
+        list.remove(0);
+        assertTrue(list.revision() > revision);
+        revision = list.revision();
+        list.find(new SimplePathPredicate(a));
+        list.toList();
+        assertEquals(revision, list.revision());
+    }
 }
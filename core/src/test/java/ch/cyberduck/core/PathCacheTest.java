@@ -2,6 +2,7 @@ package ch.cyberduck.core;
 
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.EnumSet;
 
 import static org.junit.Assert.*;
@@ -71,4 +72,71 @@ public class PathCacheTest {
         assertFalse(cache.containsKey(file));
         assertEquals(0, cache.size());
     }
+
+    @Test
+    public void testLookupIndex() {
+        final PathCache cache = new PathCache(1);
+        final Path directory = new Path("/p", EnumSet.of(Path.Type.directory));
+        final Path file = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        final AttributedList<Path> list = new AttributedList<Path>();
+        list.add(file);
+        cache.put(directory, list);
+        assertSame(file, cache.lookup(new DefaultPathPredicate(new Path("/p/name", EnumSet.of(Path.Type.file)))));
+        // Replace listing
+        final Path replacement = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        cache.put(directory, new AttributedList<Path>(Collections.singletonList(replacement)));
+        assertSame(replacement, cache.lookup(new DefaultPathPredicate(file)));
+        // Evict listing
+        cache.put(new Path("/other", EnumSet.of(Path.Type.directory)), new AttributedList<Path>());
+        assertFalse(cache.isCached(directory));
+        assertNull(cache.lookup(new DefaultPathPredicate(file)));
+    }
+
+    @Test
+    public void testLookupRemoved() {
+        final PathCache cache = new PathCache(Integer.MAX_VALUE);
+        final Path directory = new Path("/p", EnumSet.of(Path.Type.directory));
+        final Path file = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        cache.put(directory, new AttributedList<Path>(Collections.singletonList(file)));
+        assertNotNull(cache.lookup(new DefaultPathPredicate(file)));
+        cache.remove(directory);
+        assertNull(cache.lookup(new DefaultPathPredicate(file)));
+    }
+
+    @Test
+    public void testLookupModifiedInPlace() {
+        final PathCache cache = new PathCache(Integer.MAX_VALUE);
+        final Path directory = new Path("/p", EnumSet.of(Path.Type.directory));
+        final Path file = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        final AttributedList<Path> list = new AttributedList<Path>();
+        list.add(file);
+        cache.put(directory, list);
+        assertSame(file, cache.lookup(new DefaultPathPredicate(file)));
+        // Replace element in place
+        final Path replacement = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        list.set(0, replacement);
+        assertSame(replacement, cache.lookup(new DefaultPathPredicate(file)));
+        // Remove element in place
+        list.remove(0);
+        assertNull(cache.lookup(new DefaultPathPredicate(file)));
+        // Add element in place
+        list.add(file);
+        assertSame(file, cache.lookup(new DefaultPathPredicate(file)));
+    }
+
+    @Test
+    public void testLookupMovedInPlace() {
+        final PathCache cache = new PathCache(Integer.MAX_VALUE);
+        final Path directory = new Path("/p", EnumSet.of(Path.Type.directory));
+        final Path file = new Path(directory, "name", EnumSet.of(Path.Type.file));
+        final AttributedList<Path> source = new AttributedList<Path>(Collections.singletonList(file));
+        final AttributedList<Path> target = new AttributedList<Path>();
+        cache.put(directory, source);
+        cache.put(new Path("/t", EnumSet.of(Path.Type.directory)), target);
+        assertSame(file, cache.lookup(new DefaultPathPredicate(file)));
+        // Move element to other cached listing
+        source.remove(file);
+        target.add(file);
+        assertSame(file, cache.lookup(new DefaultPathPredicate(file)));
+    }
 }
@@ -155,4 +155,39 @@ public class PathTest {
         assertNotEquals(new Path("19.vcf.gz", EnumSet.of(Path.Type.file)), new Path("0X.vcf.gz", EnumSet.of(Path.Type.file)));
         assertNotEquals(new Path("/d/2R", EnumSet.of(Path.Type.directory)), new Path("/d/33", EnumSet.of(Path.Type.directory)));
     }
+
+    @Test
+    public void testHashcodeInvalidate() {
+        final Path file = new Path("/d/f", EnumSet.of(Path.Type.file));
+        final Path directory = new Path("/d/f", EnumSet.of(Path.Type.directory));
+        assertNotEquals(file.hashCode(), directory.hashCode());
+        assertNotEquals(file, directory);
+        file.setType(EnumSet.of(Path.Type.directory));
+        assertEquals(directory.hashCode(), file.hashCode());
+        assertEquals(directory, file);
+        file.getType().remove(Path.Type.directory);
+        file.getType().add(Path.Type.file);
+        assertNotEquals(directory, file);
+        final Path version = new Path("/d/f", EnumSet.of(Path.Type.file));
+        assertEquals(version, file);
+        version.attributes().setVersionId("1");
+        assertNotEquals(version, file);
+        file.attributes().setVersionId("1");
+        assertEquals(version.hashCode(), file.hashCode());
+        assertEquals(version, file);
+        file.setAttributes(new PathAttributes());
+        assertNotEquals(version, file);
+    }
+
+    @Test
+    public void testNormalized() {
+        final Path nfd = new Path("/d/u\u0308", EnumSet.of(Path.Type.file));
+        final Path nfc = new Path("/d/\u00fc", EnumSet.of(Path.Type.file));
+        assertEquals(nfc, nfd);
+        assertEquals(nfc.hashCode(), nfd.hashCode());
+        assertEquals(new SimplePathPredicate(nfc), new SimplePathPredicate(nfd));
+        assertTrue(new SimplePathPredicate(nfd).test(nfc));
+        assertEquals(new SimplePathPredicate(Path.Type.file, "/d/u\u0308"), new SimplePathPredicate(nfc));
+        assertEquals(new SimplePathPredicate(Path.Type.file, "/d/u\u0308").hashCode(), new SimplePathPredicate(nfc).hashCode());
+    }
 }
@@ -0,0 +1,165 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.features.Encryption;
+import ch.cyberduck.core.io.FileBuffer;
+import ch.cyberduck.core.transfer.TransferItem;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+public class SwappingTransferItemCacheTest {
+
+    @Test
+    public void testSwap() {
+        final SwappingTransferItemCache cache = new SwappingTransferItemCache(1L);
+        final TransferItem d1 = new TransferItem(new Path("/d1", EnumSet.of(Path.Type.directory)), new Local("/l/d1"));
+        final TransferItem d2 = new TransferItem(new Path("/d2", EnumSet.of(Path.Type.directory)), new Local("/l/d2"));
+        final AttributedList<TransferItem> l1 = new AttributedList<>();
+        l1.add(new TransferItem(new Path("/d1/f1", EnumSet.of(Path.Type.file)), new Local("/l/d1/f1")));
+        l1.add(new TransferItem(new Path("/d1/f2", EnumSet.of(Path.Type.file)), new Local("/l/d1/f2")));
+        cache.put(d1, l1);
+        final AttributedList<TransferItem> l2 = new AttributedList<>();
+        l2.add(new TransferItem(new Path("/d2/f1", EnumSet.of(Path.Type.file)), new Local("/l/d2/f1")));
+        cache.put(d2, l2);
+        assertEquals(2L, cache.size());
+        assertTrue(cache.isCached(d1));
+        assertTrue(cache.isCached(d2));
+        // Read back swapped listing
+        final AttributedList<TransferItem> swapped = cache.get(d1);
+        assertEquals(2, swapped.size());
+        assertEquals(l1.get(0), swapped.get(0));
+        assertEquals(l1.get(1), swapped.get(1));
+        assertEquals(l2.get(0), cache.get(d2).get(0));
+        assertEquals(2, cache.remove(d1).size());
+        assertFalse(cache.isCached(d1));
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateSwapped() {
+        final SwappingTransferItemCache cache = new SwappingTransferItemCache(0L);
+        final TransferItem d1 = new TransferItem(new Path("/d1", EnumSet.of(Path.Type.directory)), new Local("/l/d1"));
+        final TransferItem d2 = new TransferItem(new Path("/d2", EnumSet.of(Path.Type.directory)), new Local("/l/d2"));
+        final AttributedList<TransferItem> l1 = new AttributedList<>();
+        l1.add(new TransferItem(new Path("/d1/f1", EnumSet.of(Path.Type.file)), new Local("/l/d1/f1")));
+        cache.put(d1, l1);
+        cache.put(d2, new AttributedList<>());
+        assertTrue(cache.isValid(d1));
+        cache.invalidate(d1);
+        assertFalse(cache.isValid(d1));
+        assertTrue(cache.get(d1).attributes().isInvalid());
+        cache.clear();
+    }
+
+    @Test
+    public void testSwapAttributes() {
+        final SwappingTransferItemCache cache = new SwappingTransferItemCache(0L);
+        final TransferItem d1 = new TransferItem(new Path("/d1", EnumSet.of(Path.Type.directory)), new Local("/l/d1"));
+        final TransferItem d2 = new TransferItem(new Path("/d2", EnumSet.of(Path.Type.directory)), new Local("/l/d2"));
+        final Path file = new Path("/d1/f1", EnumSet.of(Path.Type.file));
+        file.attributes().setVersionId("v1");
+        file.attributes().setOwner("o");
+        file.attributes().setGroup("g");
+        file.attributes().setCreationDate(1L);
+        file.attributes().setDisplayname("f");
+        file.attributes().setDirectoryId("d");
+        file.attributes().setMetadata(Collections.singletonMap("k", "v"));
+        file.attributes().setCustom(Collections.singletonMap("c", "v"));
+        file.attributes().setEncryption(new Encryption.Algorithm("AES256", null));
+        file.attributes().setVersions(new AttributedList<>(Collections.singletonList(new Path("/d1/f1", EnumSet.of(Path.Type.file)))));
+        final AttributedList<TransferItem> l1 = new AttributedList<>();
+        l1.add(new TransferItem(file, new Local("/l/d1/f1")));
+        cache.put(d1, l1);
+        cache.put(d2, new AttributedList<>());
+        final PathAttributes attributes = cache.get(d1).get(0).remote.attributes();
+        assertEquals("v1", attributes.getVersionId());
+        assertEquals("o", attributes.getOwner());
+        assertEquals("g", attributes.getGroup());
+        assertEquals(1L, attributes.getCreationDate());
+        assertEquals("f", attributes.getDisplayname());
+        assertEquals("d", attributes.getDirectoryId());
+        assertEquals("v", attributes.getMetadata().get("k"));
+        assertEquals("v", attributes.getCustom().get("c"));
+        assertEquals(new Encryption.Algorithm("AES256", null), attributes.getEncryption());
+        assertEquals(1, attributes.getVersions().size());
+        cache.clear();
+    }
+
+    @Test
+    public void testCompact() {
+        final FileBuffer buffer = new FileBuffer();
+        final SwappingTransferItemCache cache = new SwappingTransferItemCache(buffer, 1L);
+        final TransferItem d1 = new TransferItem(new Path("/d1", EnumSet.of(Path.Type.directory)), new Local("/l/d1"));
+        final TransferItem d2 = new TransferItem(new Path("/d2", EnumSet.of(Path.Type.directory)), new Local("/l/d2"));
+        final AttributedList<TransferItem> l1 = new AttributedList<>();
+        l1.add(new TransferItem(new Path("/d1/f1", EnumSet.of(Path.Type.file)), new Local("/l/d1/f1")));
+        final AttributedList<TransferItem> l2 = new AttributedList<>();
+        l2.add(new TransferItem(new Path("/d2/f1", EnumSet.of(Path.Type.file)), new Local("/l/d2/f1")));
+        cache.put(d1, l1);
+        cache.put(d2, l2);
+        final long length = buffer.length();
+        assertTrue(length > 0L);
+        // Alternate between listings swapping each in turn
+        for(int i = 0; i < 10; i++) {
+            assertEquals(1, cache.get(d1).size());
+            assertEquals(1, cache.get(d2).size());
+        }
+        assertTrue(buffer.length() <= length * 3);
+        assertEquals(l1.get(0), cache.get(d1).get(0));
+        assertEquals(l2.get(0), cache.get(d2).get(0));
+        cache.clear();
+    }
+
+    @Test
+    public void testReadFailure() {
+        final FileBuffer buffer = new FileBuffer() {
+            @Override
+            public synchronized int read(final byte[] chunk, final Long offset) throws IOException {
+                throw new IOException();
+            }
+
+            @Override
+            public synchronized int read(final byte[] chunk, final int off, final int len, final Long offset) throws IOException {
+                throw new IOException();
+            }
+        };
+        final SwappingTransferItemCache cache = new SwappingTransferItemCache(buffer, 0L);
+        final TransferItem d1 = new TransferItem(new Path("/d1", EnumSet.of(Path.Type.directory)), new Local("/l/d1"));
+        final TransferItem d2 = new TransferItem(new Path("/d2", EnumSet.of(Path.Type.directory)), new Local("/l/d2"));
+        final AttributedList<TransferItem> l1 = new AttributedList<>();
+        l1.add(new TransferItem(new Path("/d1/f1", EnumSet.of(Path.Type.file)), new Local("/l/d1/f1")));
+        cache.put(d1, l1);
+        cache.put(d2, new AttributedList<>());
+        try {
+            cache.get(d1);
+            fail();
+        }
+        catch(IllegalStateException e) {
+            // Expected
+        }
+        // Listing not discarded
+        assertTrue(cache.isCached(d1));
+        cache.clear();
+    }
+}
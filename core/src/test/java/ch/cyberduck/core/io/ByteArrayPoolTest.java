@@ -0,0 +1,37 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void testReuse() throws Exception {
+        final ByteArrayPool pool = new ByteArrayPool(1);
+        final byte[] buffer = pool.borrow(10);
+        assertEquals(10, buffer.length);
+        pool.release(buffer);
+        assertSame(buffer, pool.borrow(5));
+        pool.release(buffer);
+        final byte[] larger = pool.borrow(20);
+        assertNotSame(buffer, larger);
+        assertEquals(20, larger.length);
+        pool.release(larger);
+    }
+}
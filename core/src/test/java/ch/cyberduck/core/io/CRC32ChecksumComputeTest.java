@@ -15,11 +15,19 @@ package ch.cyberduck.core.io;
  * GNU General Public License for more details.
  */
 
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.transfer.TransferStatus;
 
 import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.lang3.RandomUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
 import static org.junit.Assert.assertEquals;
 
 public class CRC32ChecksumComputeTest {
@@ -31,4 +39,34 @@ public class CRC32ChecksumComputeTest {
         assertEquals("d202ef8d",
                 new CRC32ChecksumCompute().compute(new NullInputStream(1L), new TransferStatus()).hash);
     }
+
+    @Test
+    public void testCombine() {
+        final byte[] content = RandomUtils.nextBytes(1000);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        final CRC32 first = new CRC32();
+        first.update(content, 0, 400);
+        final CRC32 second = new CRC32();
+        second.update(content, 400, 600);
+        assertEquals(crc32.getValue(), CRC32ChecksumCompute.combine(first.getValue(), second.getValue(), 600));
+        assertEquals(first.getValue(), CRC32ChecksumCompute.combine(0L, first.getValue(), 400));
+        assertEquals(first.getValue(), CRC32ChecksumCompute.combine(first.getValue(), 0L, 0));
+    }
+
+    @Test
+    public void testComputeFileParallel() throws Exception {
+        final byte[] content = RandomUtils.nextBytes(50 * 1024 * 1024 + 3);
+        final Local file = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        Files.write(Paths.get(file.getAbsolute()), content);
+        final CRC32ChecksumCompute compute = new CRC32ChecksumCompute(4);
+        assertEquals(compute.compute(new ByteArrayInputStream(content), new TransferStatus()),
+                compute.compute(file, new TransferStatus()));
+        final TransferStatus range = new TransferStatus().withOffset(17L).withLength(40L * 1024L * 1024L);
+        assertEquals(compute.compute(new ByteArrayInputStream(content), range),
+                compute.compute(file, range));
+        assertEquals(compute.compute(new ByteArrayInputStream(content), range),
+                new CRC32ChecksumCompute(1).compute(file, range));
+        file.delete();
+    }
 }
\ No newline at end of file
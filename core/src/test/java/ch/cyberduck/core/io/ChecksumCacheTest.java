@@ -0,0 +1,163 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChecksumCacheTest {
+
+    private static Local write(final String content) throws Exception {
+        final Local file = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        Files.write(Paths.get(file.getAbsolute()), content.getBytes(StandardCharsets.UTF_8));
+        // Outside of racy interval
+        Files.setLastModifiedTime(Paths.get(file.getAbsolute()),
+            FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1L)));
+        return file;
+    }
+
+    private static Local journal() {
+        return new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+    }
+
+    @Test
+    public void testCompute() throws Exception {
+        final Local file = write("input");
+        final ChecksumCache cache = new ChecksumCache(journal(), 10);
+        assertNull(cache.get(file, HashAlgorithm.md5));
+        final Checksum checksum = cache.compute(file, new MD5ChecksumCompute(), new TransferStatus());
+        assertEquals("a43c1b0aa53a0c908810c06ab1ff3967", checksum.hash);
+        assertEquals(checksum, cache.get(file, HashAlgorithm.md5));
+        assertNull(cache.get(file, HashAlgorithm.sha256));
+        assertEquals(checksum, cache.compute(file, new MD5ChecksumCompute(), new TransferStatus()));
+        assertEquals(1, cache.size());
+        cache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testPartial() throws Exception {
+        final Local file = write("_input_");
+        final ChecksumCache cache = new ChecksumCache(journal(), 10);
+        assertEquals("a43c1b0aa53a0c908810c06ab1ff3967",
+            cache.compute(file, new MD5ChecksumCompute(), new TransferStatus().withOffset(1).withLength(5)).hash);
+        assertNull(cache.get(file, HashAlgorithm.md5));
+        cache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testRecentlyModified() throws Exception {
+        final Local file = write("input");
+        Files.setLastModifiedTime(Paths.get(file.getAbsolute()), FileTime.fromMillis(System.currentTimeMillis()));
+        final ChecksumCache cache = new ChecksumCache(journal(), 10);
+        cache.compute(file, new MD5ChecksumCompute(), new TransferStatus());
+        assertNull(cache.get(file, HashAlgorithm.md5));
+        cache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final Local file = write("input");
+        final ChecksumCache cache = new ChecksumCache(journal(), 0);
+        assertEquals("a43c1b0aa53a0c908810c06ab1ff3967",
+            cache.compute(file, new MD5ChecksumCompute(), new TransferStatus()).hash);
+        assertNull(cache.get(file, HashAlgorithm.md5));
+        file.delete();
+    }
+
+    @Test
+    public void testModified() throws Exception {
+        final Local file = write("input");
+        final ChecksumCache cache = new ChecksumCache(journal(), 10);
+        cache.compute(file, new MD5ChecksumCompute(), new TransferStatus());
+        Files.write(Paths.get(file.getAbsolute()), "_input".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(Paths.get(file.getAbsolute()), FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(10L)));
+        assertNull(cache.get(file, HashAlgorithm.md5));
+        final Checksum checksum = cache.compute(file, new MD5ChecksumCompute(), new TransferStatus());
+        assertEquals(new MD5ChecksumCompute().compute(file.getInputStream(), new TransferStatus()), checksum);
+        assertEquals(checksum, cache.get(file, HashAlgorithm.md5));
+        cache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testPersist() throws Exception {
+        final Local file = write("input");
+        final Local journal = journal();
+        final ChecksumCache cache = new ChecksumCache(journal, 10);
+        final Checksum checksum = cache.compute(file, new SHA256ChecksumCompute(), new TransferStatus());
+        cache.close();
+        final ChecksumCache reopened = new ChecksumCache(journal, 10);
+        assertEquals(checksum, reopened.get(file, HashAlgorithm.sha256));
+        reopened.close();
+        journal.delete();
+        file.delete();
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        final Local first = write("first");
+        final Local second = write("second");
+        final Local third = write("third");
+        final ChecksumCache cache = new ChecksumCache(journal(), 2);
+        cache.compute(first, new MD5ChecksumCompute(), new TransferStatus());
+        cache.compute(second, new MD5ChecksumCompute(), new TransferStatus());
+        // Access first to make second least recently used
+        assertNotNull(cache.get(first, HashAlgorithm.md5));
+        cache.compute(third, new MD5ChecksumCompute(), new TransferStatus());
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(first, HashAlgorithm.md5));
+        assertNull(cache.get(second, HashAlgorithm.md5));
+        assertNotNull(cache.get(third, HashAlgorithm.md5));
+        cache.close();
+        first.delete();
+        second.delete();
+        third.delete();
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        final Local file = write("input");
+        final Local journal = journal();
+        final ChecksumCache cache = new ChecksumCache(journal, 10);
+        for(int i = 0; i < 2500; i++) {
+            // Append record for changed file each time
+            Files.setLastModifiedTime(Paths.get(file.getAbsolute()), FileTime.fromMillis(TimeUnit.DAYS.toMillis(1L) + i * 1000L));
+            cache.compute(file, new MD5ChecksumCompute(), new TransferStatus());
+        }
+        cache.close();
+        assertTrue(Files.readAllLines(Paths.get(journal.getAbsolute())).size() <= 1000);
+        final ChecksumCache reopened = new ChecksumCache(journal, 10);
+        assertEquals(1, reopened.size());
+        assertEquals("a43c1b0aa53a0c908810c06ab1ff3967", reopened.get(file, HashAlgorithm.md5).hash);
+        reopened.close();
+        journal.delete();
+        file.delete();
+    }
+}
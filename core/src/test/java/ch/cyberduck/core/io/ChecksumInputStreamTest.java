@@ -0,0 +1,75 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class ChecksumInputStreamTest {
+
+    @Test
+    public void testMD5() throws Exception {
+        final ChecksumInputStream in = new ChecksumInputStream(IOUtils.toInputStream("input", Charset.defaultCharset()), HashAlgorithm.md5);
+        assertEquals("input", IOUtils.toString(in, Charset.defaultCharset()));
+        assertEquals("a43c1b0aa53a0c908810c06ab1ff3967", in.getChecksum().hash);
+        assertEquals(HashAlgorithm.md5, in.getChecksum().algorithm);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(new byte[0]), HashAlgorithm.md5);
+        assertEquals(-1, in.read());
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", in.getChecksum().hash);
+    }
+
+    @Test
+    public void testCompute() throws Exception {
+        final byte[] content = RandomUtils.nextBytes(1024 * 1024 + 1);
+        final TransferStatus status = new TransferStatus();
+        {
+            final ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(content), HashAlgorithm.sha256);
+            new StreamCopier(status, status).transfer(in, NullOutputStream.NULL_OUTPUT_STREAM);
+            assertEquals(new SHA256ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus()), in.getChecksum());
+        }
+        {
+            final ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(content), HashAlgorithm.sha1);
+            new StreamCopier(status, status).transfer(in, NullOutputStream.NULL_OUTPUT_STREAM);
+            assertEquals(new SHA1ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus()), in.getChecksum());
+        }
+        {
+            final ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(content), HashAlgorithm.crc32);
+            new StreamCopier(status, status).transfer(in, NullOutputStream.NULL_OUTPUT_STREAM);
+            assertEquals(new CRC32ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus()), in.getChecksum());
+        }
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        final ChecksumInputStream in = new ChecksumInputStream(IOUtils.toInputStream("_input", Charset.defaultCharset()), HashAlgorithm.md5);
+        assertEquals(1L, in.skip(1L));
+        assertEquals("input", IOUtils.toString(in, Charset.defaultCharset()));
+        assertEquals(Checksum.NONE, in.getChecksum());
+    }
+}
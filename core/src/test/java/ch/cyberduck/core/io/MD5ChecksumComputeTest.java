@@ -1,12 +1,18 @@
 package ch.cyberduck.core.io;
 
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.transfer.TransferStatus;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.NullInputStream;
+import org.apache.commons.lang3.RandomUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 
@@ -38,4 +44,23 @@ public class MD5ChecksumComputeTest {
             new MD5ChecksumCompute().compute(IOUtils.toInputStream("_input_", Charset.defaultCharset()),
                 new TransferStatus().withOffset(1).withLength(5)).hash);
     }
+
+    @Test
+    public void testComputeFile() throws Exception {
+        final byte[] content = RandomUtils.nextBytes(3 * 1024 * 1024 + 1);
+        final Local file = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        Files.write(Paths.get(file.getAbsolute()), content);
+        assertEquals(new MD5ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus()),
+            new MD5ChecksumCompute().compute(file, new TransferStatus()));
+        assertEquals(new MD5ChecksumCompute().compute(new ByteArrayInputStream(content), new TransferStatus().withOffset(1L)),
+            new MD5ChecksumCompute().compute(file, new TransferStatus().withOffset(1L)));
+        final TransferStatus range = new TransferStatus().withOffset(1024L * 1024L + 5L).withLength(1024L * 1024L);
+        assertEquals(new MD5ChecksumCompute().compute(new ByteArrayInputStream(content), range),
+            new MD5ChecksumCompute().compute(file, range));
+        assertEquals(new MD5ChecksumCompute().compute(new ByteArrayInputStream(content), range),
+            new MD5FastChecksumCompute().compute(file, range));
+        assertEquals(new SHA256ChecksumCompute().compute(new ByteArrayInputStream(content), range),
+            new SHA256ChecksumCompute().compute(file, range));
+        file.delete();
+    }
 }
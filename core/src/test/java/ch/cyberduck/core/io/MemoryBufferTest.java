@@ -0,0 +1,130 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MemoryBufferTest {
+
+    @Test
+    public void testTruncate() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer();
+        assertEquals(0L, buffer.length(), 0L);
+        final byte[] chunk = RandomUtils.nextBytes(100);
+        buffer.write(chunk, 0L);
+        assertEquals(100L, buffer.length(), 0L);
+        buffer.truncate(1L);
+        assertEquals(1L, buffer.length(), 0L);
+        final byte[] read = new byte[1];
+        assertEquals(1, buffer.read(read, 0L));
+        assertEquals(chunk[0], read[0]);
+        assertEquals(1L, buffer.length(), 0L);
+        buffer.close();
+    }
+
+    @Test
+    public void testTruncateGrow() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer();
+        buffer.write(RandomUtils.nextBytes(100), 0L);
+        buffer.truncate(10L);
+        buffer.truncate(100L);
+        final byte[] read = new byte[90];
+        assertEquals(90, buffer.read(read, 10L));
+        assertArrayEquals(new byte[90], read);
+        buffer.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer();
+        final byte[] chunk = RandomUtils.nextBytes(100);
+        buffer.write(chunk, 0L);
+        assertEquals(100L, buffer.length(), 0L);
+        buffer.close();
+        assertEquals(0L, buffer.length(), 0L);
+        buffer.write(chunk, 0L);
+        assertEquals(100L, buffer.length(), 0L);
+        buffer.close();
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer();
+        buffer.truncate(200L);
+        assertEquals(200L, buffer.length(), 0L);
+        final byte[] chunk = RandomUtils.nextBytes(100);
+        buffer.write(chunk, 0L);
+        assertEquals(200L, buffer.length(), 0L);
+        final byte[] compare = new byte[100];
+        assertEquals(100, buffer.read(compare, 0L));
+        assertArrayEquals(chunk, compare);
+        final byte[] empty = new byte[100];
+        assertEquals(100, buffer.read(empty, 100L));
+        assertArrayEquals(new byte[100], empty);
+        assertEquals(IOUtils.EOF, buffer.read(new byte[1], 200L));
+        buffer.close();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer();
+        assertEquals(0L, buffer.length(), 0L);
+        assertEquals(IOUtils.EOF, buffer.read(new byte[10], 100L));
+    }
+
+    @Test
+    public void testExceedMemoryLimit() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer(MemoryBuffer.SEGMENT_SIZE);
+        final byte[] content = RandomUtils.nextBytes(MemoryBuffer.SEGMENT_SIZE * 2 + 100);
+        final BufferOutputStream out = new BufferOutputStream(buffer);
+        // Write with offsets spanning segment and memory limit
+        out.write(content, 0, 100);
+        out.write(content, 100, MemoryBuffer.SEGMENT_SIZE);
+        out.write(content, MemoryBuffer.SEGMENT_SIZE + 100, MemoryBuffer.SEGMENT_SIZE);
+        out.close();
+        assertEquals(content.length, buffer.length(), 0L);
+        final ByteArrayOutputStream read = new ByteArrayOutputStream();
+        IOUtils.copy(new BufferInputStream(buffer), read);
+        assertArrayEquals(content, read.toByteArray());
+        final byte[] range = new byte[200];
+        assertEquals(150, buffer.read(range, 50, 150, (long) MemoryBuffer.SEGMENT_SIZE - 50L));
+        assertArrayEquals(Arrays.copyOfRange(content, MemoryBuffer.SEGMENT_SIZE - 50, MemoryBuffer.SEGMENT_SIZE + 100),
+            Arrays.copyOfRange(range, 50, 200));
+        buffer.truncate(100L);
+        assertEquals(100L, buffer.length(), 0L);
+        buffer.close();
+        assertEquals(0L, buffer.length(), 0L);
+    }
+
+    @Test
+    public void testTruncateGrowTemporaryFile() throws Exception {
+        final MemoryBuffer buffer = new MemoryBuffer(MemoryBuffer.SEGMENT_SIZE);
+        buffer.write(RandomUtils.nextBytes(MemoryBuffer.SEGMENT_SIZE + 100), 0L);
+        buffer.truncate((long) MemoryBuffer.SEGMENT_SIZE + 10L);
+        buffer.truncate((long) MemoryBuffer.SEGMENT_SIZE + 100L);
+        final byte[] read = new byte[90];
+        assertEquals(90, buffer.read(read, (long) MemoryBuffer.SEGMENT_SIZE + 10L));
+        assertArrayEquals(new byte[90], read);
+        buffer.close();
+    }
+}
@@ -0,0 +1,192 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    /**
+     * 10 Gbit/s
+     */
+    private static final long RATE = 1250L * 1000L * 1000L;
+    private static final long BATCH = 64 * 1024;
+    private static final long STEP = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /**
+     * Simulated clock advanced by test
+     */
+    private static final class Clock {
+        private long nanos;
+
+        public long get() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Streams each transferring at most one batch per millisecond
+     */
+    private static final class Streams {
+        private final List<TokenBucket> buckets = new ArrayList<>();
+        private final List<long[]> counters = new ArrayList<>();
+
+        public long[] add(final TokenBucket bucket, final int streams) {
+            final long[] counter = new long[1];
+            for(int i = 0; i < streams; i++) {
+                buckets.add(bucket);
+                counters.add(counter);
+            }
+            return counter;
+        }
+
+        /**
+         * @return Total bytes transferred by all streams
+         */
+        public long run(final Clock clock, final long millis) {
+            long total = 0L;
+            final int size = buckets.size();
+            for(long step = 0; step < millis; step++) {
+                clock.nanos += STEP;
+                for(int i = 0; i < size; i++) {
+                    // Rotate order of streams competing for tokens
+                    final int index = (int) ((i + step) % size);
+                    final long granted = buckets.get(index).take(BATCH, clock.get());
+                    counters.get(index)[0] += granted;
+                    total += granted;
+                }
+            }
+            return total;
+        }
+    }
+
+    @Test
+    public void testUnlimited() {
+        final TokenBucket root = new TokenBucket(TokenBucket.UNLIMITED);
+        final TokenBucket bucket = new TokenBucket(new TokenBucket(root, TokenBucket.UNLIMITED, 1), TokenBucket.UNLIMITED, 1);
+        assertFalse(bucket.isLimited());
+        assertEquals(Long.MAX_VALUE, bucket.acquire(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testAggregateRate() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(RATE, clock::get);
+        final Streams streams = new Streams();
+        for(int h = 0; h < 4; h++) {
+            final TokenBucket host = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+            for(int t = 0; t < 8; t++) {
+                streams.add(new TokenBucket(host, TokenBucket.UNLIMITED, 1), 8);
+            }
+        }
+        final long total = streams.run(clock, 10000L);
+        final long expected = RATE * 10;
+        assertTrue(String.valueOf(total), total <= expected + RATE / 10);
+        assertTrue(String.valueOf(total), total >= expected * 0.99d);
+    }
+
+    @Test
+    public void testTransferRate() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(TokenBucket.UNLIMITED, clock::get);
+        final long rate = 100L * 1000L * 1000L;
+        final TokenBucket transfer = new TokenBucket(new TokenBucket(root, TokenBucket.UNLIMITED, 1), rate, 1);
+        final Streams streams = new Streams();
+        final long[] limited = streams.add(transfer, 64);
+        final long[] unlimited = streams.add(new TokenBucket(root, TokenBucket.UNLIMITED, 1), 1);
+        streams.run(clock, 10000L);
+        assertEquals(rate * 10, limited[0], rate * 10 * 0.01d);
+        // Not limited by sibling
+        assertEquals(BATCH * 10000L, unlimited[0]);
+    }
+
+    @Test
+    public void testWeightedShare() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(RATE, clock::get);
+        final TokenBucket host = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+        final Streams streams = new Streams();
+        final long[] low = streams.add(new TokenBucket(host, TokenBucket.UNLIMITED, 1), 128);
+        final long[] high = streams.add(new TokenBucket(host, TokenBucket.UNLIMITED, 3), 128);
+        final long total = streams.run(clock, 10000L);
+        assertEquals(0.25d, (double) low[0] / total, 0.02d);
+        assertEquals(0.75d, (double) high[0] / total, 0.02d);
+    }
+
+    @Test
+    public void testHostRate() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(RATE, clock::get);
+        final long rate = 200L * 1000L * 1000L;
+        final Streams streams = new Streams();
+        final long[] limited = streams.add(new TokenBucket(new TokenBucket(root, rate, 1), TokenBucket.UNLIMITED, 1), 128);
+        final long[] other = streams.add(new TokenBucket(new TokenBucket(root, TokenBucket.UNLIMITED, 1), TokenBucket.UNLIMITED, 1), 128);
+        final long total = streams.run(clock, 10000L);
+        assertEquals(rate * 10, limited[0], rate * 10 * 0.01d);
+        // Bandwidth not used by limited host is available to others
+        assertEquals(RATE * 10, total, RATE * 10 * 0.01d);
+        assertEquals((RATE - rate) * 10, other[0], (RATE - rate) * 10 * 0.02d);
+    }
+
+    @Test
+    public void testNoCreditForIdle() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(RATE, clock::get);
+        final TokenBucket first = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+        final TokenBucket second = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+        final Streams idle = new Streams();
+        idle.add(first, 64);
+        idle.run(clock, 5000L);
+        final Streams streams = new Streams();
+        final long[] a = streams.add(first, 64);
+        final long[] b = streams.add(second, 64);
+        final long total = streams.run(clock, 5000L);
+        assertEquals(0.5d, (double) a[0] / total, 0.02d);
+        assertEquals(0.5d, (double) b[0] / total, 0.02d);
+    }
+
+    @Test
+    public void testRelease() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(1000L * 1000L, clock::get);
+        final TokenBucket bucket = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+        assertEquals(100L * 1000L, bucket.take(Long.MAX_VALUE, clock.get()));
+        assertEquals(0L, bucket.take(1L, clock.get()));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1L), bucket.delay(clock.get()));
+        bucket.release(10L);
+        assertEquals(10L, bucket.take(Long.MAX_VALUE, clock.get()));
+        clock.nanos += TimeUnit.MILLISECONDS.toNanos(10L);
+        assertEquals(10L * 1000L, bucket.take(Long.MAX_VALUE, clock.get()));
+    }
+
+    @Test
+    public void testClose() {
+        final Clock clock = new Clock();
+        final TokenBucket root = new TokenBucket(RATE, clock::get);
+        final TokenBucket bucket = new TokenBucket(root, TokenBucket.UNLIMITED, 1);
+        assertTrue(bucket.isLimited());
+        assertTrue(bucket.take(BATCH, clock.get()) > 0);
+        bucket.close();
+        root.setRate(TokenBucket.UNLIMITED);
+        assertFalse(bucket.isLimited());
+    }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
@@ -111,4 +112,16 @@ public class DefaultThreadPoolTest {
         p.shutdown(true);
         assertEquals(1000, counter.get());
     }
+
+    @Test
+    public void testResize() {
+        final DefaultThreadPool p = new DefaultThreadPool(2);
+        p.resize(8);
+        assertEquals(8, ((ThreadPoolExecutor) p.executor()).getCorePoolSize());
+        assertEquals(8, ((ThreadPoolExecutor) p.executor()).getMaximumPoolSize());
+        p.resize(1);
+        assertEquals(1, ((ThreadPoolExecutor) p.executor()).getCorePoolSize());
+        assertEquals(1, ((ThreadPoolExecutor) p.executor()).getMaximumPoolSize());
+        p.shutdown(true);
+    }
 }
@@ -0,0 +1,109 @@
+package ch.cyberduck.core.transfer;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyControllerTest {
+
+    /**
+     * Simulated link where throughput scales linearly with connections up to the optimum and degrades beyond
+     */
+    private static final class Link {
+        private final int optimum;
+        private final int failing;
+        private final Random random = new Random(1L);
+
+        /**
+         * @param optimum Number of connections with maximum throughput
+         * @param failing Number of connections from which on connections fail
+         */
+        public Link(final int optimum, final int failing) {
+            this.optimum = optimum;
+            this.failing = failing;
+        }
+
+        /**
+         * @return Bytes transferred in one second with 5% noise
+         */
+        public long transfer(final int connections) {
+            final double rate = 1024d * 1024d;
+            final double throughput = connections <= optimum ? connections * rate : optimum * rate * Math.sqrt((double) optimum / connections);
+            return (long) (throughput * (0.95d + random.nextDouble() * 0.1d));
+        }
+
+        public int failures(final int connections) {
+            return connections >= failing ? 1 : 0;
+        }
+    }
+
+    /**
+     * @return Mean number of connections in last 50 of 200 intervals
+     */
+    private static double simulate(final AdaptiveConcurrencyController controller, final Link link) {
+        int limit = controller.getLimit();
+        long sum = 0;
+        for(int i = 0; i < 200; i++) {
+            limit = controller.sample(link.transfer(limit), 1000L, link.failures(limit));
+            if(i >= 150) {
+                sum += limit;
+            }
+        }
+        return sum / 50d;
+    }
+
+    @Test
+    public void testConvergeLowOptimum() {
+        final double mean = simulate(new AdaptiveConcurrencyController(1, 64, 5), new Link(2, Integer.MAX_VALUE));
+        assertTrue(String.valueOf(mean), mean >= 1d && mean <= 4d);
+    }
+
+    @Test
+    public void testConvergeMediumOptimum() {
+        final double mean = simulate(new AdaptiveConcurrencyController(1, 64, 5), new Link(16, Integer.MAX_VALUE));
+        assertTrue(String.valueOf(mean), mean >= 10d && mean <= 24d);
+    }
+
+    @Test
+    public void testConvergeHighOptimum() {
+        final double mean = simulate(new AdaptiveConcurrencyController(1, 128, 5), new Link(64, Integer.MAX_VALUE));
+        assertTrue(String.valueOf(mean), mean >= 45d && mean <= 90d);
+    }
+
+    @Test
+    public void testBackoffOnFailures() {
+        final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 64, 5);
+        final double mean = simulate(controller, new Link(48, 12));
+        assertTrue(String.valueOf(mean), mean < 12d);
+        assertTrue(controller.getBackoffs() > 0);
+    }
+
+    @Test
+    public void testBounds() {
+        final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(2, 4, 10);
+        assertEquals(4, controller.getLimit());
+        for(int i = 0; i < 10; i++) {
+            final int limit = controller.sample(1000L * (i + 1), 1000L, 0);
+            assertTrue(limit >= 2 && limit <= 4);
+        }
+        assertEquals(2, controller.sample(1000L, 1000L, 1));
+        assertEquals(2, controller.sample(1000L, 1000L, 1));
+    }
+}
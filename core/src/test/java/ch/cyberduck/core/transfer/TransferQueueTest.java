@@ -21,10 +21,16 @@ import ch.cyberduck.core.DisabledProgressListener;
 import ch.cyberduck.core.Host;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.TestProtocol;
+import ch.cyberduck.core.io.TokenBucket;
+import ch.cyberduck.core.transfer.scheduler.ShortestJobFirstSchedulingPolicy;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -55,6 +61,68 @@ public class TransferQueueTest {
         assertEquals(0, c.getCount());
     }
 
+    @Test
+    public void testBandwidth() {
+        final TransferQueue queue = new TransferQueue(2);
+        final DownloadTransfer d1 = new DownloadTransfer(new Host(new TestProtocol(), "a"), new Path("/t1", EnumSet.of(Path.Type.directory)), null);
+        final DownloadTransfer d2 = new DownloadTransfer(new Host(new TestProtocol(), "a"), new Path("/t2", EnumSet.of(Path.Type.directory)), null);
+        queue.add(d1, new TransferOptions().weight(2), new DisabledProgressListener());
+        queue.add(d2, new DisabledProgressListener());
+        final TokenBucket b1 = d1.getBandwidth().getBucket();
+        final TokenBucket b2 = d2.getBandwidth().getBucket();
+        assertNotNull(b1);
+        assertNotNull(b2);
+        assertEquals(2, b1.getWeight());
+        assertEquals(1, b2.getWeight());
+        // Shared host bucket
+        assertSame(b1.getParent(), b2.getParent());
+        assertSame(queue.getBandwidth(), b1.getParent().getParent());
+        d1.setBandwidth(1000f);
+        assertEquals(1000L, b1.getRate());
+        assertTrue(b1.isLimited());
+        queue.remove(d1);
+        assertNull(d1.getBandwidth().getBucket());
+        queue.remove(d2);
+        assertNull(d2.getBandwidth().getBucket());
+    }
+
+    @Test
+    public void testShortestFirst() throws Exception {
+        final TransferQueue queue = new TransferQueue(1, new ShortestJobFirstSchedulingPolicy());
+        final DownloadTransfer d1 = new DownloadTransfer(new Host(new TestProtocol()), new Path("/t1", EnumSet.of(Path.Type.directory)), null);
+        queue.add(d1, new DisabledProgressListener());
+        final Path large = new Path("/large", EnumSet.of(Path.Type.file));
+        large.attributes().setSize(500L * 1024L * 1024L * 1024L);
+        final Path small = new Path("/small", EnumSet.of(Path.Type.file));
+        small.attributes().setSize(1L);
+        final DownloadTransfer d2 = new DownloadTransfer(new Host(new TestProtocol()), large, null);
+        final DownloadTransfer d3 = new DownloadTransfer(new Host(new TestProtocol()), small, null);
+        final List<Transfer> started = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch queued = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        for(final Transfer t : Arrays.asList(d2, d3)) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    queue.add(t, new DisabledProgressListener() {
+                        @Override
+                        public void message(final String message) {
+                            queued.countDown();
+                        }
+                    });
+                    started.add(t);
+                    queue.remove(t);
+                    done.countDown();
+                }
+            }).start();
+            assertFalse(done.await(1, TimeUnit.SECONDS));
+        }
+        assertTrue(queued.await(10, TimeUnit.SECONDS));
+        queue.remove(d1);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(d3, d2), started);
+    }
+
     @Test
     public void testConcurrent() throws Exception {
         final TransferQueue queue = new TransferQueue(1);
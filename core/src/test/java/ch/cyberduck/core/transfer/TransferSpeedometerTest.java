@@ -26,9 +26,11 @@ import ch.cyberduck.core.TestProtocol;
 import org.junit.Test;
 
 import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.*;
 
 public class TransferSpeedometerTest {
 
@@ -48,4 +50,41 @@ public class TransferSpeedometerTest {
         s.reset();
         assertEquals(0L, s.getStatus().getSpeed(), 0L);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentTransferred() throws Exception {
+        final DownloadTransfer transfer = new DownloadTransfer(new Host(new TestProtocol()), new Path("/p", EnumSet.of(Path.Type.file)), new Local("/t"));
+        final TransferSpeedometer s = new TransferSpeedometer(transfer);
+        transfer.addSize(64L * 10000L * 32768L);
+        assertFalse(s.isComplete());
+        final ExecutorService executor = Executors.newFixedThreadPool(64);
+        final CountDownLatch done = new CountDownLatch(64);
+        for(int i = 0; i < 64; i++) {
+            executor.execute(() -> {
+                for(int j = 0; j < 10000; j++) {
+                    transfer.addTransferred(32768L);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        executor.shutdown();
+        assertEquals(64L * 10000L * 32768L, s.getStatus().getTransferred(), 0L);
+        assertTrue(s.isComplete());
+        transfer.reset();
+        assertEquals(0L, transfer.getTransferred(), 0L);
+        assertFalse(transfer.isComplete());
+    }
+
+    @Test
+    public void testSetTransferred() throws Exception {
+        final DownloadTransfer transfer = new DownloadTransfer(new Host(new TestProtocol()), new Path("/p", EnumSet.of(Path.Type.file)), new Local("/t"));
+        transfer.addTransferred(10L);
+        transfer.setTransferred(4L);
+        assertEquals(4L, transfer.getTransferred(), 0L);
+        transfer.addTransferred(2L);
+        assertEquals(6L, transfer.getTransferred(), 0L);
+        transfer.setTransferred(0L);
+        assertEquals(0L, transfer.getTransferred(), 0L);
+    }
+}
@@ -2,12 +2,16 @@ package ch.cyberduck.core.transfer.download;
 
 import ch.cyberduck.core.DisabledProgressListener;
 import ch.cyberduck.core.Host;
+import ch.cyberduck.core.ListProgressListener;
+import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LocalAttributes;
 import ch.cyberduck.core.NullLocal;
 import ch.cyberduck.core.NullSession;
 import ch.cyberduck.core.NullTransferSession;
 import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathAttributes;
 import ch.cyberduck.core.TestProtocol;
+import ch.cyberduck.core.features.AttributesFinder;
 import ch.cyberduck.core.features.Read;
 import ch.cyberduck.core.shared.DefaultDownloadFeature;
 import ch.cyberduck.core.transfer.TransferStatus;
@@ -15,7 +19,9 @@ import ch.cyberduck.core.transfer.symlink.DisabledDownloadSymlinkResolver;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.UUID;
 
 import static org.junit.Assert.*;
 
@@ -141,4 +147,30 @@ public class ResumeFilterTest {
         final TransferStatus status = f.prepare(p, local, new TransferStatus(), new DisabledProgressListener());
         assertFalse(status.isAppend());
     }
+
+    @Test
+    public void testAcceptInterruptedPreallocation() throws Exception {
+        final ResumeFilter f = new ResumeFilter(new DisabledDownloadSymlinkResolver(), new NullSession(new Host(new TestProtocol())));
+        final Path p = new Path("a", EnumSet.of(Path.Type.file));
+        p.attributes().setSize(20L);
+        f.withAttributes(new AttributesFinder() {
+            @Override
+            public PathAttributes find(final Path file, final ListProgressListener listener) {
+                // No checksum
+                return p.attributes();
+            }
+        });
+        final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final TransferStatus status = new TransferStatus().withLength(20L);
+        status.withSegments(Arrays.asList(
+            new TransferStatus().segment(true).positional(true).append(true).withOffset(0L).withLength(10L),
+            new TransferStatus().segment(true).positional(true).append(true).withOffset(10L).withLength(10L)));
+        f.apply(p, local, status, new DisabledProgressListener());
+        // Interrupted before first segment completes
+        assertEquals(20L, local.attributes().getSize());
+        assertTrue(new SegmentJournal(local).exists());
+        assertTrue(f.accept(p, local, new TransferStatus()));
+        new SegmentJournal(local).delete();
+        local.delete();
+    }
 }
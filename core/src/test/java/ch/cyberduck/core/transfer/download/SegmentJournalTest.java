@@ -0,0 +1,47 @@
+package ch.cyberduck.core.transfer.download;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class SegmentJournalTest {
+
+    @Test
+    public void testAddContains() throws Exception {
+        final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final SegmentJournal journal = new SegmentJournal(local);
+        assertFalse(journal.exists());
+        final TransferStatus first = new TransferStatus().segment(true).positional(true).withOffset(0L).withLength(10L);
+        final TransferStatus second = new TransferStatus().segment(true).positional(true).withOffset(10L).withLength(5L);
+        assertFalse(journal.contains(first));
+        journal.add(first);
+        assertTrue(journal.exists());
+        assertTrue(journal.contains(first));
+        assertFalse(journal.contains(second));
+        journal.add(second);
+        assertTrue(new SegmentJournal(local).contains(second));
+        journal.delete();
+        assertFalse(journal.exists());
+        assertFalse(journal.contains(first));
+    }
+}
@@ -0,0 +1,171 @@
+package ch.cyberduck.core.transfer.multipart;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.DisabledConnectionCallback;
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Local;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.TestProtocol;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.DisabledStreamListener;
+import ch.cyberduck.core.io.StreamListener;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PartUploadEngineTest {
+
+    private static final class Part {
+        private final long offset;
+        private final long length;
+
+        public Part(final long offset, final long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class TestPartUploadService implements PartUploadService<String, Part, SortedMap<Integer, Part>> {
+        private final Map<Integer, Part> existing;
+        private final Map<Integer, Part> uploaded = new ConcurrentHashMap<>();
+
+        public TestPartUploadService() {
+            this(Collections.emptyMap());
+        }
+
+        public TestPartUploadService(final Map<Integer, Part> existing) {
+            this.existing = existing;
+        }
+
+        @Override
+        public String start(final Path file, final TransferStatus status) {
+            return UUID.randomUUID().toString();
+        }
+
+        @Override
+        public Map<Integer, Part> list(final Path file, final String upload, final TransferStatus status) {
+            return existing;
+        }
+
+        @Override
+        public Part upload(final Path file, final Local local, final String upload, final BandwidthThrottle throttle,
+                           final StreamListener listener, final TransferStatus segment, final TransferStatus overall,
+                           final ConnectionCallback callback) {
+            assertTrue(segment.isSegment());
+            final Part part = new Part(segment.getOffset(), segment.getLength());
+            assertNull(uploaded.put(segment.getPart(), part));
+            return part;
+        }
+
+        @Override
+        public SortedMap<Integer, Part> complete(final Path file, final String upload, final SortedMap<Integer, Part> parts,
+                                                 final TransferStatus status) {
+            return parts;
+        }
+
+        @Override
+        public long getLength(final Part part) {
+            return part.length;
+        }
+
+        @Override
+        public long getPartSize(final long size) {
+            return 3L;
+        }
+    }
+
+    private static <R> R upload(final PartUploadEngine engine, final PartUploadService<String, Part, R> service,
+                                final TransferStatus status) throws Exception {
+        return engine.upload(service, new Path("/f", EnumSet.of(Path.Type.file)),
+            new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()),
+            new BandwidthThrottle(BandwidthThrottle.UNLIMITED), new DisabledStreamListener(), status, new DisabledConnectionCallback());
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        final PartUploadEngine engine = new PartUploadEngine(new Host(new TestProtocol()), 2,
+            new PartUploadExecutor(4, -1L));
+        final TestPartUploadService service = new TestPartUploadService();
+        final TransferStatus status = new TransferStatus().withLength(10L);
+        final SortedMap<Integer, Part> parts = upload(engine, service, status);
+        assertTrue(status.isComplete());
+        assertEquals(4, parts.size());
+        assertEquals(4, service.uploaded.size());
+        long offset = 0L;
+        for(Map.Entry<Integer, Part> entry : parts.entrySet()) {
+            assertEquals(offset, entry.getValue().offset);
+            offset += entry.getValue().length;
+        }
+        assertEquals(10L, offset);
+        assertEquals(1L, parts.get(4).length);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        final PartUploadEngine engine = new PartUploadEngine(new Host(new TestProtocol()), 2,
+            new PartUploadExecutor(4, -1L));
+        final Part existing = new Part(3L, 3L);
+        final TestPartUploadService service = new TestPartUploadService(Collections.singletonMap(2, existing));
+        final TransferStatus status = new TransferStatus().withLength(7L).withOffset(3L).append(true);
+        final SortedMap<Integer, Part> parts = upload(engine, service, status);
+        assertEquals(4, parts.size());
+        assertEquals(3, service.uploaded.size());
+        assertFalse(service.uploaded.containsKey(2));
+        assertSame(existing, parts.get(2));
+        assertEquals(6L, parts.get(3).offset);
+        assertEquals(9L, parts.get(4).offset);
+        assertEquals(1L, parts.get(4).length);
+    }
+
+    @Test
+    public void testInflightLimit() throws Exception {
+        final PartUploadExecutor executor = new PartUploadExecutor(8, 6L);
+        final PartUploadEngine engine = new PartUploadEngine(new Host(new TestProtocol()), 8, executor);
+        final AtomicLong maximum = new AtomicLong();
+        final TestPartUploadService service = new TestPartUploadService() {
+            @Override
+            public Part upload(final Path file, final Local local, final String upload, final BandwidthThrottle throttle,
+                               final StreamListener listener, final TransferStatus segment, final TransferStatus overall,
+                               final ConnectionCallback callback) {
+                maximum.accumulateAndGet(executor.getInflight(), Math::max);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10L);
+                }
+                catch(InterruptedException e) {
+                    fail();
+                }
+                return super.upload(file, local, upload, throttle, listener, segment, overall, callback);
+            }
+        };
+        final SortedMap<Integer, Part> parts = upload(engine, service, new TransferStatus().withLength(30L));
+        assertEquals(10, parts.size());
+        assertTrue(maximum.get() <= 6L);
+        assertEquals(0L, executor.getInflight());
+    }
+}
@@ -0,0 +1,226 @@
+package ch.cyberduck.core.transfer.scheduler;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulate connections transferring files at a fixed rate and report completion time percentiles for each policy
+ */
+public class SchedulingPolicySimulationTest {
+    private static final Logger log = Logger.getLogger(SchedulingPolicySimulationTest.class);
+
+    /**
+     * Bytes per millisecond for each connection
+     */
+    private static final long RATE = 100L * 1024L;
+    private static final int CONNECTIONS = 4;
+
+    private static final class Job implements Schedulable {
+        private final long size;
+        private final int priority;
+        private final long deadline;
+        private final long timestamp;
+        private final long sequence;
+        private long completed;
+
+        public Job(final long size, final int priority, final long deadline, final long timestamp, final long sequence) {
+            this.size = size;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public long getDeadline() {
+            return deadline;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getCompletion() {
+            return completed - timestamp;
+        }
+    }
+
+    private static final class Report {
+        private final List<Long> times = new ArrayList<>();
+
+        public Report(final List<Job> jobs) {
+            for(Job job : jobs) {
+                times.add(job.getCompletion());
+            }
+            Collections.sort(times);
+        }
+
+        /**
+         * @return Completion time in milliseconds
+         */
+        public long percentile(final int p) {
+            return times.get(Math.min(times.size() - 1, times.size() * p / 100));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50=%d p90=%d p99=%d max=%d", this.percentile(50), this.percentile(90),
+                this.percentile(99), this.percentile(100));
+        }
+    }
+
+    /**
+     * Eight large files queued first followed by a thousand small files queued at once and a thousand small files
+     * arriving every 20 milliseconds. Every tenth small file is urgent with a deadline of ten seconds.
+     */
+    private static List<Job> workload() {
+        final Random random = new Random(1L);
+        final List<Job> jobs = new ArrayList<>();
+        long sequence = 0L;
+        for(int i = 0; i < 8; i++) {
+            jobs.add(new Job(5L * 1024L * 1024L * 1024L, 0, Long.MAX_VALUE, 0L, sequence++));
+        }
+        for(int i = 0; i < 2000; i++) {
+            final long timestamp = i < 1000 ? 0L : (i - 1000) * 20L;
+            final long size = (1L + random.nextInt(10)) * 1024L * 1024L;
+            final boolean urgent = i % 10 == 0;
+            jobs.add(new Job(size, urgent ? 1 : 0, urgent ? timestamp + 10000L : Long.MAX_VALUE, timestamp, sequence++));
+        }
+        return jobs;
+    }
+
+    /**
+     * Run jobs on connections in order of policy
+     */
+    private static List<Job> simulate(final SchedulingPolicy policy) {
+        final List<Job> jobs = workload();
+        final PriorityQueue<Job> waiting = new PriorityQueue<>((o1, o2) -> {
+            final int result = policy.compare(o1, o2);
+            if(0 == result) {
+                return Long.compare(o1.sequence, o2.sequence);
+            }
+            return result;
+        });
+        // Time each connection is available
+        final long[] connections = new long[CONNECTIONS];
+        int next = 0;
+        long now = 0L;
+        while(next < jobs.size() || !waiting.isEmpty()) {
+            int connection = 0;
+            for(int i = 1; i < CONNECTIONS; i++) {
+                if(connections[i] < connections[connection]) {
+                    connection = i;
+                }
+            }
+            now = Math.max(now, connections[connection]);
+            if(waiting.isEmpty()) {
+                now = Math.max(now, jobs.get(next).timestamp);
+            }
+            while(next < jobs.size() && jobs.get(next).timestamp <= now) {
+                waiting.add(jobs.get(next++));
+            }
+            final Job job = waiting.poll();
+            job.completed = now + job.size / RATE;
+            connections[connection] = job.completed;
+        }
+        return jobs;
+    }
+
+    private static List<Job> filter(final List<Job> jobs, final boolean large) {
+        final List<Job> result = new ArrayList<>();
+        for(Job job : jobs) {
+            if(large == job.size > 1024L * 1024L * 1024L) {
+                result.add(job);
+            }
+        }
+        return result;
+    }
+
+    private static List<Job> urgent(final List<Job> jobs) {
+        final List<Job> result = new ArrayList<>();
+        for(Job job : jobs) {
+            if(job.priority > 0) {
+                result.add(job);
+            }
+        }
+        return result;
+    }
+
+    private static double missed(final List<Job> jobs) {
+        int missed = 0;
+        final List<Job> urgent = urgent(jobs);
+        for(Job job : urgent) {
+            if(job.completed > job.deadline) {
+                missed++;
+            }
+        }
+        return (double) missed / urgent.size();
+    }
+
+    @Test
+    public void testCompletionTimes() {
+        final List<Job> fifo = simulate(new FifoSchedulingPolicy());
+        final List<Job> size = simulate(new ShortestJobFirstSchedulingPolicy());
+        final List<Job> priority = simulate(new PrioritySchedulingPolicy());
+        final List<Job> deadline = simulate(new DeadlineSchedulingPolicy());
+        final List<Job> mixed = simulate(new MixedSchedulingPolicy(10000L));
+        final String report = String.format("fifo %s, size %s, priority %s, deadline %s, mixed %s",
+            new Report(fifo), new Report(size), new Report(priority), new Report(deadline), new Report(mixed));
+        log.info(report);
+        // Small files no longer wait for large files queued before
+        final Report small = new Report(filter(fifo, false));
+        assertTrue(report, new Report(filter(size, false)).percentile(50) * 10 < small.percentile(50));
+        assertTrue(report, new Report(filter(mixed, false)).percentile(50) * 10 < small.percentile(50));
+        // Large files are only passed by small files arriving within bounded time
+        final Report large = new Report(filter(fifo, true));
+        assertTrue(report, new Report(filter(mixed, true)).percentile(100) <= large.percentile(100) + 40000L);
+        // Urgent files first
+        assertTrue(report, new Report(urgent(priority)).percentile(50) * 10 < new Report(urgent(fifo)).percentile(50));
+        assertEquals(1d, missed(fifo), 0.01d);
+        assertEquals(0d, missed(deadline), 0.01d);
+    }
+
+    @Test
+    public void testFactory() {
+        assertTrue(SchedulingPolicyFactory.get("fifo") instanceof FifoSchedulingPolicy);
+        assertTrue(SchedulingPolicyFactory.get("size") instanceof ShortestJobFirstSchedulingPolicy);
+        assertTrue(SchedulingPolicyFactory.get("priority") instanceof PrioritySchedulingPolicy);
+        assertTrue(SchedulingPolicyFactory.get("deadline") instanceof DeadlineSchedulingPolicy);
+        assertTrue(SchedulingPolicyFactory.get("mixed") instanceof MixedSchedulingPolicy);
+        assertTrue(SchedulingPolicyFactory.get("invalid") instanceof FifoSchedulingPolicy);
+    }
+}
@@ -0,0 +1,138 @@
+package ch.cyberduck.core.vault;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.DisabledListProgressListener;
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.NullSession;
+import ch.cyberduck.core.PasswordCallback;
+import ch.cyberduck.core.PasswordStore;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.TestProtocol;
+import ch.cyberduck.core.exception.NotfoundException;
+import ch.cyberduck.core.features.Vault;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DecryptingListProgressListenerTest {
+
+    @Test
+    public void testChunkConcurrent() throws Exception {
+        final Path directory = new Path("/d", EnumSet.of(Path.Type.directory));
+        final List<String> published = new ArrayList<>();
+        final DecryptingListProgressListener listener = new DecryptingListProgressListener(new NullSession(new Host(new TestProtocol())),
+            new UppercaseVault(), new DisabledListProgressListener() {
+            @Override
+            public void chunk(final Path folder, final AttributedList<Path> list) {
+                published.clear();
+                for(Path f : list) {
+                    published.add(f.getName());
+                }
+            }
+        }, 4);
+        final AttributedList<Path> list = new AttributedList<>();
+        for(int i = 0; i < 100; i++) {
+            list.add(new Path(directory, String.format("f%d", i), EnumSet.of(Path.Type.file)));
+        }
+        list.add(new Path(directory, "invalid", EnumSet.of(Path.Type.file)));
+        listener.chunk(directory, list);
+        for(int i = 100; i < 150; i++) {
+            list.add(new Path(directory, String.format("f%d", i), EnumSet.of(Path.Type.file)));
+        }
+        listener.chunk(directory, list);
+        listener.shutdown();
+        assertEquals(150, list.size());
+        assertEquals(150, published.size());
+        for(int i = 0; i < 150; i++) {
+            assertEquals(String.format("F%d", i), list.get(i).getName());
+            assertTrue(list.get(i).getType().contains(Path.Type.decrypted));
+            assertEquals(String.format("F%d", i), published.get(i));
+        }
+    }
+
+    private static final class UppercaseVault implements Vault {
+        @Override
+        public Path create(final Session<?> session, final String region, final VaultCredentials credentials, final PasswordStore keychain) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Vault load(final Session<?> session, final PasswordCallback prompt, final PasswordStore keychain) {
+            return this;
+        }
+
+        @Override
+        public void close() {
+            //
+        }
+
+        @Override
+        public boolean contains(final Path file) {
+            return true;
+        }
+
+        @Override
+        public Path encrypt(final Session<?> session, final Path file) {
+            return file;
+        }
+
+        @Override
+        public Path encrypt(final Session<?> session, final Path file, final boolean metadata) {
+            return file;
+        }
+
+        @Override
+        public Path decrypt(final Session<?> session, final Path file) throws NotfoundException {
+            if(file.getName().equals("invalid")) {
+                throw new NotfoundException(file.getName());
+            }
+            return new Path(file.getParent(), file.getName().toUpperCase(), EnumSet.of(Path.Type.file, Path.Type.decrypted));
+        }
+
+        @Override
+        public long toCiphertextSize(final long cleartextFileSize) {
+            return cleartextFileSize;
+        }
+
+        @Override
+        public long toCleartextSize(final long ciphertextFileSize) {
+            return ciphertextFileSize;
+        }
+
+        @Override
+        public <T> T getFeature(final Session<?> session, final Class<T> type, final T delegate) {
+            return delegate;
+        }
+
+        @Override
+        public State getState() {
+            return State.open;
+        }
+
+        @Override
+        public Path getHome() {
+            return null;
+        }
+    }
+}
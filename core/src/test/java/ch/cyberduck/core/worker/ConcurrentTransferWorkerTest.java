@@ -16,7 +16,11 @@
 package ch.cyberduck.core.worker;
 
 import ch.cyberduck.core.*;
+import ch.cyberduck.core.exception.AccessDeniedException;
 import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
+import ch.cyberduck.core.features.Bulk;
+import ch.cyberduck.core.features.Delete;
 import ch.cyberduck.core.io.DisabledStreamListener;
 import ch.cyberduck.core.io.StreamListener;
 import ch.cyberduck.core.notification.DisabledNotificationService;
@@ -41,15 +45,20 @@ import ch.cyberduck.core.vault.DefaultVaultRegistry;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -268,4 +277,222 @@ public class ConcurrentTransferWorkerTest {
         assertEquals(0, entry.getCount());
         worker.cleanup(true);
     }
+
+    @Test
+    public void testPipelinedOrder() throws Exception {
+        final Path directory = new Path("/d", EnumSet.of(Path.Type.directory));
+        final List<Path> transferred = Collections.synchronizedList(new ArrayList<Path>());
+        final AtomicBoolean ordered = new AtomicBoolean(true);
+        final Host host = new Host(new TestProtocol(), "test.cyberduck.ch");
+        final Transfer t = new PipelinedDownloadTransfer(host, directory, 20, transferred) {
+            @Override
+            protected TransferStatus status(final Path file) throws BackgroundException {
+                if(!file.equals(directory) && !transferred.contains(directory)) {
+                    // Children must only be prepared after parent directory is transferred
+                    ordered.set(false);
+                }
+                return new TransferStatus();
+            }
+        };
+        final ConcurrentTransferWorker worker = this.pipelined(host, t);
+        final Session<?> session = worker.borrow(ConcurrentTransferWorker.Connection.source);
+        assertTrue(worker.run(session));
+        worker.release(session, ConcurrentTransferWorker.Connection.source, null);
+        assertTrue(ordered.get());
+        assertEquals(21, transferred.size());
+        assertEquals(directory, transferred.get(0));
+        for(int i = 1; i <= 20; i++) {
+            assertTrue(transferred.contains(new Path(directory, "f" + i, EnumSet.of(Path.Type.file))));
+        }
+        assertTrue(worker.getCache().isEmpty());
+        worker.cleanup(true);
+    }
+
+    @Test
+    public void testPipelinedFailure() throws Exception {
+        final Path directory = new Path("/d", EnumSet.of(Path.Type.directory));
+        final Path failure = new Path(directory, "f5", EnumSet.of(Path.Type.file));
+        final List<Path> transferred = Collections.synchronizedList(new ArrayList<Path>());
+        final Host host = new Host(new TestProtocol(), "test.cyberduck.ch");
+        final Transfer t = new PipelinedDownloadTransfer(host, directory, 20, transferred) {
+            @Override
+            protected TransferStatus status(final Path file) throws BackgroundException {
+                if(file.equals(failure)) {
+                    throw new AccessDeniedException(file.getName());
+                }
+                return new TransferStatus();
+            }
+        };
+        final ConcurrentTransferWorker worker = this.pipelined(host, t);
+        final Session<?> session = worker.borrow(ConcurrentTransferWorker.Connection.source);
+        try {
+            worker.run(session);
+            fail();
+        }
+        catch(AccessDeniedException e) {
+            // Failure preparing child propagated from pipeline
+        }
+        finally {
+            worker.release(session, ConcurrentTransferWorker.Connection.source, null);
+        }
+        assertFalse(transferred.contains(failure));
+        worker.cleanup(true);
+    }
+
+    @Test
+    public void testPipelinedCancel() throws Exception {
+        final Path directory = new Path("/d", EnumSet.of(Path.Type.directory));
+        final List<Path> transferred = Collections.synchronizedList(new ArrayList<Path>());
+        final AtomicReference<ConcurrentTransferWorker> reference = new AtomicReference<>();
+        final Host host = new Host(new TestProtocol(), "test.cyberduck.ch");
+        final Transfer t = new PipelinedDownloadTransfer(host, directory, 20, transferred) {
+            @Override
+            public void transfer(final Session<?> source, final Session<?> destination, final Path file, final Local local,
+                                 final TransferOptions options, final TransferStatus overall, final TransferStatus segment,
+                                 final ConnectionCallback connectionCallback,
+                                 final ProgressListener listener, final StreamListener streamListener) {
+                super.transfer(source, destination, file, local, options, overall, segment, connectionCallback, listener, streamListener);
+                // Cancel after parent directory is transferred
+                reference.get().cancel();
+            }
+        };
+        final ConcurrentTransferWorker worker = this.pipelined(host, t);
+        reference.set(worker);
+        final Session<?> session = worker.borrow(ConcurrentTransferWorker.Connection.source);
+        try {
+            worker.run(session);
+            fail();
+        }
+        catch(ConnectionCanceledException e) {
+            // Canceled before children are transferred
+        }
+        finally {
+            worker.release(session, ConcurrentTransferWorker.Connection.source, null);
+        }
+        assertEquals(Collections.singletonList(directory), transferred);
+        worker.cleanup(true);
+    }
+
+    @Test
+    public void testPipelinedDisabledForBulkFeature() throws Exception {
+        final Path directory = new Path("/d", EnumSet.of(Path.Type.directory));
+        final List<Path> transferred = Collections.synchronizedList(new ArrayList<Path>());
+        final AtomicInteger prepared = new AtomicInteger();
+        final Host host = new Host(new TestProtocol(), "test.cyberduck.ch");
+        final Transfer t = new PipelinedDownloadTransfer(host, directory, 20, transferred);
+        final ConcurrentTransferWorker worker = this.pipelined(host, t);
+        final Session<?> session = new NullSession(host) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T _getFeature(final Class<T> type) {
+                if(type == Bulk.class) {
+                    return (T) new Bulk<Void>() {
+                        @Override
+                        public Void pre(final Transfer.Type type, final Map<TransferItem, TransferStatus> files, final ConnectionCallback callback) {
+                            // Requires status of all files before transfer
+                            prepared.set(files.size());
+                            return null;
+                        }
+
+                        @Override
+                        public void post(final Transfer.Type type, final Map<TransferItem, TransferStatus> files, final ConnectionCallback callback) {
+                            //
+                        }
+
+                        @Override
+                        public Bulk<Void> withDelete(final Delete delete) {
+                            return this;
+                        }
+                    };
+                }
+                return super._getFeature(type);
+            }
+        };
+        assertTrue(worker.run(session));
+        assertEquals(21, prepared.get());
+        assertEquals(21, transferred.size());
+        assertTrue(transferred.contains(directory));
+        for(int i = 1; i <= 20; i++) {
+            assertTrue(transferred.contains(new Path(directory, "f" + i, EnumSet.of(Path.Type.file))));
+        }
+        worker.cleanup(true);
+    }
+
+    private ConcurrentTransferWorker pipelined(final Host host, final Transfer t) {
+        final DefaultSessionPool pool = new DefaultSessionPool(new TestLoginConnectionService(), new DisabledX509TrustManager(), new DefaultX509KeyManager(),
+            new DefaultVaultRegistry(new DisabledPasswordCallback()),
+            new DisabledTranscriptListener(), host);
+        pool.withMaxTotal(3);
+        return new ConcurrentTransferWorker(
+            pool, SessionPool.DISCONNECTED, t, new TransferOptions().pipeline(true), new TransferSpeedometer(t), new DisabledTransferPrompt() {
+            @Override
+            public TransferAction prompt(final TransferItem file) {
+                return TransferAction.overwrite;
+            }
+        }, new DisabledTransferErrorCallback(),
+            new DisabledLoginCallback(), new DisabledProgressListener(), new DisabledStreamListener(), new DisabledNotificationService()
+        );
+    }
+
+    /**
+     * Download of directory with files recording order of transfers
+     */
+    private static class PipelinedDownloadTransfer extends DownloadTransfer {
+        private final Path directory;
+        private final int files;
+        private final List<Path> transferred;
+
+        public PipelinedDownloadTransfer(final Host host, final Path directory, final int files, final List<Path> transferred) {
+            super(host, Collections.singletonList(new TransferItem(directory, new NullLocal(directory.getName()))));
+            this.directory = directory;
+            this.files = files;
+            this.transferred = transferred;
+        }
+
+        @Override
+        public List<TransferItem> list(final Session<?> session, final Path directory, final Local local, final ListProgressListener listener) {
+            final List<TransferItem> children = new ArrayList<>();
+            for(int i = 1; i <= files; i++) {
+                children.add(new TransferItem(new Path(directory, "f" + i, EnumSet.of(Path.Type.file)), new NullLocal(local, "f" + i)));
+            }
+            return children;
+        }
+
+        @Override
+        public void transfer(final Session<?> source, final Session<?> destination, final Path file, final Local local,
+                             final TransferOptions options, final TransferStatus overall, final TransferStatus segment,
+                             final ConnectionCallback connectionCallback,
+                             final ProgressListener listener, final StreamListener streamListener) {
+            transferred.add(file);
+        }
+
+        protected TransferStatus status(final Path file) throws BackgroundException {
+            return new TransferStatus();
+        }
+
+        @Override
+        public AbstractDownloadFilter filter(final Session<?> source, final Session<?> destination, final TransferAction action, final ProgressListener listener) {
+            return new AbstractDownloadFilter(new DisabledDownloadSymlinkResolver(), source, null) {
+                @Override
+                public boolean accept(final Path file, final Local local, final TransferStatus parent) {
+                    return true;
+                }
+
+                @Override
+                public TransferStatus prepare(final Path file, final Local local, final TransferStatus parent, final ProgressListener progress) throws BackgroundException {
+                    return PipelinedDownloadTransfer.this.status(file);
+                }
+
+                @Override
+                public void apply(final Path file, final Local local, final TransferStatus status, final ProgressListener listener) {
+                    //
+                }
+
+                @Override
+                public void complete(final Path file, final Local local, final TransferOptions options, final TransferStatus status, final ProgressListener listener) {
+                    //
+                }
+            };
+        }
+    }
 }
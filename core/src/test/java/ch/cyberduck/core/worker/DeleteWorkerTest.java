@@ -3,7 +3,9 @@ package ch.cyberduck.core.worker;
 import ch.cyberduck.core.AbstractPath;
 import ch.cyberduck.core.AttributedList;
 import ch.cyberduck.core.DisabledLoginCallback;
+import ch.cyberduck.core.DisabledPasswordCallback;
 import ch.cyberduck.core.DisabledProgressListener;
+import ch.cyberduck.core.DisabledTranscriptListener;
 import ch.cyberduck.core.Host;
 import ch.cyberduck.core.ListProgressListener;
 import ch.cyberduck.core.NullSession;
@@ -11,9 +13,12 @@ import ch.cyberduck.core.PasswordCallback;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathCache;
 import ch.cyberduck.core.Session;
+import ch.cyberduck.core.TestLoginConnectionService;
 import ch.cyberduck.core.TestProtocol;
 import ch.cyberduck.core.features.Delete;
+import ch.cyberduck.core.pool.StatelessSessionPool;
 import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.vault.DefaultVaultRegistry;
 
 import org.junit.Test;
 
@@ -21,9 +26,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class DeleteWorkerTest {
@@ -109,4 +116,57 @@ public class DeleteWorkerTest {
             PathCache.empty(), new DisabledProgressListener());
         worker.run(session);
     }
+
+    @Test
+    public void testCompileConcurrent() throws Exception {
+        final List<Path> deleted = new ArrayList<>();
+        final Session session = new NullSession(new Host(new TestProtocol())) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T _getFeature(final Class<T> type) {
+                if(type == Delete.class) {
+                    return (T) new Delete() {
+                        @Override
+                        public void delete(final Map<Path, TransferStatus> files, final PasswordCallback prompt, final Callback callback) {
+                            deleted.addAll(files.keySet());
+                        }
+
+                        @Override
+                        public boolean isRecursive() {
+                            return false;
+                        }
+                    };
+                }
+                return super._getFeature(type);
+            }
+
+            @Override
+            public AttributedList<Path> list(final Path file, final ListProgressListener listener) {
+                if(file.equals(new Path("/t", EnumSet.of(Path.Type.directory)))) {
+                    return new AttributedList<Path>(Arrays.asList(
+                        new Path("/t/a", EnumSet.of(Path.Type.file)),
+                        new Path("/t/d", EnumSet.of(Path.Type.directory)),
+                        new Path("/t/s", EnumSet.of(Path.Type.directory, AbstractPath.Type.symboliclink))
+                    ));
+                }
+                if(file.equals(new Path("/t/d", EnumSet.of(Path.Type.directory)))) {
+                    return new AttributedList<Path>(Collections.singletonList(
+                        new Path("/t/d/b", EnumSet.of(Path.Type.file))
+                    ));
+                }
+                fail();
+                return null;
+            }
+        };
+        final DeleteWorker worker = new DeleteWorker(new DisabledLoginCallback(),
+            Collections.singletonList(new Path("/t", EnumSet.of(Path.Type.directory))), PathCache.empty(),
+            new DisabledProgressListener(), new StatelessSessionPool(new TestLoginConnectionService(), session,
+            new DisabledTranscriptListener(), new DefaultVaultRegistry(new DisabledPasswordCallback())));
+        assertEquals(5, worker.run(session).size());
+        assertEquals(5, deleted.size());
+        // Children deleted before parent
+        assertTrue(deleted.indexOf(new Path("/t/d/b", EnumSet.of(Path.Type.file))) < deleted.indexOf(new Path("/t/d", EnumSet.of(Path.Type.directory))));
+        assertTrue(deleted.indexOf(new Path("/t/d", EnumSet.of(Path.Type.directory))) < deleted.indexOf(new Path("/t", EnumSet.of(Path.Type.directory))));
+        assertEquals(new Path("/t", EnumSet.of(Path.Type.directory)), deleted.get(4));
+    }
 }
@@ -17,12 +17,17 @@ package ch.cyberduck.core.worker;
 
 import ch.cyberduck.core.AttributedList;
 import ch.cyberduck.core.DisabledListProgressListener;
+import ch.cyberduck.core.DisabledPasswordCallback;
+import ch.cyberduck.core.DisabledTranscriptListener;
 import ch.cyberduck.core.Host;
 import ch.cyberduck.core.NullFilter;
 import ch.cyberduck.core.NullSession;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathCache;
+import ch.cyberduck.core.TestLoginConnectionService;
 import ch.cyberduck.core.TestProtocol;
+import ch.cyberduck.core.pool.StatelessSessionPool;
+import ch.cyberduck.core.vault.DefaultVaultRegistry;
 import ch.cyberduck.ui.browser.SearchFilter;
 
 import org.junit.Test;
@@ -102,4 +107,43 @@ public class SearchWorkerTest {
         assertTrue(cache.get(new Path("/folder", EnumSet.of(Path.Type.directory))).contains(
             new Path(new Path("/folder", EnumSet.of(Path.Type.directory)), "/t2.gif", EnumSet.of(Path.Type.file))));
     }
+
+    @Test
+    public void testRunConcurrent() throws Exception {
+        final PathCache cache = new PathCache(Integer.MAX_VALUE);
+        final AttributedList<Path> root = new AttributedList<>();
+        root.add(new Path("/t1.png", EnumSet.of(Path.Type.file)));
+        root.add(new Path("/t1.gif", EnumSet.of(Path.Type.file)));
+        final Path folder = new Path("/folder", EnumSet.of(Path.Type.directory));
+        root.add(folder);
+        root.add(new Path("/folder2", EnumSet.of(Path.Type.directory)));
+        cache.put(new Path("/", EnumSet.of(Path.Type.directory)), root);
+        final AttributedList<Path> folderContents = new AttributedList<>();
+        folderContents.add(new Path(folder, "/t2.png", EnumSet.of(Path.Type.file)));
+        final Path subfolder = new Path(folder, "/subfolder", EnumSet.of(Path.Type.directory));
+        folderContents.add(subfolder);
+        cache.put(folder, folderContents);
+        final AttributedList<Path> subfolderContents = new AttributedList<>();
+        subfolderContents.add(new Path(subfolder, "t3.png", EnumSet.of(Path.Type.file)));
+        cache.put(subfolder, subfolderContents);
+        cache.put(new Path("/folder2", EnumSet.of(Path.Type.directory)), new AttributedList<>());
+        final NullSession session = new NullSession(new Host(new TestProtocol()));
+        final StatelessSessionPool pool = new StatelessSessionPool(new TestLoginConnectionService(), session,
+            new DisabledTranscriptListener(), new DefaultVaultRegistry(new DisabledPasswordCallback()));
+        final AttributedList<Path> found = new SearchWorker(new Path("/", EnumSet.of(Path.Type.directory)),
+            new SearchFilter(".png"), cache, new DisabledListProgressListener(), pool, 2).run(session);
+        assertTrue(found.contains(new Path("/t1.png", EnumSet.of(Path.Type.file))));
+        assertFalse(found.contains(new Path("/t1.gif", EnumSet.of(Path.Type.file))));
+        assertTrue(found.contains(folder));
+        assertTrue(found.contains(new Path(folder, "/t2.png", EnumSet.of(Path.Type.file))));
+        assertTrue(found.contains(subfolder));
+        assertTrue(found.contains(new Path(subfolder, "t3.png", EnumSet.of(Path.Type.file))));
+        assertFalse(found.contains(new Path("/folder2", EnumSet.of(Path.Type.directory))));
+        // Limit depth
+        final AttributedList<Path> limited = new SearchWorker(new Path("/", EnumSet.of(Path.Type.directory)),
+            new SearchFilter(".png"), cache, new DisabledListProgressListener(), pool, 2, 1).run(session);
+        assertTrue(limited.contains(new Path(folder, "/t2.png", EnumSet.of(Path.Type.file))));
+        assertFalse(limited.contains(subfolder));
+        assertFalse(limited.contains(new Path(subfolder, "t3.png", EnumSet.of(Path.Type.file))));
+    }
 }
@@ -34,8 +34,11 @@ import ch.cyberduck.core.transfer.download.AbstractDownloadFilter;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
@@ -293,4 +296,58 @@ public class SingleTransferWorkerTest {
             throw e;
         }
     }
+
+    @Test
+    public void testUploadPipelined() throws Exception {
+        final Path child = new Path("/t/c", EnumSet.of(Path.Type.file));
+        final Path root = new Path("/t", EnumSet.of(Path.Type.directory));
+        final NullLocal local = new NullLocal("l") {
+            @Override
+            public AttributedList<Local> list() {
+                AttributedList<Local> l = new AttributedList<Local>();
+                l.add(new NullLocal(this.getAbsolute(), "c") {
+                    @Override
+                    public boolean exists() {
+                        return true;
+                    }
+                });
+                return l;
+            }
+
+            @Override
+            public boolean exists() {
+                return true;
+            }
+        };
+        final List<Path> transferred = new ArrayList<>();
+        final Transfer t = new UploadTransfer(new Host(new TestProtocol()), root, local) {
+            @Override
+            public void transfer(final Session<?> source, final Session<?> destination, final Path file, Local local,
+                                 final TransferOptions options, final TransferStatus overall, final TransferStatus segment,
+                                 final ConnectionCallback connectionCallback,
+                                 final ProgressListener listener, final StreamListener streamListener) {
+                transferred.add(file);
+            }
+        };
+        final NullSession session = new NullSession(new Host(new TestProtocol()));
+        final SingleTransferWorker worker = new SingleTransferWorker(session, session, t, new TransferOptions().pipeline(true), new TransferSpeedometer(t), new DisabledTransferPrompt() {
+            @Override
+            public TransferAction prompt(final TransferItem file) {
+                return TransferAction.overwrite;
+            }
+        }, new DisabledTransferErrorCallback(),
+            new DisabledProgressListener(), new DisabledStreamListener(), new DisabledLoginCallback(), new DisabledNotificationService()) {
+            @Override
+            public Future<TransferStatus> prepare(final Path file, final Local l, final TransferStatus parent, final TransferAction action) throws BackgroundException {
+                if(file.equals(child)) {
+                    // Parent directory must be transferred before child is prepared
+                    assertEquals(Collections.singletonList(root), transferred);
+                }
+                return super.prepare(file, l, parent, action);
+            }
+        };
+        worker.run(session);
+        assertEquals(Arrays.asList(root, child), transferred);
+        assertTrue(worker.getCache().isEmpty());
+    }
 }
@@ -15,6 +15,9 @@ package ch.cyberduck.core.cryptomator;
  * GNU General Public License for more details.
  */
 
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.ProxyInputStream;
 import org.cryptomator.cryptolib.api.CryptoException;
@@ -23,7 +26,12 @@ import org.cryptomator.cryptolib.api.FileHeader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class CryptoInputStream extends ProxyInputStream {
 
@@ -32,6 +40,10 @@ public class CryptoInputStream extends ProxyInputStream {
     private final FileHeader header;
 
     private ByteBuffer buffer = ByteBuffer.allocate(0);
+    /**
+     * Ciphertext of current chunk reused for every chunk read
+     */
+    private final ByteBuffer ciphertext;
 
     /**
      * Position proxy content cryptor
@@ -39,21 +51,49 @@ public class CryptoInputStream extends ProxyInputStream {
     private long chunkIndexOffset;
     private final int chunkSize;
 
+    /**
+     * Number of chunks to read ahead and decrypt in parallel
+     */
+    private final int concurrency;
+    private final ThreadPool pool;
+    /**
+     * Chunks submitted for decryption in order of chunk index
+     */
+    private final Deque<Chunk> pending = new ArrayDeque<>();
+    /**
+     * Ciphertext buffers available for reuse
+     */
+    private final Deque<ByteBuffer> free = new ArrayDeque<>();
+    private boolean eof;
+
     public CryptoInputStream(final InputStream proxy, final FileContentCryptor cryptor, final FileHeader header, final long chunkIndexOffset) {
+        this(proxy, cryptor, header, chunkIndexOffset, 1);
+    }
+
+    /**
+     * @param concurrency Number of chunks to decrypt in parallel
+     */
+    public CryptoInputStream(final InputStream proxy, final FileContentCryptor cryptor, final FileHeader header, final long chunkIndexOffset,
+                             final int concurrency) {
         super(proxy);
         this.proxy = proxy;
         this.cryptor = cryptor;
         this.header = header;
         this.chunkSize = cryptor.ciphertextChunkSize();
+        this.ciphertext = ByteBuffer.allocate(chunkSize);
         this.chunkIndexOffset = chunkIndexOffset;
+        this.concurrency = concurrency;
+        this.pool = concurrency > 1 ? ThreadPoolFactory.get("cryptomator", concurrency) : null;
     }
 
     @Override
     public int read() throws IOException {
         if(!buffer.hasRemaining()) {
-            this.readNextChunk();
+            if(this.readNextChunk() == IOUtils.EOF) {
+                return IOUtils.EOF;
+            }
         }
-        return buffer.get();
+        return buffer.get() & 0xff;
     }
 
     @Override
@@ -80,19 +120,85 @@ public class CryptoInputStream extends ProxyInputStream {
     }
 
     private int readNextChunk() throws IOException {
-        final ByteBuffer ciphertextBuf = ByteBuffer.allocate(chunkSize);
-        final int read = IOUtils.read(proxy, ciphertextBuf.array());
+        if(concurrency > 1) {
+            return this.readNextChunkConcurrent();
+        }
+        ciphertext.clear();
+        final int read = IOUtils.read(proxy, ciphertext.array(), 0, chunkSize);
         if(read == 0) {
             return IOUtils.EOF;
         }
-        ciphertextBuf.position(read);
-        ciphertextBuf.flip();
+        ciphertext.limit(read);
         try {
-            buffer = cryptor.decryptChunk(ciphertextBuf, chunkIndexOffset++, header, true);
+            buffer = cryptor.decryptChunk(ciphertext, chunkIndexOffset++, header, true);
         }
         catch(CryptoException e) {
             throw new IOException(e.getMessage(), new CryptoAuthenticationException(e.getMessage(), e));
         }
         return read;
     }
+
+    /**
+     * Read ahead ciphertext chunks and submit for decryption in parallel
+     *
+     * @return Length of ciphertext for next decrypted chunk in order or EOF
+     */
+    private int readNextChunkConcurrent() throws IOException {
+        while(!eof && pending.size() < concurrency) {
+            final ByteBuffer chunk = free.isEmpty() ? ByteBuffer.allocate(chunkSize) : free.poll();
+            chunk.clear();
+            final int read = IOUtils.read(proxy, chunk.array(), 0, chunkSize);
+            if(read < chunkSize) {
+                eof = true;
+            }
+            if(read == 0) {
+                free.add(chunk);
+                break;
+            }
+            chunk.limit(read);
+            final long index = chunkIndexOffset++;
+            pending.add(new Chunk(chunk, pool.execute(() -> cryptor.decryptChunk(chunk, index, header, true))));
+        }
+        final Chunk next = pending.poll();
+        if(null == next) {
+            return IOUtils.EOF;
+        }
+        try {
+            buffer = next.future.get();
+            final int read = next.ciphertext.limit();
+            free.add(next.ciphertext);
+            return read;
+        }
+        catch(InterruptedException e) {
+            throw new InterruptedIOException(e.getMessage());
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof CryptoException) {
+                throw new IOException(e.getCause().getMessage(), new CryptoAuthenticationException(e.getCause().getMessage(), e.getCause()));
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }
+        finally {
+            if(pool != null) {
+                pool.shutdown(false);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private final ByteBuffer ciphertext;
+        private final Future<ByteBuffer> future;
+
+        public Chunk(final ByteBuffer ciphertext, final Future<ByteBuffer> future) {
+            this.ciphertext = ciphertext;
+            this.future = future;
+        }
+    }
 }
@@ -16,19 +16,25 @@ package ch.cyberduck.core.cryptomator;
  */
 
 import ch.cyberduck.core.exception.BackgroundException;
-import ch.cyberduck.core.io.MemorySegementingOutputStream;
 import ch.cyberduck.core.io.StatusOutputStream;
 import ch.cyberduck.core.random.NonceGenerator;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
 
 import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.log4j.Logger;
 import org.cryptomator.cryptolib.api.CryptoException;
 import org.cryptomator.cryptolib.api.FileContentCryptor;
 import org.cryptomator.cryptolib.api.FileHeader;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class CryptoOutputStream<Reply> extends StatusOutputStream<Reply> {
 
@@ -36,8 +42,17 @@ public class CryptoOutputStream<Reply> extends StatusOutputStream<Reply> {
 
     public CryptoOutputStream(final StatusOutputStream<Reply> proxy, final FileContentCryptor cryptor, final FileHeader header,
                               final NonceGenerator nonces, final long chunkIndexOffset) {
-        super(new MemorySegementingOutputStream(new EncryptingOutputStream(proxy, cryptor, header, nonces, chunkIndexOffset),
-            cryptor.cleartextChunkSize()));
+        this(proxy, cryptor, header, nonces, chunkIndexOffset, 1);
+    }
+
+    /**
+     * @param concurrency Number of chunks to encrypt in parallel
+     */
+    public CryptoOutputStream(final StatusOutputStream<Reply> proxy, final FileContentCryptor cryptor, final FileHeader header,
+                              final NonceGenerator nonces, final long chunkIndexOffset, final int concurrency) {
+        super(concurrency > 1 ?
+            new ConcurrentEncryptingOutputStream(proxy, cryptor, header, nonces, chunkIndexOffset, concurrency) :
+            new EncryptingOutputStream(proxy, cryptor, header, nonces, chunkIndexOffset));
         this.proxy = proxy;
     }
 
@@ -56,19 +71,28 @@ public class CryptoOutputStream<Reply> extends StatusOutputStream<Reply> {
         write(b, 0, b.length);
     }
 
+    /**
+     * Collects cleartext in a buffer reused for every chunk and writes encrypted chunks to the proxy
+     */
     private static final class EncryptingOutputStream extends ProxyOutputStream {
+        private static final Logger log = Logger.getLogger(EncryptingOutputStream.class);
+
         private final FileContentCryptor cryptor;
         private final FileHeader header;
-        private final int chunksize;
         private final NonceGenerator nonces;
+        /**
+         * Cleartext of current chunk
+         */
+        private final ByteBuffer buffer;
         private long chunkIndexOffset;
+        private boolean closed;
 
         public EncryptingOutputStream(final OutputStream proxy, final FileContentCryptor cryptor, final FileHeader header,
                                       final NonceGenerator nonces, final long chunkIndexOffset) {
             super(proxy);
             this.cryptor = cryptor;
             this.header = header;
-            this.chunksize = cryptor.cleartextChunkSize();
+            this.buffer = ByteBuffer.allocate(cryptor.cleartextChunkSize());
             this.nonces = nonces;
             this.chunkIndexOffset = chunkIndexOffset;
         }
@@ -80,18 +104,182 @@ public class CryptoOutputStream<Reply> extends StatusOutputStream<Reply> {
 
         @Override
         public void write(final byte[] b, final int off, final int len) throws IOException {
-            try {
-                for(int chunkOffset = off; chunkOffset < len; chunkOffset += chunksize) {
-                    int chunkLen = Math.min(chunksize, len - chunkOffset);
-                    final ByteBuffer encryptedChunk = cryptor.encryptChunk(
-                        ByteBuffer.wrap(Arrays.copyOfRange(b, chunkOffset, chunkOffset + chunkLen)),
-                        chunkIndexOffset++, header, nonces.next());
-                    super.write(encryptedChunk.array());
+            int offset = off;
+            int remaining = len;
+            while(remaining > 0) {
+                final int n = Math.min(buffer.remaining(), remaining);
+                buffer.put(b, offset, n);
+                offset += n;
+                remaining -= n;
+                if(!buffer.hasRemaining()) {
+                    this.encrypt();
                 }
             }
+        }
+
+        /**
+         * Encrypt cleartext in buffer as next chunk
+         */
+        private void encrypt() throws IOException {
+            buffer.flip();
+            try {
+                final ByteBuffer encryptedChunk = cryptor.encryptChunk(buffer, chunkIndexOffset++, header, nonces.next());
+                super.write(encryptedChunk.array());
+            }
             catch(CryptoException e) {
                 throw new IOException(e.getMessage(), new CryptoAuthenticationException(e.getMessage(), e));
             }
+            finally {
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(closed) {
+                log.warn(String.format("Skip double close of stream %s", this));
+                return;
+            }
+            try {
+                if(buffer.position() > 0) {
+                    // Last chunk
+                    this.encrypt();
+                }
+                super.close();
+            }
+            finally {
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * Encrypts up to the given number of chunks in parallel and writes encrypted chunks to the proxy in order
+     */
+    private static final class ConcurrentEncryptingOutputStream extends ProxyOutputStream {
+        private static final Logger log = Logger.getLogger(ConcurrentEncryptingOutputStream.class);
+
+        private final FileContentCryptor cryptor;
+        private final FileHeader header;
+        private final NonceGenerator nonces;
+        private final int concurrency;
+        private final ThreadPool pool;
+        /**
+         * Chunks submitted for encryption in order of chunk index
+         */
+        private final Deque<Chunk> pending = new ArrayDeque<>();
+        /**
+         * Cleartext buffers available for reuse
+         */
+        private final Deque<ByteBuffer> free = new ArrayDeque<>();
+        /**
+         * Cleartext of current chunk
+         */
+        private ByteBuffer buffer;
+        private long chunkIndexOffset;
+        private boolean closed;
+
+        public ConcurrentEncryptingOutputStream(final OutputStream proxy, final FileContentCryptor cryptor, final FileHeader header,
+                                                final NonceGenerator nonces, final long chunkIndexOffset, final int concurrency) {
+            super(proxy);
+            this.cryptor = cryptor;
+            this.header = header;
+            this.nonces = nonces;
+            this.chunkIndexOffset = chunkIndexOffset;
+            this.concurrency = concurrency;
+            this.pool = ThreadPoolFactory.get("cryptomator", concurrency);
+        }
+
+        @Override
+        public void write(final byte[] b) throws IOException {
+            this.write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int offset = off;
+            int remaining = len;
+            while(remaining > 0) {
+                if(null == buffer) {
+                    buffer = free.isEmpty() ? ByteBuffer.allocate(cryptor.cleartextChunkSize()) : free.poll();
+                }
+                final int n = Math.min(buffer.remaining(), remaining);
+                buffer.put(b, offset, n);
+                offset += n;
+                remaining -= n;
+                if(!buffer.hasRemaining()) {
+                    this.submit();
+                }
+            }
+        }
+
+        /**
+         * Submit cleartext in buffer for encryption as next chunk
+         */
+        private void submit() throws IOException {
+            final ByteBuffer cleartext = buffer;
+            cleartext.flip();
+            buffer = null;
+            // Chunk index and nonce must be assigned in order
+            final long index = chunkIndexOffset++;
+            final byte[] nonce = nonces.next();
+            pending.add(new Chunk(cleartext, pool.execute(() -> cryptor.encryptChunk(cleartext, index, header, nonce))));
+            if(pending.size() >= concurrency) {
+                this.flush(pending.poll());
+            }
+        }
+
+        /**
+         * Wait for encryption of chunk to complete and write to proxy
+         */
+        private void flush(final Chunk chunk) throws IOException {
+            try {
+                final ByteBuffer encryptedChunk = chunk.future.get();
+                chunk.cleartext.clear();
+                free.add(chunk.cleartext);
+                super.write(encryptedChunk.array());
+            }
+            catch(InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            }
+            catch(ExecutionException e) {
+                if(e.getCause() instanceof CryptoException) {
+                    throw new IOException(e.getCause().getMessage(), new CryptoAuthenticationException(e.getCause().getMessage(), e.getCause()));
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(closed) {
+                log.warn(String.format("Skip double close of stream %s", this));
+                return;
+            }
+            try {
+                if(buffer != null && buffer.position() > 0) {
+                    // Last chunk
+                    this.submit();
+                }
+                while(!pending.isEmpty()) {
+                    this.flush(pending.poll());
+                }
+                super.close();
+            }
+            finally {
+                closed = true;
+                pool.shutdown(false);
+            }
+        }
+
+        private static final class Chunk {
+            private final ByteBuffer cleartext;
+            private final Future<ByteBuffer> future;
+
+            public Chunk(final ByteBuffer cleartext, final Future<ByteBuffer> future) {
+                this.cleartext = cleartext;
+                this.future = future;
+            }
         }
     }
 }
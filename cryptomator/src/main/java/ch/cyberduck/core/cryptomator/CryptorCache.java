@@ -25,6 +25,9 @@ import java.util.Objects;
 
 import com.google.common.io.BaseEncoding;
 
+/**
+ * Caches results of filename cryptor. Safe for concurrent use given the filename cryptor is thread safe.
+ */
 public class CryptorCache {
 
     public static final BaseEncoding BASE32 = BaseEncoding.base32();
@@ -40,16 +43,21 @@ public class CryptorCache {
     }
 
     public String hashDirectoryId(final String cleartextDirectoryId) {
-        if(!directoryIdCache.contains(cleartextDirectoryId)) {
-            directoryIdCache.put(cleartextDirectoryId, impl.hashDirectoryId(cleartextDirectoryId));
+        // Lookup once as entry may be evicted concurrently
+        final String cached = directoryIdCache.get(cleartextDirectoryId);
+        if(cached != null) {
+            return cached;
         }
-        return directoryIdCache.get(cleartextDirectoryId);
+        final String hashed = impl.hashDirectoryId(cleartextDirectoryId);
+        directoryIdCache.put(cleartextDirectoryId, hashed);
+        return hashed;
     }
 
     public String encryptFilename(final BaseEncoding encoding, final String cleartextName, final byte[] associatedData) {
         final CacheKey key = new CacheKey(encoding, cleartextName, associatedData);
-        if(encryptCache.contains(key)) {
-            return encryptCache.get(key);
+        final String cached = encryptCache.get(key);
+        if(cached != null) {
+            return cached;
         }
         final String ciphertextName = impl.encryptFilename(encoding, cleartextName, associatedData);
         encryptCache.put(key, ciphertextName);
@@ -59,8 +67,9 @@ public class CryptorCache {
 
     public String decryptFilename(final BaseEncoding encoding, final String ciphertextName, final byte[] associatedData) throws AuthenticationFailedException {
         final CacheKey key = new CacheKey(encoding, ciphertextName, associatedData);
-        if(decryptCache.contains(key)) {
-            return decryptCache.get(key);
+        final String cached = decryptCache.get(key);
+        if(cached != null) {
+            return cached;
         }
         final String cleartextName = impl.decryptFilename(encoding, ciphertextName, associatedData);
         decryptCache.put(key, cleartextName);
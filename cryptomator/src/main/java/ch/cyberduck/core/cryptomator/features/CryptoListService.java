@@ -22,6 +22,7 @@ import ch.cyberduck.core.Path;
 import ch.cyberduck.core.Session;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.Vault;
+import ch.cyberduck.core.preferences.PreferencesFactory;
 import ch.cyberduck.core.vault.DecryptingListProgressListener;
 
 public class CryptoListService implements ListService {
@@ -38,7 +39,14 @@ public class CryptoListService implements ListService {
 
     @Override
     public AttributedList<Path> list(final Path directory, final ListProgressListener listener) throws BackgroundException {
-        return delegate.list(vault.encrypt(session, directory), new DecryptingListProgressListener(session, vault, listener));
+        final DecryptingListProgressListener decrypting = new DecryptingListProgressListener(session, vault, listener,
+            PreferencesFactory.get().getInteger("cryptomator.vault.list.concurrency"));
+        try {
+            return delegate.list(vault.encrypt(session, directory), decrypting);
+        }
+        finally {
+            decrypting.shutdown();
+        }
     }
 
     @Override
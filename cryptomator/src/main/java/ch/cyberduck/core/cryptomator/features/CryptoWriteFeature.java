@@ -25,6 +25,7 @@ import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.features.Write;
 import ch.cyberduck.core.io.ChecksumCompute;
 import ch.cyberduck.core.io.StatusOutputStream;
+import ch.cyberduck.core.preferences.PreferencesFactory;
 import ch.cyberduck.core.transfer.TransferStatus;
 
 import java.io.IOException;
@@ -62,7 +63,8 @@ public class CryptoWriteFeature<Reply> implements Write<Reply> {
                         withMime(null), callback);
             }
             return new CryptoOutputStream<>(out, vault.getFileContentCryptor(), vault.getFileHeaderCryptor().decryptHeader(status.getHeader()),
-                status.getNonces(), vault.numberOfChunks(status.getOffset()));
+                status.getNonces(), vault.numberOfChunks(status.getOffset()),
+                PreferencesFactory.get().getInteger("cryptomator.vault.content.concurrency"));
         }
         catch(IOException e) {
             throw new DefaultIOExceptionMappingService().map(e);
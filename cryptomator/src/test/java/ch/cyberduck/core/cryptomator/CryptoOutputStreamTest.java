@@ -144,4 +144,70 @@ public class CryptoOutputStreamTest {
 
         assertArrayEquals(cleartext, read);
     }
+
+    @Test
+    public void testWriteWithOffsetAcrossChunks() throws Exception {
+        final CryptoVault vault = this.getVault();
+        final ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        final FileHeader header = vault.getFileHeaderCryptor().create();
+        final CryptoOutputStream<?> stream = new CryptoOutputStream<>(new StatusOutputStream<Void>(cipherText) {
+            @Override
+            public Void getStatus() {
+                return null;
+            }
+        }, vault.getFileContentCryptor(), header, new RandomNonceGenerator(), 0);
+
+        final int chunksize = vault.getFileContentCryptor().cleartextChunkSize();
+        final byte[] cleartext = RandomUtils.nextBytes(chunksize * 2 + 100);
+        stream.write(cleartext, 0, 100);
+        stream.write(cleartext, 100, chunksize);
+        stream.write(cleartext, 100 + chunksize, chunksize);
+        stream.close();
+        // Header is not written by stream
+        assertEquals(vault.getFileContentCryptor().ciphertextChunkSize() * 2
+            + vault.getFileContentCryptor().ciphertextChunkSize() - chunksize + 100, cipherText.size());
+
+        final CryptoInputStream cryptoInputStream = new CryptoInputStream(new ByteArrayInputStream(cipherText.toByteArray()), vault.getFileContentCryptor(), header, 0);
+        assertEquals(cleartext[0] & 0xff, cryptoInputStream.read());
+        final byte[] read = new byte[cleartext.length - 1];
+        IOUtils.readFully(cryptoInputStream, read);
+        assertEquals(-1, cryptoInputStream.read());
+        cryptoInputStream.close();
+
+        assertArrayEquals(cleartext, ByteBuffer.allocate(cleartext.length).put(cleartext[0]).put(read).array());
+    }
+
+    @Test
+    public void testWriteConcurrent() throws Exception {
+        final CryptoVault vault = this.getVault();
+        final ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        final FileHeader header = vault.getFileHeaderCryptor().create();
+        final CryptoOutputStream<?> stream = new CryptoOutputStream<>(new StatusOutputStream<Void>(cipherText) {
+            @Override
+            public Void getStatus() {
+                return null;
+            }
+        }, vault.getFileContentCryptor(), header, new RandomNonceGenerator(), 0, 3);
+
+        final int chunksize = vault.getFileContentCryptor().cleartextChunkSize();
+        final byte[] cleartext = RandomUtils.nextBytes(chunksize * 10 + 7);
+        stream.write(cleartext, 0, cleartext.length);
+        stream.close();
+        assertEquals(vault.getFileContentCryptor().ciphertextChunkSize() * 11 - chunksize + 7, cipherText.size());
+
+        // Chunks written in order are readable with sequential decryption
+        final byte[] sequential = new byte[cleartext.length];
+        final CryptoInputStream sequentialInputStream = new CryptoInputStream(new ByteArrayInputStream(cipherText.toByteArray()), vault.getFileContentCryptor(), header, 0);
+        IOUtils.readFully(sequentialInputStream, sequential);
+        assertEquals(-1, sequentialInputStream.read());
+        sequentialInputStream.close();
+        assertArrayEquals(cleartext, sequential);
+
+        final byte[] concurrent = new byte[cleartext.length];
+        final CryptoInputStream concurrentInputStream = new CryptoInputStream(new ByteArrayInputStream(cipherText.toByteArray()), vault.getFileContentCryptor(), header, 0, 3);
+        IOUtils.readFully(concurrentInputStream, concurrent);
+        assertEquals(-1, concurrentInputStream.read());
+        concurrentInputStream.close();
+        assertArrayEquals(cleartext, concurrent);
+    }
 }
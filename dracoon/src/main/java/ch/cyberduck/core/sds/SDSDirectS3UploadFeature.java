@@ -16,6 +16,7 @@ package ch.cyberduck.core.sds;
  */
 
 import ch.cyberduck.core.AlphanumericRandomStringService;
+import ch.cyberduck.core.BytecountStreamListener;
 import ch.cyberduck.core.ConnectionCallback;
 import ch.cyberduck.core.DefaultIOExceptionMappingService;
 import ch.cyberduck.core.DisabledListProgressListener;
@@ -29,6 +30,7 @@ import ch.cyberduck.core.http.HttpUploadFeature;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.io.Buffer;
 import ch.cyberduck.core.io.BufferOutputStream;
+import ch.cyberduck.core.io.ByteArrayPool;
 import ch.cyberduck.core.io.FileBuffer;
 import ch.cyberduck.core.io.StatusOutputStream;
 import ch.cyberduck.core.io.StreamCopier;
@@ -49,24 +51,28 @@ import ch.cyberduck.core.sds.triplecrypt.TripleCryptConverter;
 import ch.cyberduck.core.sds.triplecrypt.TripleCryptExceptionMappingService;
 import ch.cyberduck.core.sds.triplecrypt.TripleCryptOutputStream;
 import ch.cyberduck.core.threading.BackgroundExceptionCallable;
-import ch.cyberduck.core.threading.DefaultRetryCallable;
 import ch.cyberduck.core.threading.ScheduledThreadPool;
-import ch.cyberduck.core.threading.ThreadPool;
-import ch.cyberduck.core.threading.ThreadPoolFactory;
+import ch.cyberduck.core.transfer.SegmentRetryCallable;
 import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.transfer.multipart.PartUploadEngine;
+import ch.cyberduck.core.transfer.multipart.PartUploadExecutorFactory;
+import ch.cyberduck.core.transfer.multipart.PartUploadService;
+import ch.cyberduck.core.worker.DefaultExceptionMappingService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -75,6 +81,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.dracoon.sdk.crypto.Crypto;
+import com.dracoon.sdk.crypto.FileEncryptionCipher;
 import com.dracoon.sdk.crypto.error.CryptoSystemException;
 import com.dracoon.sdk.crypto.error.InvalidFileKeyException;
 import com.dracoon.sdk.crypto.error.InvalidKeyPairException;
@@ -113,65 +120,117 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
     @Override
     public Void upload(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
                        final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
-        final ThreadPool pool = ThreadPoolFactory.get("multipart", concurrency);
-        try {
-            final CreateFileUploadRequest createFileUploadRequest = new CreateFileUploadRequest()
-                .directS3Upload(true)
-                .timestampModification(status.getTimestamp() == null ? null : new DateTime(status.getTimestamp()))
-                .size(-1 == status.getLength() ? null : status.getLength())
-                .parentId(Long.parseLong(nodeid.getVersionId(file.getParent(), new DisabledListProgressListener())))
-                .name(file.getName());
-            final CreateFileUploadResponse createFileUploadResponse = new NodesApi(session.getClient())
-                .createFileUploadChannel(createFileUploadRequest, StringUtils.EMPTY);
+        // Full size of file
+        final long size = status.getLength() + status.getOffset();
+        if(nodeid.isEncrypted(file)) {
             if(log.isDebugEnabled()) {
-                log.debug(String.format("upload started for %s with response %s", file, createFileUploadResponse));
+                log.debug(String.format("Pre-compute file key tag for upload to S3 for %s", file));
             }
-            final Map<Integer, TransferStatus> etags = new HashMap<>();
-            final List<PresignedUrl> presignedUrls = this.retrievePresignedUrls(createFileUploadResponse, status);
-            final List<Future<TransferStatus>> parts = new ArrayList<>();
-            final Local source;
-            final Buffer buffer;
-            if(nodeid.isEncrypted(file)) {
-                source = TemporaryFileServiceFactory.get().create(new AlphanumericRandomStringService().random());
-                buffer = new FileBuffer(source);
-                final BufferOutputStream temporary = new BufferOutputStream(buffer);
-                if(log.isDebugEnabled()) {
-                    log.debug(String.format("Pre-compute file key tag for upload to S3 for %s", file));
-                }
+            final FileEncryptionCipher cipher;
+            try {
+                final ObjectReader reader = session.getClient().getJSON().getContext(null).readerFor(FileKey.class);
+                final FileKey fileKey = reader.readValue(status.getFilekey().array());
+                cipher = Crypto.createFileEncryptionCipher(TripleCryptConverter.toCryptoPlainFileKey(fileKey));
+            }
+            catch(CryptoSystemException | UnknownVersionException e) {
+                throw new TripleCryptExceptionMappingService().map("Upload {0} failed", e, file);
+            }
+            catch(IOException e) {
+                throw new DefaultIOExceptionMappingService().map(e);
+            }
+            if(PreferencesFactory.get().getBoolean("sds.upload.s3.encryption.pipeline")
+                && Math.max((size / (MAXIMUM_UPLOAD_PARTS - 1)), partsize) <= Integer.MAX_VALUE) {
+                // Encrypt into part sized buffers uploaded while next part is encrypted
+                return this.pipeline(file, local, cipher, throttle, listener, status, callback);
+            }
+            final Local source = TemporaryFileServiceFactory.get().create(new AlphanumericRandomStringService().random());
+            final Buffer buffer = new FileBuffer(source);
+            try {
+                final OutputStream out = new TripleCryptOutputStream<>(session, new StatusOutputStream<TransferStatus>(new BufferOutputStream(buffer)) {
+                    @Override
+                    public TransferStatus getStatus() {
+                        return status;
+                    }
+                }, cipher, status);
                 // Pre-compute file key tag for upload to S3 with multiple parts
-                final InputStream in = local.getInputStream();
-                final OutputStream out;
-                try {
-                    final ObjectReader reader = session.getClient().getJSON().getContext(null).readerFor(FileKey.class);
-                    final FileKey fileKey = reader.readValue(status.getFilekey().array());
-                    out = new TripleCryptOutputStream<>(session, new StatusOutputStream<TransferStatus>(temporary) {
-                        @Override
-                        public TransferStatus getStatus() {
-                            return status;
-                        }
-                    }, Crypto.createFileEncryptionCipher(TripleCryptConverter.toCryptoPlainFileKey(fileKey)), status);
-                }
-                catch(CryptoSystemException e) {
-                    throw new TripleCryptExceptionMappingService().map("Upload {0} failed", e, file);
-                }
-                new StreamCopier(status, new TransferStatus()).transfer(in, out);
+                new StreamCopier(status, new TransferStatus()).transfer(local.getInputStream(), out);
+                return this.multipart(file, source, throttle, listener, status, callback);
             }
-            else {
-                source = local;
-                buffer = Buffer.NULL;
+            finally {
+                // Delete temporary file
+                buffer.close();
             }
-            // Full size of file
-            final long size = status.getLength() + status.getOffset();
-            long offset = 0;
-            long remaining = status.getLength();
-            for(int partNumber = 1; remaining > 0; partNumber++) {
-                final long length = Math.min(Math.max((size / (MAXIMUM_UPLOAD_PARTS - 1)), partsize), remaining);
-                final PresignedUrl presignedUrl = presignedUrls.get(partNumber - 1);
-                parts.add(this.submit(pool, file, source, throttle, listener, status,
-                    presignedUrl.getUrl(), presignedUrl.getPartNumber(), offset, length, callback));
-                remaining -= length;
-                offset += length;
+        }
+        return this.multipart(file, local, throttle, listener, status, callback);
+    }
+
+    /**
+     * Upload parts read from file
+     */
+    private Void multipart(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
+                           final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
+        return new PartUploadEngine(session.getHost(), concurrency).upload(new PartUploadService<DirectS3Upload, TransferStatus, Void>() {
+            @Override
+            public DirectS3Upload start(final Path file, final TransferStatus status) throws BackgroundException {
+                return SDSDirectS3UploadFeature.this.start(file, status);
             }
+
+            @Override
+            public Map<Integer, TransferStatus> list(final Path file, final DirectS3Upload upload, final TransferStatus status) {
+                // Resuming upload is not supported
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public TransferStatus upload(final Path file, final Local local, final DirectS3Upload upload, final BandwidthThrottle throttle,
+                                         final StreamListener counter, final TransferStatus status, final TransferStatus overall,
+                                         final ConnectionCallback callback) throws BackgroundException {
+                final PresignedUrl presignedUrl = upload.presignedUrls.get(status.getPart() - 1);
+                status.setUrl(presignedUrl.getUrl());
+                status.setFilekey(overall.getFilekey());
+                SDSDirectS3UploadFeature.super.upload(
+                    file, local, throttle, counter, status, overall, status, callback);
+                return status;
+            }
+
+            @Override
+            public Void complete(final Path file, final DirectS3Upload upload, final SortedMap<Integer, TransferStatus> parts,
+                                 final TransferStatus status) throws BackgroundException {
+                SDSDirectS3UploadFeature.this.complete(file, upload, parts, status);
+                return null;
+            }
+
+            @Override
+            public long getLength(final TransferStatus part) {
+                return part.getLength();
+            }
+
+            @Override
+            public long getPartSize(final long size) {
+                return Math.max((size / (MAXIMUM_UPLOAD_PARTS - 1)), partsize);
+            }
+        }, file, local, throttle, listener, status, callback);
+    }
+
+    /**
+     * Upload parts from buffers filled while encrypting file
+     */
+    private Void pipeline(final Path file, final Local local, final FileEncryptionCipher cipher,
+                          final BandwidthThrottle throttle, final StreamListener listener,
+                          final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
+        final DirectS3Upload upload = this.start(file, status);
+        final List<Future<TransferStatus>> parts = new ArrayList<>();
+        final SortedMap<Integer, TransferStatus> etags = new TreeMap<>();
+        try {
+            final OutputStream out = new TripleCryptOutputStream<>(session, new StatusOutputStream<TransferStatus>(
+                new PartOutputStream(new ByteArrayPool(concurrency), file, throttle, listener, status, upload.presignedUrls, parts, callback)) {
+                @Override
+                public TransferStatus getStatus() {
+                    return status;
+                }
+            }, cipher, status);
+            // Pre-compute file key tag for upload to S3 with multiple parts
+            new StreamCopier(status, new TransferStatus()).transfer(local.getInputStream(), out);
             for(Future<TransferStatus> future : parts) {
                 try {
                     final TransferStatus part = future.get();
@@ -187,13 +246,45 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
                     if(e.getCause() instanceof BackgroundException) {
                         throw (BackgroundException) e.getCause();
                     }
-                    throw new BackgroundException(e.getCause());
+                    throw new DefaultExceptionMappingService().map(e.getCause());
                 }
             }
-            if(nodeid.isEncrypted(file)) {
-                // Delete temporary file
-                buffer.close();
+        }
+        finally {
+            // Cancel pending parts on failure
+            for(Future<TransferStatus> future : parts) {
+                future.cancel(false);
+            }
+        }
+        this.complete(file, upload, etags, status);
+        // Mark parent status as complete
+        status.setComplete();
+        return null;
+    }
+
+    private DirectS3Upload start(final Path file, final TransferStatus status) throws BackgroundException {
+        try {
+            final CreateFileUploadRequest createFileUploadRequest = new CreateFileUploadRequest()
+                .directS3Upload(true)
+                .timestampModification(status.getTimestamp() == null ? null : new DateTime(status.getTimestamp()))
+                .size(-1 == status.getLength() ? null : status.getLength())
+                .parentId(Long.parseLong(nodeid.getVersionId(file.getParent(), new DisabledListProgressListener())))
+                .name(file.getName());
+            final CreateFileUploadResponse createFileUploadResponse = new NodesApi(session.getClient())
+                .createFileUploadChannel(createFileUploadRequest, StringUtils.EMPTY);
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("upload started for %s with response %s", file, createFileUploadResponse));
             }
+            return new DirectS3Upload(createFileUploadResponse.getUploadId(), this.retrievePresignedUrls(createFileUploadResponse, status));
+        }
+        catch(ApiException e) {
+            throw new SDSExceptionMappingService().map("Upload {0} failed", e, file);
+        }
+    }
+
+    private void complete(final Path file, final DirectS3Upload upload, final SortedMap<Integer, TransferStatus> etags,
+                          final TransferStatus status) throws BackgroundException {
+        try {
             final CompleteS3FileUploadRequest completeS3FileUploadRequest = new CompleteS3FileUploadRequest()
                 .keepShareLinks(status.isExists() ? PreferencesFactory.get().getBoolean("sds.upload.sharelinks.keep") : false)
                 .resolutionStrategy(status.isExists() ? CompleteS3FileUploadRequest.ResolutionStrategyEnum.OVERWRITE : CompleteS3FileUploadRequest.ResolutionStrategyEnum.FAIL);
@@ -211,7 +302,7 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
             if(log.isDebugEnabled()) {
                 log.debug(String.format("Complete file upload with %s for %s", completeS3FileUploadRequest, file));
             }
-            new NodesApi(session.getClient()).completeS3FileUpload(completeS3FileUploadRequest, createFileUploadResponse.getUploadId(), StringUtils.EMPTY);
+            new NodesApi(session.getClient()).completeS3FileUpload(completeS3FileUploadRequest, upload.uploadId, StringUtils.EMPTY);
             // Polling
             final ScheduledThreadPool polling = new ScheduledThreadPool();
             final CountDownLatch done = new CountDownLatch(1);
@@ -221,7 +312,7 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
                 public void run() {
                     try {
                         final S3FileUploadStatus uploadStatus = new NodesApi(session.getClient())
-                            .requestUploadStatusFiles(createFileUploadResponse.getUploadId(), StringUtils.EMPTY);
+                            .requestUploadStatusFiles(upload.uploadId, StringUtils.EMPTY);
                         switch(uploadStatus.getStatus()) {
                             case "finishing":
                                 // Expected
@@ -252,9 +343,6 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
             if(null != failure.get()) {
                 throw failure.get();
             }
-            // Mark parent status as complete
-            status.setComplete();
-            return null;
         }
         catch(CryptoSystemException | InvalidFileKeyException | InvalidKeyPairException | UnknownVersionException e) {
             throw new TripleCryptExceptionMappingService().map("Upload {0} failed", e, file);
@@ -265,10 +353,6 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
         catch(IOException e) {
             throw new DefaultIOExceptionMappingService().map(e);
         }
-        finally {
-            // Cancel future tasks
-            pool.shutdown(false);
-        }
     }
 
     private List<PresignedUrl> retrievePresignedUrls(final CreateFileUploadResponse createFileUploadResponse,
@@ -299,14 +383,22 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
         return presignedUrls;
     }
 
-    private Future<TransferStatus> submit(final ThreadPool pool, final Path file, final Local local,
+    /**
+     * Submit part to shared executor
+     *
+     * @param buffers Pool to return buffer to when part upload is complete
+     * @param buffer  Content of part
+     */
+    private Future<TransferStatus> submit(final Path file, final ByteArrayPool buffers, final byte[] buffer,
                                           final BandwidthThrottle throttle, final StreamListener listener,
                                           final TransferStatus overall, final String url, final Integer partNumber,
-                                          final long offset, final long length, final ConnectionCallback callback) {
+                                          final long offset, final long length, final ConnectionCallback callback) throws ConnectionCanceledException {
         if(log.isInfoEnabled()) {
             log.info(String.format("Submit part %d of %s to queue with offset %d and length %d", partNumber, file, offset, length));
         }
-        return pool.execute(new DefaultRetryCallable<>(session.getHost(), new BackgroundExceptionCallable<TransferStatus>() {
+        // Roll back bytes counted for part before retry
+        final BytecountStreamListener counter = new BytecountStreamListener(listener);
+        final SegmentRetryCallable<TransferStatus> callable = new SegmentRetryCallable<>(session.getHost(), new BackgroundExceptionCallable<TransferStatus>() {
             @Override
             public TransferStatus call() throws BackgroundException {
                 overall.validate();
@@ -320,12 +412,178 @@ public class SDSDirectS3UploadFeature extends HttpUploadFeature<Void, MessageDig
                 status.setNonces(overall.getNonces());
                 status.setFilekey(overall.getFilekey());
                 SDSDirectS3UploadFeature.super.upload(
-                    file, local, throttle, listener, status, overall, status, callback);
+                    file, new ByteArrayInputStream(buffer, 0, (int) length), throttle, counter, status, overall, status, callback);
                 if(log.isInfoEnabled()) {
                     log.info(String.format("Received response for part number %d", partNumber));
                 }
                 return status;
             }
-        }, overall));
+        }, overall, counter);
+        try {
+            return PartUploadExecutorFactory.get().submit(length, overall, () -> {
+                try {
+                    return callable.call();
+                }
+                finally {
+                    buffers.release(buffer);
+                }
+            });
+        }
+        catch(ConnectionCanceledException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+    }
+
+    private static final class DirectS3Upload {
+        private final String uploadId;
+        private final List<PresignedUrl> presignedUrls;
+
+        public DirectS3Upload(final String uploadId, final List<PresignedUrl> presignedUrls) {
+            this.uploadId = uploadId;
+            this.presignedUrls = presignedUrls;
+        }
+    }
+
+    /**
+     * Collects content in part sized buffers and submits each part for upload when complete. Writing blocks
+     * when all buffers of the pool are in use by pending part uploads.
+     */
+    private final class PartOutputStream extends OutputStream {
+        private final ByteArrayPool buffers;
+        private final Path file;
+        private final BandwidthThrottle throttle;
+        private final StreamListener listener;
+        private final TransferStatus overall;
+        private final List<PresignedUrl> presignedUrls;
+        private final List<Future<TransferStatus>> parts;
+        private final ConnectionCallback callback;
+
+        /**
+         * Full size of file
+         */
+        private final long size;
+        /**
+         * Number of bytes not yet assigned to a part
+         */
+        private long remaining;
+        private long offset;
+        private int partNumber;
+
+        /**
+         * Content of current part
+         */
+        private byte[] buffer;
+        private int length;
+        private int position;
+
+        public PartOutputStream(final ByteArrayPool buffers, final Path file,
+                                final BandwidthThrottle throttle, final StreamListener listener, final TransferStatus overall,
+                                final List<PresignedUrl> presignedUrls, final List<Future<TransferStatus>> parts, final ConnectionCallback callback) {
+            this.buffers = buffers;
+            this.file = file;
+            this.throttle = throttle;
+            this.listener = listener;
+            this.overall = overall;
+            this.presignedUrls = presignedUrls;
+            this.parts = parts;
+            this.callback = callback;
+            this.size = overall.getLength() + overall.getOffset();
+            this.remaining = overall.getLength();
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int o = off;
+            int r = len;
+            while(r > 0) {
+                if(null == buffer) {
+                    this.next();
+                }
+                final int n = Math.min(length - position, r);
+                System.arraycopy(b, o, buffer, position, n);
+                position += n;
+                o += n;
+                r -= n;
+                if(position == length) {
+                    this.submit();
+                }
+            }
+        }
+
+        /**
+         * Borrow buffer for next part
+         */
+        private void next() throws IOException {
+            if(remaining <= 0) {
+                throw new IOException(String.format("Content exceeds length %d of %s", overall.getLength(), file));
+            }
+            this.validate();
+            length = (int) Math.min(Math.max((size / (MAXIMUM_UPLOAD_PARTS - 1)), partsize), remaining);
+            try {
+                buffer = buffers.borrow(length);
+            }
+            catch(ConnectionCanceledException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            remaining -= length;
+            position = 0;
+            partNumber++;
+        }
+
+        private void submit() throws IOException {
+            final PresignedUrl presignedUrl = presignedUrls.get(partNumber - 1);
+            final byte[] content = buffer;
+            buffer = null;
+            try {
+                parts.add(SDSDirectS3UploadFeature.this.submit(file, buffers, content, throttle, listener, overall,
+                    presignedUrl.getUrl(), presignedUrl.getPartNumber(), offset, position, callback));
+            }
+            catch(ConnectionCanceledException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            offset += position;
+        }
+
+        /**
+         * Stop encrypting when upload of previous part has failed
+         */
+        private void validate() throws IOException {
+            for(Future<TransferStatus> future : parts) {
+                if(future.isDone()) {
+                    try {
+                        future.get();
+                    }
+                    catch(InterruptedException e) {
+                        throw new IOException(e.getMessage(), new ConnectionCanceledException(e));
+                    }
+                    catch(ExecutionException e) {
+                        if(e.getCause() instanceof BackgroundException) {
+                            throw new IOException(e.getCause().getMessage(), e.getCause());
+                        }
+                        throw new IOException(e.getCause());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(buffer != null) {
+                if(position > 0) {
+                    // Last part
+                    this.submit();
+                }
+                else {
+                    buffers.release(buffer);
+                    buffer = null;
+                }
+            }
+        }
     }
 }
@@ -24,9 +24,12 @@ import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LoginOptions;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathAttributes;
+import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.features.Delete;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.io.DisabledStreamListener;
+import ch.cyberduck.core.preferences.PreferencesFactory;
 import ch.cyberduck.core.sds.triplecrypt.TripleCryptReadFeature;
 import ch.cyberduck.core.transfer.Transfer;
 import ch.cyberduck.core.transfer.TransferItem;
@@ -35,10 +38,13 @@ import ch.cyberduck.core.vault.VaultCredentials;
 import ch.cyberduck.test.IntegrationTest;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
 import org.apache.commons.lang3.RandomUtils;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
@@ -220,4 +226,101 @@ public class SDSDirectS3UploadFeatureTest extends AbstractS3DirectSDSTest {
         new SDSDeleteFeature(session, nodeid).delete(Collections.singletonList(test), new DisabledLoginCallback(), new Delete.DisabledCallback());
         local.delete();
     }
+
+    @Test
+    public void testTripleCryptUploadMultiplePartsPipeline() throws Exception {
+        PreferencesFactory.get().setProperty("sds.upload.s3.encryption.pipeline", true);
+        try {
+            this.testTripleCryptUploadMultipleParts();
+        }
+        finally {
+            PreferencesFactory.get().deleteProperty("sds.upload.s3.encryption.pipeline");
+        }
+    }
+
+    @Test
+    public void testTripleCryptUploadPipelineFailure() throws Exception {
+        PreferencesFactory.get().setProperty("sds.upload.s3.encryption.pipeline", true);
+        try {
+            final SDSNodeIdProvider nodeid = new SDSNodeIdProvider(session);
+            final SDSDirectS3UploadFeature feature = new SDSDirectS3UploadFeature(session, nodeid, new SDSDirectS3WriteFeature(session, nodeid),
+                5L * 1024L * 1024L, 2);
+            final Path room = new Path("test", EnumSet.of(Path.Type.directory, Path.Type.volume, Path.Type.triplecrypt));
+            final Path test = new Path(room, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.file));
+            final byte[] random = RandomUtils.nextBytes(21 * 1024 * 1024);
+            // Fail reading after first parts are submitted for upload
+            final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()) {
+                @Override
+                public InputStream getInputStream() {
+                    return new ProxyInputStream(new ByteArrayInputStream(random)) {
+                        private long count;
+
+                        @Override
+                        protected void afterRead(final int n) throws IOException {
+                            count += n;
+                            if(count > 12 * 1024 * 1024) {
+                                throw new IOException("Failure reading");
+                            }
+                        }
+                    };
+                }
+            };
+            final TransferStatus status = new TransferStatus();
+            status.setLength(random.length);
+            final SDSEncryptionBulkFeature bulk = new SDSEncryptionBulkFeature(session, nodeid);
+            bulk.pre(Transfer.Type.upload, Collections.singletonMap(new TransferItem(test, local), status), new DisabledConnectionCallback());
+            try {
+                feature.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED),
+                    new DisabledStreamListener(), status, new DisabledLoginCallback());
+                fail();
+            }
+            catch(BackgroundException e) {
+                // Pending parts canceled and upload not completed
+            }
+            assertFalse(new SDSFindFeature(session, nodeid).find(test));
+        }
+        finally {
+            PreferencesFactory.get().deleteProperty("sds.upload.s3.encryption.pipeline");
+        }
+    }
+
+    @Test
+    public void testTripleCryptUploadPipelineCancel() throws Exception {
+        PreferencesFactory.get().setProperty("sds.upload.s3.encryption.pipeline", true);
+        try {
+            final SDSNodeIdProvider nodeid = new SDSNodeIdProvider(session);
+            final SDSDirectS3UploadFeature feature = new SDSDirectS3UploadFeature(session, nodeid, new SDSDirectS3WriteFeature(session, nodeid),
+                5L * 1024L * 1024L, 2);
+            final Path room = new Path("test", EnumSet.of(Path.Type.directory, Path.Type.volume, Path.Type.triplecrypt));
+            final Path test = new Path(room, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.file));
+            final Local local = new Local(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+            final byte[] random = RandomUtils.nextBytes(21 * 1024 * 1024);
+            final OutputStream out = local.getOutputStream(false);
+            IOUtils.write(random, out);
+            out.close();
+            final TransferStatus status = new TransferStatus();
+            status.setLength(random.length);
+            final SDSEncryptionBulkFeature bulk = new SDSEncryptionBulkFeature(session, nodeid);
+            bulk.pre(Transfer.Type.upload, Collections.singletonMap(new TransferItem(test, local), status), new DisabledConnectionCallback());
+            try {
+                feature.upload(test, local, new BandwidthThrottle(BandwidthThrottle.UNLIMITED),
+                    new DisabledStreamListener() {
+                        @Override
+                        public void sent(final long bytes) {
+                            // Cancel after first part is uploaded
+                            status.setCanceled();
+                        }
+                    }, status, new DisabledLoginCallback());
+                fail();
+            }
+            catch(ConnectionCanceledException e) {
+                // Expected
+            }
+            assertFalse(new SDSFindFeature(session, nodeid).find(test));
+            local.delete();
+        }
+        finally {
+            PreferencesFactory.get().deleteProperty("sds.upload.s3.encryption.pipeline");
+        }
+    }
 }
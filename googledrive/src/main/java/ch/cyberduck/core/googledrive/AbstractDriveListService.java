@@ -31,6 +31,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 import com.google.api.services.drive.model.File;
@@ -86,32 +87,7 @@ public abstract class AbstractDriveListService implements ListService {
                 if(log.isDebugEnabled()) {
                     log.debug(String.format("Chunk of %d retrieved", list.getFiles().size()));
                 }
-                for(File f : list.getFiles()) {
-                    final PathAttributes properties = attributes.toAttributes(f);
-                    if(PathAttributes.EMPTY == properties) {
-                        log.warn(String.format("Ignore file %s with unknown attributes", f));
-                        continue;
-                    }
-                    final String filename;
-                    if(!DRIVE_FOLDER.equals(f.getMimeType()) && !DRIVE_SHORTCUT.equals(f.getMimeType()) && StringUtils.startsWith(f.getMimeType(), GOOGLE_APPS_PREFIX)) {
-                        filename = String.format("%s.%s", f.getName(), urlFileWriter.getExtension());
-                    }
-                    else {
-                        filename = f.getName();
-                    }
-                    if(StringUtils.equals(filename, String.valueOf(Path.DELIMITER))) {
-                        continue;
-                    }
-                    // Use placeholder type to mark Google Apps document to download as web link file
-                    final EnumSet<Path.Type> type = this.toType(f);
-                    for(Path parent : this.parents(directory, f)) {
-                        final Path child = new Path(parent, filename, type, properties);
-                        if(f.getExplicitlyTrashed()) {
-                            properties.setDuplicate(true);
-                        }
-                        children.add(child);
-                    }
-                }
+                this.add(directory, list.getFiles(), children);
                 listener.chunk(directory, children);
                 page = list.getNextPageToken();
                 if(log.isDebugEnabled()) {
@@ -126,6 +102,38 @@ public abstract class AbstractDriveListService implements ListService {
         }
     }
 
+    /**
+     * Add files from page of listing to children
+     */
+    void add(final Path directory, final List<File> files, final AttributedList<Path> children) throws IOException, BackgroundException {
+        for(File f : files) {
+            final PathAttributes properties = attributes.toAttributes(f);
+            if(PathAttributes.EMPTY == properties) {
+                log.warn(String.format("Ignore file %s with unknown attributes", f));
+                continue;
+            }
+            final String filename;
+            if(!DRIVE_FOLDER.equals(f.getMimeType()) && !DRIVE_SHORTCUT.equals(f.getMimeType()) && StringUtils.startsWith(f.getMimeType(), GOOGLE_APPS_PREFIX)) {
+                filename = String.format("%s.%s", f.getName(), urlFileWriter.getExtension());
+            }
+            else {
+                filename = f.getName();
+            }
+            if(StringUtils.equals(filename, String.valueOf(Path.DELIMITER))) {
+                continue;
+            }
+            // Use placeholder type to mark Google Apps document to download as web link file
+            final EnumSet<Path.Type> type = this.toType(f);
+            for(Path parent : this.parents(directory, f)) {
+                final Path child = new Path(parent, filename, type, properties);
+                if(f.getExplicitlyTrashed()) {
+                    properties.setDuplicate(true);
+                }
+                children.add(child);
+            }
+        }
+    }
+
     protected Set<Path> parents(final Path directory, final File f) throws BackgroundException {
         return Collections.singleton(directory);
     }
@@ -22,15 +22,31 @@ import ch.cyberduck.core.Path;
 import ch.cyberduck.core.SimplePathPredicate;
 import ch.cyberduck.core.cache.LRUCache;
 import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.exception.NotfoundException;
 import ch.cyberduck.core.features.FileIdProvider;
+import ch.cyberduck.core.http.DefaultHttpResponseExceptionMappingService;
 import ch.cyberduck.core.preferences.PreferencesFactory;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.HttpResponseException;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.drive.model.FileList;
 
 public class DriveFileIdProvider implements FileIdProvider {
     private static final Logger log = Logger.getLogger(DriveFileIdProvider.class);
@@ -38,8 +54,36 @@ public class DriveFileIdProvider implements FileIdProvider {
     private final DriveSession session;
     private final LRUCache<SimplePathPredicate, String> cache = LRUCache.build(PreferencesFactory.get().getLong("fileid.cache.size"));
 
+    /**
+     * Maximum number of lookups in single batch request
+     */
+    private final int batchsize;
+
+    private final Object lock = new Object();
+    /**
+     * Lookups waiting to be sent with next batch request
+     */
+    private final Deque<Lookup> pending = new ArrayDeque<>();
+    /**
+     * Lookups not yet completed by file
+     */
+    private final Map<SimplePathPredicate, Lookup> inflight = new HashMap<>();
+    /**
+     * Batch request executing
+     */
+    private boolean running;
+
     public DriveFileIdProvider(final DriveSession session) {
+        this(session, PreferencesFactory.get().getInteger("googledrive.fileid.batch.size"));
+    }
+
+    /**
+     * @param batchsize Maximum number of lookups to combine in single batch request. Lookups are made sequentially
+     *                  with a value of 1.
+     */
+    public DriveFileIdProvider(final DriveSession session, final int batchsize) {
         this.session = session;
+        this.batchsize = batchsize;
     }
 
     @Override
@@ -76,12 +120,118 @@ public class DriveFileIdProvider implements FileIdProvider {
         else {
             query = file;
         }
-        final AttributedList<Path> list = new FileidDriveListService(session, this, query).list(file.getParent(), new DisabledListProgressListener());
+        final FileidDriveListService service = new FileidDriveListService(session, this, query);
+        if(batchsize > 1) {
+            // Resolves file id of parent directory first
+            final Lookup lookup = this.lookup(new Lookup(file, service, service.query(file.getParent(), new DisabledListProgressListener())));
+            if(!lookup.truncated) {
+                return this.cache(file, lookup.id);
+            }
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Incomplete result in batch lookup for %s", file));
+            }
+        }
+        final AttributedList<Path> list = service.list(file.getParent(), new DisabledListProgressListener());
+        return this.cache(file, this.find(file, list));
+    }
+
+    private String find(final Path file, final AttributedList<Path> list) throws NotfoundException {
         final Path found = list.filter(new IgnoreTrashedComparator()).find(new SimplePathPredicate(file));
         if(null == found) {
             throw new NotfoundException(file.getAbsolute());
         }
-        return this.cache(file, found.attributes().getFileId());
+        return found.attributes().getFileId();
+    }
+
+    /**
+     * Queue lookup to be sent with the next batch request. The calling thread executes batch requests with pending
+     * lookups of all threads until its own lookup is completed.
+     *
+     * @return Completed lookup for file
+     */
+    private Lookup lookup(final Lookup request) throws BackgroundException {
+        final Lookup lookup;
+        synchronized(lock) {
+            final Lookup existing = inflight.get(new SimplePathPredicate(request.file));
+            if(null == existing) {
+                inflight.put(new SimplePathPredicate(request.file), request);
+                pending.add(request);
+                lookup = request;
+            }
+            else {
+                // Wait for lookup of same file by other thread
+                lookup = existing;
+            }
+        }
+        while(true) {
+            final List<Lookup> batch = new ArrayList<>();
+            synchronized(lock) {
+                try {
+                    while(!lookup.done && running) {
+                        lock.wait();
+                    }
+                }
+                catch(InterruptedException e) {
+                    throw new ConnectionCanceledException(e);
+                }
+                if(lookup.done) {
+                    if(null != lookup.failure) {
+                        throw lookup.failure;
+                    }
+                    return lookup;
+                }
+                running = true;
+                while(!pending.isEmpty() && batch.size() < batchsize) {
+                    batch.add(pending.poll());
+                }
+            }
+            try {
+                this.execute(batch);
+            }
+            finally {
+                synchronized(lock) {
+                    for(Lookup l : batch) {
+                        if(!l.done) {
+                            l.failure = new BackgroundException();
+                            l.done = true;
+                        }
+                        inflight.remove(new SimplePathPredicate(l.file));
+                    }
+                    running = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void execute(final List<Lookup> lookups) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Batch lookup of %d files", lookups.size()));
+        }
+        try {
+            final BatchRequest batch = session.getClient().batch();
+            for(Lookup lookup : lookups) {
+                session.getClient().files().list()
+                    .setIncludeItemsFromAllDrives(true)
+                    .setSupportsAllDrives(PreferencesFactory.get().getBoolean("googledrive.teamdrive.enable"))
+                    .setQ(lookup.query)
+                    .setFields(AbstractDriveListService.DEFAULT_FIELDS)
+                    .setPageSize(PreferencesFactory.get().getInteger("googledrive.list.limit"))
+                    .queue(batch, new LookupBatchCallback(lookup));
+            }
+            batch.execute();
+        }
+        catch(IOException e) {
+            final BackgroundException failure = new DriveExceptionMappingService().map(e);
+            synchronized(lock) {
+                for(Lookup lookup : lookups) {
+                    if(!lookup.done) {
+                        lookup.failure = failure;
+                        lookup.done = true;
+                    }
+                }
+            }
+        }
     }
 
     public String cache(final Path file, final String id) {
@@ -104,6 +254,15 @@ public class DriveFileIdProvider implements FileIdProvider {
         cache.clear();
     }
 
+    /**
+     * @return Number of lookups queued or executing
+     */
+    int inflight() {
+        synchronized(lock) {
+            return inflight.size();
+        }
+    }
+
     public static final class IgnoreTrashedPathPredicate extends SimplePathPredicate {
         public IgnoreTrashedPathPredicate(final Path file) {
             super(file);
@@ -119,6 +278,70 @@ public class DriveFileIdProvider implements FileIdProvider {
         }
     }
 
+    private final class LookupBatchCallback extends JsonBatchCallback<FileList> {
+        private final Lookup lookup;
+
+        public LookupBatchCallback(final Lookup lookup) {
+            this.lookup = lookup;
+        }
+
+        @Override
+        public void onFailure(final GoogleJsonError e, final HttpHeaders responseHeaders) {
+            log.warn(String.format("Failure looking up %s. %s", lookup.file, e.getMessage()));
+            this.complete(null, new DefaultHttpResponseExceptionMappingService().map(
+                new HttpResponseException(e.getCode(), e.getMessage())), false);
+        }
+
+        @Override
+        public void onSuccess(final FileList list, final HttpHeaders responseHeaders) {
+            if(null != list.getNextPageToken()) {
+                // Not all candidates returned
+                this.complete(null, null, true);
+                return;
+            }
+            try {
+                final AttributedList<Path> children = new AttributedList<>();
+                lookup.service.add(lookup.file.getParent(), list.getFiles(), children);
+                this.complete(DriveFileIdProvider.this.cache(lookup.file, DriveFileIdProvider.this.find(lookup.file, children)), null, false);
+            }
+            catch(IOException e) {
+                this.complete(null, new DriveExceptionMappingService().map(e), false);
+            }
+            catch(BackgroundException e) {
+                this.complete(null, e, false);
+            }
+        }
+
+        private void complete(final String id, final BackgroundException failure, final boolean truncated) {
+            synchronized(lock) {
+                lookup.id = id;
+                lookup.failure = failure;
+                lookup.truncated = truncated;
+                lookup.done = true;
+            }
+        }
+    }
+
+    private static final class Lookup {
+        private final Path file;
+        private final FileidDriveListService service;
+        private final String query;
+
+        /**
+         * Guarded by lock
+         */
+        private boolean done;
+        private boolean truncated;
+        private String id;
+        private BackgroundException failure;
+
+        public Lookup(final Path file, final FileidDriveListService service, final String query) {
+            this.file = file;
+            this.service = service;
+            this.query = query;
+        }
+    }
+
     private static final class IgnoreTrashedComparator implements Comparator<Path> {
         @Override
         public int compare(final Path o1, final Path o2) {
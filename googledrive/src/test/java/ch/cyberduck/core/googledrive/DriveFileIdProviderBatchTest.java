@@ -0,0 +1,173 @@
+package ch.cyberduck.core.googledrive;
+
+/*
+ * Copyright (c) 2002-2020 iterate GmbH. All rights reserved.
+ * https://cyberduck.io/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+
+import ch.cyberduck.core.DisabledListProgressListener;
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.exception.NotfoundException;
+import ch.cyberduck.core.ssl.DefaultX509KeyManager;
+import ch.cyberduck.core.ssl.DisabledX509TrustManager;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+
+import static org.junit.Assert.*;
+
+public class DriveFileIdProviderBatchTest {
+
+    private static final Pattern QUERY = Pattern.compile("name = '(.*)' and '(.*)' in parents");
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final BatchTransport transport = new BatchTransport();
+        final DriveFileIdProvider fileid = new DriveFileIdProvider(new TestDriveSession(transport), 100);
+        final Path directory = new Path(DriveHomeFinderService.MYDRIVE_FOLDER, "d", EnumSet.of(Path.Type.directory));
+        assertEquals("id-d", fileid.getFileId(new Path(directory.getAbsolute(), EnumSet.of(Path.Type.directory)), new DisabledListProgressListener()));
+        assertEquals(1, transport.requests.get());
+        // Hold first batch request until all threads have queued their lookup
+        transport.hold = () -> fileid.inflight() == 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(20);
+        final List<Future<String>> futures = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            final Path file = new Path(directory, String.format("f%d", i), EnumSet.of(Path.Type.file));
+            futures.add(executor.submit(() -> fileid.getFileId(file, new DisabledListProgressListener())));
+        }
+        for(int i = 0; i < 20; i++) {
+            assertEquals(String.format("id-f%d", i), futures.get(i).get());
+        }
+        executor.shutdown();
+        assertEquals(21, transport.lookups.get());
+        // Lookups queued while first batch request is executing are sent with second batch request
+        assertTrue(transport.requests.get() <= 3);
+    }
+
+    @Test
+    public void testAncestorsCached() throws Exception {
+        final BatchTransport transport = new BatchTransport();
+        final DriveFileIdProvider fileid = new DriveFileIdProvider(new TestDriveSession(transport), 100);
+        final Path directory = new Path(DriveHomeFinderService.MYDRIVE_FOLDER, "d", EnumSet.of(Path.Type.directory));
+        final Path nested = new Path(directory, "d2", EnumSet.of(Path.Type.directory));
+        assertEquals("id-f", fileid.getFileId(new Path(nested, "f", EnumSet.of(Path.Type.file)), new DisabledListProgressListener()));
+        assertEquals(3, transport.requests.get());
+        assertEquals("id-d2", fileid.getFileId(new Path(nested.getAbsolute(), EnumSet.of(Path.Type.directory)), new DisabledListProgressListener()));
+        assertEquals("id-d", fileid.getFileId(new Path(directory.getAbsolute(), EnumSet.of(Path.Type.directory)), new DisabledListProgressListener()));
+        assertEquals(3, transport.requests.get());
+    }
+
+    @Test(expected = NotfoundException.class)
+    public void testNotfound() throws Exception {
+        final DriveFileIdProvider fileid = new DriveFileIdProvider(new TestDriveSession(new BatchTransport()), 100);
+        fileid.getFileId(new Path(DriveHomeFinderService.MYDRIVE_FOLDER, "missing", EnumSet.of(Path.Type.file)), new DisabledListProgressListener());
+    }
+
+    private static final class TestDriveSession extends DriveSession {
+        private final Drive drive;
+
+        public TestDriveSession(final MockHttpTransport transport) {
+            super(new Host(new DriveProtocol()), new DisabledX509TrustManager(), new DefaultX509KeyManager());
+            this.drive = new Drive.Builder(transport, new GsonFactory(), null).build();
+        }
+
+        @Override
+        public Drive getClient() {
+            return drive;
+        }
+    }
+
+    /**
+     * Reply to batch requests with a single file named as in the query for each lookup. Names starting with d denote
+     * folders and the name missing is not found.
+     */
+    private static final class BatchTransport extends MockHttpTransport {
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger lookups = new AtomicInteger();
+        /**
+         * Condition to wait for in next request
+         */
+        private volatile BooleanSupplier hold;
+
+        @Override
+        public LowLevelHttpRequest buildRequest(final String method, final String url) {
+            return new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    requests.incrementAndGet();
+                    final BooleanSupplier condition = hold;
+                    hold = null;
+                    if(null != condition) {
+                        final long timeout = System.currentTimeMillis() + 10000L;
+                        while(!condition.getAsBoolean()) {
+                            if(System.currentTimeMillis() > timeout) {
+                                throw new IOException("Timeout waiting for lookups to be queued");
+                            }
+                            Thread.yield();
+                        }
+                    }
+                    final String boundary = "batch_response";
+                    final StringBuilder content = new StringBuilder();
+                    for(String line : this.getContentAsString().split("\r\n")) {
+                        if(!line.startsWith("GET ")) {
+                            continue;
+                        }
+                        lookups.incrementAndGet();
+                        final String query = line.substring(line.indexOf("q=") + 2).split("[& ]")[0];
+                        final Matcher matcher = QUERY.matcher(URLDecoder.decode(query, StandardCharsets.UTF_8.name()));
+                        assertTrue(matcher.matches());
+                        final String name = matcher.group(1);
+                        content.append("--").append(boundary).append("\r\n");
+                        content.append("Content-Type: application/http\r\n\r\n");
+                        content.append("HTTP/1.1 200 OK\r\n");
+                        content.append("Content-Type: application/json; charset=UTF-8\r\n\r\n");
+                        if("missing".equals(name)) {
+                            content.append("{\"files\":[]}");
+                        }
+                        else {
+                            content.append(String.format("{\"files\":[{\"id\":\"id-%s\",\"name\":\"%s\",\"mimeType\":\"%s\",\"explicitlyTrashed\":false}]}",
+                                name, name, name.startsWith("d") ? "application/vnd.google-apps.folder" : "application/octet-stream"));
+                        }
+                        content.append("\r\n");
+                    }
+                    content.append("--").append(boundary).append("--\r\n");
+                    return new MockLowLevelHttpResponse()
+                        .setContentType(String.format("multipart/mixed; boundary=%s", boundary))
+                        .setContent(content.toString());
+                }
+            };
+        }
+    }
+}
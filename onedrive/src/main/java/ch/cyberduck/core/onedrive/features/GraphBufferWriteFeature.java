@@ -26,7 +26,7 @@ import ch.cyberduck.core.features.MultipartWrite;
 import ch.cyberduck.core.http.HttpResponseOutputStream;
 import ch.cyberduck.core.io.BufferInputStream;
 import ch.cyberduck.core.io.BufferOutputStream;
-import ch.cyberduck.core.io.FileBuffer;
+import ch.cyberduck.core.io.MemoryBuffer;
 import ch.cyberduck.core.onedrive.GraphSession;
 import ch.cyberduck.core.threading.BackgroundActionState;
 import ch.cyberduck.core.threading.BackgroundExceptionCallable;
@@ -51,7 +51,7 @@ public class GraphBufferWriteFeature implements MultipartWrite<Void> {
 
     @Override
     public HttpResponseOutputStream<Void> write(final Path file, final TransferStatus status, final ConnectionCallback callback) {
-        final FileBuffer buffer = new FileBuffer();
+        final MemoryBuffer buffer = new MemoryBuffer();
         return new HttpResponseOutputStream<Void>(new BufferOutputStream(buffer) {
             @Override
             public void flush() {
@@ -98,6 +98,9 @@ public class GraphBufferWriteFeature implements MultipartWrite<Void> {
                 catch(BackgroundException e) {
                     throw new IOException(e);
                 }
+                finally {
+                    buffer.close();
+                }
             }
         }) {
             @Override
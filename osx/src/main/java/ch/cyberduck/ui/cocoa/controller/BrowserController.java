@@ -1768,12 +1768,18 @@ public class BrowserController extends WindowController implements NSToolbar.Del
                                 @Override
                                 public void callback(int returncode) {
                                     if(returncode == DEFAULT_OPTION) {
+                                        final boolean stateful = pool.getHost().getProtocol().getStatefulness() == Protocol.Statefulness.stateful;
+                                        final SessionPool concurrent = stateful ? SessionPoolFactory.create(BrowserController.this, pool.getHost()) : pool;
                                         // Delay render until path is cached in the background
                                         background(new WorkerBackgroundAction<>(BrowserController.this, pool,
-                                            new SearchWorker(workdir, filenameFilter, cache, listener) {
+                                            new SearchWorker(workdir, filenameFilter, cache, listener, concurrent) {
                                                 @Override
                                                 public void cleanup(final AttributedList<Path> list) {
                                                     super.cleanup(list);
+                                                    if(stateful) {
+                                                        // Release connections opened for search
+                                                        concurrent.shutdown();
+                                                    }
                                                     // Set filter with search result
                                                     setFilter(new RecursiveSearchFilter(list));
                                                     // Reload browser
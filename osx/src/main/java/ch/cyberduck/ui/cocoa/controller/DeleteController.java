@@ -22,6 +22,9 @@ import ch.cyberduck.core.LocaleFactory;
 import ch.cyberduck.core.LoginCallbackFactory;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathNormalizer;
+import ch.cyberduck.core.Protocol;
+import ch.cyberduck.core.SessionPoolFactory;
+import ch.cyberduck.core.pool.SessionPool;
 import ch.cyberduck.core.threading.WorkerBackgroundAction;
 import ch.cyberduck.core.worker.DeleteWorker;
 
@@ -75,11 +78,17 @@ public class DeleteController extends ProxyController {
     }
 
     private void run(final List<Path> files) {
+        final boolean stateful = parent.getSession().getHost().getProtocol().getStatefulness() == Protocol.Statefulness.stateful;
+        final SessionPool concurrent = stateful ? SessionPoolFactory.create(parent, parent.getSession().getHost()) : parent.getSession();
         parent.background(new WorkerBackgroundAction<List<Path>>(parent, parent.getSession(),
-            new DeleteWorker(LoginCallbackFactory.get(parent), files, parent.getCache(), parent) {
+            new DeleteWorker(LoginCallbackFactory.get(parent), files, parent.getCache(), parent, concurrent) {
                     @Override
                     public void cleanup(final List<Path> deleted) {
                         super.cleanup(deleted);
+                        if(stateful) {
+                            // Release connections opened for recursive listing
+                            concurrent.shutdown();
+                        }
                         parent.reload(parent.workdir(), files, Collections.emptyList());
                     }
                 }
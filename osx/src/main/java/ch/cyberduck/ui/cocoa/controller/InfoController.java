@@ -2308,10 +2308,16 @@ public class InfoController extends ToolbarWindowController {
     @Action
     public void calculateSizeButtonClicked(final ID sender) {
         if(this.toggleSizeSettings(false)) {
+            final boolean stateful = session.getHost().getProtocol().getStatefulness() == Protocol.Statefulness.stateful;
+            final SessionPool concurrent = stateful ? SessionPoolFactory.create(controller, session.getHost()) : session;
             controller.background(new WorkerBackgroundAction<Long>(controller, session,
-                new CalculateSizeWorker(files, controller) {
+                new CalculateSizeWorker(files, controller, concurrent) {
                     @Override
                     public void cleanup(final Long size) {
+                        if(stateful) {
+                            // Release connections opened for recursive listing
+                            concurrent.shutdown();
+                        }
                         setSize(size);
                         toggleSizeSettings(true);
                     }
@@ -17,8 +17,8 @@ package ch.cyberduck.core.s3;
  * Bug fixes, suggestions and comments should be sent to feedback@cyberduck.ch
  */
 
-import ch.cyberduck.core.BytecountStreamListener;
 import ch.cyberduck.core.ConnectionCallback;
+import ch.cyberduck.core.DefaultIOExceptionMappingService;
 import ch.cyberduck.core.Local;
 import ch.cyberduck.core.LocaleFactory;
 import ch.cyberduck.core.Path;
@@ -26,22 +26,22 @@ import ch.cyberduck.core.PathContainerService;
 import ch.cyberduck.core.exception.AccessDeniedException;
 import ch.cyberduck.core.exception.BackgroundException;
 import ch.cyberduck.core.exception.ChecksumException;
-import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.exception.InteroperabilityException;
 import ch.cyberduck.core.features.Upload;
 import ch.cyberduck.core.features.Write;
 import ch.cyberduck.core.http.HttpUploadFeature;
 import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.ByteArrayPool;
 import ch.cyberduck.core.io.ChecksumComputeFactory;
 import ch.cyberduck.core.io.HashAlgorithm;
+import ch.cyberduck.core.io.StreamCopier;
 import ch.cyberduck.core.io.StreamListener;
 import ch.cyberduck.core.preferences.PreferencesFactory;
-import ch.cyberduck.core.threading.BackgroundExceptionCallable;
-import ch.cyberduck.core.threading.ThreadPool;
-import ch.cyberduck.core.threading.ThreadPoolFactory;
-import ch.cyberduck.core.transfer.SegmentRetryCallable;
 import ch.cyberduck.core.transfer.TransferStatus;
+import ch.cyberduck.core.transfer.multipart.PartUploadEngine;
+import ch.cyberduck.core.transfer.multipart.PartUploadService;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.jets3t.service.ServiceException;
@@ -51,6 +51,9 @@ import org.jets3t.service.model.MultipartUpload;
 import org.jets3t.service.model.S3Object;
 import org.jets3t.service.model.StorageObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -58,8 +61,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.SortedMap;
 
 public class S3MultipartUploadService extends HttpUploadFeature<StorageObject, MessageDigest> {
     private static final Logger log = Logger.getLogger(S3MultipartUploadService.class);
@@ -93,178 +95,168 @@ public class S3MultipartUploadService extends HttpUploadFeature<StorageObject, M
     @Override
     public StorageObject upload(final Path file, final Local local, final BandwidthThrottle throttle, final StreamListener listener,
                                 final TransferStatus status, final ConnectionCallback callback) throws BackgroundException {
-        final ThreadPool pool = ThreadPoolFactory.get("multipart", concurrency);
-        try {
-            MultipartUpload multipart = null;
-            try {
-                if(status.isAppend()) {
-                    final List<MultipartUpload> list = multipartService.find(file);
-                    if(!list.isEmpty()) {
-                        multipart = list.iterator().next();
+        // Buffers to read part once for both checksum and upload
+        final ByteArrayPool buffers = new ByteArrayPool(concurrency);
+        return new PartUploadEngine(session.getHost(), concurrency).upload(new PartUploadService<MultipartUpload, MultipartPart, StorageObject>() {
+            @Override
+            public MultipartUpload start(final Path file, final TransferStatus status) throws BackgroundException {
+                try {
+                    if(status.isAppend()) {
+                        final List<MultipartUpload> list = multipartService.find(file);
+                        if(!list.isEmpty()) {
+                            return list.iterator().next();
+                        }
                     }
                 }
-            }
-            catch(AccessDeniedException | InteroperabilityException e) {
-                log.warn(String.format("Ignore failure listing incomplete multipart uploads. %s", e));
-            }
-            final List<MultipartPart> completed = new ArrayList<>();
-            // Not found or new upload
-            if(null == multipart) {
+                catch(AccessDeniedException | InteroperabilityException e) {
+                    log.warn(String.format("Ignore failure listing incomplete multipart uploads. %s", e));
+                }
+                // Not found or new upload
                 if(log.isInfoEnabled()) {
                     log.info("No pending multipart upload found");
                 }
-                final S3Object object = new S3WriteFeature(session)
-                    .getDetails(file, status);
-                // ID for the initiated multipart upload.
-                multipart = session.getClient().multipartStartUpload(containerService.getContainer(file).getName(), object);
-                if(log.isDebugEnabled()) {
-                    log.debug(String.format("Multipart upload started for %s with ID %s", multipart.getObjectKey(), multipart.getUploadId()));
-                }
-            }
-            else {
-                if(status.isAppend()) {
-                    // Add already completed parts
-                    completed.addAll(multipartService.list(multipart));
-                }
-            }
-            // Full size of file
-            final long size = status.getLength() + status.getOffset();
-            final List<Future<MultipartPart>> parts = new ArrayList<>();
-            long remaining = status.getLength();
-            long offset = 0;
-            for(int partNumber = 1; remaining > 0; partNumber++) {
-                boolean skip = false;
-                if(status.isAppend()) {
-                    if(log.isInfoEnabled()) {
-                        log.info(String.format("Determine if part number %d can be skipped", partNumber));
-                    }
-                    for(MultipartPart c : completed) {
-                        if(c.getPartNumber().equals(partNumber)) {
-                            if(log.isInfoEnabled()) {
-                                log.info(String.format("Skip completed part number %d", partNumber));
-                            }
-                            skip = true;
-                            offset += c.getSize();
-                            break;
-                        }
-                    }
-                }
-                if(!skip) {
-                    // Last part can be less than 5 MB. Adjust part size.
-                    final long length = Math.min(Math.max((size / (S3DefaultMultipartService.MAXIMUM_UPLOAD_PARTS - 1)), partsize), remaining);
-                    // Submit to queue
-                    parts.add(this.submit(pool, file, local, throttle, listener, status, multipart, partNumber, offset, length, callback));
-                    remaining -= length;
-                    offset += length;
-                }
-            }
-            for(Future<MultipartPart> future : parts) {
                 try {
-                    completed.add(future.get());
-                }
-                catch(InterruptedException e) {
-                    log.error("Part upload failed with interrupt failure");
-                    status.setCanceled();
-                    throw new ConnectionCanceledException(e);
-                }
-                catch(ExecutionException e) {
-                    log.warn(String.format("Part upload failed with execution failure %s", e.getMessage()));
-                    if(e.getCause() instanceof BackgroundException) {
-                        throw (BackgroundException) e.getCause();
+                    final S3Object object = new S3WriteFeature(session)
+                        .getDetails(file, status);
+                    // ID for the initiated multipart upload.
+                    final MultipartUpload multipart = session.getClient().multipartStartUpload(containerService.getContainer(file).getName(), object);
+                    if(log.isDebugEnabled()) {
+                        log.debug(String.format("Multipart upload started for %s with ID %s", multipart.getObjectKey(), multipart.getUploadId()));
                     }
-                    throw new BackgroundException(e.getCause());
+                    return multipart;
+                }
+                catch(ServiceException e) {
+                    throw new S3ExceptionMappingService().map("Upload {0} failed", e, file);
                 }
             }
-            // Combining all the given parts into the final object. Processing of a Complete Multipart Upload request
-            // could take several minutes to complete. Because a request could fail after the initial 200 OK response
-            // has been sent, it is important that you check the response body to determine whether the request succeeded.
-            final MultipartCompleted complete = session.getClient().multipartCompleteUpload(multipart, completed);
-            if(log.isInfoEnabled()) {
-                log.info(String.format("Completed multipart upload for %s with %d parts and checksum %s",
-                    complete.getObjectKey(), completed.size(), complete.getEtag()));
-            }
-            if(file.getType().contains(Path.Type.encrypted)) {
-                log.warn(String.format("Skip checksum verification for %s with client side encryption enabled", file));
-            }
-            else {
-                if(S3Session.isAwsHostname(session.getHost().getHostname())) {
-                    completed.sort(new MultipartPart.PartNumberComparator());
-                    final StringBuilder concat = new StringBuilder();
-                    for(MultipartPart part : completed) {
-                        concat.append(part.getEtag());
-                    }
-                    final String expected = String.format("%s-%d",
-                        ChecksumComputeFactory.get(HashAlgorithm.md5).compute(concat.toString(), new TransferStatus()), completed.size());
-                    final String reference;
-                    if(complete.getEtag().startsWith("\"") && complete.getEtag().endsWith("\"")) {
-                        reference = complete.getEtag().substring(1, complete.getEtag().length() - 1);
-                    }
-                    else {
-                        reference = complete.getEtag();
-                    }
-                    if(!StringUtils.equalsIgnoreCase(expected, reference)) {
-                        throw new ChecksumException(MessageFormat.format(LocaleFactory.localizedString("Upload {0} failed", "Error"), file.getName()),
-                            MessageFormat.format("Mismatch between MD5 hash {0} of uploaded data and ETag {1} returned by the server",
-                                expected, reference));
-                    }
+
+            @Override
+            public Map<Integer, MultipartPart> list(final Path file, final MultipartUpload multipart, final TransferStatus status) throws BackgroundException {
+                final Map<Integer, MultipartPart> completed = new HashMap<>();
+                for(MultipartPart part : multipartService.list(multipart)) {
+                    completed.put(part.getPartNumber(), part);
                 }
+                return completed;
             }
-            // Mark parent status as complete
-            status.setComplete();
-            final StorageObject object = new StorageObject(containerService.getKey(file));
-            object.setETag(complete.getEtag());
-            return object;
-        }
-        catch(ServiceException e) {
-            throw new S3ExceptionMappingService().map("Upload {0} failed", e, file);
-        }
-        finally {
-            // Cancel future tasks
-            pool.shutdown(false);
-        }
-    }
 
-    private Future<MultipartPart> submit(final ThreadPool pool, final Path file, final Local local,
-                                         final BandwidthThrottle throttle, final StreamListener listener,
-                                         final TransferStatus overall, final MultipartUpload multipart,
-                                         final int partNumber, final long offset, final long length, final ConnectionCallback callback) {
-        if(log.isInfoEnabled()) {
-            log.info(String.format("Submit part %d of %s to queue with offset %d and length %d", partNumber, file, offset, length));
-        }
-        final BytecountStreamListener counter = new BytecountStreamListener(listener);
-        return pool.execute(new SegmentRetryCallable<>(session.getHost(), new BackgroundExceptionCallable<MultipartPart>() {
             @Override
-            public MultipartPart call() throws BackgroundException {
-                overall.validate();
-                final TransferStatus status = new TransferStatus()
-                    .withLength(length)
-                    .withOffset(offset);
+            public MultipartPart upload(final Path file, final Local local, final MultipartUpload multipart, final BandwidthThrottle throttle,
+                                        final StreamListener counter, final TransferStatus status, final TransferStatus overall,
+                                        final ConnectionCallback callback) throws BackgroundException {
                 final Map<String, String> requestParameters = new HashMap<>();
                 requestParameters.put("uploadId", multipart.getUploadId());
-                requestParameters.put("partNumber", String.valueOf(partNumber));
+                requestParameters.put("partNumber", String.valueOf(status.getPart()));
                 status.setParameters(requestParameters);
-                status.setPart(partNumber);
-                status.setHeader(overall.getHeader());
-                status.setNonces(overall.getNonces());
+                final long offset = status.getOffset();
+                final long length = status.getLength();
+                final StorageObject part;
                 switch(session.getSignatureVersion()) {
                     case AWS4HMACSHA256:
-                        status.setChecksum(writer.checksum(file, status).compute(local.getInputStream(), status));
+                        if(length <= Math.min(partsize, Integer.MAX_VALUE)) {
+                            // Read part once into buffer to compute checksum and upload from memory
+                            final byte[] buffer = buffers.borrow((int) length);
+                            try {
+                                read(local, offset, buffer, (int) length);
+                                status.setChecksum(writer.checksum(file, status).compute(
+                                    new ByteArrayInputStream(buffer, 0, (int) length), new TransferStatus().withLength(length)));
+                                part = S3MultipartUploadService.super.upload(
+                                    file, new ByteArrayInputStream(buffer, 0, (int) length), throttle, counter, status, overall, status, callback);
+                            }
+                            finally {
+                                buffers.release(buffer);
+                            }
+                        }
+                        else {
+                            status.setChecksum(writer.checksum(file, status).compute(local, status));
+                            part = S3MultipartUploadService.super.upload(
+                                file, local, throttle, counter, status, overall, status, callback);
+                        }
                         break;
-                }
-                status.setSegment(true);
-                final StorageObject part = S3MultipartUploadService.super.upload(
-                    file, local, throttle, counter, status, overall, status, callback);
-                if(log.isInfoEnabled()) {
-                    log.info(String.format("Received response %s for part number %d", part, partNumber));
+                    default:
+                        part = S3MultipartUploadService.super.upload(
+                            file, local, throttle, counter, status, overall, status, callback);
                 }
                 // Populate part with response data that is accessible via the object's metadata
-                return new MultipartPart(partNumber,
+                return new MultipartPart(status.getPart(),
                     null == part.getLastModifiedDate() ? new Date(System.currentTimeMillis()) : part.getLastModifiedDate(),
                     null == part.getETag() ? StringUtils.EMPTY : part.getETag(),
                     part.getContentLength());
+            }
+
+            @Override
+            public StorageObject complete(final Path file, final MultipartUpload multipart, final SortedMap<Integer, MultipartPart> parts,
+                                          final TransferStatus status) throws BackgroundException {
+                final List<MultipartPart> completed = new ArrayList<>(parts.values());
+                try {
+                    // Combining all the given parts into the final object. Processing of a Complete Multipart Upload request
+                    // could take several minutes to complete. Because a request could fail after the initial 200 OK response
+                    // has been sent, it is important that you check the response body to determine whether the request succeeded.
+                    final MultipartCompleted complete = session.getClient().multipartCompleteUpload(multipart, completed);
+                    if(log.isInfoEnabled()) {
+                        log.info(String.format("Completed multipart upload for %s with %d parts and checksum %s",
+                            complete.getObjectKey(), completed.size(), complete.getEtag()));
+                    }
+                    if(file.getType().contains(Path.Type.encrypted)) {
+                        log.warn(String.format("Skip checksum verification for %s with client side encryption enabled", file));
+                    }
+                    else {
+                        if(S3Session.isAwsHostname(session.getHost().getHostname())) {
+                            final StringBuilder concat = new StringBuilder();
+                            for(MultipartPart part : completed) {
+                                concat.append(part.getEtag());
+                            }
+                            final String expected = String.format("%s-%d",
+                                ChecksumComputeFactory.get(HashAlgorithm.md5).compute(concat.toString(), new TransferStatus()), completed.size());
+                            final String reference;
+                            if(complete.getEtag().startsWith("\"") && complete.getEtag().endsWith("\"")) {
+                                reference = complete.getEtag().substring(1, complete.getEtag().length() - 1);
+                            }
+                            else {
+                                reference = complete.getEtag();
+                            }
+                            if(!StringUtils.equalsIgnoreCase(expected, reference)) {
+                                throw new ChecksumException(MessageFormat.format(LocaleFactory.localizedString("Upload {0} failed", "Error"), file.getName()),
+                                    MessageFormat.format("Mismatch between MD5 hash {0} of uploaded data and ETag {1} returned by the server",
+                                        expected, reference));
+                            }
+                        }
+                    }
+                    final StorageObject object = new StorageObject(containerService.getKey(file));
+                    object.setETag(complete.getEtag());
+                    return object;
+                }
+                catch(ServiceException e) {
+                    throw new S3ExceptionMappingService().map("Upload {0} failed", e, file);
+                }
+            }
 
+            @Override
+            public long getLength(final MultipartPart part) {
+                return part.getSize();
+            }
+
+            @Override
+            public long getPartSize(final long size) {
+                // Last part can be less than 5 MB
+                return Math.max((size / (S3DefaultMultipartService.MAXIMUM_UPLOAD_PARTS - 1)), partsize);
             }
-        }, overall, counter));
+        }, file, local, throttle, listener, status, callback);
+    }
+
+    /**
+     * Read part from file into buffer
+     */
+    private static void read(final Local local, final long offset, final byte[] buffer, final int length) throws BackgroundException {
+        final InputStream in = local.getInputStream();
+        try {
+            IOUtils.readFully(offset > 0 ? StreamCopier.skip(in, offset) : in, buffer, 0, length);
+        }
+        catch(IOException e) {
+            throw new DefaultIOExceptionMappingService().map(e);
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+        }
     }
 
     @Override
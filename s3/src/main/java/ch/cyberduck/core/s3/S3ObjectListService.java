@@ -27,9 +27,14 @@ import ch.cyberduck.core.PathContainerService;
 import ch.cyberduck.core.PathNormalizer;
 import ch.cyberduck.core.URIEncoder;
 import ch.cyberduck.core.exception.BackgroundException;
+import ch.cyberduck.core.exception.ConnectionCanceledException;
 import ch.cyberduck.core.exception.NotfoundException;
 import ch.cyberduck.core.preferences.Preferences;
 import ch.cyberduck.core.preferences.PreferencesFactory;
+import ch.cyberduck.core.threading.BackgroundExceptionCallable;
+import ch.cyberduck.core.threading.ThreadPool;
+import ch.cyberduck.core.threading.ThreadPoolFactory;
+import ch.cyberduck.core.worker.DefaultExceptionMappingService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -37,22 +42,47 @@ import org.jets3t.service.ServiceException;
 import org.jets3t.service.StorageObjectsChunk;
 import org.jets3t.service.model.StorageObject;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 public class S3ObjectListService extends S3AbstractListService implements ListService {
     private static final Logger log = Logger.getLogger(S3ObjectListService.class);
 
+    /**
+     * Shared by all listings with the number of concurrent requests of a single listing bounded by its concurrency
+     */
+    private static final ThreadPool pool = ThreadPoolFactory.get("list", PreferencesFactory.get().getInteger("s3.listing.concurrency"));
+
     private final Preferences preferences
         = PreferencesFactory.get();
 
     private final PathContainerService containerService;
     private final S3Session session;
     private final S3AttributesFinderFeature attributes;
+    private final Integer concurrency;
 
     public S3ObjectListService(final S3Session session) {
+        this(session, PreferencesFactory.get().getBoolean("s3.listing.partition.enable")
+            ? PreferencesFactory.get().getInteger("s3.listing.concurrency") : 1);
+    }
+
+    /**
+     * @param session     Connection
+     * @param concurrency Number of keyspace partitions to list in parallel when listing without delimiter. Lists
+     *                    sequentially with a value of 1.
+     */
+    public S3ObjectListService(final S3Session session, final Integer concurrency) {
         super(session);
         this.session = session;
+        this.concurrency = concurrency;
         this.attributes = new S3AttributesFinderFeature(session);
         this.containerService = session.getFeature(PathContainerService.class);
     }
@@ -67,6 +97,9 @@ public class S3ObjectListService extends S3AbstractListService implements ListSe
     }
 
     protected AttributedList<Path> list(final Path directory, final ListProgressListener listener, final String delimiter, final int chunksize) throws BackgroundException {
+        if(null == delimiter && concurrency > 1) {
+            return this.listConcurrent(directory, listener, chunksize);
+        }
         try {
             final String prefix = this.createPrefix(directory);
             // If this optional, Unicode string parameter is included with your request,
@@ -98,19 +131,7 @@ public class S3ObjectListService extends S3AbstractListService implements ListSe
                         hasDirectoryPlaceholder = true;
                         continue;
                     }
-                    final EnumSet<Path.Type> types = object.getKey().endsWith(String.valueOf(Path.DELIMITER))
-                        ? EnumSet.of(Path.Type.directory) : EnumSet.of(Path.Type.file);
-                    final Path file;
-                    final PathAttributes attr = attributes.toAttributes(object);
-                    // Copy bucket location
-                    attr.setRegion(bucket.attributes().getRegion());
-                    if(null == delimiter) {
-                        file = new Path(String.format("%s%s", bucket.getAbsolute(), key), types, attr);
-                    }
-                    else {
-                        file = new Path(directory.isDirectory() ? directory : directory.getParent(), PathNormalizer.name(key), types, attr);
-                    }
-                    children.add(file);
+                    children.add(this.toPath(bucket, directory, key, object, delimiter));
                 }
                 final String[] prefixes = chunk.getCommonPrefixes();
                 for(String common : prefixes) {
@@ -138,21 +159,187 @@ public class S3ObjectListService extends S3AbstractListService implements ListSe
             }
             while(priorLastKey != null);
             if(!hasDirectoryPlaceholder && children.isEmpty()) {
-                // Only for AWS
-                if(S3Session.isAwsHostname(session.getHost().getHostname())) {
-                    throw new NotfoundException(directory.getAbsolute());
+                this.verify(bucket, directory, prefix, delimiter);
+            }
+            return children;
+        }
+        catch(ServiceException e) {
+            throw new S3ExceptionMappingService().map("Listing directory {0} failed", e, directory);
+        }
+    }
+
+    /**
+     * Recursive listing of all keys with prefix of directory. The keyspace is split into partitions by common prefixes
+     * found up to the depth set in <code>s3.listing.partition.depth</code>. Pages of partitions are requested in parallel
+     * and merged into the listing on the calling thread as they complete. The listing is therefore not returned in
+     * lexicographic order.
+     */
+    private AttributedList<Path> listConcurrent(final Path directory, final ListProgressListener listener, final int chunksize) throws BackgroundException {
+        final CompletionService<Page> completion = new ExecutorCompletionService<>(pool.executor());
+        // Pages not yet submitted because of concurrency limit
+        final Deque<PageCallable> queued = new ArrayDeque<>();
+        final Set<Future<Page>> running = new HashSet<>();
+        try {
+            final String prefix = this.createPrefix(directory);
+            final Path bucket = containerService.getContainer(directory);
+            final int depth = preferences.getInteger("s3.listing.partition.depth");
+            final AttributedList<Path> children = new AttributedList<>();
+            boolean hasDirectoryPlaceholder = containerService.isContainer(directory);
+            queued.add(new PageCallable(bucket, directory, prefix, 0, depth, chunksize, null));
+            while(!queued.isEmpty() || !running.isEmpty()) {
+                while(!queued.isEmpty() && running.size() < concurrency) {
+                    running.add(completion.submit(queued.poll()));
                 }
-                // Handle missing prefix for directory placeholders in Minio
-                final StorageObjectsChunk chunk = session.getClient().listObjectsChunked(
-                    PathNormalizer.name(URIEncoder.encode(bucket.getName())), String.format("%s%s", this.createPrefix(directory.getParent()), directory.getName()), delimiter, 1, null);
-                if(Arrays.stream(chunk.getCommonPrefixes()).map(URIEncoder::decode).noneMatch(common -> common.equals(prefix))) {
-                    throw new NotfoundException(directory.getAbsolute());
+                final Future<Page> future = completion.take();
+                running.remove(future);
+                final Page page = this.get(future);
+                for(StorageObject object : page.chunk.getObjects()) {
+                    final String key = PathNormalizer.normalize(URIEncoder.decode(object.getKey()));
+                    if(String.valueOf(Path.DELIMITER).equals(key)) {
+                        log.warn(String.format("Skipping prefix %s", key));
+                        continue;
+                    }
+                    if(new Path(bucket, key, EnumSet.of(Path.Type.directory)).equals(directory)) {
+                        // Placeholder object, skip
+                        hasDirectoryPlaceholder = true;
+                        continue;
+                    }
+                    children.add(this.toPath(bucket, directory, key, object, null));
+                }
+                for(String common : page.chunk.getCommonPrefixes()) {
+                    if(String.valueOf(Path.DELIMITER).equals(common)) {
+                        log.warn(String.format("Skipping prefix %s", common));
+                        continue;
+                    }
+                    // Split keyspace with additional partition for common prefix
+                    queued.add(new PageCallable(bucket, directory, URIEncoder.decode(common), page.depth + 1, depth, chunksize, null));
+                }
+                if(null != page.chunk.getPriorLastKey()) {
+                    // Continue with next page of partition
+                    queued.add(new PageCallable(bucket, directory, page.prefix, page.depth, depth, chunksize,
+                        URIEncoder.decode(page.chunk.getPriorLastKey())));
                 }
+                listener.chunk(directory, children);
+            }
+            if(!hasDirectoryPlaceholder && children.isEmpty()) {
+                this.verify(bucket, directory, prefix, null);
             }
             return children;
         }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
         catch(ServiceException e) {
             throw new S3ExceptionMappingService().map("Listing directory {0} failed", e, directory);
         }
+        finally {
+            // Cancel pending requests
+            for(Future<Page> future : running) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Page get(final Future<Page> future) throws BackgroundException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e);
+        }
+        catch(ExecutionException e) {
+            log.warn(String.format("Listing failed with execution failure %s", e.getMessage()));
+            if(e.getCause() instanceof BackgroundException) {
+                throw (BackgroundException) e.getCause();
+            }
+            throw new DefaultExceptionMappingService().map(e.getCause());
+        }
+    }
+
+    private Path toPath(final Path bucket, final Path directory, final String key, final StorageObject object, final String delimiter) {
+        final EnumSet<Path.Type> types = object.getKey().endsWith(String.valueOf(Path.DELIMITER))
+            ? EnumSet.of(Path.Type.directory) : EnumSet.of(Path.Type.file);
+        final PathAttributes attr = attributes.toAttributes(object);
+        // Copy bucket location
+        attr.setRegion(bucket.attributes().getRegion());
+        if(null == delimiter) {
+            return new Path(String.format("%s%s", bucket.getAbsolute(), key), types, attr);
+        }
+        return new Path(directory.isDirectory() ? directory : directory.getParent(), PathNormalizer.name(key), types, attr);
+    }
+
+    /**
+     * Handle empty listing for directory without placeholder object
+     */
+    private void verify(final Path bucket, final Path directory, final String prefix, final String delimiter) throws ServiceException, BackgroundException {
+        // Only for AWS
+        if(S3Session.isAwsHostname(session.getHost().getHostname())) {
+            throw new NotfoundException(directory.getAbsolute());
+        }
+        // Handle missing prefix for directory placeholders in Minio
+        final StorageObjectsChunk chunk = session.getClient().listObjectsChunked(
+            PathNormalizer.name(URIEncoder.encode(bucket.getName())), String.format("%s%s", this.createPrefix(directory.getParent()), directory.getName()), delimiter, 1, null);
+        if(Arrays.stream(chunk.getCommonPrefixes()).map(URIEncoder::decode).noneMatch(common -> common.equals(prefix))) {
+            throw new NotfoundException(directory.getAbsolute());
+        }
+    }
+
+    /**
+     * Request single page of keys in partition
+     */
+    private final class PageCallable extends BackgroundExceptionCallable<Page> {
+        private final Path bucket;
+        private final Path directory;
+        private final String prefix;
+        private final int depth;
+        private final int maximum;
+        private final int chunksize;
+        private final String priorLastKey;
+
+        /**
+         * @param prefix       Prefix of partition
+         * @param depth        Level of partition below directory
+         * @param maximum      Maximum level to split keyspace into further partitions
+         * @param priorLastKey Marker to continue listing from or null for first page
+         */
+        public PageCallable(final Path bucket, final Path directory, final String prefix, final int depth, final int maximum,
+                            final int chunksize, final String priorLastKey) {
+            this.bucket = bucket;
+            this.directory = directory;
+            this.prefix = prefix;
+            this.depth = depth;
+            this.maximum = maximum;
+            this.chunksize = chunksize;
+            this.priorLastKey = priorLastKey;
+        }
+
+        @Override
+        public Page call() throws BackgroundException {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("List partition %s with depth %d after %s", prefix, depth, priorLastKey));
+            }
+            try {
+                // Roll up keys into common prefixes only to discover further partitions
+                final StorageObjectsChunk chunk = session.getClient().listObjectsChunked(
+                    bucket.isRoot() ? StringUtils.EMPTY : PathNormalizer.name(URIEncoder.encode(bucket.getName())), prefix,
+                    depth < maximum ? String.valueOf(Path.DELIMITER) : null, chunksize, priorLastKey, false);
+                return new Page(prefix, depth, chunk);
+            }
+            catch(ServiceException e) {
+                throw new S3ExceptionMappingService().map("Listing directory {0} failed", e, directory);
+            }
+        }
+    }
+
+    private static final class Page {
+        private final String prefix;
+        private final int depth;
+        private final StorageObjectsChunk chunk;
+
+        public Page(final String prefix, final int depth, final StorageObjectsChunk chunk) {
+            this.prefix = prefix;
+            this.depth = depth;
+            this.chunk = chunk;
+        }
     }
 }
@@ -37,6 +37,7 @@ import org.junit.experimental.categories.Category;
 
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -291,4 +292,28 @@ public class S3ObjectListServiceTest extends AbstractS3Test {
         assertTrue(new S3ObjectListService(session).list(placeholder, new DisabledListProgressListener()).isEmpty());
         new S3DefaultDeleteFeature(session).delete(Collections.singletonList(placeholder), new DisabledLoginCallback(), new Delete.DisabledCallback());
     }
+
+    @Test
+    public void testListRecursiveConcurrent() throws Exception {
+        final Path container = new Path("test-eu-central-1-cyberduck", EnumSet.of(Path.Type.directory, Path.Type.volume));
+        final Path directory = new S3DirectoryFeature(session, new S3WriteFeature(session)).mkdir(
+            new Path(container, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.directory)), new TransferStatus());
+        final Path subdirectory = new S3DirectoryFeature(session, new S3WriteFeature(session)).mkdir(
+            new Path(directory, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.directory)), new TransferStatus());
+        final Path file = new S3TouchFeature(session).touch(
+            new Path(directory, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.file)), new TransferStatus());
+        final Path nested = new S3TouchFeature(session).touch(
+            new Path(subdirectory, new AlphanumericRandomStringService().random(), EnumSet.of(Path.Type.file)), new TransferStatus());
+        final AttributedList<Path> sequential = new S3ObjectListService(session, 1).list(directory, new DisabledListProgressListener(), null, 1);
+        final AttributedList<Path> concurrent = new S3ObjectListService(session, 4).list(directory, new DisabledListProgressListener(), null, 1);
+        assertEquals(3, sequential.size());
+        assertEquals(sequential.size(), concurrent.size());
+        for(Path f : sequential) {
+            assertTrue(concurrent.contains(f));
+        }
+        assertTrue(concurrent.contains(subdirectory));
+        assertTrue(concurrent.contains(file));
+        assertTrue(concurrent.contains(nested));
+        new S3DefaultDeleteFeature(session).delete(Arrays.asList(nested, file, subdirectory, directory), new DisabledLoginCallback(), new Delete.DisabledCallback());
+    }
 }